@@ -0,0 +1,64 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class BenchmarkRunner
+{
+    /**
+     * Run the benchmarks with the standard JMH command line options, always adding the
+     * GC profiler so allocation rates are reported alongside the timings. Like the JMH
+     * launcher, -h, -l, -lp, -lprof, and -lrf print their listing instead of running.
+     * @param args The JMH command line arguments, such as a benchmark name filter.
+     */
+    public static void main( String[] args ) throws IOException, RunnerException
+    {
+        CommandLineOptions commandLineOptions;
+        try
+        {
+            commandLineOptions = new CommandLineOptions( args );
+        }
+        catch( CommandLineOptionException exception )
+        {
+            System.err.println( "Error parsing command line:\n " + exception.getMessage() );
+            System.exit( 1 );
+            return;
+        }
+
+        Runner runner = new Runner( new OptionsBuilder().parent( commandLineOptions ).addProfiler( GCProfiler.class ).build() );
+        if( commandLineOptions.shouldHelp() )
+        {
+            commandLineOptions.showHelp();
+        }
+        else if( commandLineOptions.shouldList() )
+        {
+            runner.list();
+        }
+        else if( commandLineOptions.shouldListWithParams() )
+        {
+            runner.listWithParams( commandLineOptions );
+        }
+        else if( commandLineOptions.shouldListProfilers() )
+        {
+            commandLineOptions.listProfilers();
+        }
+        else if( commandLineOptions.shouldListResultFormats() )
+        {
+            commandLineOptions.listResultFormats();
+        }
+        else
+        {
+            runner.run();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class HeaderCodecBenchmark
+{
+    /** The width and height of each sprite in pixels */
+    @Param( { "32", "128" } )
+    public int spriteSize;
+    /** The name encrypted into the header, formatted as NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT */
+    @Param( { "hero.0.64.64", "environment_forest_background_layer.1234.4096.4096" } )
+    public String imageChunkName;
+
+    private Object builder;
+    private Object parser;
+    private BufferedImage imageChunk;
+    private BufferedImage sprite;
+    /** The name table index, sprite number, and source image dimensions of the name, stored by binary headers */
+    private int[] headerFields;
+    private int[] binaryHeader;
+    private Object headerDecoder;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        builder    = SpriteSheetAccess.newBuilder( spriteSize );
+        parser     = SpriteSheetAccess.newParser( spriteSize );
+        imageChunk = new BufferedImage( spriteSize, spriteSize + SpriteSheetAccess.SPRITE_HEADER, BufferedImage.TYPE_INT_ARGB );
+
+        //Composite an encrypted chunk over the control color, as it appears in a built sprite sheet
+        sprite = new BufferedImage( spriteSize, spriteSize + SpriteSheetAccess.SPRITE_HEADER, BufferedImage.TYPE_INT_ARGB );
+        Graphics graphics = sprite.getGraphics();
+        graphics.setColor( SpriteSheetAccess.CONTROL_COLOR );
+        graphics.fillRect( 0, 0, sprite.getWidth(), sprite.getHeight() );
+        graphics.drawImage( SpriteSheetAccess.encryptImageNameHeader( builder, SyntheticImages.create( spriteSize, spriteSize + 1, 0 ), imageChunkName ), 0, 0, null );
+        graphics.dispose();
+
+        //Binary headers refer to the name by its name table index, the first name of a sprite sheet is 0
+        String[] chunkInfo = imageChunkName.split( "\\." );
+        headerFields  = new int[]{ 0, Integer.parseInt( chunkInfo[ 1 ] ), Integer.parseInt( chunkInfo[ 2 ] ), Integer.parseInt( chunkInfo[ 3 ] ) };
+        binaryHeader  = new int[ spriteSize ];
+        headerDecoder = SpriteSheetAccess.newHeaderDecoder();
+        SpriteSheetAccess.encodeHeader( binaryHeader, spriteSize, headerFields[ 0 ], headerFields[ 1 ], headerFields[ 2 ], headerFields[ 3 ] );
+    }
+
+    @Benchmark
+    public BufferedImage encryptImageNameHeader() throws Throwable
+    {
+        return SpriteSheetAccess.encryptImageNameHeader( builder, imageChunk, imageChunkName );
+    }
+
+    @Benchmark
+    public String decryptImageNameHeader() throws Throwable
+    {
+        return SpriteSheetAccess.decryptImageNameHeader( parser, sprite );
+    }
+
+    @Benchmark
+    public boolean encodeBinaryHeader() throws Throwable
+    {
+        return SpriteSheetAccess.encodeHeader( binaryHeader, spriteSize, headerFields[ 0 ], headerFields[ 1 ], headerFields[ 2 ], headerFields[ 3 ] );
+    }
+
+    @Benchmark
+    public boolean decodeBinaryHeader() throws Throwable
+    {
+        return SpriteSheetAccess.decodeHeader( headerDecoder, binaryHeader, spriteSize );
+    }
+}
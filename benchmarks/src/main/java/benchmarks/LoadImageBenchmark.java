@@ -0,0 +1,59 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class LoadImageBenchmark
+{
+    /** The width and height of the source image in pixels */
+    @Param( { "128", "1024" } )
+    public int imageSize;
+
+    private File imageFile;
+    private URL imageURL;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        imageFile = Files.createTempFile( "spritesheet-benchmark", ".png" ).toFile();
+        ImageIO.write( SyntheticImages.create( imageSize, imageSize, imageSize ), "png", imageFile );
+        imageURL  = imageFile.toURI().toURL();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        SyntheticImages.delete( imageFile );
+    }
+
+    /** Load an image into the TYPE_INT_ARGB layout used by the builder */
+    @Benchmark
+    public BufferedImage loadImage() throws Throwable
+    {
+        return SpriteSheetAccess.loadImage( imageURL );
+    }
+
+    /** Decode the same image with ImageIO alone, in whatever layout the decoder picks, for reference */
+    @Benchmark
+    public BufferedImage imageIoRead() throws IOException
+    {
+        return ImageIO.read( imageURL );
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.SingleShotTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 0 )
+@Measurement( iterations = 1 )
+@Fork( value = 10, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class LoadImageStartupBenchmark
+{
+    /** The width and height of the source image in pixels */
+    private static final int IMAGE_SIZE = 64;
+
+    private File imageFile;
+    private URL imageURL;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        //Write the image without ImageIO or Graphics, so the measured load is the first use of the imaging stack
+        int[] pixels = new int[ IMAGE_SIZE * IMAGE_SIZE ];
+        for( int index = 0; index < pixels.length; index++ )
+        {
+            pixels[ index ] = ( ( index & 0xff ) << 24 ) | ( ( index * 0x9E3779B1 ) >>> 8 );
+        }
+
+        imageFile = Files.createTempFile( "spritesheet-benchmark", ".png" ).toFile();
+        SpriteSheetAccess.writePng( pixels, IMAGE_SIZE, IMAGE_SIZE, imageFile );
+        imageURL  = imageFile.toURI().toURL();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        SyntheticImages.delete( imageFile );
+    }
+
+    /** Load the first image in a fresh JVM, including decoder registration and class loading */
+    @Benchmark
+    public BufferedImage firstLoadImage() throws Throwable
+    {
+        return SpriteSheetAccess.loadImage( imageURL );
+    }
+}
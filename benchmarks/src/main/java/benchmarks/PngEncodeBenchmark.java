@@ -0,0 +1,111 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class PngEncodeBenchmark
+{
+    /** The deflate compression level, -1 with the adaptive filter is the default settings which write with ImageIO */
+    @Param( { "-1", "0", "1", "6", "9" } )
+    public int compressionLevel;
+    /** The row filter strategy */
+    @Param( { "ADAPTIVE", "NONE", "PAETH" } )
+    public String filterStrategy;
+    /** The number of source images in the encoded sprite sheet */
+    @Param( { "64" } )
+    public int imageCount;
+
+    private File workDirectory;
+    private File outputFile;
+    private BufferedImage spriteSheet;
+    private Object pngEncoderSettings;
+
+    /**
+     * The megabytes of raw RGBA pixels encoded. Counted as operations, so with the average time mode JMH reports
+     * the encode time per megabyte of pixels alongside the time per sprite sheet.
+     */
+    @State( Scope.Thread )
+    @AuxCounters( AuxCounters.Type.OPERATIONS )
+    public static class EncodeCounters
+    {
+        /** The megabytes of raw RGBA pixels encoded during the iteration, reported in ms per megabyte */
+        public double rawMegabytes;
+
+        @Setup( Level.Iteration )
+        public void reset()
+        {
+            rawMegabytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        pngEncoderSettings = SpriteSheetAccess.newPngEncoderSettings( compressionLevel, filterStrategy );
+
+        //Silence the progress output of the tool
+        PrintStream standardOut = System.out;
+        System.setOut( new PrintStream( new OutputStream()
+        {
+            @Override
+            public void write( int value )
+            {
+            }
+        } ) );
+
+        //Build a representative sprite sheet from generated source images and load it
+        try
+        {
+            workDirectory = Files.createTempDirectory( "spritesheet-benchmark" ).toFile();
+            File sourceDirectory = new File( workDirectory, "source" );
+            if( !sourceDirectory.mkdir() )
+            {
+                throw new IOException( "Unable to create benchmark directories in: " + workDirectory );
+            }
+
+            SyntheticImages.writeSourceDirectory( sourceDirectory, imageCount, 96 );
+            SpriteSheetAccess.buildSpriteSheet( SpriteSheetAccess.newManager( 32 ), sourceDirectory.getPath(), workDirectory.getPath() );
+            spriteSheet = SpriteSheetAccess.loadImage( new File( workDirectory, "spritesheet_32.png" ).toURI().toURL() );
+            outputFile  = new File( workDirectory, "encoded.png" );
+        }
+        finally
+        {
+            System.setOut( standardOut );
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        //The encoded size is the same for every write with the same settings, so it is reported once
+        double rawMegabytes = ( spriteSheet.getWidth() * ( double )spriteSheet.getHeight() * 4 ) / ( 1024 * 1024 );
+        System.out.println( String.format( Locale.ROOT, "%nEncoded sprite sheet with compressionLevel=%d filterStrategy=%s: %d bytes from %.2f MB of raw pixels.",
+                                           compressionLevel, filterStrategy, outputFile.length(), rawMegabytes ) );
+        SyntheticImages.delete( workDirectory );
+    }
+
+    @Benchmark
+    public void writePng( EncodeCounters counters ) throws Throwable
+    {
+        SpriteSheetAccess.writePng( spriteSheet, outputFile, pngEncoderSettings );
+        counters.rawMegabytes += ( spriteSheet.getWidth() * ( double )spriteSheet.getHeight() * 4 ) / ( 1024 * 1024 );
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class RoundTripBenchmark
+{
+    /** The width and height of each sprite in pixels */
+    @Param( { "64" } )
+    public int spriteSize;
+    /** The number of source images */
+    @Param( { "8", "64" } )
+    public int imageCount;
+    /** The width and height of each source image in pixels */
+    @Param( { "128", "512" } )
+    public int imageSize;
+
+    private File workDirectory;
+    private File sourceDirectory;
+    private File sheetDirectory;
+    private File parsedDirectory;
+    private PrintStream standardOut;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        //Silence the progress output of the tool
+        standardOut = System.out;
+        System.setOut( new PrintStream( new OutputStream()
+        {
+            @Override
+            public void write( int value )
+            {
+            }
+        } ) );
+
+        //Generate the source images and a sprite sheet to parse
+        workDirectory   = Files.createTempDirectory( "spritesheet-benchmark" ).toFile();
+        sourceDirectory = new File( workDirectory, "source" );
+        sheetDirectory  = new File( workDirectory, "sheet" );
+        parsedDirectory = new File( workDirectory, "parsed" );
+        if( !sourceDirectory.mkdir() || !sheetDirectory.mkdir() || !parsedDirectory.mkdir() )
+        {
+            throw new IOException( "Unable to create benchmark directories in: " + workDirectory );
+        }
+
+        SyntheticImages.writeSourceDirectory( sourceDirectory, imageCount, imageSize );
+        SpriteSheetAccess.buildSpriteSheet( SpriteSheetAccess.newManager( spriteSize ), sourceDirectory.getPath(), sheetDirectory.getPath() );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        System.setOut( standardOut );
+        SyntheticImages.delete( workDirectory );
+    }
+
+    @Benchmark
+    public void buildSpriteSheet() throws Throwable
+    {
+        SpriteSheetAccess.buildSpriteSheet( SpriteSheetAccess.newManager( spriteSize ), sourceDirectory.getPath(), sheetDirectory.getPath() );
+    }
+
+    @Benchmark
+    public void parseSpriteSheet() throws Throwable
+    {
+        SpriteSheetAccess.parseSpriteSheet( SpriteSheetAccess.newManager( spriteSize ), spriteSheetPath(), parsedDirectory.getPath() );
+    }
+
+    @Benchmark
+    public void roundTrip() throws Throwable
+    {
+        Object manager = SpriteSheetAccess.newManager( spriteSize );
+        SpriteSheetAccess.buildSpriteSheet( manager, sourceDirectory.getPath(), sheetDirectory.getPath() );
+        SpriteSheetAccess.parseSpriteSheet( manager, spriteSheetPath(), parsedDirectory.getPath() );
+    }
+
+    private String spriteSheetPath()
+    {
+        return new File( sheetDirectory, "spritesheet_" + spriteSize + ".png" ).getPath();
+    }
+}
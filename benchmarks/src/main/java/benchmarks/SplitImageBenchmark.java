@@ -0,0 +1,43 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class SplitImageBenchmark
+{
+    /** The width and height of each sprite in pixels */
+    @Param( { "32", "64", "128" } )
+    public int spriteSize;
+    /** The width and height of the source image in pixels */
+    @Param( { "256", "1024", "4096" } )
+    public int imageSize;
+
+    private Object builder;
+    private BufferedImage image;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        builder = SpriteSheetAccess.newBuilder( spriteSize );
+        image   = SyntheticImages.create( imageSize, imageSize, imageSize );
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, BufferedImage> splitImage() throws Throwable
+    {
+        return SpriteSheetAccess.splitImage( builder, image, "benchmark" );
+    }
+}
@@ -0,0 +1,191 @@
+package benchmarks;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.LinkedHashMap;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+final class SpriteSheetAccess
+{
+    /** The control color used by the SpriteSheetManager */
+    static final Color CONTROL_COLOR = new Color( 239, 11, 244, 255 );
+    /** The height of the sprite header used by the SpriteSheetManager */
+    static final byte SPRITE_HEADER = 1;
+
+    /** Handles to the constructors and methods under test, the tool lives in the default package so it must be reached reflectively */
+    private static final MethodHandle NEW_BUILDER;
+    private static final MethodHandle NEW_PARSER;
+    private static final MethodHandle NEW_MANAGER;
+    private static final MethodHandle SPLIT_IMAGE;
+    private static final MethodHandle ENCRYPT_HEADER;
+    private static final MethodHandle DECRYPT_HEADER;
+    private static final MethodHandle NEW_HEADER_DECODER;
+    private static final MethodHandle ENCODE_HEADER;
+    private static final MethodHandle DECODE_HEADER;
+    private static final MethodHandle TRIM_SPRITE;
+    private static final MethodHandle BUILD_SPRITE_SHEET;
+    private static final MethodHandle PARSE_SPRITE_SHEET;
+    private static final MethodHandle LOAD_IMAGE;
+    private static final MethodHandle NEW_PNG_WRITER;
+    private static final MethodHandle WRITE_PNG_ROWS;
+    private static final MethodHandle NEW_PNG_SETTINGS;
+    private static final MethodHandle WRITE_PNG;
+    private static final Class<?> FILTER_STRATEGY_CLASS;
+
+    static
+    {
+        try
+        {
+            Class<?> builderClass = Class.forName( "SpriteSheetBuilder" );
+            Class<?> parserClass  = Class.forName( "SpriteSheetParser" );
+            Class<?> managerClass = Class.forName( "SpriteSheetManager" );
+            Class<?> utilClass    = Class.forName( "SpriteUtil" );
+            Class<?> writerClass  = Class.forName( "PngBandWriter" );
+            Class<?> headerClass  = Class.forName( "SpriteHeader" );
+            Class<?> pngSettingsClass = Class.forName( "PngEncoderSettings" );
+            FILTER_STRATEGY_CLASS = Class.forName( "PngEncoderSettings$FilterStrategy" );
+
+            NEW_BUILDER        = constructor( builderClass, int.class, byte.class, Color.class, int.class );
+            NEW_PARSER         = constructor( parserClass,  int.class, byte.class, Color.class );
+            NEW_MANAGER        = constructor( managerClass, int.class, int.class );
+            SPLIT_IMAGE        = method( builderClass, "splitImage",             BufferedImage.class, String.class );
+            ENCRYPT_HEADER     = method( builderClass, "encryptImageNameHeader", BufferedImage.class, String.class );
+            DECRYPT_HEADER     = method( parserClass,  "decryptImageNameHeader", BufferedImage.class );
+            NEW_HEADER_DECODER = constructor( headerClass );
+            ENCODE_HEADER      = method( headerClass,  "encode",                 int[].class, int.class, int.class, int.class, int.class, int.class, int.class, int.class );
+            DECODE_HEADER      = method( headerClass,  "decode",                 int[].class, int.class, int.class );
+            TRIM_SPRITE        = method( parserClass,  "trimSpriteImage",        BufferedImage.class );
+            BUILD_SPRITE_SHEET = method( managerClass, "buildSpriteSheet",       String.class, String.class );
+            PARSE_SPRITE_SHEET = method( managerClass, "parseSpriteSheet",       String.class, String.class );
+            LOAD_IMAGE         = method( utilClass,    "loadImage",              URL.class );
+            NEW_PNG_WRITER     = constructor( writerClass, OutputStream.class, int.class, int.class );
+            WRITE_PNG_ROWS     = method( writerClass,  "writeRows",              int[].class, int.class, int.class, int.class );
+            NEW_PNG_SETTINGS   = constructor( pngSettingsClass, int.class, FILTER_STRATEGY_CLASS );
+            WRITE_PNG          = method( utilClass,    "writePng",               BufferedImage.class, File.class, pngSettingsClass );
+        }
+        catch( ReflectiveOperationException exception )
+        {
+            throw new ExceptionInInitializerError( exception );
+        }
+    }
+
+    private SpriteSheetAccess()
+    {
+    }
+
+    static Object newBuilder( int spriteSize ) throws Throwable
+    {
+        return NEW_BUILDER.invoke( spriteSize, SPRITE_HEADER, CONTROL_COLOR, 1 );
+    }
+
+    static Object newParser( int spriteSize ) throws Throwable
+    {
+        return NEW_PARSER.invoke( spriteSize, SPRITE_HEADER, CONTROL_COLOR );
+    }
+
+    static Object newManager( int spriteSize ) throws Throwable
+    {
+        return NEW_MANAGER.invoke( spriteSize, Runtime.getRuntime().availableProcessors() );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    static LinkedHashMap<String, BufferedImage> splitImage( Object builder, BufferedImage image, String imageName ) throws Throwable
+    {
+        return ( LinkedHashMap<String, BufferedImage> )SPLIT_IMAGE.invoke( builder, image, imageName );
+    }
+
+    static BufferedImage encryptImageNameHeader( Object builder, BufferedImage image, String imageName ) throws Throwable
+    {
+        return ( BufferedImage )ENCRYPT_HEADER.invoke( builder, image, imageName );
+    }
+
+    static String decryptImageNameHeader( Object parser, BufferedImage sprite ) throws Throwable
+    {
+        return ( String )DECRYPT_HEADER.invoke( parser, sprite );
+    }
+
+    static Object newHeaderDecoder() throws Throwable
+    {
+        return NEW_HEADER_DECODER.invoke();
+    }
+
+    static boolean encodeHeader( int[] pixels, int headerPixels, int nameId, int number, int srcImageWidth, int srcImageHeight ) throws Throwable
+    {
+        return ( boolean )ENCODE_HEADER.invoke( pixels, 0, headerPixels, nameId, number, srcImageWidth, srcImageHeight, CONTROL_COLOR.getRGB() );
+    }
+
+    static boolean decodeHeader( Object decoder, int[] pixels, int headerPixels ) throws Throwable
+    {
+        return ( boolean )DECODE_HEADER.invoke( decoder, pixels, 0, headerPixels );
+    }
+
+    static BufferedImage trimSpriteImage( Object parser, BufferedImage sprite ) throws Throwable
+    {
+        return ( BufferedImage )TRIM_SPRITE.invoke( parser, sprite );
+    }
+
+    static void buildSpriteSheet( Object manager, String sourceDirectory, String destinationDirectory ) throws Throwable
+    {
+        BUILD_SPRITE_SHEET.invoke( manager, sourceDirectory, destinationDirectory );
+    }
+
+    static void parseSpriteSheet( Object manager, String spriteSheetPath, String destinationDirectory ) throws Throwable
+    {
+        PARSE_SPRITE_SHEET.invoke( manager, spriteSheetPath, destinationDirectory );
+    }
+
+    static BufferedImage loadImage( URL imageURL ) throws Throwable
+    {
+        return ( BufferedImage )LOAD_IMAGE.invoke( imageURL );
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    static Object newPngEncoderSettings( int compressionLevel, String filterStrategy ) throws Throwable
+    {
+        return NEW_PNG_SETTINGS.invoke( compressionLevel, Enum.valueOf( ( Class )FILTER_STRATEGY_CLASS, filterStrategy ) );
+    }
+
+    static void writePng( BufferedImage image, File file, Object pngEncoderSettings ) throws Throwable
+    {
+        WRITE_PNG.invoke( image, file, pngEncoderSettings );
+    }
+
+    /**
+     * Write packed ARGB pixels to a .png file with the tool's own encoder, so the file can be
+     * created without initializing ImageIO or any other part of the imaging stack under test.
+     */
+    static void writePng( int[] argb, int width, int height, File file ) throws Throwable
+    {
+        try( Closeable writer = ( Closeable )NEW_PNG_WRITER.invoke( ( OutputStream )new BufferedOutputStream( new FileOutputStream( file ) ), width, height ) )
+        {
+            WRITE_PNG_ROWS.invoke( writer, argb, 0, width, height );
+        }
+    }
+
+    private static MethodHandle constructor( Class<?> owner, Class<?>... parameterTypes ) throws ReflectiveOperationException
+    {
+        Constructor<?> constructor = owner.getDeclaredConstructor( parameterTypes );
+        constructor.setAccessible( true );
+        return MethodHandles.lookup().unreflectConstructor( constructor );
+    }
+
+    private static MethodHandle method( Class<?> owner, String name, Class<?>... parameterTypes ) throws ReflectiveOperationException
+    {
+        Method method = owner.getDeclaredMethod( name, parameterTypes );
+        method.setAccessible( true );
+        return MethodHandles.lookup().unreflect( method );
+    }
+}
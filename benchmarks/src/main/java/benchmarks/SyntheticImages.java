@@ -0,0 +1,87 @@
+package benchmarks;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+final class SyntheticImages
+{
+    private SyntheticImages()
+    {
+    }
+
+    /**
+     * Create a deterministic, sprite-like image: a transparent background with
+     * gradient filled shapes and a band of per-pixel noise.
+     * @param width The width of the image in pixels.
+     * @param height The height of the image in pixels.
+     * @param seed The seed used to place the shapes and noise.
+     * @return The generated TYPE_INT_ARGB image.
+     */
+    static BufferedImage create( int width, int height, long seed )
+    {
+        Random random = new Random( seed );
+        BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+        Graphics2D graphics = image.createGraphics();
+
+        //Draw a handful of gradient filled shapes
+        for( int shape = 0; shape < 8; shape++ )
+        {
+            int x = random.nextInt( width );
+            int y = random.nextInt( height );
+            graphics.setPaint( new GradientPaint( x, y, new Color( random.nextInt() ), x + width / 4f, y + height / 4f, new Color( random.nextInt(), true ) ) );
+            graphics.fillOval( x - width / 4, y - height / 4, width / 2, height / 2 );
+        }
+        graphics.dispose();
+
+        //Add a band of noise so the image does not compress unrealistically well
+        for( int y = height / 3; y < ( height / 3 ) + Math.max( 1, height / 10 ); y++ )
+        {
+            for( int x = 0; x < width; x++ )
+            {
+                image.setRGB( x, y, 0xff000000 | random.nextInt() );
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Write a set of generated images to the given directory as .png files.
+     * @param directory The directory to write to, it must exist.
+     * @param count The number of images to write.
+     * @param size The width and height of each image in pixels.
+     * @throws IOException If an image could not be written.
+     */
+    static void writeSourceDirectory( File directory, int count, int size ) throws IOException
+    {
+        for( int index = 0; index < count; index++ )
+        {
+            ImageIO.write( create( size, size, index ), "png", new File( directory, "image_" + index + ".png" ) );
+        }
+    }
+
+    /**
+     * Recursively delete a directory.
+     * @param file The file or directory to delete.
+     */
+    static void delete( File file )
+    {
+        File[] children = file.listFiles();
+        if( children != null )
+        {
+            for( File child : children )
+            {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class TrimSpriteBenchmark
+{
+    /** The width and height of each sprite in pixels */
+    @Param( { "32", "128" } )
+    public int spriteSize;
+    /** The percentage of the sprite width and height covered by image pixels, the rest is control color */
+    @Param( { "50", "100" } )
+    public int coverage;
+
+    private Object parser;
+    private BufferedImage sprite;
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        parser = SpriteSheetAccess.newParser( spriteSize );
+
+        //Create an edge sprite padded with the control color, as it appears in a built sprite sheet
+        int imageSize = Math.max( 1, ( spriteSize * coverage ) / 100 );
+        sprite = new BufferedImage( spriteSize, spriteSize + SpriteSheetAccess.SPRITE_HEADER, BufferedImage.TYPE_INT_ARGB );
+        Graphics graphics = sprite.getGraphics();
+        graphics.setColor( SpriteSheetAccess.CONTROL_COLOR );
+        graphics.fillRect( 0, 0, sprite.getWidth(), sprite.getHeight() );
+        graphics.setColor( Color.DARK_GRAY );
+        graphics.fillRect( 0, SpriteSheetAccess.SPRITE_HEADER, imageSize, imageSize );
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage trimSpriteImage() throws Throwable
+    {
+        return SpriteSheetAccess.trimSpriteImage( parser, sprite );
+    }
+}
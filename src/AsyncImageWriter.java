@@ -0,0 +1,165 @@
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class AsyncImageWriter implements Closeable
+{
+    /** The threads encoding and writing images */
+    private ExecutorService encoderPool;
+    /** The compression level and row filter images are encoded with */
+    private PngEncoderSettings settings;
+    /** The permits for images waiting to be or being written, acquiring a permit blocks while the queue is full */
+    private Semaphore pendingImages;
+    /** The number of images written so far */
+    private AtomicInteger imagesWritten;
+    /** The number of images that could not be written */
+    private AtomicInteger imagesFailed;
+    /** The total and longest time spent encoding and writing a single image in nanoseconds */
+    private AtomicLong totalEncodeNanos;
+    private AtomicLong maxEncodeNanos;
+    /** The time the writer was created in nanoseconds */
+    private long startNanos;
+    /** The metrics recording the time and bytes of every image written */
+    private BuildMetrics metrics;
+
+    /**
+     * The AsyncImageWriter class is used to encode and write images as .png files on a pool of encoder
+     * threads, so the thread producing images doesn't wait on compression. At most maxPendingImages images
+     * are queued or being written at once, further writes block until an image has been written, so
+     * produced images can't pile up in memory. The encode latency of every file is reported.
+     * @param encoderThreads The positive, non-zero number of threads encoding images.
+     * @param maxPendingImages The positive, non-zero number of images that may be queued or being written at once.
+     * @param settings The compression level and row filter to encode images with.
+     */
+    public AsyncImageWriter( int encoderThreads, int maxPendingImages, PngEncoderSettings settings )
+    {
+        this( encoderThreads, maxPendingImages, settings, BuildMetrics.DISABLED );
+    }
+
+    /**
+     * The AsyncImageWriter class is used to encode and write images as .png files on a pool of encoder
+     * threads, recording the time and file bytes of every image written as the writeSprite stage.
+     * @param encoderThreads The positive, non-zero number of threads encoding images.
+     * @param maxPendingImages The positive, non-zero number of images that may be queued or being written at once.
+     * @param settings The compression level and row filter to encode images with.
+     * @param metrics The metrics to record into, or null to record nothing.
+     */
+    public AsyncImageWriter( int encoderThreads, int maxPendingImages, PngEncoderSettings settings, BuildMetrics metrics )
+    {
+        this.metrics          = ( metrics == null ) ? BuildMetrics.DISABLED : metrics;
+        this.settings         = settings;
+        this.encoderPool      = Executors.newFixedThreadPool( Math.max( 1, encoderThreads ) );
+        this.pendingImages    = new Semaphore( Math.max( 1, maxPendingImages ) );
+        this.imagesWritten    = new AtomicInteger();
+        this.imagesFailed     = new AtomicInteger();
+        this.totalEncodeNanos = new AtomicLong();
+        this.maxEncodeNanos   = new AtomicLong();
+        this.startNanos       = System.nanoTime();
+    }
+
+    /**
+     * Queue an image to be written as a .png file, blocking while the queue is full.
+     * The image must not be modified until it has been written.
+     * @param image The image to write.
+     * @param file The file to write the image to.
+     * @throws InterruptedException If interrupted while waiting for space in the queue.
+     */
+    public void write( BufferedImage image, File file ) throws InterruptedException
+    {
+        pendingImages.acquire();
+        long queuedNanos = System.nanoTime();
+        try
+        {
+            encoderPool.execute( () -> encode( image, file, queuedNanos ) );
+        }
+        catch( RuntimeException exception )
+        {
+            pendingImages.release();
+            throw exception;
+        }
+    }
+
+    /**
+     * Wait for every queued image to be written, stop the encoder threads, and report the total encode time.
+     * @throws IOException If interrupted while waiting for the queued images, or if any image could not be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        encoderPool.shutdown();
+        try
+        {
+            encoderPool.awaitTermination( Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+        }
+        catch( InterruptedException exception )
+        {
+            Thread.currentThread().interrupt();
+            encoderPool.shutdownNow();
+            throw new IOException( "Interrupted while writing images.", exception );
+        }
+
+        //Report the encode times of every image
+        int written = imagesWritten.get();
+        if( written > 0 )
+        {
+            System.out.printf( "Wrote %d images in %.1f ms, average encode %.1f ms, longest %.1f ms.%n", written, ( System.nanoTime() - startNanos ) / 1e6,
+                               ( totalEncodeNanos.get() / 1e6 ) / written, maxEncodeNanos.get() / 1e6 );
+        }
+        if( imagesFailed.get() > 0 )
+        {
+            throw new IOException( "Unable to write " + imagesFailed.get() + " of " + ( written + imagesFailed.get() ) + " images." );
+        }
+    }
+
+    /**
+     * Encode and write a single image as a .png file, reporting how long it took. Runs on an encoder thread.
+     * @param image The image to write.
+     * @param file The file to write the image to.
+     * @param queuedNanos The time the image was queued in nanoseconds.
+     */
+    private void encode( BufferedImage image, File file, long queuedNanos )
+    {
+        long encodeStartNanos = System.nanoTime();
+        long writeStartNanos  = metrics.start();
+        try
+        {
+            //Write the image to a .png file, don't use jpeg because it has lossy compression
+            SpriteUtil.writePng( image, file, settings );
+
+            long encodeNanos = System.nanoTime() - encodeStartNanos;
+            metrics.end( BuildMetrics.Stage.WRITE_SPRITE, writeStartNanos );
+            metrics.addBytesWritten( BuildMetrics.Stage.WRITE_SPRITE, file.length() );
+            totalEncodeNanos.addAndGet( encodeNanos );
+            maxEncodeNanos.accumulateAndGet( encodeNanos, Math::max );
+            imagesWritten.incrementAndGet();
+            System.out.printf( "Wrote: %s, encoded in %.1f ms after %.1f ms queued%n", file.getName(), encodeNanos / 1e6, ( encodeStartNanos - queuedNanos ) / 1e6 );
+        }
+        catch( IOException exception )
+        {
+            imagesFailed.incrementAndGet();
+            System.out.println( "Error writing file: " + file.getName() );
+            exception.printStackTrace();
+        }
+        catch( IllegalArgumentException exception )
+        {
+            imagesFailed.incrementAndGet();
+            System.out.println( "Unable to write to: " + file.getPath() );
+            exception.printStackTrace();
+        }
+        finally
+        {
+            pendingImages.release();
+        }
+    }
+}
@@ -0,0 +1,481 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class BuildMetrics
+{
+    /** The metrics used when none are requested, recording nothing */
+    public static final BuildMetrics DISABLED = new BuildMetrics( false, false );
+    /** The minimum time between two samples of the heap usage in nanoseconds */
+    private static final long HEAP_SAMPLE_INTERVAL_NANOS = 1_000_000;
+
+    /**
+     * The stages of building and parsing sprite sheets that are measured.
+     */
+    public enum Stage
+    {
+        /** Listing, loading, and splitting every source image of a build */
+        LOAD_SOURCE_IMAGES( "loadSourceImages" ),
+        /** Decoding a single source image file */
+        DECODE_SOURCE_IMAGE( "decodeSourceImage" ),
+        /** Splitting a single source image into chunks, including encrypting their text headers */
+        SPLIT_IMAGE( "splitImage" ),
+        /** Encoding the header of a single chunk when its sprite sheet is written */
+        ENCODE_HEADER( "encryptImageNameHeader" ),
+        /** Drawing the chunks of a sprite sheet or band into an image */
+        COMPOSITE( "composite" ),
+        /** Encoding and writing a sprite sheet or page file */
+        WRITE_SPRITE_SHEET( "writeSpriteSheet" ),
+        /** Decoding a sprite sheet file, whole or in bands */
+        LOAD_SPRITE_SHEET( "loadSpriteSheet" ),
+        /** Cutting a single sprite from a sprite sheet and placing it in its source image, including decoding its header */
+        ADD_SPRITE( "addSprite" ),
+        /** Decoding the name header of a single sprite */
+        DECODE_HEADER( "decryptImageNameHeader" ),
+        /** Encoding and writing a single parsed source image file */
+        WRITE_SPRITE( "writeSprite" );
+
+        /** The name of the stage in the report */
+        private final String reportName;
+
+        Stage( String reportName )
+        {
+            this.reportName = reportName;
+        }
+    }
+
+    /**
+     * The measurements of a single stage, updated from any thread.
+     */
+    private static class StageMetrics
+    {
+        /** The number of times the stage ran */
+        LongAdder calls        = new LongAdder();
+        /** The total time spent in the stage summed over every thread in nanoseconds */
+        LongAdder totalNanos   = new LongAdder();
+        /** The number of file bytes read and written by the stage */
+        LongAdder bytesRead    = new LongAdder();
+        LongAdder bytesWritten = new LongAdder();
+        /** The number of chunks produced or consumed by the stage */
+        LongAdder chunks       = new LongAdder();
+        /** The longest single run of the stage in nanoseconds */
+        AtomicLong maxNanos    = new AtomicLong();
+        /** The start of the first and the end of the last run of the stage, the wall time it spanned */
+        AtomicLong firstStartNanos = new AtomicLong( Long.MAX_VALUE );
+        AtomicLong lastEndNanos    = new AtomicLong( Long.MIN_VALUE );
+    }
+
+    /** Whether measurements are recorded */
+    private boolean enabled;
+    /** The measurements of each stage */
+    private EnumMap<Stage, StageMetrics> stages;
+    /** The emitter of JFR stage events, or null if events are not emitted */
+    private JfrStageEvents jfrEvents;
+    /** The time the metrics were created in nanoseconds */
+    private long createdNanos;
+    /** The source of the heap usage of the JVM, or null if measurements aren't recorded */
+    private MemoryMXBean memoryBean;
+    /** The highest heap usage sampled so far in bytes, and the time of the last sample in nanoseconds */
+    private AtomicLong peakHeapBytes;
+    private AtomicLong lastHeapSampleNanos;
+
+    /**
+     * The BuildMetrics class records the time, file bytes, and chunk counts of each stage of building
+     * and parsing sprite sheets, along with the peak heap usage, and reports them as JSON. Stages running
+     * on several threads report both the total time summed over every thread and the wall time from the
+     * first start to the last end. Safe to use from multiple threads. The peak heap usage is approximate: it is
+     * the highest heap usage of the whole JVM sampled as stages end, at most once per millisecond, so it includes
+     * any other work running at the same time and may miss short spikes between samples. Sampling leaves the
+     * JVM's own peak usage counters untouched, so metrics of jobs running side by side don't disturb each other.
+     * @param enabled True to record measurements, false to ignore them.
+     * @param jfrEvents True to also emit a JFR event named spritesheet.Stage for every run of a stage,
+     *                  if the JVM supports JFR. Events are only recorded while a flight recording is running.
+     */
+    public BuildMetrics( boolean enabled, boolean jfrEvents )
+    {
+        this.enabled      = enabled;
+        this.stages       = new EnumMap<>( Stage.class );
+        this.createdNanos = System.nanoTime();
+        this.peakHeapBytes       = new AtomicLong();
+        this.lastHeapSampleNanos = new AtomicLong( createdNanos );
+        for( Stage stage : Stage.values() )
+        {
+            stages.put( stage, new StageMetrics() );
+        }
+
+        if( enabled )
+        {
+            //Sample the heap usage as stages end rather than resetting the JVM-wide peak, which other jobs may be measuring
+            memoryBean = ManagementFactory.getMemoryMXBean();
+            sampleHeapUsage( createdNanos, true );
+
+            if( jfrEvents )
+            {
+                try
+                {
+                    this.jfrEvents = new JfrStageEvents();
+                }
+                catch( ReflectiveOperationException | RuntimeException exception )
+                {
+                    System.out.println( "JFR events are not supported by this JVM, only the report is recorded." );
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the start time of a run of a stage, to be passed to end.
+     * @return The current time in nanoseconds, or 0 if measurements aren't recorded.
+     */
+    public long start()
+    {
+        if( !enabled )
+        {
+            return 0;
+        }
+
+        long startNanos = System.nanoTime();
+        if( jfrEvents != null )
+        {
+            startNanos = jfrEvents.begin( startNanos );
+        }
+        return startNanos;
+    }
+
+    /**
+     * Record the end of a run of a stage.
+     * @param stage The stage that ran.
+     * @param startNanos The start time returned by start.
+     */
+    public void end( Stage stage, long startNanos )
+    {
+        if( !enabled )
+        {
+            return;
+        }
+
+        long endNanos     = System.nanoTime();
+        long elapsedNanos = endNanos - startNanos;
+        StageMetrics metrics = stages.get( stage );
+        metrics.calls.increment();
+        metrics.totalNanos.add( elapsedNanos );
+        metrics.maxNanos.accumulateAndGet( elapsedNanos, Math::max );
+        metrics.firstStartNanos.accumulateAndGet( startNanos, Math::min );
+        metrics.lastEndNanos.accumulateAndGet( endNanos, Math::max );
+
+        if( jfrEvents != null )
+        {
+            jfrEvents.commit( startNanos, stage.reportName, elapsedNanos );
+        }
+        sampleHeapUsage( endNanos, false );
+    }
+
+    /**
+     * Sample the heap usage of the JVM, raising the peak if it is higher.
+     * @param nowNanos The current time in nanoseconds.
+     * @param force True to sample regardless of the time since the last sample.
+     */
+    private void sampleHeapUsage( long nowNanos, boolean force )
+    {
+        //Only one of the threads ending a stage at the same time samples
+        long lastSampleNanos = lastHeapSampleNanos.get();
+        if( !force && ( ( ( nowNanos - lastSampleNanos ) < HEAP_SAMPLE_INTERVAL_NANOS ) || !lastHeapSampleNanos.compareAndSet( lastSampleNanos, nowNanos ) ) )
+        {
+            return;
+        }
+        peakHeapBytes.accumulateAndGet( memoryBean.getHeapMemoryUsage().getUsed(), Math::max );
+    }
+
+    /**
+     * Record file bytes read by a stage.
+     * @param stage The stage that read the bytes.
+     * @param bytes The number of bytes read.
+     */
+    public void addBytesRead( Stage stage, long bytes )
+    {
+        if( enabled )
+        {
+            stages.get( stage ).bytesRead.add( bytes );
+        }
+    }
+
+    /**
+     * Record file bytes written by a stage.
+     * @param stage The stage that wrote the bytes.
+     * @param bytes The number of bytes written.
+     */
+    public void addBytesWritten( Stage stage, long bytes )
+    {
+        if( enabled )
+        {
+            stages.get( stage ).bytesWritten.add( bytes );
+        }
+    }
+
+    /**
+     * Record chunks produced or consumed by a stage.
+     * @param stage The stage that handled the chunks.
+     * @param chunks The number of chunks.
+     */
+    public void addChunks( Stage stage, long chunks )
+    {
+        if( enabled )
+        {
+            stages.get( stage ).chunks.add( chunks );
+        }
+    }
+
+    /**
+     * Add the measurements of other metrics to these, such as the metrics of a single job to those of a whole batch.
+     * The wall time of each stage spans the runs of both.
+     * @param other The metrics to add.
+     */
+    public void merge( BuildMetrics other )
+    {
+        if( !enabled || !other.enabled )
+        {
+            return;
+        }
+
+        for( Stage stage : Stage.values() )
+        {
+            StageMetrics metrics      = stages.get( stage );
+            StageMetrics otherMetrics = other.stages.get( stage );
+            metrics.calls.add(        otherMetrics.calls.sum() );
+            metrics.totalNanos.add(   otherMetrics.totalNanos.sum() );
+            metrics.bytesRead.add(    otherMetrics.bytesRead.sum() );
+            metrics.bytesWritten.add( otherMetrics.bytesWritten.sum() );
+            metrics.chunks.add(       otherMetrics.chunks.sum() );
+            metrics.maxNanos.accumulateAndGet(        otherMetrics.maxNanos.get(), Math::max );
+            metrics.firstStartNanos.accumulateAndGet( otherMetrics.firstStartNanos.get(), Math::min );
+            metrics.lastEndNanos.accumulateAndGet(    otherMetrics.lastEndNanos.get(), Math::max );
+        }
+        peakHeapBytes.accumulateAndGet( other.peakHeapBytes.get(), Math::max );
+    }
+
+    /**
+     * Get the number of times a stage ran.
+     * @param stage The stage.
+     * @return The number of runs.
+     */
+    public long getCalls( Stage stage )
+    {
+        return stages.get( stage ).calls.sum();
+    }
+
+    /**
+     * Get the number of file bytes read by a stage.
+     * @param stage The stage.
+     * @return The number of bytes read.
+     */
+    public long getBytesRead( Stage stage )
+    {
+        return stages.get( stage ).bytesRead.sum();
+    }
+
+    /**
+     * Get the number of file bytes written by a stage.
+     * @param stage The stage.
+     * @return The number of bytes written.
+     */
+    public long getBytesWritten( Stage stage )
+    {
+        return stages.get( stage ).bytesWritten.sum();
+    }
+
+    /**
+     * Get the number of chunks produced or consumed by a stage.
+     * @param stage The stage.
+     * @return The number of chunks.
+     */
+    public long getChunks( Stage stage )
+    {
+        return stages.get( stage ).chunks.sum();
+    }
+
+    /**
+     * Get the highest heap usage of the JVM sampled since the metrics were created, an approximation of the peak.
+     * @return The sampled peak heap usage in bytes, or 0 if measurements aren't recorded.
+     */
+    public long getPeakHeapBytes()
+    {
+        if( !enabled )
+        {
+            return 0;
+        }
+
+        sampleHeapUsage( System.nanoTime(), true );
+        return peakHeapBytes.get();
+    }
+
+    /**
+     * Report the measurements as a JSON object. Stages that didn't run are left out.
+     * @return The JSON report.
+     */
+    public String toJson()
+    {
+        StringBuilder json = new StringBuilder();
+        json.append( String.format( Locale.ROOT, "{\"elapsedMillis\": %.3f, \"peakHeapBytes\": %d, \"stages\": {", ( System.nanoTime() - createdNanos ) / 1e6, getPeakHeapBytes() ) );
+
+        boolean first = true;
+        for( Stage stage : Stage.values() )
+        {
+            StageMetrics metrics = stages.get( stage );
+            long calls = metrics.calls.sum();
+            if( calls == 0 )
+            {
+                continue;
+            }
+
+            json.append( first ? "" : ", " );
+            json.append( String.format( Locale.ROOT, "\"%s\": {\"calls\": %d, \"wallMillis\": %.3f, \"totalMillis\": %.3f, \"maxMillis\": %.3f, \"bytesRead\": %d, \"bytesWritten\": %d, \"chunks\": %d}",
+                                        stage.reportName, calls, ( metrics.lastEndNanos.get() - metrics.firstStartNanos.get() ) / 1e6, metrics.totalNanos.sum() / 1e6,
+                                        metrics.maxNanos.get() / 1e6, metrics.bytesRead.sum(), metrics.bytesWritten.sum(), metrics.chunks.sum() ) );
+            first = false;
+        }
+        return json.append( "}}" ).toString();
+    }
+
+    /**
+     * Write the JSON report to a file.
+     * @param reportFile The file to write the report to.
+     * @throws IOException If the report could not be written.
+     */
+    public void writeReport( File reportFile ) throws IOException
+    {
+        try( Writer writer = new OutputStreamWriter( new FileOutputStream( reportFile ), StandardCharsets.UTF_8 ) )
+        {
+            writer.write( toJson() );
+            writer.write( System.lineSeparator() );
+        }
+    }
+
+    /**
+     * Emits JFR events through the jdk.jfr EventFactory, looked up reflectively since
+     * the tool is compiled for Java 8, where the jdk.jfr API is not available. Each event
+     * begins when its stage starts and ends when it ends, so its JFR duration is the stage's.
+     */
+    private static class JfrStageEvents
+    {
+        /** The most events a thread may have begun without ending, further events are dropped as leaked by runs that failed */
+        private static final int MAX_PENDING_EVENTS = 64;
+
+        /** The factory creating events of the spritesheet.Stage event type */
+        private Object eventFactory;
+        /** The EventFactory.newEvent, Event.begin, Event.end, Event.set, and Event.commit methods */
+        private Method newEvent;
+        private Method begin;
+        private Method end;
+        private Method set;
+        private Method commit;
+        /** The events begun on each thread and not yet ended, keyed by the start time of their stage run */
+        private ThreadLocal<HashMap<Long, Object>> pendingEvents = ThreadLocal.withInitial( HashMap::new );
+
+        /**
+         * Register the spritesheet.Stage event type.
+         * @throws ReflectiveOperationException If the JVM doesn't support JFR events.
+         */
+        JfrStageEvents() throws ReflectiveOperationException
+        {
+            Class<?> annotationElementClass = Class.forName( "jdk.jfr.AnnotationElement" );
+            Class<?> valueDescriptorClass   = Class.forName( "jdk.jfr.ValueDescriptor" );
+            Class<?> eventFactoryClass      = Class.forName( "jdk.jfr.EventFactory" );
+            Class<?> eventClass             = Class.forName( "jdk.jfr.Event" );
+
+            Constructor<?> annotation = annotationElementClass.getConstructor( Class.class, Object.class );
+            Constructor<?> field      = valueDescriptorClass.getConstructor( Class.class, String.class );
+            List<Object> annotations  = Arrays.asList( annotation.newInstance( Class.forName( "jdk.jfr.Name" ),     "spritesheet.Stage" ),
+                                                       annotation.newInstance( Class.forName( "jdk.jfr.Label" ),    "Sprite Sheet Stage" ),
+                                                       annotation.newInstance( Class.forName( "jdk.jfr.Category" ), new String[]{ "Sprite Sheet" } ) );
+            List<Object> fields       = Arrays.asList( field.newInstance( String.class, "stage" ),
+                                                       field.newInstance( long.class,   "durationNanos" ) );
+
+            eventFactory = eventFactoryClass.getMethod( "create", List.class, List.class ).invoke( null, annotations, fields );
+            newEvent     = eventFactoryClass.getMethod( "newEvent" );
+            begin        = eventClass.getMethod( "begin" );
+            end          = eventClass.getMethod( "end" );
+            set          = eventClass.getMethod( "set", int.class, Object.class );
+            commit       = eventClass.getMethod( "commit" );
+        }
+
+        /**
+         * Begin the event of a run of a stage on the current thread.
+         * @param startNanos The start time of the run in nanoseconds.
+         * @return The start time identifying the run, moved forward if another run of the thread started at the same time.
+         */
+        long begin( long startNanos )
+        {
+            HashMap<Long, Object> events = pendingEvents.get();
+            if( events.size() >= MAX_PENDING_EVENTS )
+            {
+                events.clear();
+            }
+            while( events.containsKey( startNanos ) )
+            {
+                startNanos++;
+            }
+
+            try
+            {
+                Object event = newEvent.invoke( eventFactory );
+                begin.invoke( event );
+                events.put( startNanos, event );
+            }
+            catch( ReflectiveOperationException exception )
+            {
+                //The event type is registered, so this can't happen short of the JVM failing
+                exception.printStackTrace();
+            }
+            return startNanos;
+        }
+
+        /**
+         * End and emit the event of a single run of a stage. Runs that didn't begin on the current
+         * thread are emitted without a JFR duration, along with their measured duration.
+         * @param startNanos The start time of the run returned by begin.
+         * @param stage The name of the stage.
+         * @param durationNanos The time the stage took in nanoseconds.
+         */
+        void commit( long startNanos, String stage, long durationNanos )
+        {
+            try
+            {
+                Object event = pendingEvents.get().remove( startNanos );
+                if( event == null )
+                {
+                    event = newEvent.invoke( eventFactory );
+                }
+                else
+                {
+                    end.invoke( event );
+                }
+                set.invoke( event, 0, stage );
+                set.invoke( event, 1, durationNanos );
+                commit.invoke( event );
+            }
+            catch( ReflectiveOperationException exception )
+            {
+                //The event type is registered, so this can't happen short of the JVM failing
+                exception.printStackTrace();
+            }
+        }
+    }
+}
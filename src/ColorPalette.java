@@ -0,0 +1,128 @@
+import java.util.Arrays;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class ColorPalette
+{
+    /** The maximum number of colors in a palette, the number of values an 8-bit index can hold */
+    public static final int MAX_COLORS = 256;
+    /** The size of the color lookup table, a power of two at least twice the maximum number of colors */
+    private static final int TABLE_SIZE = 1024;
+
+    /** The colors of the palette as ARGB values, in the order they were added */
+    private int[] colors;
+    /** The number of colors in the palette */
+    private int size;
+    /** The open addressing lookup table of colors, holding each color's palette index plus one, or 0 if empty */
+    private int[] tableIndices;
+    private int[] tableColors;
+
+    /**
+     * The ColorPalette class collects the distinct colors of an image, up to 256 of them,
+     * and maps each color to its exact index so the image can be written as indexed color.
+     */
+    public ColorPalette()
+    {
+        colors       = new int[ MAX_COLORS ];
+        tableIndices = new int[ TABLE_SIZE ];
+        tableColors  = new int[ TABLE_SIZE ];
+    }
+
+    /**
+     * Add the colors of an area of packed ARGB pixels to the palette.
+     * @param argb The pixels.
+     * @param offset The index of the first pixel of the first row in the argb array.
+     * @param scanlineStride The distance between the start of two rows in the argb array.
+     * @param width The width of the area in pixels.
+     * @param height The height of the area in pixels.
+     * @return True if every color fit in the palette, false if the area has too many colors.
+     */
+    public boolean addColors( int[] argb, int offset, int scanlineStride, int width, int height )
+    {
+        for( int y = 0; y < height; y++ )
+        {
+            //Runs of a single color are common, only look up each color change
+            int rowIndex  = offset + ( y * scanlineStride );
+            int lastColor = ~argb[ rowIndex ];
+            for( int x = 0; x < width; x++ )
+            {
+                int color = argb[ rowIndex + x ];
+                if( ( color != lastColor ) && !addColor( color ) )
+                {
+                    return false;
+                }
+                lastColor = color;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a single color to the palette if it isn't already present.
+     * @param color The ARGB color to add.
+     * @return True if the color is in the palette, false if the palette is full.
+     */
+    public boolean addColor( int color )
+    {
+        int slot = findSlot( color );
+        if( tableIndices[ slot ] != 0 )
+        {
+            return true;
+        }
+        if( size == MAX_COLORS )
+        {
+            return false;
+        }
+
+        colors[ size ] = color;
+        size++;
+        tableIndices[ slot ] = size;
+        tableColors[  slot ] = color;
+        return true;
+    }
+
+    /**
+     * Get the palette index of a color.
+     * @param color The ARGB color.
+     * @return The index of the color, or -1 if the color is not in the palette.
+     */
+    public int getIndex( int color )
+    {
+        return tableIndices[ findSlot( color ) ] - 1;
+    }
+
+    /**
+     * Get the colors of the palette.
+     * @return The ARGB colors in palette index order.
+     */
+    public int[] getColors()
+    {
+        return Arrays.copyOf( colors, size );
+    }
+
+    /**
+     * Get the number of colors in the palette.
+     * @return The number of colors.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Find the lookup table slot holding a color, or the empty slot it would be placed in.
+     * @param color The ARGB color.
+     * @return The index of the slot in the lookup table.
+     */
+    private int findSlot( int color )
+    {
+        int slot = ( color * 0x9E3779B1 ) >>> ( Integer.SIZE - Integer.numberOfTrailingZeros( TABLE_SIZE ) );
+        while( ( tableIndices[ slot ] != 0 ) && ( tableColors[ slot ] != color ) )
+        {
+            slot = ( slot + 1 ) & ( TABLE_SIZE - 1 );
+        }
+        return slot;
+    }
+}
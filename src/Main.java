@@ -1,3 +1,10 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
 /**
  * @author Logan Karstetter
  * Date: 2020
@@ -6,10 +13,51 @@ public class Main
 {
     /** The command line identifier for building a sprite sheet */
     private static final String buildArg = "-b";
+    /** The command line identifier for running as a daemon */
+    private static final String daemonArg = "-d";
+    /** The command line identifier for running a manifest of build and parse requests in one pass */
+    private static final String batchArg = "-m";
     /** The command line identifier for printing the help text */
     private static final String helpArg  = "-h";
     /** The command line identifier for parsing a sprite sheet */
     private static final String parseArg = "-p";
+    /** The command line identifier for watching a directory and rebuilding its sprite sheet on changes */
+    private static final String watchArg = "-w";
+    /** The system property naming the file a JSON metrics report of a build or parse is written to */
+    private static final String metricsProperty = "spritesheet.metrics";
+    /** The system property enabling a JFR event per build or parse stage */
+    private static final String jfrProperty = "spritesheet.jfr";
+    /** The system property enabling loading source images from subdirectories */
+    private static final String recursiveProperty = "spritesheet.recursive";
+    /** The system properties listing the globs of source images to include and exclude, separated by semicolons */
+    private static final String includeProperty = "spritesheet.include";
+    private static final String excludeProperty = "spritesheet.exclude";
+    /** The system property enabling text sprite headers, readable by older versions of the tool */
+    private static final String legacyHeadersProperty = "spritesheet.legacyHeaders";
+    /** The system property enabling a raw RGBA sprite sheet written next to each built sprite sheet */
+    private static final String rgbaProperty = "spritesheet.rgba";
+    /** The system properties enabling a mapped sprite sheet written next to each built sprite sheet, and compressing its sprites */
+    private static final String mappedProperty = "spritesheet.mapped";
+    private static final String mappedCompressionProperty = "spritesheet.mappedCompression";
+    /** The system property enabling leaving out fully transparent chunks and trimming the transparent borders of packed chunks */
+    private static final String trimProperty = "spritesheet.trim";
+    /** The system property enabling 8-bit indexed color sprite sheets when the images use few enough colors */
+    private static final String paletteProperty = "spritesheet.palette";
+    /** The system property setting the number of threads used to load source images and encode parsed sprites */
+    private static final String parallelismProperty = "spritesheet.parallelism";
+    /** The system property enabling building and parsing sprite sheets one row of sprites at a time */
+    private static final String streamingProperty = "spritesheet.streaming";
+    /** The system property enabling packing trimmed sprites tightly, recording their placement in an atlas file */
+    private static final String packedProperty = "spritesheet.packed";
+    /** The system property enabling storing sprites with identical pixels only once */
+    private static final String deduplicateProperty = "spritesheet.deduplicate";
+    /** The system property enabling reusing the cached sprites of source images unchanged since the previous build */
+    private static final String incrementalProperty = "spritesheet.incremental";
+    /** The system property setting the maximum width and height of built sprite sheets, in pixels */
+    private static final String maxPageSizeProperty = "spritesheet.maxPageSize";
+    /** The system properties setting the compression level and row filter sprite sheets and sprites are encoded with */
+    private static final String compressionProperty = "spritesheet.compression";
+    private static final String filterProperty = "spritesheet.filter";
 
     /**
      * The main function.
@@ -17,6 +65,12 @@ public class Main
      */
     public static void main( String[] args )
     {
+        //The tool never opens a window, run headless unless told otherwise to skip display initialization
+        if( System.getProperty( "java.awt.headless" ) == null )
+        {
+            System.setProperty( "java.awt.headless", "true" );
+        }
+
         //Read command line arguments
         if( args.length > 0 )
         {
@@ -24,7 +78,20 @@ public class Main
             switch( args[ 0 ] )
             {
                 case buildArg: //Intentional fallthrough
-                case parseArg:
+                case parseArg: //Intentional fallthrough
+                case watchArg:
+
+                    //Parse with the sprite size recorded in the sprite sheet if no sprite size is given
+                    if( args[ 0 ].equalsIgnoreCase( parseArg ) && ( args.length == 3 ) )
+                    {
+                        int detectedSpriteSize = SpriteSheetParser.detectSpriteSize( args[ 1 ] );
+                        if( detectedSpriteSize <= 0 )
+                        {
+                            System.out.println( "Unable to detect the sprite size of: " + args[ 1 ] + ", sprite sheets built by older versions of the tool require the spriteSize argument." );
+                            break;
+                        }
+                        args = new String[]{ args[ 0 ], Integer.toString( detectedSpriteSize ), args[ 1 ], args[ 2 ] };
+                    }
 
                     //Inform the user if they put in invalid arguments
                     if( args.length != 4 )
@@ -40,21 +107,129 @@ public class Main
                     try
                     {
                         //Create a SpriteSheetManager and build/parse
-                        SpriteSheetManager spriteSheetManager = new SpriteSheetManager( Integer.parseInt( args[ 1 ] ) );
+                        SpriteSheetManager spriteSheetManager = new SpriteSheetManager( Integer.parseInt( args[ 1 ] ), Integer.getInteger( parallelismProperty, Runtime.getRuntime().availableProcessors() ) );
+
+                        //Record the metrics of each stage if a report file or JFR events are requested
+                        String  metricsReport = System.getProperty( metricsProperty );
+                        boolean jfrEvents     = Boolean.getBoolean( jfrProperty );
+                        BuildMetrics metrics  = ( ( metricsReport != null ) || jfrEvents ) ? new BuildMetrics( true, jfrEvents ) : null;
+                        spriteSheetManager.setMetrics( metrics );
+
+                        //Scan subdirectories and filter source images if requested
+                        spriteSheetManager.setRecursiveScan( Boolean.getBoolean( recursiveProperty ) );
+                        spriteSheetManager.setIncludeGlobs( splitGlobs( System.getProperty( includeProperty ) ) );
+                        spriteSheetManager.setExcludeGlobs( splitGlobs( System.getProperty( excludeProperty ) ) );
+                        spriteSheetManager.setLegacyHeaders( Boolean.getBoolean( legacyHeadersProperty ) );
+                        spriteSheetManager.setRgbaOutput( Boolean.getBoolean( rgbaProperty ) );
+                        spriteSheetManager.setMappedOutput( Boolean.getBoolean( mappedProperty ) );
+                        spriteSheetManager.setMappedCompression( Boolean.getBoolean( mappedCompressionProperty ) );
+                        spriteSheetManager.setTrimChunks( Boolean.getBoolean( trimProperty ) );
+                        spriteSheetManager.setPaletteOutput( Boolean.getBoolean( paletteProperty ) );
+                        spriteSheetManager.setStreamingOutput( Boolean.getBoolean( streamingProperty ) );
+                        spriteSheetManager.setStreamingInput( Boolean.getBoolean( streamingProperty ) );
+                        spriteSheetManager.setPackedLayout( Boolean.getBoolean( packedProperty ) );
+                        spriteSheetManager.setDeduplicateChunks( Boolean.getBoolean( deduplicateProperty ) );
+                        spriteSheetManager.setIncrementalBuild( Boolean.getBoolean( incrementalProperty ) );
+                        spriteSheetManager.setMaxPageSize( Integer.getInteger( maxPageSizeProperty, 0 ) );
+                        spriteSheetManager.setPngEncoderSettings( createPngEncoderSettings( System.getProperty( compressionProperty ), System.getProperty( filterProperty ) ) );
 
                         if( args[ 0 ].equalsIgnoreCase( buildArg ) )
                         {
                             spriteSheetManager.buildSpriteSheet( args[ 2 ], args[ 3 ] );
                         }
+                        else if( args[ 0 ].equalsIgnoreCase( watchArg ) )
+                        {
+                            new SpriteSheetWatcher( spriteSheetManager, args[ 2 ], args[ 3 ], SpriteSheetWatcher.DEFAULT_DEBOUNCE_MILLIS, Boolean.getBoolean( recursiveProperty ) ).watch();
+                        }
                         else
                         {
                             spriteSheetManager.parseSpriteSheet( args[ 2 ], args[ 3 ] );
                         }
+
+                        if( metricsReport != null )
+                        {
+                            metrics.writeReport( new File( metricsReport ) );
+                            System.out.println( "Wrote metrics report: " + metricsReport );
+                        }
                     }
                     catch( NumberFormatException exception )
                     {
                         System.out.println( "Invalid non-numeric sprite size: " + args[ 1 ] );
                     }
+                    catch( IOException exception )
+                    {
+                        System.out.println( args[ 0 ].equalsIgnoreCase( watchArg ) ? "Unable to watch directory: " + args[ 2 ] : "Unable to write metrics report: " + System.getProperty( metricsProperty ) );
+                        exception.printStackTrace();
+                    }
+                    break;
+
+                case daemonArg:
+
+                    //Inform the user if they put in invalid arguments
+                    if( args.length > 2 )
+                    {
+                        System.out.println( "Daemon mode takes at most 2 command line arguments, got " + args.length + ". Run with -h to see options." );
+                        break;
+                    }
+
+                    try
+                    {
+                        //Create a daemon and serve requests from a local port, or from stdin if no port is given
+                        SpriteSheetDaemon daemon = new SpriteSheetDaemon( Runtime.getRuntime().availableProcessors(), SourceImageCache.DEFAULT_MAX_PIXELS );
+                        if( args.length == 2 )
+                        {
+                            daemon.listen( Integer.parseInt( args[ 1 ] ) );
+                        }
+                        else
+                        {
+                            //Keep stdout for responses, move the progress output to stderr
+                            PrintStream responses = System.out;
+                            System.setOut( System.err );
+                            daemon.serve( System.in, responses );
+                            daemon.close();
+                        }
+                    }
+                    catch( NumberFormatException exception )
+                    {
+                        System.out.println( "Invalid non-numeric port: " + args[ 1 ] );
+                    }
+                    catch( IOException exception )
+                    {
+                        System.out.println( "Unable to listen on port: " + args[ 1 ] );
+                        exception.printStackTrace();
+                    }
+                    break;
+
+                case batchArg:
+
+                    //Inform the user if they put in invalid arguments
+                    if( args.length != 2 )
+                    {
+                        System.out.println( "Batch mode requires exactly 2 command line arguments, got " + args.length + ". Run with -h to see options." );
+                        break;
+                    }
+
+                    try
+                    {
+                        //Keep stdout for responses, move the progress output to stderr
+                        SpriteSheetDaemon daemon = new SpriteSheetDaemon( Runtime.getRuntime().availableProcessors(), SourceImageCache.DEFAULT_MAX_PIXELS );
+                        PrintStream responses = System.out;
+                        System.setOut( System.err );
+                        int failed = daemon.runBatch( new File( args[ 1 ] ), responses );
+                        daemon.close();
+
+                        //Fail the process if any request failed, so scripts running the manifest notice
+                        if( failed > 0 )
+                        {
+                            System.exit( 1 );
+                        }
+                    }
+                    catch( IOException exception )
+                    {
+                        System.out.println( "Unable to read manifest: " + args[ 1 ] );
+                        exception.printStackTrace();
+                        System.exit( 1 );
+                    }
                     break;
 
                 case helpArg:
@@ -63,13 +238,31 @@ public class Main
                                       + "\n\t- The source and destination directory arguments are required to be wrapped in quotes \" \"."
                                       + "\n\t- The builder and parser only support the following image file formats: '.png', '.jpg', '.jpeg'."
                                       + "\n\t- The builder sweeps the entire source directory for files (non-recursive), don't have any undesired images in there."
+                                      + "\n\t- Run with -Dspritesheet.recursive=true to also build the images in subdirectories, named by their relative path such as characters/hero. -w then watches every subdirectory as well."
+                                      + "\n\t- Run with -Dspritesheet.include=\"globs\" or -Dspritesheet.exclude=\"globs\" to filter source images by relative path, such as \"**/*.png;backup\", separated by semicolons."
                                       + "\n\t- The builder and parser are not made to handle building and parsing sprite sheets within sprite sheets. That won't work, so don't do it."
-                                      + "\n\t- The parser can only parse sheets built by this tool, the spriteSize argument must match the size used to build (_# at end of built file name)."
+                                      + "\n\t- The parser can only parse sheets built by this tool. Sheets record the spriteSize they were built with, so -p may leave it out, sheets built by older versions require it (_# at end of built file name)."
+                                      + "\n\t- Sprite headers are binary, naming sprites through a name table stored in the sheet. Run -b with -Dspritesheet.legacyHeaders=true to write text headers older versions of the tool can parse."
+                                      + "\n\t- Run -b with -Dspritesheet.rgba=true to also write a packed spritesheet_#.rgba of raw RGBA8 pixels, ready to be memory-mapped and uploaded to a texture. -p parses .rgba sheets as well."
+                                      + "\n\t- Run -b with -Dspritesheet.mapped=true to also write a spritesheet_#.sprites holding each image whole with a name index, which loads by memory-mapping without decoding. Add -Dspritesheet.mappedCompression=true to deflate each image. -p parses .sprites sheets as well."
+                                      + "\n\t- Run -b with -Dspritesheet.trim=true to leave fully transparent sprites out of the sheet, and trim the transparent borders of packed sprites. The parser recreates the blank areas."
+                                      + "\n\t- Run -b with -Dspritesheet.palette=true to write sprite sheets using 256 colors or fewer as 8-bit indexed PNGs. This shrinks the written files and the memory of encoding them, the parser still decodes every sheet to 32-bit pixels."
+                                      + "\n\t- Run with -Dspritesheet.parallelism=threads to load source images and encode parsed sprites on that many threads, by default one per processor."
+                                      + "\n\t- Run with -Dspritesheet.streaming=true to build and parse sprite sheets one row of sprites at a time, reducing peak memory for large sprite sheets. -p then writes each image as soon as its sprites are read."
+                                      + "\n\t- Run -b with -Dspritesheet.packed=true to trim each sprite to its image pixels and pack the sprites tightly instead of in a grid, recording their placement in a spritesheet_#.atlas next to the sheet. -p reads the atlas when parsing."
+                                      + "\n\t- Run -b with -Dspritesheet.deduplicate=true to store sprites with identical pixels only once, recording the placement of every sprite in a spritesheet_#.atlas next to the sheet."
+                                      + "\n\t- Run -b with -Dspritesheet.incremental=true to only load the images that changed since the previous build into the same destination directory, reusing the sprites cached in a spritesheet_#.cache next to the sheet."
+                                      + "\n\t- Run -b with -Dspritesheet.maxPageSize=pixels to limit the width and height of the sprite sheet, such as to a GPU texture size. Sprites that don't fit are spread over pages named spritesheet_#_page.png, -w then only rewrites the pages holding changed sprites."
+                                      + "\n\t- Run with -Dspritesheet.compression=level from 0 to 9 and -Dspritesheet.filter=adaptive, none, sub, up, average, or paeth to trade the size of written .png files against speed, such as compression=0 and filter=none for fast local iterations."
+                                      + "\n\t- Run with -Dspritesheet.metrics=\"reportFile\" to write a JSON report of the time, bytes, and chunks of each -b or -p stage, add -Dspritesheet.jfr=true for a JFR event per stage."
                                       );
 
                     System.out.println( "\nCommand Line Options:"
                                       + "\n\t-b spriteSize \"sourceDirectory\" \"destinationDirectory\" 'Builds a sprite sheet with the images found in the source directory. Outputs to the destination directory.'"
-                                      + "\n\t-p spriteSize \"spriteSheetPath\" \"destinationDirectory\" 'Parses a sprite sheet into individual sprites. Outputs the images in the destination directory.'"
+                                      + "\n\t-p [spriteSize] \"spriteSheetPath\" \"destinationDirectory\" 'Parses a sprite sheet into individual sprites. Outputs the images in the destination directory.'"
+                                      + "\n\t-w spriteSize \"sourceDirectory\" \"destinationDirectory\" 'Builds a sprite sheet like -b, then rebuilds it whenever images in the source directory change, until stopped.'"
+                                      + "\n\t-d [port] 'Runs as a daemon that keeps decoded images in memory, reading one JSON build or parse request per line from the local port, or stdin if no port is given.'"
+                                      + "\n\t-m \"manifestFile\" 'Runs every JSON build or parse request of the manifest, one per line, in a single pass. Builds of the same source directory decode each image once for every spriteSize. Reports the aggregate throughput, and exits with status 1 if any request failed.'"
                                       + "\n\t-h 'Prints this help text.'"
                                       );
                     break;
@@ -91,4 +284,36 @@ public class Main
             spriteSheetManager.parseSpriteSheet( "src/Sprites/spritesheet_30.png", "src/Sprites/" );
         }
     }
+
+    /**
+     * Split a list of globs separated by semicolons.
+     * @param globs The globs, or null.
+     * @return The individual globs, or null if none were given.
+     */
+    private static List<String> splitGlobs( String globs )
+    {
+        return ( globs == null ) ? null : Arrays.asList( globs.split( ";" ) );
+    }
+
+    /**
+     * Create the .png encoder settings from the given compression level and row filter.
+     * @param compression The compression level from 0 to 9, or null for the default level.
+     * @param filter The name of a FilterStrategy, or null to filter adaptively.
+     * @return The encoder settings, or PngEncoderSettings.DEFAULT if either is invalid.
+     */
+    private static PngEncoderSettings createPngEncoderSettings( String compression, String filter )
+    {
+        try
+        {
+            int compressionLevel = ( compression == null ) ? PngEncoderSettings.DEFAULT_COMPRESSION : Integer.parseInt( compression.trim() );
+            PngEncoderSettings.FilterStrategy filterStrategy = ( filter == null ) ? PngEncoderSettings.FilterStrategy.ADAPTIVE
+                                                                                  : PngEncoderSettings.FilterStrategy.valueOf( filter.trim().toUpperCase( Locale.ROOT ) );
+            return new PngEncoderSettings( compressionLevel, filterStrategy );
+        }
+        catch( IllegalArgumentException exception )
+        {
+            System.out.println( "Invalid provided compression level or filter: " + compression + ", " + filter + ".\nDefaulting to compression level: " + PngEncoderSettings.DEFAULT_COMPRESSION + " and filter: " + PngEncoderSettings.FilterStrategy.ADAPTIVE );
+            return PngEncoderSettings.DEFAULT;
+        }
+    }
 }
@@ -0,0 +1,437 @@
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class MappedSpriteSheet
+{
+    /** The file extension of mapped sprite sheet files, written next to the .png sprite sheet */
+    public static final String MAPPED_EXTENSION = ".sprites";
+    /** The magic number identifying a mapped sprite sheet file, "SSBM" */
+    private static final int MAPPED_MAGIC = 0x5353424D;
+    /** The version of the mapped sprite sheet file format */
+    private static final int MAPPED_VERSION = 1;
+    /** The size of the file header in bytes */
+    private static final int HEADER_BYTES = 32;
+    /** The alignment of each sprite payload in bytes, so uncompressed payloads can be uploaded as is */
+    private static final int PAYLOAD_ALIGNMENT = 16;
+    /** The compression of a sprite payload, stored as is or compressed with deflate */
+    private static final byte COMPRESSION_NONE    = 0;
+    private static final byte COMPRESSION_DEFLATE = 1;
+
+    /** The mapped file, holding the header, the sprite payloads, and the index */
+    private ByteBuffer mapped;
+    /** The sprite size the sprite sheet was built with */
+    private int spriteSize;
+    /** The index of the sprites, keyed by name in the order they were written */
+    private LinkedHashMap<String, SpriteView> index;
+
+    /**
+     * A single sprite of a mapped sprite sheet. Creating a view reads nothing but the index entry,
+     * the pixels are only paged in, and decompressed, when they are requested.
+     */
+    public class SpriteView
+    {
+        /** The name of the source image */
+        public final String name;
+        /** The width and height of the source image in pixels */
+        public final int width;
+        public final int height;
+        /** The position and stored length of the payload in the file */
+        private final long offset;
+        private final int  length;
+        /** The compression of the payload */
+        private final byte compression;
+
+        /**
+         * The SpriteView class is a lazy view of a sprite stored in a mapped sprite sheet.
+         * @param name The name of the source image.
+         * @param width The width of the source image in pixels.
+         * @param height The height of the source image in pixels.
+         * @param offset The position of the payload in the file.
+         * @param length The stored length of the payload in bytes.
+         * @param compression The compression of the payload.
+         */
+        private SpriteView( String name, int width, int height, long offset, int length, byte compression )
+        {
+            this.name        = name;
+            this.width       = width;
+            this.height      = height;
+            this.offset      = offset;
+            this.length      = length;
+            this.compression = compression;
+        }
+
+        /**
+         * Get whether the payload is compressed, in which case getPixels decompresses it into a new buffer.
+         * @return True if the payload is compressed, false if getPixels is zero-copy.
+         */
+        public boolean isCompressed()
+        {
+            return compression != COMPRESSION_NONE;
+        }
+
+        /**
+         * Get the pixels of the sprite, RGBA8 rows from top to bottom without padding. Uncompressed payloads
+         * are returned as a read only slice of the mapped file without copying, compressed payloads are
+         * decompressed into a new direct buffer.
+         * @return The width * height * 4 bytes of pixels, positioned at their start.
+         * @throws IOException If the compressed payload is corrupt.
+         */
+        public ByteBuffer getPixels() throws IOException
+        {
+            ByteBuffer payload = mapped.duplicate();
+            payload.position( ( int )offset );
+            payload.limit( ( int )offset + length );
+            payload = payload.slice();
+            if( compression == COMPRESSION_NONE )
+            {
+                return payload;
+            }
+
+            //Inflate the payload, the inflater only reads from arrays on Java 8
+            byte[] compressed = new byte[ length ];
+            payload.get( compressed );
+            byte[] pixels = new byte[ width * height * RgbaSpriteSheet.BYTES_PER_PIXEL ];
+            Inflater inflater = new Inflater();
+            try
+            {
+                inflater.setInput( compressed );
+                int inflated = 0;
+                while( ( inflated < pixels.length ) && !inflater.finished() )
+                {
+                    int count = inflater.inflate( pixels, inflated, pixels.length - inflated );
+                    if( ( count == 0 ) && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                    {
+                        break;
+                    }
+                    inflated += count;
+                }
+                if( inflated != pixels.length )
+                {
+                    throw new IOException( "Truncated payload of sprite: " + name );
+                }
+            }
+            catch( DataFormatException exception )
+            {
+                throw new IOException( "Corrupt payload of sprite: " + name, exception );
+            }
+            finally
+            {
+                inflater.end();
+            }
+
+            ByteBuffer direct = ByteBuffer.allocateDirect( pixels.length );
+            direct.put( pixels );
+            direct.flip();
+            return direct;
+        }
+
+        /**
+         * Copy the sprite into a new image, such as when parsing the sprite sheet.
+         * @return The TYPE_INT_ARGB source image.
+         * @throws IOException If the compressed payload is corrupt.
+         */
+        public BufferedImage toImage() throws IOException
+        {
+            BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+            int[] pixels = SpriteUtil.getPixels( image );
+            IntBuffer source = getPixels().order( ByteOrder.BIG_ENDIAN ).asIntBuffer();
+            for( int y = 0; y < height; y++ )
+            {
+                int destinationIndex = SpriteUtil.getPixelIndex( image, 0, y );
+                source.get( pixels, destinationIndex, width );
+                for( int x = 0; x < width; x++ )
+                {
+                    pixels[ destinationIndex + x ] = Integer.rotateRight( pixels[ destinationIndex + x ], 8 );
+                }
+            }
+            return image;
+        }
+    }
+
+    /**
+     * The MappedSpriteSheet class holds a sprite sheet file mapped into memory, which stores every source
+     * image whole as RGBA8 pixels, optionally deflate compressed, along with an index of their names and
+     * payload offsets. Opening it decodes nothing, a runtime asks for the sprites it needs and receives views
+     * of the mapped file.
+     * <p>
+     * File layout, big endian: magic, version, sprite size, sprite count, index offset (long), index length, a reserved
+     * int, then each 16 byte aligned payload, then the index holding the name, width, height, offset (long), stored
+     * length, and compression of each sprite.
+     * @param mapped The mapped file.
+     * @param spriteSize The sprite size the sprite sheet was built with.
+     * @param index The map receiving the index of the sprites.
+     */
+    private MappedSpriteSheet( ByteBuffer mapped, int spriteSize, LinkedHashMap<String, SpriteView> index )
+    {
+        this.mapped     = mapped;
+        this.spriteSize = spriteSize;
+        this.index      = index;
+    }
+
+    /**
+     * Get the mapped sprite sheet file belonging to the given sprite sheet file.
+     * @param spriteSheetFile The sprite sheet file.
+     * @return The mapped file, which has the same name as the sprite sheet with the .sprites extension.
+     */
+    public static File getMappedFile( File spriteSheetFile )
+    {
+        String name = spriteSheetFile.getName();
+        int extensionIndex = name.lastIndexOf( '.' );
+        String baseName = ( extensionIndex < 0 ) ? name : name.substring( 0, extensionIndex );
+        return new File( spriteSheetFile.getParentFile(), baseName + MAPPED_EXTENSION );
+    }
+
+    /**
+     * Map a sprite sheet file into memory, read only, and read its index. No pixels are read.
+     * @param mappedFile The .sprites file to map.
+     * @return The mapped sprite sheet.
+     * @throws IOException If the file could not be mapped or is not a mapped sprite sheet.
+     */
+    public static MappedSpriteSheet map( File mappedFile ) throws IOException
+    {
+        try( RandomAccessFile file = new RandomAccessFile( mappedFile, "r" ); FileChannel channel = file.getChannel() )
+        {
+            if( ( channel.size() < HEADER_BYTES ) || ( channel.size() > Integer.MAX_VALUE ) )
+            {
+                throw new IOException( "Not a mapped sprite sheet file: " + mappedFile.getPath() );
+            }
+
+            //The mapping stays valid after the channel is closed
+            ByteBuffer mapped = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            if( mapped.getInt() != MAPPED_MAGIC )
+            {
+                throw new IOException( "Not a mapped sprite sheet file: " + mappedFile.getPath() );
+            }
+            int version = mapped.getInt();
+            if( version != MAPPED_VERSION )
+            {
+                throw new IOException( "Unsupported mapped sprite sheet version " + version + ": " + mappedFile.getPath() );
+            }
+
+            int  spriteSize  = mapped.getInt();
+            int  spriteCount = mapped.getInt();
+            long indexOffset = mapped.getLong();
+            int  indexLength = mapped.getInt();
+            if( ( spriteCount < 0 ) || ( indexLength < 0 ) || ( indexOffset < HEADER_BYTES ) || ( indexOffset + indexLength > channel.size() ) )
+            {
+                throw new IOException( "Corrupt mapped sprite sheet file: " + mappedFile.getPath() );
+            }
+
+            //Read the index, verifying every payload lies within the file
+            byte[] indexBytes = new byte[ indexLength ];
+            mapped.position( ( int )indexOffset );
+            mapped.get( indexBytes );
+            mapped.clear();
+
+            MappedSpriteSheet spriteSheet = new MappedSpriteSheet( mapped.asReadOnlyBuffer(), spriteSize, new LinkedHashMap<>() );
+            try( DataInputStream input = new DataInputStream( new ByteArrayInputStream( indexBytes ) ) )
+            {
+                for( int sprite = 0; sprite < spriteCount; sprite++ )
+                {
+                    String name        = input.readUTF();
+                    int    width       = input.readInt();
+                    int    height      = input.readInt();
+                    long   offset      = input.readLong();
+                    int    length      = input.readInt();
+                    byte   compression = input.readByte();
+                    if( ( width < 0 ) || ( height < 0 ) || ( length < 0 ) || ( offset < HEADER_BYTES ) || ( offset + length > indexOffset )
+                        || ( ( compression == COMPRESSION_NONE ) && ( length != ( long )width * height * RgbaSpriteSheet.BYTES_PER_PIXEL ) )
+                        || ( ( compression != COMPRESSION_NONE ) && ( compression != COMPRESSION_DEFLATE ) ) )
+                    {
+                        throw new IOException( "Corrupt index entry of sprite " + name + ": " + mappedFile.getPath() );
+                    }
+                    spriteSheet.index.put( name, spriteSheet.new SpriteView( name, width, height, offset, length, compression ) );
+                }
+            }
+            return spriteSheet;
+        }
+    }
+
+    /**
+     * Get the names of the sprites in the sprite sheet.
+     * @return The sprite names, in the order they were written.
+     */
+    public Set<String> getSpriteNames()
+    {
+        return Collections.unmodifiableSet( index.keySet() );
+    }
+
+    /**
+     * Get a view of a single sprite, without reading its pixels.
+     * @param name The name of the source image.
+     * @return The sprite view, or null if the sprite isn't in the sprite sheet.
+     */
+    public SpriteView getSprite( String name )
+    {
+        return index.get( name );
+    }
+
+    /**
+     * Get the sprite size the sprite sheet was built with.
+     * @return The sprite size in pixels.
+     */
+    public int getSpriteSize()
+    {
+        return spriteSize;
+    }
+
+    /**
+     * The Writer class writes a mapped sprite sheet file one source image at a time, so only a single
+     * source image is held in memory as RGBA8 pixels while writing. The index is written on close.
+     */
+    public static class Writer implements AutoCloseable
+    {
+        /** The file being written */
+        private RandomAccessFile file;
+        /** Whether payloads are deflate compressed */
+        private boolean compress;
+        /** The index entries written so far */
+        private ByteArrayOutputStream indexBytes;
+        private DataOutputStream indexOutput;
+        /** The number of sprites written so far */
+        private int spriteCount;
+        /** The sprite size the sprite sheet was built with */
+        private int spriteSize;
+
+        /**
+         * Create a mapped sprite sheet file, replacing any existing file.
+         * @param mappedFile The .sprites file to write.
+         * @param spriteSize The sprite size the sprite sheet was built with, so the parser can detect it.
+         * @param compress True to deflate compress each payload, trading decompression on access for a smaller file.
+         * @throws IOException If the file could not be created.
+         */
+        public Writer( File mappedFile, int spriteSize, boolean compress ) throws IOException
+        {
+            this.file        = new RandomAccessFile( mappedFile, "rw" );
+            this.spriteSize  = spriteSize;
+            this.compress    = compress;
+            this.indexBytes  = new ByteArrayOutputStream();
+            this.indexOutput = new DataOutputStream( indexBytes );
+            file.setLength( 0 );
+            file.seek( HEADER_BYTES );
+        }
+
+        /**
+         * Append a source image to the sprite sheet.
+         * @param name The name of the source image.
+         * @param image The source image.
+         * @throws IOException If the sprite could not be written or the file would exceed the size of a single mapping.
+         */
+        public void addSprite( String name, BufferedImage image ) throws IOException
+        {
+            //Convert the pixels to RGBA8, TYPE_INT_ARGB rotated left by a byte is RGBA in big endian order
+            int width  = image.getWidth();
+            int height = image.getHeight();
+            if( ( long )width * height * RgbaSpriteSheet.BYTES_PER_PIXEL > Integer.MAX_VALUE )
+            {
+                throw new IOException( "Sprite " + name + " of " + width + "x" + height + " pixels is too large to store." );
+            }
+            ByteBuffer pixels = ByteBuffer.allocate( width * height * RgbaSpriteSheet.BYTES_PER_PIXEL );
+            int[] row = new int[ width ];
+            for( int y = 0; y < height; y++ )
+            {
+                image.getRGB( 0, y, width, 1, row, 0, width );
+                for( int x = 0; x < width; x++ )
+                {
+                    pixels.putInt( Integer.rotateLeft( row[ x ], 8 ) );
+                }
+            }
+
+            byte[] payload = pixels.array();
+            int    length  = payload.length;
+            byte   compression = COMPRESSION_NONE;
+            if( compress )
+            {
+                Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream( payload.length / 4 + 64 );
+                try
+                {
+                    deflater.setInput( payload );
+                    deflater.finish();
+                    byte[] buffer = new byte[ 64 * 1024 ];
+                    while( !deflater.finished() )
+                    {
+                        compressed.write( buffer, 0, deflater.deflate( buffer ) );
+                    }
+                }
+                finally
+                {
+                    deflater.end();
+                }
+
+                //Keep incompressible sprites uncompressed, so they stay zero-copy
+                if( compressed.size() < payload.length )
+                {
+                    payload     = compressed.toByteArray();
+                    length      = payload.length;
+                    compression = COMPRESSION_DEFLATE;
+                }
+            }
+
+            //Align the payload and verify the file stays mappable
+            long offset = ( ( file.getFilePointer() + PAYLOAD_ALIGNMENT - 1 ) / PAYLOAD_ALIGNMENT ) * PAYLOAD_ALIGNMENT;
+            if( offset + length + indexBytes.size() > Integer.MAX_VALUE )
+            {
+                throw new IOException( "Mapped sprite sheet is too large to add sprite: " + name );
+            }
+            file.seek( offset );
+            file.write( payload, 0, length );
+
+            indexOutput.writeUTF( name );
+            indexOutput.writeInt( width );
+            indexOutput.writeInt( height );
+            indexOutput.writeLong( offset );
+            indexOutput.writeInt( length );
+            indexOutput.writeByte( compression );
+            spriteCount++;
+        }
+
+        /**
+         * Write the index and the header, and close the file.
+         * @throws IOException If the file could not be written.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                indexOutput.flush();
+                long indexOffset = file.getFilePointer();
+                file.write( indexBytes.toByteArray() );
+
+                file.seek( 0 );
+                file.writeInt( MAPPED_MAGIC );
+                file.writeInt( MAPPED_VERSION );
+                file.writeInt( spriteSize );
+                file.writeInt( spriteCount );
+                file.writeLong( indexOffset );
+                file.writeInt( indexBytes.size() );
+                file.writeInt( 0 );
+            }
+            finally
+            {
+                file.close();
+            }
+        }
+    }
+}
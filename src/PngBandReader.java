@@ -0,0 +1,363 @@
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class PngBandReader implements Closeable
+{
+    /** The eight byte signature that begins every .png file */
+    private static final byte[] PNG_SIGNATURE = { ( byte )0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+    /** The PNG color types supported by the reader */
+    private static final int COLOR_TYPE_RGB     = 2;
+    private static final int COLOR_TYPE_INDEXED = 3;
+    private static final int COLOR_TYPE_RGBA    = 6;
+
+    /** The stream the .png file is read from */
+    private DataInputStream input;
+    /** The stream inflating the image data of the IDAT chunks */
+    private DataInputStream imageData;
+    /** The width of the image in pixels */
+    private int width;
+    /** The height of the image in pixels */
+    private int height;
+    /** The number of bytes per pixel, 3 for RGB, 4 for RGBA, or 1 for palette indices */
+    private int bytesPerPixel;
+    /** The ARGB colors of the palette indexed images are read with, or null if the image has no palette */
+    private int[] palette;
+    /** The number of rows read so far */
+    private int rowsRead;
+    /** The unfiltered bytes of the previous and current rows */
+    private byte[] previousRow;
+    private byte[] currentRow;
+
+    /**
+     * The PngBandReader class is used to decode a .png image a few rows at a time, so
+     * images far larger than the available heap can be read. Only non-interlaced, 8-bit
+     * RGB, RGBA, and indexed images are supported, which includes every sprite sheet this tool builds.
+     * @param input The stream to read the .png file from, it is closed with the reader.
+     * @throws IOException If the stream is not a supported .png file.
+     */
+    public PngBandReader( InputStream input ) throws IOException
+    {
+        this.input = new DataInputStream( input );
+
+        //Verify the signature
+        byte[] signature = new byte[ PNG_SIGNATURE.length ];
+        this.input.readFully( signature );
+        if( !Arrays.equals( signature, PNG_SIGNATURE ) )
+        {
+            throw new IOException( "Not a .png file." );
+        }
+
+        //Read the image header, it is always the first chunk
+        int headerLength = this.input.readInt();
+        if( ( headerLength != 13 ) || ( this.input.readInt() != chunkType( "IHDR" ) ) )
+        {
+            throw new IOException( "Missing .png image header." );
+        }
+
+        width  = this.input.readInt();
+        height = this.input.readInt();
+        int bitDepth    = this.input.readUnsignedByte();
+        int colorType   = this.input.readUnsignedByte();
+        this.input.readUnsignedByte(); //Compression method, always deflate
+        this.input.readUnsignedByte(); //Filter method, always adaptive
+        int interlace   = this.input.readUnsignedByte();
+        this.input.readInt();          //CRC
+
+        //Verify the image format is supported
+        if( ( bitDepth != 8 ) || ( interlace != 0 ) || ( ( colorType != COLOR_TYPE_RGB ) && ( colorType != COLOR_TYPE_RGBA ) && ( colorType != COLOR_TYPE_INDEXED ) ) )
+        {
+            throw new IOException( "Unsupported .png format, bit depth: " + bitDepth + ", color type: " + colorType + ", interlace: " + interlace );
+        }
+
+        //Allocate the row buffers
+        bytesPerPixel = ( colorType == COLOR_TYPE_RGBA ) ? 4 : ( colorType == COLOR_TYPE_RGB ) ? 3 : 1;
+        palette       = ( colorType == COLOR_TYPE_INDEXED ) ? new int[ 0 ] : null;
+        previousRow   = new byte[ width * bytesPerPixel ];
+        currentRow    = new byte[ width * bytesPerPixel ];
+        imageData     = new DataInputStream( new InflaterInputStream( new ImageDataInputStream() ) );
+    }
+
+    /**
+     * Get the width of the image.
+     * @return The width of the image in pixels.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Get the height of the image.
+     * @return The height of the image in pixels.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Read the next band of rows from the image into packed, non-premultiplied ARGB integers.
+     * @param argb The array receiving the pixels of the band.
+     * @param offset The index of the first pixel of the first row in the argb array.
+     * @param scanlineStride The distance between the start of two rows in the argb array.
+     * @param rows The number of rows to read.
+     * @throws IOException If the rows could not be read.
+     */
+    public void readRows( int[] argb, int offset, int scanlineStride, int rows ) throws IOException
+    {
+        //Verify the rows exist in the image
+        if( rowsRead + rows > height )
+        {
+            throw new IllegalStateException( "Reading " + rows + " rows exceeds the .png height: " + height );
+        }
+
+        for( int row = 0; row < rows; row++ )
+        {
+            //Read and unfilter the row
+            int filterType = imageData.readUnsignedByte();
+            imageData.readFully( currentRow );
+            unfilterRow( filterType );
+
+            int pixelIndex = offset + ( row * scanlineStride );
+            if( palette != null )
+            {
+                //Look up the ARGB color of each palette index
+                for( int x = 0; x < width; x++ )
+                {
+                    int index = currentRow[ x ] & 0xff;
+                    if( index >= palette.length )
+                    {
+                        throw new IOException( "Invalid .png palette index: " + index );
+                    }
+                    argb[ pixelIndex + x ] = palette[ index ];
+                }
+            }
+            else
+            {
+                //Convert the RGB(A) bytes into ARGB pixels
+                for( int x = 0, byteIndex = 0; x < width; x++, byteIndex += bytesPerPixel )
+                {
+                    int alpha = ( bytesPerPixel == 4 ) ? ( currentRow[ byteIndex + 3 ] & 0xff ) : 0xff;
+                    argb[ pixelIndex + x ] = ( alpha << 24 )
+                                           | ( ( currentRow[ byteIndex     ] & 0xff ) << 16 )
+                                           | ( ( currentRow[ byteIndex + 1 ] & 0xff ) << 8  )
+                                           |   ( currentRow[ byteIndex + 2 ] & 0xff );
+                }
+            }
+
+            //Swap the row buffers, the current row becomes the previous row
+            byte[] swapRow = previousRow;
+            previousRow    = currentRow;
+            currentRow     = swapRow;
+            rowsRead++;
+        }
+    }
+
+    /**
+     * Close the underlying input stream.
+     * @throws IOException If the stream could not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+    /**
+     * Reverse the given PNG filter type on the current row in place.
+     * @param filterType The filter type the row was encoded with.
+     * @throws IOException If the filter type is invalid.
+     */
+    private void unfilterRow( int filterType ) throws IOException
+    {
+        for( int i = 0; i < currentRow.length; i++ )
+        {
+            int left   = ( i >= bytesPerPixel ) ? ( currentRow[  i - bytesPerPixel ] & 0xff ) : 0;
+            int up     = ( rowsRead > 0 )       ? ( previousRow[ i ] & 0xff ) : 0;
+            int upLeft = ( ( i >= bytesPerPixel ) && ( rowsRead > 0 ) ) ? ( previousRow[ i - bytesPerPixel ] & 0xff ) : 0;
+
+            int predictor;
+            switch( filterType )
+            {
+                case 0:  predictor = 0;                                  break;
+                case 1:  predictor = left;                               break;
+                case 2:  predictor = up;                                 break;
+                case 3:  predictor = ( left + up ) >> 1;                 break;
+                case 4:  predictor = paethPredictor( left, up, upLeft ); break;
+                default: throw new IOException( "Invalid .png filter type: " + filterType );
+            }
+
+            currentRow[ i ] = ( byte )( currentRow[ i ] + predictor );
+        }
+    }
+
+    /**
+     * Predict a byte value from its left, up, and upper left neighbors as defined by the PNG specification.
+     * @param left The byte to the left.
+     * @param up The byte above.
+     * @param upLeft The byte above and to the left.
+     * @return The neighbor closest to the initial estimate left + up - upLeft.
+     */
+    private static int paethPredictor( int left, int up, int upLeft )
+    {
+        int estimate       = left + up - upLeft;
+        int distanceLeft   = Math.abs( estimate - left   );
+        int distanceUp     = Math.abs( estimate - up     );
+        int distanceUpLeft = Math.abs( estimate - upLeft );
+
+        if( ( distanceLeft <= distanceUp ) && ( distanceLeft <= distanceUpLeft ) )
+        {
+            return left;
+        }
+        return ( distanceUp <= distanceUpLeft ) ? up : upLeft;
+    }
+
+    /**
+     * Convert a four character chunk type into its integer representation.
+     * @param type The four character chunk type.
+     * @return The chunk type as a big-endian integer.
+     */
+    private static int chunkType( String type )
+    {
+        return ( type.charAt( 0 ) << 24 ) | ( type.charAt( 1 ) << 16 ) | ( type.charAt( 2 ) << 8 ) | type.charAt( 3 );
+    }
+
+    /**
+     * Read the PLTE chunk holding the RGB values of the palette, every color is opaque until a tRNS chunk says otherwise.
+     * @param length The length of the chunk data in bytes.
+     * @throws IOException If the chunk could not be read.
+     */
+    private void readPalette( int length ) throws IOException
+    {
+        if( ( length % 3 != 0 ) || ( length / 3 > 256 ) )
+        {
+            throw new IOException( "Invalid .png palette length: " + length );
+        }
+
+        palette = new int[ length / 3 ];
+        for( int i = 0; i < palette.length; i++ )
+        {
+            palette[ i ] = 0xff000000 | ( input.readUnsignedByte() << 16 ) | ( input.readUnsignedByte() << 8 ) | input.readUnsignedByte();
+        }
+        input.readInt(); //CRC
+    }
+
+    /**
+     * Read the tRNS chunk holding the alpha values of the first colors of the palette.
+     * @param length The length of the chunk data in bytes.
+     * @throws IOException If the chunk could not be read.
+     */
+    private void readPaletteAlpha( int length ) throws IOException
+    {
+        if( length > palette.length )
+        {
+            throw new IOException( "Invalid .png transparency length: " + length );
+        }
+
+        for( int i = 0; i < length; i++ )
+        {
+            palette[ i ] = ( input.readUnsignedByte() << 24 ) | ( palette[ i ] & 0x00ffffff );
+        }
+        input.readInt(); //CRC
+    }
+
+    /**
+     * An input stream concatenating the data of every IDAT chunk, skipping any other chunks
+     * except the palette chunks of indexed images, which are read as they are passed.
+     */
+    private class ImageDataInputStream extends InputStream
+    {
+        /** The number of bytes remaining in the current IDAT chunk */
+        private int remaining;
+        /** Whether the IEND chunk has been reached */
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] value = new byte[ 1 ];
+            return ( read( value, 0, 1 ) == -1 ) ? -1 : ( value[ 0 ] & 0xff );
+        }
+
+        @Override
+        public int read( byte[] data, int offset, int length ) throws IOException
+        {
+            //Advance to the next IDAT chunk with data
+            while( ( remaining == 0 ) && !ended )
+            {
+                nextChunk();
+            }
+            if( ended )
+            {
+                return -1;
+            }
+
+            int bytesRead = input.read( data, offset, Math.min( length, remaining ) );
+            if( bytesRead == -1 )
+            {
+                throw new EOFException( "Unexpected end of .png image data." );
+            }
+            remaining -= bytesRead;
+
+            //Skip the CRC at the end of the chunk
+            if( remaining == 0 )
+            {
+                input.readInt();
+            }
+            return bytesRead;
+        }
+
+        /**
+         * Read chunk headers until the next IDAT or IEND chunk, skipping all others but the palette chunks.
+         * @throws IOException If the chunks could not be read.
+         */
+        private void nextChunk() throws IOException
+        {
+            while( true )
+            {
+                int length = input.readInt();
+                int type   = input.readInt();
+
+                if( type == chunkType( "IDAT" ) )
+                {
+                    remaining = length;
+                    if( length == 0 )
+                    {
+                        input.readInt();
+                    }
+                    return;
+                }
+                if( type == chunkType( "IEND" ) )
+                {
+                    ended = true;
+                    return;
+                }
+                if( ( palette != null ) && ( type == chunkType( "PLTE" ) ) )
+                {
+                    readPalette( length );
+                    continue;
+                }
+                if( ( palette != null ) && ( type == chunkType( "tRNS" ) ) )
+                {
+                    readPaletteAlpha( length );
+                    continue;
+                }
+
+                //Skip the chunk data and CRC
+                for( int skipped = 0; skipped < length + 4; skipped++ )
+                {
+                    input.readByte();
+                }
+            }
+        }
+    }
+}
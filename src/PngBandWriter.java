@@ -0,0 +1,422 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class PngBandWriter implements Closeable
+{
+    /** The eight byte signature that begins every .png file */
+    private static final byte[] PNG_SIGNATURE = { ( byte )0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+    /** The PNG color types written, 8-bit RGBA or 8-bit palette indices */
+    private static final int COLOR_TYPE_INDEXED = 3;
+    private static final int COLOR_TYPE_RGBA    = 6;
+    /** The maximum number of compressed bytes stored in a single IDAT chunk */
+    private static final int MAX_IDAT_SIZE = 65536;
+
+    /** The PNG row filter types */
+    private static final byte FILTER_NONE    = 0;
+    private static final byte FILTER_SUB     = 1;
+    private static final byte FILTER_UP      = 2;
+    private static final byte FILTER_AVERAGE = 3;
+    private static final byte FILTER_PAETH   = 4;
+
+    /** The stream the .png file is written to */
+    private DataOutputStream output;
+    /** The stream compressing filtered rows into IDAT chunks */
+    private DeflaterOutputStream compressedOutput;
+    /** The deflater used to compress the filtered rows */
+    private Deflater deflater;
+    /** The width of the image in pixels */
+    private int width;
+    /** The height of the image in pixels */
+    private int height;
+    /** The palette pixels are written as indices of, or null if the image is written as RGBA */
+    private ColorPalette palette;
+    /** The number of bytes per pixel, 4 for RGBA or 1 for palette indices */
+    private int bytesPerPixel;
+    /** The number of rows written so far */
+    private int rowsWritten;
+    /** The unfiltered RGBA or index bytes of the previous and current rows */
+    private byte[] previousRow;
+    private byte[] currentRow;
+    /** The filtered bytes of each candidate filter type, prefixed with the filter type byte */
+    private byte[][] filteredRows;
+    /** The first and last filter type tried on each row, equal if a single filter is used */
+    private byte firstFilter;
+    private byte lastFilter;
+
+    /**
+     * The PngBandWriter class is used to encode a .png image a few rows at a time,
+     * so images far larger than the available heap can be written. Rows are given
+     * as packed, non-premultiplied ARGB integers and encoded as 8-bit RGBA.
+     * @param output The stream to write the .png file to, it is closed with the writer.
+     * @param width The positive, non-zero width of the image in pixels.
+     * @param height The positive, non-zero height of the image in pixels.
+     * @throws IOException If the .png header could not be written.
+     */
+    public PngBandWriter( OutputStream output, int width, int height ) throws IOException
+    {
+        this( output, width, height, PngEncoderSettings.DEFAULT );
+    }
+
+    /**
+     * The PngBandWriter class is used to encode a .png image a few rows at a time,
+     * so images far larger than the available heap can be written. Rows are given
+     * as packed, non-premultiplied ARGB integers and encoded as 8-bit RGBA.
+     * @param output The stream to write the .png file to, it is closed with the writer.
+     * @param width The positive, non-zero width of the image in pixels.
+     * @param height The positive, non-zero height of the image in pixels.
+     * @param settings The compression level and row filter to encode with.
+     * @throws IOException If the .png header could not be written.
+     */
+    public PngBandWriter( OutputStream output, int width, int height, PngEncoderSettings settings ) throws IOException
+    {
+        this( output, width, height, settings, null );
+    }
+
+    /**
+     * The PngBandWriter class is used to encode a .png image a few rows at a time,
+     * so images far larger than the available heap can be written. Rows are given
+     * as packed, non-premultiplied ARGB integers and encoded as 8-bit palette indices
+     * when a palette is given, a quarter of the size of 8-bit RGBA, or 8-bit RGBA otherwise.
+     * @param output The stream to write the .png file to, it is closed with the writer.
+     * @param width The positive, non-zero width of the image in pixels.
+     * @param height The positive, non-zero height of the image in pixels.
+     * @param settings The compression level and row filter to encode with.
+     * @param palette The palette containing every color of the image, or null to encode as RGBA.
+     * @throws IOException If the .png header could not be written.
+     */
+    public PngBandWriter( OutputStream output, int width, int height, PngEncoderSettings settings, ColorPalette palette ) throws IOException
+    {
+        //Validate the image dimensions
+        if( ( width <= 0 ) || ( height <= 0 ) || ( ( long )width * 4 + 1 > Integer.MAX_VALUE ) )
+        {
+            throw new IllegalArgumentException( "Invalid .png dimensions: " + width + "x" + height );
+        }
+
+        //Store the image arguments
+        this.output        = new DataOutputStream( output );
+        this.width         = width;
+        this.height        = height;
+        this.palette       = palette;
+        this.bytesPerPixel = ( palette != null ) ? 1 : 4;
+
+        //Allocate the row buffers
+        previousRow  = new byte[ width * bytesPerPixel ];
+        currentRow   = new byte[ width * bytesPerPixel ];
+        filteredRows = new byte[ FILTER_PAETH + 1 ][ ( width * bytesPerPixel ) + 1 ];
+
+        //Determine the filter types to try, adaptive filtering tries all of them
+        switch( settings.getFilterStrategy() )
+        {
+            case NONE:    firstFilter = FILTER_NONE;    break;
+            case SUB:     firstFilter = FILTER_SUB;     break;
+            case UP:      firstFilter = FILTER_UP;      break;
+            case AVERAGE: firstFilter = FILTER_AVERAGE; break;
+            case PAETH:   firstFilter = FILTER_PAETH;   break;
+            default:      firstFilter = FILTER_NONE;    break;
+        }
+        lastFilter = ( settings.getFilterStrategy() == PngEncoderSettings.FilterStrategy.ADAPTIVE ) ? FILTER_PAETH : firstFilter;
+
+        //Write the signature and image header
+        this.output.write( PNG_SIGNATURE );
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream( headerBytes );
+        header.writeInt( width );
+        header.writeInt( height );
+        header.writeByte( 8 ); //Bit depth
+        header.writeByte( ( palette != null ) ? COLOR_TYPE_INDEXED : COLOR_TYPE_RGBA );
+        header.writeByte( 0 ); //Compression method, deflate
+        header.writeByte( 0 ); //Filter method, adaptive
+        header.writeByte( 0 ); //Interlace method, none
+        writeChunk( "IHDR", headerBytes.toByteArray(), 0, headerBytes.size() );
+
+        if( palette != null )
+        {
+            writePalette();
+        }
+
+        //Compress image data into a series of IDAT chunks
+        deflater         = new Deflater( settings.getCompressionLevel() );
+        compressedOutput = new DeflaterOutputStream( new ImageDataOutputStream(), deflater, MAX_IDAT_SIZE );
+    }
+
+    /**
+     * Write a band of rows to the image, rows must be written top to bottom.
+     * @param argb The packed ARGB pixels of the band.
+     * @param offset The index of the first pixel of the first row in the argb array.
+     * @param scanlineStride The distance between the start of two rows in the argb array.
+     * @param rows The number of rows to write.
+     * @throws IOException If the rows could not be written.
+     */
+    public void writeRows( int[] argb, int offset, int scanlineStride, int rows ) throws IOException
+    {
+        //Verify the rows fit in the image
+        if( rowsWritten + rows > height )
+        {
+            throw new IllegalStateException( "Writing " + rows + " rows exceeds the .png height: " + height );
+        }
+
+        for( int row = 0; row < rows; row++ )
+        {
+            int pixelIndex = offset + ( row * scanlineStride );
+            if( palette != null )
+            {
+                //Convert the ARGB pixels into palette indices
+                for( int x = 0; x < width; x++ )
+                {
+                    int index = palette.getIndex( argb[ pixelIndex + x ] );
+                    if( index < 0 )
+                    {
+                        throw new IOException( "Color missing from the .png palette: " + Integer.toHexString( argb[ pixelIndex + x ] ) );
+                    }
+                    currentRow[ x ] = ( byte )index;
+                }
+            }
+            else
+            {
+                //Convert the ARGB pixels into RGBA bytes
+                for( int x = 0, byteIndex = 0; x < width; x++, byteIndex += 4 )
+                {
+                    int pixel = argb[ pixelIndex + x ];
+                    currentRow[ byteIndex     ] = ( byte )( pixel >>> 16 );
+                    currentRow[ byteIndex + 1 ] = ( byte )( pixel >>> 8  );
+                    currentRow[ byteIndex + 2 ] = ( byte )( pixel        );
+                    currentRow[ byteIndex + 3 ] = ( byte )( pixel >>> 24 );
+                }
+            }
+
+            //Filter and compress the row
+            compressedOutput.write( filterRow() );
+
+            //Swap the row buffers, the current row becomes the previous row
+            byte[] swapRow = previousRow;
+            previousRow    = currentRow;
+            currentRow     = swapRow;
+            rowsWritten++;
+        }
+    }
+
+    /**
+     * Write a compressed, UTF-8 iTXt text chunk. Text chunks must be written before any rows,
+     * so readers find them without decoding the image data.
+     * @param keyword The Latin-1 keyword of the text, 1 to 79 characters.
+     * @param text The text.
+     * @throws IOException If the chunk could not be written.
+     */
+    public void writeText( String keyword, String text ) throws IOException
+    {
+        if( rowsWritten > 0 )
+        {
+            throw new IllegalStateException( "Text chunks must be written before the image rows." );
+        }
+
+        ByteArrayOutputStream textBytes = new ByteArrayOutputStream();
+        textBytes.write( keyword.getBytes( StandardCharsets.ISO_8859_1 ) );
+        textBytes.write( 0 ); //Keyword terminator
+        textBytes.write( 1 ); //Compression flag, compressed
+        textBytes.write( 0 ); //Compression method, deflate
+        textBytes.write( 0 ); //Language tag terminator, no language tag
+        textBytes.write( 0 ); //Translated keyword terminator, no translated keyword
+        try( DeflaterOutputStream compressedText = new DeflaterOutputStream( textBytes ) )
+        {
+            compressedText.write( text.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        writeChunk( "iTXt", textBytes.toByteArray(), 0, textBytes.size() );
+    }
+
+    /**
+     * Finish compressing the image data and write the end of the .png file.
+     * Closes the underlying output stream.
+     * @throws IOException If the image is incomplete or could not be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if( rowsWritten != height )
+            {
+                throw new IOException( "Incomplete .png, wrote " + rowsWritten + " of " + height + " rows." );
+            }
+
+            //Flush the remaining image data and end the file
+            compressedOutput.finish();
+            compressedOutput.flush();
+            writeChunk( "IEND", new byte[ 0 ], 0, 0 );
+            output.flush();
+        }
+        finally
+        {
+            deflater.end();
+            output.close();
+        }
+    }
+
+    /**
+     * Write the PLTE chunk holding the RGB values of the palette, followed by a tRNS chunk
+     * holding the alpha values of the palette if any color is not fully opaque.
+     * @throws IOException If the chunks could not be written.
+     */
+    private void writePalette() throws IOException
+    {
+        int[] colors = palette.getColors();
+        byte[] rgb   = new byte[ colors.length * 3 ];
+        byte[] alpha = new byte[ colors.length ];
+        int alphaLength = 0;
+
+        for( int i = 0; i < colors.length; i++ )
+        {
+            rgb[ ( i * 3 )     ] = ( byte )( colors[ i ] >>> 16 );
+            rgb[ ( i * 3 ) + 1 ] = ( byte )( colors[ i ] >>> 8  );
+            rgb[ ( i * 3 ) + 2 ] = ( byte )( colors[ i ]        );
+            alpha[ i ]           = ( byte )( colors[ i ] >>> 24 );
+
+            //Trailing opaque entries may be left out of the tRNS chunk
+            if( ( colors[ i ] >>> 24 ) != 0xff )
+            {
+                alphaLength = i + 1;
+            }
+        }
+
+        writeChunk( "PLTE", rgb, 0, rgb.length );
+        if( alphaLength > 0 )
+        {
+            writeChunk( "tRNS", alpha, 0, alphaLength );
+        }
+    }
+
+    /**
+     * Apply each candidate PNG filter type to the current row and select the filtered row with the
+     * smallest sum of absolute values, the heuristic recommended by the PNG specification.
+     * @return The selected filtered row, prefixed with its filter type byte.
+     */
+    private byte[] filterRow()
+    {
+        byte[] selectedRow = null;
+        long   selectedSum = Long.MAX_VALUE;
+
+        //Unfiltered rows are the current row as is
+        if( lastFilter == FILTER_NONE )
+        {
+            filteredRows[ FILTER_NONE ][ 0 ] = FILTER_NONE;
+            System.arraycopy( currentRow, 0, filteredRows[ FILTER_NONE ], 1, currentRow.length );
+            return filteredRows[ FILTER_NONE ];
+        }
+
+        for( byte filterType = firstFilter; filterType <= lastFilter; filterType++ )
+        {
+            byte[] filteredRow = filteredRows[ filterType ];
+            filteredRow[ 0 ] = filterType;
+
+            long sum = 0;
+            for( int i = 0; i < currentRow.length; i++ )
+            {
+                int left    = ( i >= bytesPerPixel )  ? ( currentRow[  i - bytesPerPixel ] & 0xff ) : 0;
+                int up      = ( rowsWritten > 0 )     ? ( previousRow[ i ] & 0xff ) : 0;
+                int upLeft  = ( ( i >= bytesPerPixel ) && ( rowsWritten > 0 ) ) ? ( previousRow[ i - bytesPerPixel ] & 0xff ) : 0;
+                int current = currentRow[ i ] & 0xff;
+
+                int filtered;
+                switch( filterType )
+                {
+                    case FILTER_SUB:     filtered = current - left;                           break;
+                    case FILTER_UP:      filtered = current - up;                             break;
+                    case FILTER_AVERAGE: filtered = current - ( ( left + up ) >> 1 );         break;
+                    case FILTER_PAETH:   filtered = current - paethPredictor( left, up, upLeft ); break;
+                    default:             filtered = current;                                  break;
+                }
+
+                filteredRow[ i + 1 ] = ( byte )filtered;
+                sum += Math.abs( ( byte )filtered );
+            }
+
+            if( sum < selectedSum )
+            {
+                selectedSum = sum;
+                selectedRow = filteredRow;
+            }
+        }
+
+        return selectedRow;
+    }
+
+    /**
+     * Predict a byte value from its left, up, and upper left neighbors as defined by the PNG specification.
+     * @param left The byte to the left.
+     * @param up The byte above.
+     * @param upLeft The byte above and to the left.
+     * @return The neighbor closest to the initial estimate left + up - upLeft.
+     */
+    private static int paethPredictor( int left, int up, int upLeft )
+    {
+        int estimate       = left + up - upLeft;
+        int distanceLeft   = Math.abs( estimate - left   );
+        int distanceUp     = Math.abs( estimate - up     );
+        int distanceUpLeft = Math.abs( estimate - upLeft );
+
+        if( ( distanceLeft <= distanceUp ) && ( distanceLeft <= distanceUpLeft ) )
+        {
+            return left;
+        }
+        return ( distanceUp <= distanceUpLeft ) ? up : upLeft;
+    }
+
+    /**
+     * Write a single .png chunk: length, type, data, and CRC.
+     * @param type The four character chunk type.
+     * @param data The chunk data.
+     * @param offset The index of the first byte of data to write.
+     * @param length The number of bytes of data to write.
+     * @throws IOException If the chunk could not be written.
+     */
+    private void writeChunk( String type, byte[] data, int offset, int length ) throws IOException
+    {
+        byte[] typeBytes = type.getBytes( StandardCharsets.US_ASCII );
+
+        CRC32 crc = new CRC32();
+        crc.update( typeBytes );
+        crc.update( data, offset, length );
+
+        output.writeInt( length );
+        output.write( typeBytes );
+        output.write( data, offset, length );
+        output.writeInt( ( int )crc.getValue() );
+    }
+
+    /**
+     * An output stream wrapping the compressed image data into IDAT chunks as it arrives.
+     */
+    private class ImageDataOutputStream extends OutputStream
+    {
+        @Override
+        public void write( int value ) throws IOException
+        {
+            write( new byte[]{ ( byte )value }, 0, 1 );
+        }
+
+        @Override
+        public void write( byte[] data, int offset, int length ) throws IOException
+        {
+            //Split the data into chunks no larger than the maximum IDAT size
+            while( length > 0 )
+            {
+                int chunkLength = Math.min( length, MAX_IDAT_SIZE );
+                writeChunk( "IDAT", data, offset, chunkLength );
+
+                offset += chunkLength;
+                length -= chunkLength;
+            }
+        }
+    }
+}
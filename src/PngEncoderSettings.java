@@ -0,0 +1,89 @@
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class PngEncoderSettings
+{
+    /** The compression level selecting the default deflate level */
+    public static final int DEFAULT_COMPRESSION = -1;
+
+    /** The settings used unless others are given, .png files are written exactly as ImageIO writes them */
+    public static final PngEncoderSettings DEFAULT = new PngEncoderSettings( DEFAULT_COMPRESSION, FilterStrategy.ADAPTIVE );
+    /** The settings for uncompressed output, the fastest to write and the largest on disk */
+    public static final PngEncoderSettings STORED  = new PngEncoderSettings( 0, FilterStrategy.NONE );
+
+    /**
+     * The PNG row filters applied before compression.
+     */
+    public enum FilterStrategy
+    {
+        /** Try every filter on each row and keep the one with the smallest sum of absolute values */
+        ADAPTIVE,
+        /** Store the row bytes unchanged */
+        NONE,
+        /** Store each byte as the difference from the byte to its left */
+        SUB,
+        /** Store each byte as the difference from the byte above */
+        UP,
+        /** Store each byte as the difference from the average of the bytes to its left and above */
+        AVERAGE,
+        /** Store each byte as the difference from the left, above, or upper left byte closest to their gradient */
+        PAETH
+    }
+
+    /** The deflate compression level from 0 to 9, or DEFAULT_COMPRESSION */
+    private int compressionLevel;
+    /** The row filter applied before compression */
+    private FilterStrategy filterStrategy;
+
+    /**
+     * The PngEncoderSettings class holds the settings used to encode .png files, trading
+     * file size against encoding speed. Instances are immutable and can be shared.
+     * @param compressionLevel The deflate compression level from 0, no compression, to 9, the best compression, or DEFAULT_COMPRESSION.
+     * @param filterStrategy The row filter applied before compression.
+     */
+    public PngEncoderSettings( int compressionLevel, FilterStrategy filterStrategy )
+    {
+        //Validate the compression level
+        if( ( compressionLevel < DEFAULT_COMPRESSION ) || ( compressionLevel > 9 ) )
+        {
+            throw new IllegalArgumentException( "Invalid compression level: " + compressionLevel + ", must be 0 to 9 or " + DEFAULT_COMPRESSION );
+        }
+
+        this.compressionLevel = compressionLevel;
+        this.filterStrategy   = ( filterStrategy == null ) ? FilterStrategy.ADAPTIVE : filterStrategy;
+    }
+
+    /**
+     * Get the deflate compression level.
+     * @return The compression level from 0 to 9, or DEFAULT_COMPRESSION.
+     */
+    public int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+
+    /**
+     * Get the row filter applied before compression.
+     * @return The filter strategy.
+     */
+    public FilterStrategy getFilterStrategy()
+    {
+        return filterStrategy;
+    }
+
+    /**
+     * Determine whether these are the default settings, in which case whole images are written with ImageIO.
+     * @return True if the compression level and filter strategy are the defaults.
+     */
+    public boolean isDefault()
+    {
+        return ( compressionLevel == DEFAULT_COMPRESSION ) && ( filterStrategy == FilterStrategy.ADAPTIVE );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "level " + ( ( compressionLevel == DEFAULT_COMPRESSION ) ? "default" : String.valueOf( compressionLevel ) ) + ", filter " + filterStrategy;
+    }
+}
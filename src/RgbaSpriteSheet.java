@@ -0,0 +1,281 @@
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class RgbaSpriteSheet
+{
+    /** The file extension of raw RGBA sprite sheet files, written next to the .png sprite sheet */
+    public static final String RGBA_EXTENSION = ".rgba";
+    /** The magic number identifying a raw RGBA sprite sheet file, "SSBR" */
+    private static final int RGBA_MAGIC = 0x53534252;
+    /** The version of the raw RGBA sprite sheet file format */
+    private static final int RGBA_VERSION = 1;
+    /** The size of the file header in bytes, the pixels start right after it, 16 byte aligned for uploads */
+    public static final int HEADER_BYTES = 32;
+    /** The number of bytes of each pixel, one per red, green, blue, and alpha channel */
+    public static final int BYTES_PER_PIXEL = 4;
+
+    /** The pixels of the sprite sheet, RGBA8 rows from top to bottom without padding */
+    private ByteBuffer pixels;
+    /** The width and height of the sprite sheet in pixels */
+    private int width;
+    private int height;
+    /** The region table, recording where each chunk of each source image was placed */
+    private SpriteSheetAtlas atlas;
+
+    /**
+     * The RgbaSpriteSheet class holds a packed sprite sheet as raw RGBA8 pixels in a direct buffer, or a buffer
+     * mapped from a .rgba file, along with the region table of its chunks. The pixels can be handed to a graphics API,
+     * such as glTexImage2D with GL_RGBA and GL_UNSIGNED_BYTE, without copying them or holding them on the Java heap.
+     * <p>
+     * File layout, big endian: magic, version, width, height, region table offset (long), region table length,
+     * a reserved int, then width * height RGBA8 pixels, then the region table written as an atlas.
+     * @param pixels The RGBA8 pixels, width * height * 4 bytes starting at position 0.
+     * @param width The width of the sprite sheet in pixels.
+     * @param height The height of the sprite sheet in pixels.
+     * @param atlas The region table of the sprite sheet.
+     */
+    public RgbaSpriteSheet( ByteBuffer pixels, int width, int height, SpriteSheetAtlas atlas )
+    {
+        this.pixels = pixels;
+        this.width  = width;
+        this.height = height;
+        this.atlas  = atlas;
+    }
+
+    /**
+     * Get the raw RGBA sprite sheet file belonging to the given sprite sheet file.
+     * @param spriteSheetFile The sprite sheet file.
+     * @return The raw RGBA file, which has the same name as the sprite sheet with the .rgba extension.
+     */
+    public static File getRgbaFile( File spriteSheetFile )
+    {
+        String name = spriteSheetFile.getName();
+        int extensionIndex = name.lastIndexOf( '.' );
+        String baseName = ( extensionIndex < 0 ) ? name : name.substring( 0, extensionIndex );
+        return new File( spriteSheetFile.getParentFile(), baseName + RGBA_EXTENSION );
+    }
+
+    /**
+     * Allocate the pixels of a sprite sheet off the Java heap, in a direct buffer, or in a new .rgba file mapped into memory.
+     * The pixels start out fully transparent.
+     * @param width The width of the sprite sheet in pixels.
+     * @param height The height of the sprite sheet in pixels.
+     * @param atlas The region table of the sprite sheet, which is written into the file after the pixels.
+     * @param rgbaFile The file to map, replacing any existing file, or null to allocate a direct buffer.
+     * @return The sprite sheet, whose pixels are written straight into the buffer or file.
+     * @throws IOException If the file could not be created or mapped, or the sprite sheet doesn't fit in a single buffer.
+     */
+    public static RgbaSpriteSheet allocate( int width, int height, SpriteSheetAtlas atlas, File rgbaFile ) throws IOException
+    {
+        long pixelBytes = ( long )width * height * BYTES_PER_PIXEL;
+        if( rgbaFile == null )
+        {
+            if( pixelBytes > Integer.MAX_VALUE )
+            {
+                throw new IOException( "Sprite sheet of " + width + "x" + height + " pixels doesn't fit in a single buffer." );
+            }
+            return new RgbaSpriteSheet( ByteBuffer.allocateDirect( ( int )pixelBytes ), width, height, atlas );
+        }
+
+        //Serialize the region table, written after the pixels
+        ByteArrayOutputStream regionTable = new ByteArrayOutputStream();
+        try( DataOutputStream regionOutput = new DataOutputStream( regionTable ) )
+        {
+            atlas.write( regionOutput );
+        }
+
+        long fileBytes = HEADER_BYTES + pixelBytes + regionTable.size();
+        if( fileBytes > Integer.MAX_VALUE )
+        {
+            throw new IOException( "Sprite sheet of " + width + "x" + height + " pixels doesn't fit in a single mapped buffer." );
+        }
+
+        try( RandomAccessFile file = new RandomAccessFile( rgbaFile, "rw" ); FileChannel channel = file.getChannel() )
+        {
+            //Replace any previous contents, mapping extends the file with zeroes, which are transparent pixels
+            file.setLength( 0 );
+            ByteBuffer mapped = channel.map( FileChannel.MapMode.READ_WRITE, 0, fileBytes );
+            mapped.putInt( RGBA_MAGIC );
+            mapped.putInt( RGBA_VERSION );
+            mapped.putInt( width );
+            mapped.putInt( height );
+            mapped.putLong( HEADER_BYTES + pixelBytes );
+            mapped.putInt( regionTable.size() );
+            mapped.putInt( 0 );
+
+            mapped.position( ( int )( HEADER_BYTES + pixelBytes ) );
+            mapped.put( regionTable.toByteArray() );
+
+            //The mapping stays valid after the channel is closed
+            mapped.position( HEADER_BYTES );
+            mapped.limit( ( int )( HEADER_BYTES + pixelBytes ) );
+            return new RgbaSpriteSheet( mapped.slice(), width, height, atlas );
+        }
+    }
+
+    /**
+     * Map a raw RGBA sprite sheet file into memory, read only. Nothing is decoded, the pixels are paged in by the
+     * operating system as they are accessed, so a runtime can upload them or read single sprites straight away.
+     * @param rgbaFile The .rgba file to map.
+     * @return The mapped sprite sheet.
+     * @throws IOException If the file could not be mapped or is not a raw RGBA sprite sheet.
+     */
+    public static RgbaSpriteSheet map( File rgbaFile ) throws IOException
+    {
+        try( RandomAccessFile file = new RandomAccessFile( rgbaFile, "r" ); FileChannel channel = file.getChannel() )
+        {
+            if( ( channel.size() < HEADER_BYTES ) || ( channel.size() > Integer.MAX_VALUE ) )
+            {
+                throw new IOException( "Not a raw RGBA sprite sheet file: " + rgbaFile.getPath() );
+            }
+
+            ByteBuffer mapped = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            if( mapped.getInt() != RGBA_MAGIC )
+            {
+                throw new IOException( "Not a raw RGBA sprite sheet file: " + rgbaFile.getPath() );
+            }
+            int version = mapped.getInt();
+            if( version != RGBA_VERSION )
+            {
+                throw new IOException( "Unsupported raw RGBA sprite sheet version " + version + ": " + rgbaFile.getPath() );
+            }
+
+            //Verify the pixels and region table lie within the file
+            int  width             = mapped.getInt();
+            int  height            = mapped.getInt();
+            long regionTableOffset = mapped.getLong();
+            int  regionTableLength = mapped.getInt();
+            long pixelBytes        = ( long )width * height * BYTES_PER_PIXEL;
+            if( ( width < 0 ) || ( height < 0 ) || ( regionTableLength < 0 ) || ( regionTableOffset < HEADER_BYTES + pixelBytes )
+                || ( regionTableOffset + regionTableLength > channel.size() ) )
+            {
+                throw new IOException( "Corrupt raw RGBA sprite sheet file: " + rgbaFile.getPath() );
+            }
+
+            //Read the region table
+            byte[] regionTable = new byte[ regionTableLength ];
+            mapped.position( ( int )regionTableOffset );
+            mapped.get( regionTable );
+            SpriteSheetAtlas atlas = SpriteSheetAtlas.read( new DataInputStream( new ByteArrayInputStream( regionTable ) ), rgbaFile.getPath() );
+
+            mapped.position( HEADER_BYTES );
+            mapped.limit( ( int )( HEADER_BYTES + pixelBytes ) );
+            return new RgbaSpriteSheet( mapped.slice(), width, height, atlas );
+        }
+    }
+
+    /**
+     * Copy a rectangle of TYPE_INT_ARGB pixels into the sprite sheet, converting them to RGBA8.
+     * @param source The pixels to copy.
+     * @param sourceIndex The index of the upper left source pixel.
+     * @param sourceStride The number of source pixels between the start of each row.
+     * @param width The width of the rectangle in pixels.
+     * @param height The height of the rectangle in pixels.
+     * @param x The x coordinate of the upper left destination pixel.
+     * @param y The y coordinate of the upper left destination pixel.
+     * @param row A scratch array of at least width pixels, reused between calls to avoid allocating.
+     */
+    public void putArgb( int[] source, int sourceIndex, int sourceStride, int width, int height, int x, int y, int[] row )
+    {
+        //Big endian ints rotated left by a byte are RGBA in memory order
+        IntBuffer destination = pixels.duplicate().order( ByteOrder.BIG_ENDIAN ).asIntBuffer();
+        for( int line = 0; line < height; line++ )
+        {
+            for( int column = 0; column < width; column++ )
+            {
+                row[ column ] = Integer.rotateLeft( source[ sourceIndex + column ], 8 );
+            }
+            destination.position( ( ( y + line ) * this.width ) + x );
+            destination.put( row, 0, width );
+            sourceIndex += sourceStride;
+        }
+    }
+
+    /**
+     * Reassemble a single source image from its chunks, such as when parsing the sprite sheet.
+     * @param name The name of the source image.
+     * @return The TYPE_INT_ARGB source image, or null if the source image isn't in the sprite sheet.
+     */
+    public BufferedImage readSprite( String name )
+    {
+        ArrayList<SpriteSheetAtlas.Chunk> chunks = atlas.getChunks( name );
+        if( chunks == null )
+        {
+            return null;
+        }
+
+        BufferedImage spriteImage = new BufferedImage( chunks.get( 0 ).srcImageWidth, chunks.get( 0 ).srcImageHeight, BufferedImage.TYPE_INT_ARGB );
+        int[] spritePixels = SpriteUtil.getPixels( spriteImage );
+        int   spriteSize   = atlas.getSpriteSize();
+        int   columns      = ( int )Math.ceil( ( double )spriteImage.getWidth() / spriteSize );
+        IntBuffer source   = pixels.duplicate().order( ByteOrder.BIG_ENDIAN ).asIntBuffer();
+        for( SpriteSheetAtlas.Chunk chunk : chunks )
+        {
+            //Chunks trimmed of their transparent borders are offset within their area, fully transparent chunks have no pixels
+            int spriteX = ( ( chunk.number % columns ) * spriteSize ) + chunk.offsetX;
+            int spriteY = ( ( chunk.number / columns ) * spriteSize ) + chunk.offsetY;
+            for( int line = 0; line < chunk.height; line++ )
+            {
+                int destinationIndex = SpriteUtil.getPixelIndex( spriteImage, spriteX, spriteY + line );
+                source.position( ( ( chunk.y + line ) * width ) + chunk.x );
+                source.get( spritePixels, destinationIndex, chunk.width );
+                for( int column = 0; column < chunk.width; column++ )
+                {
+                    spritePixels[ destinationIndex + column ] = Integer.rotateRight( spritePixels[ destinationIndex + column ], 8 );
+                }
+            }
+        }
+        return spriteImage;
+    }
+
+    /**
+     * Get the pixels of the sprite sheet, RGBA8 rows from top to bottom without padding.
+     * @return A view of the pixel buffer positioned at its start, sharing the pixels.
+     */
+    public ByteBuffer getPixels()
+    {
+        return pixels.duplicate();
+    }
+
+    /**
+     * Get the width of the sprite sheet.
+     * @return The width in pixels.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Get the height of the sprite sheet.
+     * @return The height in pixels.
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Get the region table of the sprite sheet.
+     * @return The atlas recording where each chunk of each source image was placed.
+     */
+    public SpriteSheetAtlas getAtlas()
+    {
+        return atlas;
+    }
+}
@@ -0,0 +1,160 @@
+import java.awt.*;
+import java.util.ArrayList;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SkylinePacker
+{
+    /** The width of the bin in pixels */
+    private int binWidth;
+    /** The height of the bin used so far in pixels */
+    private int binHeight;
+    /** The skyline segments, left to right, each stored as { x, y, width } */
+    private ArrayList<int[]> skyline;
+
+    /**
+     * The SkylinePacker class is used to place rectangles into a bin of fixed width and
+     * unbounded height. The top edge of the placed rectangles is tracked as a skyline, and
+     * each rectangle is placed at the lowest position it fits, preferring the leftmost.
+     * @param binWidth The positive, non-zero width of the bin in pixels.
+     */
+    public SkylinePacker( int binWidth )
+    {
+        this.binWidth = binWidth;
+
+        //The skyline starts as a single segment along the bottom of the bin
+        skyline = new ArrayList<>();
+        skyline.add( new int[]{ 0, 0, binWidth } );
+    }
+
+    /**
+     * Place a rectangle in the bin.
+     * @param width The width of the rectangle in pixels.
+     * @param height The height of the rectangle in pixels.
+     * @return The upper left position of the placed rectangle, or null if it is wider than the bin.
+     */
+    public Point insert( int width, int height )
+    {
+        if( width > binWidth )
+        {
+            return null;
+        }
+
+        //Find the segment where the rectangle rests lowest, ties go to the leftmost segment
+        int bestIndex = -1;
+        int bestY     = Integer.MAX_VALUE;
+        for( int index = 0; index < skyline.size(); index++ )
+        {
+            int y = fitY( index, width );
+            if( ( y >= 0 ) && ( y < bestY ) )
+            {
+                bestIndex = index;
+                bestY     = y;
+            }
+        }
+
+        //Raise the skyline under the placed rectangle
+        Point position = new Point( skyline.get( bestIndex )[ 0 ], bestY );
+        addSegment( bestIndex, position.x, bestY + height, width );
+        binHeight = Math.max( binHeight, bestY + height );
+
+        return position;
+    }
+
+    /**
+     * Get the height of the bin used by the placed rectangles.
+     * @return The height of the bin in pixels.
+     */
+    public int getBinHeight()
+    {
+        return binHeight;
+    }
+
+    /**
+     * Get the width of the bin.
+     * @return The width of the bin in pixels.
+     */
+    public int getBinWidth()
+    {
+        return binWidth;
+    }
+
+    /**
+     * Determine the height a rectangle would rest at if its left edge is placed at the start of a segment.
+     * @param index The index of the segment.
+     * @param width The width of the rectangle in pixels.
+     * @return The y coordinate of the rectangle's top edge, or -1 if it extends past the bin.
+     */
+    private int fitY( int index, int width )
+    {
+        int x = skyline.get( index )[ 0 ];
+        if( x + width > binWidth )
+        {
+            return -1;
+        }
+
+        //The rectangle rests on the highest segment it spans
+        int y         = 0;
+        int remaining = width;
+        for( int spanned = index; remaining > 0; spanned++ )
+        {
+            int[] segment = skyline.get( spanned );
+            y          = Math.max( y, segment[ 1 ] );
+            remaining -= segment[ 2 ];
+        }
+        return y;
+    }
+
+    /**
+     * Insert a new segment into the skyline, shrinking or removing the segments it covers,
+     * and merge neighboring segments of equal height.
+     * @param index The index of the first covered segment.
+     * @param x The x coordinate of the new segment.
+     * @param y The y coordinate of the new segment.
+     * @param width The width of the new segment.
+     */
+    private void addSegment( int index, int x, int y, int width )
+    {
+        skyline.add( index, new int[]{ x, y, width } );
+
+        //Shrink or remove the segments covered by the new segment
+        for( int next = index + 1; next < skyline.size(); )
+        {
+            int[] segment = skyline.get( next );
+            int   overlap = ( x + width ) - segment[ 0 ];
+            if( overlap <= 0 )
+            {
+                break;
+            }
+
+            if( overlap >= segment[ 2 ] )
+            {
+                skyline.remove( next );
+            }
+            else
+            {
+                segment[ 0 ] += overlap;
+                segment[ 2 ] -= overlap;
+                break;
+            }
+        }
+
+        //Merge neighboring segments of equal height
+        for( int merge = 0; merge < skyline.size() - 1; )
+        {
+            int[] segment = skyline.get( merge );
+            int[] next    = skyline.get( merge + 1 );
+            if( segment[ 1 ] == next[ 1 ] )
+            {
+                segment[ 2 ] += next[ 2 ];
+                skyline.remove( merge + 1 );
+            }
+            else
+            {
+                merge++;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SourceImageCache
+{
+    /** The default maximum number of cached pixels, 256 MB of TYPE_INT_ARGB images */
+    public static final long DEFAULT_MAX_PIXELS = 64L * 1024 * 1024;
+
+    /** The maximum total number of pixels of the cached images */
+    private long maxPixels;
+    /** The total number of pixels of the cached images */
+    private long cachedPixels;
+    /** The cached images in least to most recently used order, where the keys are the absolute image paths */
+    private LinkedHashMap<String, Entry> entries;
+    /** The number of images found in and missing from the cache */
+    private long hits;
+    private long misses;
+
+    /**
+     * A single decoded image along with the file info used to validate it.
+     */
+    private static class Entry
+    {
+        /** The size of the image file in bytes */
+        long size;
+        /** The last modified time of the image file */
+        long lastModified;
+        /** The decoded TYPE_INT_ARGB image */
+        BufferedImage image;
+    }
+
+    /**
+     * The SourceImageCache class keeps decoded source images in memory across builds, so a long-running
+     * process only decodes the source images that are new or have changed since they were last loaded.
+     * A cached image is valid if its file size and modification time are unchanged. When the cached images
+     * exceed the maximum number of pixels, the least recently used images are evicted. Cached images are
+     * shared and must not be modified. Safe to use from multiple threads.
+     * @param maxPixels The maximum total number of pixels of the cached images.
+     */
+    public SourceImageCache( long maxPixels )
+    {
+        this.maxPixels = Math.max( 0, maxPixels );
+        this.entries   = new LinkedHashMap<>( 16, 0.75f, true );
+    }
+
+    /**
+     * Get the decoded image of an image file if it hasn't changed since it was cached.
+     * @param imageFile The image file.
+     * @param size The current size of the image file in bytes.
+     * @param lastModified The current last modified time of the image file.
+     * @return The cached image, or null if the image is not cached or has changed.
+     */
+    public synchronized BufferedImage get( File imageFile, long size, long lastModified )
+    {
+        String key  = imageFile.getAbsolutePath();
+        Entry entry = entries.get( key );
+        if( ( entry != null ) && ( entry.size == size ) && ( entry.lastModified == lastModified ) )
+        {
+            hits++;
+            return entry.image;
+        }
+
+        //Drop the stale image, it will be replaced once the image is loaded again
+        if( entry != null )
+        {
+            entries.remove( key );
+            cachedPixels -= pixelCount( entry.image );
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Cache the decoded image of an image file, evicting the least recently used images if the cache is full.
+     * Images larger than the entire cache are not cached. The file info must be taken before the image was read,
+     * so an image file saved while it was being decoded is seen as changed rather than matching the older pixels.
+     * @param imageFile The image file.
+     * @param image The decoded image, it must not be modified afterwards.
+     * @param size The size of the image file in bytes, taken before it was read.
+     * @param lastModified The last modified time of the image file, taken before it was read.
+     */
+    public synchronized void put( File imageFile, BufferedImage image, long size, long lastModified )
+    {
+        long pixels = pixelCount( image );
+        if( pixels > maxPixels )
+        {
+            return;
+        }
+
+        Entry entry        = new Entry();
+        entry.size         = size;
+        entry.lastModified = lastModified;
+        entry.image        = image;
+
+        Entry replaced = entries.put( imageFile.getAbsolutePath(), entry );
+        cachedPixels  += pixels - ( ( replaced != null ) ? pixelCount( replaced.image ) : 0 );
+
+        //Evict the least recently used images until the cache fits
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while( ( cachedPixels > maxPixels ) && iterator.hasNext() )
+        {
+            cachedPixels -= pixelCount( iterator.next().getValue().image );
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Get the number of image lookups that found a valid cached image.
+     * @return The number of cache hits.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Get the number of image lookups that found no valid cached image.
+     * @return The number of cache misses.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Get the number of cached images.
+     * @return The number of images in the cache.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Get the total number of pixels of the cached images.
+     * @return The number of cached pixels.
+     */
+    public synchronized long getCachedPixels()
+    {
+        return cachedPixels;
+    }
+
+    /**
+     * Get the number of pixels of an image.
+     * @param image The image.
+     * @return The width times the height of the image.
+     */
+    private static long pixelCount( BufferedImage image )
+    {
+        return ( long )image.getWidth() * image.getHeight();
+    }
+}
@@ -0,0 +1,395 @@
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SourceImageScanner
+{
+    /** The time a directory must have been unmodified for before its listing is reused in milliseconds,
+     *  covering file systems that record modification times with a coarse granularity */
+    private static final long SETTLED_MILLIS = 2000;
+
+    /** Whether subdirectories of the source directory are scanned */
+    private boolean recursive;
+    /** The globs a source image path must match one of, all images are included if empty */
+    private List<PathMatcher> includeMatchers;
+    /** The globs excluding source image paths and directory subtrees */
+    private List<PathMatcher> excludeMatchers;
+    /** The listing of each scanned directory, where the keys are the absolute directory paths */
+    private ConcurrentHashMap<String, DirectoryListing> listingCache;
+    /** The number of directories listed and reused by the last scan */
+    private AtomicInteger listedDirectories;
+    private AtomicInteger reusedDirectories;
+
+    /**
+     * A single source image found by a scan.
+     */
+    public static class SourceFile
+    {
+        /** The source image file */
+        public final File file;
+        /** The name of the sprite, the path relative to the source directory without the extension */
+        public final String spriteName;
+        /** The position of the file in the directory listings, files are ordered by comparing positions */
+        private final int[] position;
+
+        /**
+         * Create a source file.
+         * @param file The source image file.
+         * @param spriteName The name of the sprite.
+         * @param position The position of the file in the directory listings.
+         */
+        SourceFile( File file, String spriteName, int[] position )
+        {
+            this.file       = file;
+            this.spriteName = spriteName;
+            this.position   = position;
+        }
+    }
+
+    /**
+     * The entries of a directory along with its modification time when they were listed.
+     */
+    private static class DirectoryListing
+    {
+        /** The last modified time of the directory when it was listed */
+        long lastModified;
+        /** The names of the entries in listing order */
+        String[] names;
+        /** Whether each entry is a directory */
+        boolean[] directories;
+    }
+
+    /**
+     * The SourceImageScanner class finds the source images of a build, either in the source directory alone
+     * or in its entire tree. Directories are walked in parallel, and each source image is handed on as soon as
+     * it is found, so images can be loaded while the rest of the tree is still being walked. Sprites of images
+     * in subdirectories are named by their path relative to the source directory, such as characters/hero, so
+     * images with the same name in different directories don't clash. The listing of each directory is kept,
+     * and reused by later scans while the directory is unmodified, so unchanged subtrees are not listed again.
+     * Safe to use from multiple threads.
+     */
+    public SourceImageScanner()
+    {
+        includeMatchers   = new ArrayList<>();
+        excludeMatchers   = new ArrayList<>();
+        listingCache      = new ConcurrentHashMap<>();
+        listedDirectories = new AtomicInteger();
+        reusedDirectories = new AtomicInteger();
+    }
+
+    /**
+     * Set whether subdirectories of the source directory are scanned.
+     * @param recursive True to scan the entire directory tree, false to only scan the source directory.
+     */
+    public void setRecursive( boolean recursive )
+    {
+        this.recursive = recursive;
+    }
+
+    /**
+     * Set the globs a source image path relative to the source directory must match one of, such as
+     * characters/*.png. A glob starting with double asterisk and a slash also matches images directly
+     * in the source directory, so **&#47;*.png matches every .png image.
+     * @param includeGlobs The globs to include, or null or empty to include every supported image.
+     */
+    public void setIncludeGlobs( List<String> includeGlobs )
+    {
+        includeMatchers = compileGlobs( includeGlobs );
+    }
+
+    /**
+     * Set the globs excluding source image paths relative to the source directory. Directories matching
+     * an exclude glob, such as backup, are skipped along with everything they contain.
+     * @param excludeGlobs The globs to exclude, or null or empty to exclude nothing.
+     */
+    public void setExcludeGlobs( List<String> excludeGlobs )
+    {
+        excludeMatchers = compileGlobs( excludeGlobs );
+    }
+
+    /**
+     * Get the number of directories listed by the last scan.
+     * @return The number of directories listed.
+     */
+    public int getListedDirectories()
+    {
+        return listedDirectories.get();
+    }
+
+    /**
+     * Get the number of unmodified directories whose listing was reused by the last scan.
+     * @return The number of directories reused.
+     */
+    public int getReusedDirectories()
+    {
+        return reusedDirectories.get();
+    }
+
+    /**
+     * Scan the source directory for supported images, walking subdirectories in parallel on the given pool
+     * if the scan is recursive. Each source image is passed to the consumer as soon as it is found, possibly
+     * from several threads at once. The source images of the source directory are ordered as it lists them,
+     * each followed by the images of its subdirectories, so the order doesn't depend on the walk timing.
+     * @param sourceDirectory The directory to scan.
+     * @param skippedDirectory A directory whose subtree is never scanned, such as the output directory, or null.
+     * @param pool The pool directories are walked on.
+     * @param consumer The consumer receiving each source image as it is found.
+     * @return The source images found in order, or null if the source directory could not be listed.
+     */
+    public List<SourceFile> scan( File sourceDirectory, File skippedDirectory, ForkJoinPool pool, Consumer<SourceFile> consumer )
+    {
+        listedDirectories.set( 0 );
+        reusedDirectories.set( 0 );
+
+        //The source directory itself is never skipped, builds may write into their source directory
+        Path skipped = ( ( skippedDirectory == null ) || normalizedPath( skippedDirectory ).equals( normalizedPath( sourceDirectory ) ) ) ? null : normalizedPath( skippedDirectory );
+        DirectoryListing rootListing = listDirectory( sourceDirectory );
+        if( rootListing == null )
+        {
+            return null;
+        }
+
+        ConcurrentLinkedQueue<SourceFile> found = new ConcurrentLinkedQueue<>();
+        pool.invoke( new WalkTask( sourceDirectory, rootListing, "", new int[ 0 ], skipped, found, consumer ) );
+
+        //Order the source images by their position in the directory listings
+        ArrayList<SourceFile> sourceFiles = new ArrayList<>( found );
+        sourceFiles.sort( ( first, second ) -> comparePositions( first.position, second.position ) );
+        return sourceFiles;
+    }
+
+    /**
+     * Walks a single directory, handing on its source images and walking its subdirectories in parallel.
+     */
+    private class WalkTask extends RecursiveAction
+    {
+        /** The version of the serialized form, tasks are never serialized */
+        private static final long serialVersionUID = 1L;
+
+        /** The directory to walk and its listing */
+        private File directory;
+        private DirectoryListing listing;
+        /** The path of the directory relative to the source directory, empty or ending with a slash */
+        private String relativePath;
+        /** The position of the directory in the directory listings */
+        private int[] position;
+        /** The normalized path of the directory whose subtree is never scanned, or null */
+        private Path skippedDirectory;
+        /** The queue collecting every source image found */
+        private ConcurrentLinkedQueue<SourceFile> found;
+        /** The consumer receiving each source image as it is found */
+        private Consumer<SourceFile> consumer;
+
+        WalkTask( File directory, DirectoryListing listing, String relativePath, int[] position, Path skippedDirectory, ConcurrentLinkedQueue<SourceFile> found, Consumer<SourceFile> consumer )
+        {
+            this.directory        = directory;
+            this.listing          = listing;
+            this.relativePath     = relativePath;
+            this.position         = position;
+            this.skippedDirectory = skippedDirectory;
+            this.found            = found;
+            this.consumer         = consumer;
+        }
+
+        @Override
+        protected void compute()
+        {
+            ArrayList<WalkTask> subdirectoryTasks = new ArrayList<>();
+            for( int index = 0; index < listing.names.length; index++ )
+            {
+                File   entry         = new File( directory, listing.names[ index ] );
+                String entryPath     = relativePath + listing.names[ index ];
+                int[]  entryPosition = appendPosition( position, index );
+
+                if( listing.directories[ index ] )
+                {
+                    //Only descend into subdirectories that aren't excluded, or the output directory
+                    if( recursive && !matchesAny( excludeMatchers, entryPath ) && ( ( skippedDirectory == null ) || !skippedDirectory.equals( normalizedPath( entry ) ) ) )
+                    {
+                        DirectoryListing subdirectoryListing = listDirectory( entry );
+                        if( subdirectoryListing != null )
+                        {
+                            subdirectoryTasks.add( new WalkTask( entry, subdirectoryListing, entryPath + "/", entryPosition, skippedDirectory, found, consumer ) );
+                        }
+                    }
+                }
+                else if( SpriteUtil.isImageFileSupported( entry ) && ( includeMatchers.isEmpty() || matchesAny( includeMatchers, entryPath ) ) && !matchesAny( excludeMatchers, entryPath ) )
+                {
+                    SourceFile sourceFile = new SourceFile( entry, spriteName( relativePath, entry.getName() ), entryPosition );
+                    found.add( sourceFile );
+                    consumer.accept( sourceFile );
+                }
+            }
+            invokeAll( subdirectoryTasks );
+        }
+    }
+
+    /**
+     * List a directory, reusing its previous listing if it hasn't been modified since. Adding, removing,
+     * or renaming an entry modifies the directory, changing the contents of an entry does not.
+     * @param directory The directory to list.
+     * @return The listing of the directory, or null if it could not be listed.
+     */
+    private DirectoryListing listDirectory( File directory )
+    {
+        String key = directory.getAbsolutePath();
+        long lastModified = directory.lastModified();
+        DirectoryListing cachedListing = listingCache.get( key );
+        if( ( cachedListing != null ) && ( cachedListing.lastModified == lastModified ) && ( lastModified != 0 ) )
+        {
+            reusedDirectories.incrementAndGet();
+            return cachedListing;
+        }
+
+        //Get the entries of the directory
+        long listedMillis = System.currentTimeMillis();
+        File[] entries = directory.listFiles();
+        if( entries == null )
+        {
+            System.out.println( "Unable to list directory: " + directory.getPath() );
+            listingCache.remove( key );
+            return null;
+        }
+        listedDirectories.incrementAndGet();
+
+        DirectoryListing listing = new DirectoryListing();
+        listing.lastModified = lastModified;
+        listing.names        = new String[ entries.length ];
+        listing.directories  = new boolean[ entries.length ];
+        for( int index = 0; index < entries.length; index++ )
+        {
+            listing.names[ index ]       = entries[ index ].getName();
+            listing.directories[ index ] = entries[ index ].isDirectory();
+        }
+
+        //Only keep the listing once the directory has settled, a change within the same modification time tick could be missed
+        if( ( listedMillis - lastModified ) >= SETTLED_MILLIS )
+        {
+            listingCache.put( key, listing );
+        }
+        else
+        {
+            listingCache.remove( key );
+        }
+        return listing;
+    }
+
+    /**
+     * Determine the sprite name of a source image, its path relative to the source directory without the
+     * extension. Periods separate the fields of a sprite header, so periods in directory names become underscores.
+     * @param relativePath The path of the directory relative to the source directory, empty or ending with a slash.
+     * @param fileName The name of the source image file.
+     * @return The sprite name.
+     */
+    private static String spriteName( String relativePath, String fileName )
+    {
+        return relativePath.replace( '.', '_' ) + fileName.substring( 0, fileName.indexOf( '.' ) );
+    }
+
+    /**
+     * Compile globs into path matchers. Globs starting with a double asterisk and a slash are also
+     * compiled without that prefix, so they match paths directly in the source directory as well.
+     * @param globs The globs to compile, or null.
+     * @return The path matchers.
+     */
+    private static List<PathMatcher> compileGlobs( List<String> globs )
+    {
+        ArrayList<PathMatcher> matchers = new ArrayList<>();
+        if( globs != null )
+        {
+            for( String glob : globs )
+            {
+                if( ( glob == null ) || glob.trim().isEmpty() )
+                {
+                    continue;
+                }
+                matchers.add( FileSystems.getDefault().getPathMatcher( "glob:" + glob.trim() ) );
+                if( glob.trim().startsWith( "**/" ) )
+                {
+                    matchers.add( FileSystems.getDefault().getPathMatcher( "glob:" + glob.trim().substring( 3 ) ) );
+                }
+            }
+        }
+        return matchers;
+    }
+
+    /**
+     * Determine whether a relative path matches any of the given path matchers.
+     * @param matchers The path matchers.
+     * @param relativePath The path relative to the source directory, separated by slashes.
+     * @return True if the path matches, false otherwise.
+     */
+    private static boolean matchesAny( List<PathMatcher> matchers, String relativePath )
+    {
+        if( matchers.isEmpty() )
+        {
+            return false;
+        }
+
+        Path path = Paths.get( relativePath );
+        for( PathMatcher matcher : matchers )
+        {
+            if( matcher.matches( path ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the position of an entry within a directory at the given position.
+     * @param position The position of the directory.
+     * @param index The index of the entry in the directory listing.
+     * @return The position of the entry.
+     */
+    private static int[] appendPosition( int[] position, int index )
+    {
+        int[] entryPosition = new int[ position.length + 1 ];
+        System.arraycopy( position, 0, entryPosition, 0, position.length );
+        entryPosition[ position.length ] = index;
+        return entryPosition;
+    }
+
+    /**
+     * Compare two positions in the directory listings, a directory comes before the entries it contains.
+     * @param first The first position.
+     * @param second The second position.
+     * @return A negative number, zero, or a positive number if the first position comes before, at, or after the second.
+     */
+    private static int comparePositions( int[] first, int[] second )
+    {
+        for( int index = 0; index < Math.min( first.length, second.length ); index++ )
+        {
+            if( first[ index ] != second[ index ] )
+            {
+                return Integer.compare( first[ index ], second[ index ] );
+            }
+        }
+        return Integer.compare( first.length, second.length );
+    }
+
+    /**
+     * Get the normalized absolute path of a file, so paths such as src/../src/Images compare equal.
+     * @param file The file.
+     * @return The normalized absolute path.
+     */
+    private static Path normalizedPath( File file )
+    {
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+}
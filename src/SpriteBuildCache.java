@@ -0,0 +1,356 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SpriteBuildCache
+{
+    /** The file extension of build cache files, written next to the sprite sheet they were built for */
+    public static final String CACHE_EXTENSION = ".cache";
+    /** The magic number identifying a build cache file, "SSBC" */
+    private static final int CACHE_MAGIC = 0x53534243;
+    /** The version of the build cache file format */
+    private static final int CACHE_VERSION = 1;
+
+    /** The width and height of the cached chunks in pixels, excluding the header */
+    private int spriteSize;
+    /** The height of the sprite header in pixels */
+    private byte spriteHeaderSize;
+    /** The ARGB value of the control color the chunk headers were encrypted with */
+    private int controlRGB;
+    /** The entries read from the cache file, where the keys are the absolute source image paths */
+    private ConcurrentHashMap<String, Entry> previousEntries;
+    /** The entries used by the current build, written to the cache file, where the keys are the absolute source image paths */
+    private ConcurrentHashMap<String, Entry> currentEntries;
+    /** The number of source images found in and added to the cache during the current build */
+    private AtomicInteger hits;
+    private AtomicInteger misses;
+
+    /**
+     * The cached chunks of a single source image along with the file info used to validate them.
+     */
+    private static class Entry
+    {
+        /** The size of the source image file in bytes */
+        long size;
+        /** The last modified time of the source image file */
+        long lastModified;
+        /** The hash of the contents of the source image file */
+        long contentHash;
+        /** The deflated chunk names and pixels */
+        byte[] chunkData;
+    }
+
+    /**
+     * The SpriteBuildCache class stores the chunks split from each source image, so a rebuild only has
+     * to load and split source images that are new or have changed since the cache was written. A cached
+     * source image is valid if its file size and modification time are unchanged, or failing that, if the
+     * hash of its contents is unchanged. Safe to use from multiple threads.
+     * @param spriteSize The width and height of each chunk in pixels, excluding the header.
+     * @param spriteHeaderSize The height of the sprite header in pixels.
+     * @param controlColor The color the chunk headers were encrypted with.
+     */
+    public SpriteBuildCache( int spriteSize, byte spriteHeaderSize, Color controlColor )
+    {
+        this.spriteSize       = spriteSize;
+        this.spriteHeaderSize = spriteHeaderSize;
+        this.controlRGB       = controlColor.getRGB();
+        this.previousEntries  = new ConcurrentHashMap<>();
+        this.currentEntries   = new ConcurrentHashMap<>();
+        this.hits             = new AtomicInteger();
+        this.misses           = new AtomicInteger();
+    }
+
+    /**
+     * Get the cached chunks of the given source image if they are still valid.
+     * @param imageFile The source image file.
+     * @return The chunks of the source image in split order, or null if the source image is not cached or has changed.
+     */
+    public LinkedHashMap<String, BufferedImage> getChunks( File imageFile )
+    {
+        String key = imageFile.getAbsolutePath();
+        Entry entry = previousEntries.get( key );
+        if( entry == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            //Fall back to comparing the content hash if the file was touched but may not have changed
+            if( ( entry.size != imageFile.length() ) || ( entry.lastModified != imageFile.lastModified() ) )
+            {
+                if( ( entry.size != imageFile.length() ) || ( entry.contentHash != hashFile( imageFile ) ) )
+                {
+                    return null;
+                }
+                entry.lastModified = imageFile.lastModified();
+            }
+
+            LinkedHashMap<String, BufferedImage> chunks = decodeChunks( entry.chunkData );
+            currentEntries.put( key, entry );
+            hits.incrementAndGet();
+            return chunks;
+        }
+        catch( IOException exception )
+        {
+            System.out.println( "Error reading cached chunks for: " + imageFile.getName() );
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Add the chunks of a source image to the cache, replacing any previous entry. The file info must be
+     * taken before the image was read, and the content hash of the bytes the chunks were decoded from, so
+     * a file saved while it was being loaded never gets its new identity stored with the old chunks.
+     * @param imageFile The source image file.
+     * @param size The size of the source image file in bytes, taken before it was read.
+     * @param lastModified The last modified time of the source image file, taken before it was read.
+     * @param contentHash The hash of the file contents the chunks were decoded from, see hashContents.
+     * @param chunks The chunks of the source image in split order.
+     */
+    public void putChunks( File imageFile, long size, long lastModified, long contentHash, LinkedHashMap<String, BufferedImage> chunks )
+    {
+        try
+        {
+            Entry entry = new Entry();
+            entry.size         = size;
+            entry.lastModified = lastModified;
+            entry.contentHash  = contentHash;
+            entry.chunkData    = encodeChunks( chunks );
+
+            currentEntries.put( imageFile.getAbsolutePath(), entry );
+            misses.incrementAndGet();
+        }
+        catch( IOException exception )
+        {
+            System.out.println( "Error caching chunks for: " + imageFile.getName() );
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the number of source images whose chunks were read from the cache since it was loaded.
+     * @return The number of cache hits.
+     */
+    public int getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of source images whose chunks were added to the cache since it was loaded.
+     * @return The number of cache misses.
+     */
+    public int getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Load a build cache from the given file. If the file doesn't exist, can't be read, or was written
+     * with different sprite settings, an empty cache is returned.
+     * @param cacheFile The cache file to read.
+     * @param spriteSize The width and height of each chunk in pixels, excluding the header.
+     * @param spriteHeaderSize The height of the sprite header in pixels.
+     * @param controlColor The color the chunk headers are encrypted with.
+     * @return The loaded build cache.
+     */
+    public static SpriteBuildCache load( File cacheFile, int spriteSize, byte spriteHeaderSize, Color controlColor )
+    {
+        SpriteBuildCache cache = new SpriteBuildCache( spriteSize, spriteHeaderSize, controlColor );
+        if( !cacheFile.isFile() )
+        {
+            return cache;
+        }
+
+        try( DataInputStream input = new DataInputStream( new BufferedInputStream( new FileInputStream( cacheFile ) ) ) )
+        {
+            //Ignore caches written by another version or with other sprite settings
+            if( ( input.readInt() != CACHE_MAGIC ) || ( input.readInt() != CACHE_VERSION ) || ( input.readInt() != spriteSize )
+             || ( input.readByte() != spriteHeaderSize ) || ( input.readInt() != cache.controlRGB ) )
+            {
+                return cache;
+            }
+
+            int entryCount = input.readInt();
+            for( int index = 0; index < entryCount; index++ )
+            {
+                String key = input.readUTF();
+                Entry entry = new Entry();
+                entry.size         = input.readLong();
+                entry.lastModified = input.readLong();
+                entry.contentHash  = input.readLong();
+                entry.chunkData    = new byte[ input.readInt() ];
+                input.readFully( entry.chunkData );
+                cache.previousEntries.put( key, entry );
+            }
+        }
+        catch( IOException exception )
+        {
+            System.out.println( "Error reading build cache, rebuilding all images: " + cacheFile.getPath() );
+            cache.previousEntries.clear();
+        }
+
+        return cache;
+    }
+
+    /**
+     * Write the entries used by the current build to the given file. Source images that were
+     * not part of the current build are dropped from the cache.
+     * @param cacheFile The cache file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void write( File cacheFile ) throws IOException
+    {
+        try( DataOutputStream output = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( cacheFile ) ) ) )
+        {
+            output.writeInt( CACHE_MAGIC );
+            output.writeInt( CACHE_VERSION );
+            output.writeInt( spriteSize );
+            output.writeByte( spriteHeaderSize );
+            output.writeInt( controlRGB );
+
+            output.writeInt( currentEntries.size() );
+            for( String key : currentEntries.keySet() )
+            {
+                Entry entry = currentEntries.get( key );
+                output.writeUTF( key );
+                output.writeLong( entry.size );
+                output.writeLong( entry.lastModified );
+                output.writeLong( entry.contentHash );
+                output.writeInt( entry.chunkData.length );
+                output.write( entry.chunkData );
+            }
+        }
+    }
+
+    /**
+     * Deflate the names and pixels of a set of chunks.
+     * @param chunks The chunks to encode, a chunk may be null if its header could not be encrypted.
+     * @return The encoded chunks.
+     * @throws IOException If the chunks could not be encoded.
+     */
+    private byte[] encodeChunks( LinkedHashMap<String, BufferedImage> chunks ) throws IOException
+    {
+        ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+        try( DataOutputStream output = new DataOutputStream( new DeflaterOutputStream( chunkBytes, deflater ) ) )
+        {
+            ByteBuffer pixelBytes = ByteBuffer.allocate( spriteSize * ( spriteSize + spriteHeaderSize ) * 4 );
+
+            output.writeInt( chunks.size() );
+            for( String imageChunkName : chunks.keySet() )
+            {
+                BufferedImage imageChunk = chunks.get( imageChunkName );
+                output.writeUTF( imageChunkName );
+                output.writeBoolean( imageChunk != null );
+
+                if( imageChunk != null )
+                {
+                    pixelBytes.clear();
+                    pixelBytes.asIntBuffer().put( SpriteUtil.getPixels( imageChunk ) );
+                    output.write( pixelBytes.array() );
+                }
+            }
+        }
+        finally
+        {
+            deflater.end();
+        }
+
+        return chunkBytes.toByteArray();
+    }
+
+    /**
+     * Inflate the names and pixels of a set of chunks.
+     * @param chunkData The encoded chunks.
+     * @return The decoded chunks in split order.
+     * @throws IOException If the chunks could not be decoded.
+     */
+    private LinkedHashMap<String, BufferedImage> decodeChunks( byte[] chunkData ) throws IOException
+    {
+        LinkedHashMap<String, BufferedImage> chunks = new LinkedHashMap<>();
+        try( DataInputStream input = new DataInputStream( new InflaterInputStream( new ByteArrayInputStream( chunkData ) ) ) )
+        {
+            byte[] pixelBytes = new byte[ spriteSize * ( spriteSize + spriteHeaderSize ) * 4 ];
+
+            int chunkCount = input.readInt();
+            for( int index = 0; index < chunkCount; index++ )
+            {
+                String imageChunkName = input.readUTF();
+                BufferedImage imageChunk = null;
+
+                if( input.readBoolean() )
+                {
+                    imageChunk = new BufferedImage( spriteSize, spriteSize + spriteHeaderSize, BufferedImage.TYPE_INT_ARGB );
+                    input.readFully( pixelBytes );
+                    ByteBuffer.wrap( pixelBytes ).asIntBuffer().get( SpriteUtil.getPixels( imageChunk ) );
+                }
+
+                chunks.put( imageChunkName, imageChunk );
+            }
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Hash the contents of a file.
+     * @param file The file to hash.
+     * @return The 64-bit hash of the file contents.
+     * @throws IOException If the file could not be read.
+     */
+    private static long hashFile( File file ) throws IOException
+    {
+        return hashContents( Files.readAllBytes( file.toPath() ) );
+    }
+
+    /**
+     * Hash the contents of a file that were already read, such as the bytes a source image is decoded from.
+     * @param contents The file contents.
+     * @return The 64-bit hash of the contents, matching the hash the cache validates entries with.
+     */
+    public static long hashContents( byte[] contents )
+    {
+        final long prime1 = 0x9E3779B185EBCA87L;
+        final long prime2 = 0xC2B2AE3D27D4EB4FL;
+
+        long hash = prime2 ^ contents.length;
+        ByteBuffer buffer = ByteBuffer.wrap( contents );
+        while( buffer.remaining() >= 8 )
+        {
+            hash = Long.rotateLeft( hash ^ ( buffer.getLong() * prime1 ), 31 ) * prime2;
+        }
+        while( buffer.hasRemaining() )
+        {
+            hash = Long.rotateLeft( hash ^ ( buffer.get() * prime1 ), 11 ) * prime2;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= prime1;
+        hash ^= hash >>> 29;
+        return hash;
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SpriteHeader
+{
+    /** The version of the binary header written by this tool */
+    public static final int VERSION = 1;
+    /** The keyword of the .png text chunk holding the name table of a sprite sheet with binary headers */
+    public static final String NAME_TABLE_KEYWORD = "spritesheet.names";
+    /** The keywords of the .png text chunks holding the sprite size and sprite header size a sprite sheet was built with */
+    public static final String SPRITE_SIZE_KEYWORD = "spritesheet.spriteSize";
+    public static final String HEADER_SIZE_KEYWORD = "spritesheet.headerSize";
+    /** The keyword of the .png text chunk listing the fully transparent chunks left out of a sprite sheet, by chunk name */
+    public static final String EMPTY_CHUNKS_KEYWORD = "spritesheet.emptyChunks";
+    /** The maximum number of bytes in a header, the marker, version, four 5 byte varints, and the checksum */
+    public static final int MAX_HEADER_BYTES = 2 + ( 4 * 5 ) + 2;
+    /** The number of bytes stored in each header pixel, one per color channel, alpha is left opaque */
+    private static final int BYTES_PER_PIXEL = 3;
+    /** The first byte of a binary header, text headers begin with a name character, which is never zero */
+    private static final int MARKER = 0x00;
+
+    /** The fields of the last decoded header */
+    private int nameId;
+    private int number;
+    private int srcImageWidth;
+    private int srcImageHeight;
+    /** The position of the next byte to read and the running checksum while decoding */
+    private int readPosition;
+    private int readChecksum;
+
+    /**
+     * The SpriteHeader class encodes and decodes the binary header row of a sprite. A header stores the
+     * index of the source image name in the name table of the sprite sheet, the number of the sprite within
+     * the source image, and the source image dimensions as varints, followed by a checksum. The bytes are
+     * packed three per opaque pixel, and the remaining header pixels are filled with the control color.
+     * <p>
+     * Byte layout: 0x00 marker, version, nameId, number, srcImageWidth, srcImageHeight, CRC-16 high, CRC-16 low.
+     * <p>
+     * A decoder instance holds the fields of the last decoded header, so decoding allocates nothing.
+     * An instance must not be shared between threads.
+     */
+    public SpriteHeader()
+    {
+    }
+
+    /**
+     * Determine whether a header begins with a binary header rather than a text header.
+     * @param firstPixel The ARGB value of the first header pixel.
+     * @return True if the header is binary, false otherwise.
+     */
+    public static boolean isBinaryHeader( int firstPixel )
+    {
+        return ( ( firstPixel >>> 24 ) == 0xff ) && ( ( ( firstPixel >> 16 ) & 0xff ) == MARKER );
+    }
+
+    /**
+     * Encode a binary header into a row of header pixels.
+     * @param pixels The pixels of the image holding the header.
+     * @param headerIndex The index of the first header pixel in the pixels array.
+     * @param headerPixels The number of pixels in the header row.
+     * @param nameId The index of the source image name in the name table.
+     * @param number The number of the sprite within the source image.
+     * @param srcImageWidth The width of the source image in pixels.
+     * @param srcImageHeight The height of the source image in pixels.
+     * @param fillRGB The color the unused header pixels are filled with.
+     * @return True if the header was encoded, false if it doesn't fit in the header row.
+     */
+    public static boolean encode( int[] pixels, int headerIndex, int headerPixels, int nameId, int number, int srcImageWidth, int srcImageHeight, int fillRGB )
+    {
+        //Verify the header fits in the header row
+        int headerBytes  = 2 + varintLength( nameId ) + varintLength( number ) + varintLength( srcImageWidth ) + varintLength( srcImageHeight ) + 2;
+        int pixelsNeeded = ( headerBytes + BYTES_PER_PIXEL - 1 ) / BYTES_PER_PIXEL;
+        if( pixelsNeeded > headerPixels )
+        {
+            return false;
+        }
+
+        //Clear the header pixels to opaque black, fill the unused header pixels
+        for( int x = 0; x < headerPixels; x++ )
+        {
+            pixels[ headerIndex + x ] = ( x < pixelsNeeded ) ? 0xff000000 : fillRGB;
+        }
+
+        //Write the header bytes, followed by a checksum covering every byte before it
+        int position = 0;
+        position = writeByte(   pixels, headerIndex, position, MARKER );
+        position = writeByte(   pixels, headerIndex, position, VERSION );
+        position = writeVarint( pixels, headerIndex, position, nameId );
+        position = writeVarint( pixels, headerIndex, position, number );
+        position = writeVarint( pixels, headerIndex, position, srcImageWidth );
+        position = writeVarint( pixels, headerIndex, position, srcImageHeight );
+
+        int checksum = 0xffff;
+        for( int checkedPosition = 0; checkedPosition < position; checkedPosition++ )
+        {
+            checksum = updateChecksum( checksum, pixels[ headerIndex + ( checkedPosition / BYTES_PER_PIXEL ) ] >> ( 16 - ( ( checkedPosition % BYTES_PER_PIXEL ) * 8 ) ) );
+        }
+        position = writeByte( pixels, headerIndex, position, checksum >>> 8 );
+        writeByte( pixels, headerIndex, position, checksum );
+        return true;
+    }
+
+    /**
+     * Decode a binary header from a row of header pixels. The fields are read with the getters.
+     * @param pixels The pixels of the image holding the header.
+     * @param headerIndex The index of the first header pixel in the pixels array.
+     * @param headerPixels The number of pixels in the header row.
+     * @return True if the header was decoded, false if it is not a binary header of a known version, or is corrupt.
+     */
+    public boolean decode( int[] pixels, int headerIndex, int headerPixels )
+    {
+        readPosition = 0;
+        readChecksum = 0xffff;
+        int maxPosition = Math.min( headerPixels * BYTES_PER_PIXEL, MAX_HEADER_BYTES );
+
+        //Verify the marker and version
+        if( ( readByte( pixels, headerIndex, maxPosition ) != MARKER ) || ( readByte( pixels, headerIndex, maxPosition ) != VERSION ) )
+        {
+            return false;
+        }
+
+        nameId         = readVarint( pixels, headerIndex, maxPosition );
+        number         = readVarint( pixels, headerIndex, maxPosition );
+        srcImageWidth  = readVarint( pixels, headerIndex, maxPosition );
+        srcImageHeight = readVarint( pixels, headerIndex, maxPosition );
+
+        //Verify the checksum, a negative field means a varint was malformed or ran past the header
+        int expectedChecksum = readChecksum;
+        int checksum         = ( readByte( pixels, headerIndex, maxPosition ) << 8 ) | readByte( pixels, headerIndex, maxPosition );
+        return ( ( nameId | number | srcImageWidth | srcImageHeight | checksum ) >= 0 ) && ( checksum == expectedChecksum )
+            && ( srcImageWidth > 0 ) && ( srcImageHeight > 0 );
+    }
+
+    /**
+     * Get the index of the source image name in the name table of the last decoded header.
+     * @return The name table index.
+     */
+    public int getNameId()
+    {
+        return nameId;
+    }
+
+    /**
+     * Get the number of the sprite within its source image of the last decoded header.
+     * @return The sprite number.
+     */
+    public int getNumber()
+    {
+        return number;
+    }
+
+    /**
+     * Get the source image width of the last decoded header.
+     * @return The width in pixels.
+     */
+    public int getSrcImageWidth()
+    {
+        return srcImageWidth;
+    }
+
+    /**
+     * Get the source image height of the last decoded header.
+     * @return The height in pixels.
+     */
+    public int getSrcImageHeight()
+    {
+        return srcImageHeight;
+    }
+
+    /**
+     * Encode a name table as the text of a .png text chunk, one name per line.
+     * @param names The source image names, in name table order, which must not contain line breaks.
+     * @return The name table text.
+     */
+    public static String encodeNameTable( String[] names )
+    {
+        return String.join( "\n", names );
+    }
+
+    /**
+     * Decode a name table from the text of a .png text chunk.
+     * @param text The name table text, or null.
+     * @return The source image names in name table order, or null if no text was given.
+     */
+    public static String[] decodeNameTable( String text )
+    {
+        return ( text == null ) ? null : text.split( "\n", -1 );
+    }
+
+    /**
+     * Read a single byte of the header being decoded, updating the checksum.
+     * @param pixels The pixels of the image holding the header.
+     * @param headerIndex The index of the first header pixel in the pixels array.
+     * @param maxPosition The number of bytes the header may hold.
+     * @return The byte, or -1 if the header holds no more bytes.
+     */
+    private int readByte( int[] pixels, int headerIndex, int maxPosition )
+    {
+        if( readPosition >= maxPosition )
+        {
+            return -1;
+        }
+
+        int shift = 16 - ( ( readPosition % BYTES_PER_PIXEL ) * 8 );
+        int value = ( pixels[ headerIndex + ( readPosition / BYTES_PER_PIXEL ) ] >> shift ) & 0xff;
+        readChecksum = updateChecksum( readChecksum, value );
+        readPosition++;
+        return value;
+    }
+
+    /**
+     * Read an unsigned varint of the header being decoded.
+     * @param pixels The pixels of the image holding the header.
+     * @param headerIndex The index of the first header pixel in the pixels array.
+     * @param maxPosition The number of bytes the header may hold.
+     * @return The value, or -1 if the varint is malformed or runs past the header.
+     */
+    private int readVarint( int[] pixels, int headerIndex, int maxPosition )
+    {
+        long value = 0;
+        for( int shift = 0; shift < 35; shift += 7 )
+        {
+            int varintByte = readByte( pixels, headerIndex, maxPosition );
+            if( varintByte < 0 )
+            {
+                return -1;
+            }
+
+            value |= ( long )( varintByte & 0x7f ) << shift;
+            if( ( varintByte & 0x80 ) == 0 )
+            {
+                return ( value > Integer.MAX_VALUE ) ? -1 : ( int )value;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Write a single byte of a header into its pixel.
+     * @param pixels The pixels of the image holding the header.
+     * @param headerIndex The index of the first header pixel in the pixels array.
+     * @param position The position of the byte within the header.
+     * @param value The byte to write.
+     * @return The position of the next byte.
+     */
+    private static int writeByte( int[] pixels, int headerIndex, int position, int value )
+    {
+        pixels[ headerIndex + ( position / BYTES_PER_PIXEL ) ] |= ( value & 0xff ) << ( 16 - ( ( position % BYTES_PER_PIXEL ) * 8 ) );
+        return position + 1;
+    }
+
+    /**
+     * Write an unsigned varint of a header, seven bits per byte, least significant first,
+     * where the high bit of each byte marks that more bytes follow.
+     * @param pixels The pixels of the image holding the header.
+     * @param headerIndex The index of the first header pixel in the pixels array.
+     * @param position The position of the first byte within the header.
+     * @param value The non-negative value to write.
+     * @return The position of the next byte.
+     */
+    private static int writeVarint( int[] pixels, int headerIndex, int position, int value )
+    {
+        while( ( value >>> 7 ) != 0 )
+        {
+            position = writeByte( pixels, headerIndex, position, ( value & 0x7f ) | 0x80 );
+            value >>>= 7;
+        }
+        return writeByte( pixels, headerIndex, position, value );
+    }
+
+    /**
+     * Get the number of bytes an unsigned varint takes.
+     * @param value The non-negative value.
+     * @return The number of bytes, 1 to 5.
+     */
+    private static int varintLength( int value )
+    {
+        int length = 1;
+        while( ( value >>>= 7 ) != 0 )
+        {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Update a CRC-16/CCITT checksum with a single byte.
+     * @param checksum The checksum so far.
+     * @param value The byte.
+     * @return The updated checksum.
+     */
+    private static int updateChecksum( int checksum, int value )
+    {
+        checksum ^= ( value & 0xff ) << 8;
+        for( int bit = 0; bit < 8; bit++ )
+        {
+            checksum = ( ( checksum & 0x8000 ) != 0 ) ? ( ( checksum << 1 ) ^ 0x1021 ) : ( checksum << 1 );
+        }
+        return checksum & 0xffff;
+    }
+}
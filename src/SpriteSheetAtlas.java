@@ -0,0 +1,326 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SpriteSheetAtlas
+{
+    /** The file extension of atlas files, written next to the sprite sheet they describe */
+    public static final String ATLAS_EXTENSION = ".atlas";
+    /** The magic number identifying an atlas file, "SSBA" */
+    private static final int ATLAS_MAGIC = 0x53534241;
+    /** The version of the atlas file format */
+    private static final int ATLAS_VERSION = 3;
+    /** The atlas flag set when every chunk is also identifiable from its header in the fixed sprite grid */
+    private static final int FLAG_GRID_HEADERS = 0x1;
+
+    /** The width and height of the sprites the source images were split into */
+    private int spriteSize;
+    /** Whether every chunk is also identifiable from its header in the fixed sprite grid */
+    private boolean gridHeaders;
+    /** The chunks placed in the sprite sheet */
+    private ArrayList<Chunk> chunks;
+    /** The chunks of each source image, where the keys are the source image names, built when first needed */
+    private HashMap<String, ArrayList<Chunk>> chunkIndex;
+
+    /**
+     * A single chunk of a source image and the area of the sprite sheet it was placed in.
+     */
+    public static class Chunk
+    {
+        /** The name of the source image */
+        public final String name;
+        /** The number of the chunk relative to the order it was cut from the source image */
+        public final int number;
+        /** The width and height of the source image in pixels */
+        public final int srcImageWidth;
+        public final int srcImageHeight;
+        /** The area of the sprite sheet containing the chunk pixels */
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+        /** The position of the chunk pixels within the sprite sized area of the source image, non-zero if transparent borders were trimmed */
+        public final int offsetX;
+        public final int offsetY;
+
+        /**
+         * Create a chunk entry.
+         * @param name The name of the source image.
+         * @param number The number of the chunk within the source image.
+         * @param srcImageWidth The width of the source image in pixels.
+         * @param srcImageHeight The height of the source image in pixels.
+         * @param x The x coordinate of the chunk in the sprite sheet.
+         * @param y The y coordinate of the chunk in the sprite sheet.
+         * @param width The width of the chunk in pixels.
+         * @param height The height of the chunk in pixels.
+         */
+        public Chunk( String name, int number, int srcImageWidth, int srcImageHeight, int x, int y, int width, int height )
+        {
+            this( name, number, srcImageWidth, srcImageHeight, x, y, width, height, 0, 0 );
+        }
+
+        /**
+         * Create a chunk entry whose pixels were trimmed. Chunks left out of the sprite sheet entirely because they
+         * are fully transparent are recorded with no width and height, so their source image is still recreated.
+         * @param name The name of the source image.
+         * @param number The number of the chunk within the source image.
+         * @param srcImageWidth The width of the source image in pixels.
+         * @param srcImageHeight The height of the source image in pixels.
+         * @param x The x coordinate of the chunk in the sprite sheet.
+         * @param y The y coordinate of the chunk in the sprite sheet.
+         * @param width The width of the chunk in pixels.
+         * @param height The height of the chunk in pixels.
+         * @param offsetX The x coordinate of the chunk pixels within the sprite sized area of the source image.
+         * @param offsetY The y coordinate of the chunk pixels within the sprite sized area of the source image.
+         */
+        public Chunk( String name, int number, int srcImageWidth, int srcImageHeight, int x, int y, int width, int height, int offsetX, int offsetY )
+        {
+            this.name           = name;
+            this.number         = number;
+            this.srcImageWidth  = srcImageWidth;
+            this.srcImageHeight = srcImageHeight;
+            this.x              = x;
+            this.y              = y;
+            this.width          = width;
+            this.height         = height;
+            this.offsetX        = offsetX;
+            this.offsetY        = offsetY;
+        }
+    }
+
+    /**
+     * The SpriteSheetAtlas class records where each chunk of each source image was placed in a
+     * sprite sheet, so sprite sheets that don't follow the fixed sprite grid can still be parsed,
+     * and so single source images can be located without reading the entire sprite sheet.
+     * @param spriteSize The width and height of the sprites the source images were split into.
+     * @param gridHeaders True if every chunk is also identifiable from its header in the fixed sprite grid.
+     */
+    public SpriteSheetAtlas( int spriteSize, boolean gridHeaders )
+    {
+        this.spriteSize  = spriteSize;
+        this.gridHeaders = gridHeaders;
+        this.chunks      = new ArrayList<>();
+    }
+
+    /**
+     * Add a chunk to the atlas.
+     * @param chunk The chunk to add.
+     */
+    public void addChunk( Chunk chunk )
+    {
+        chunks.add( chunk );
+        chunkIndex = null;
+    }
+
+    /**
+     * Get the chunks in the atlas in the order they were added.
+     * @return The list of chunks.
+     */
+    public ArrayList<Chunk> getChunks()
+    {
+        return chunks;
+    }
+
+    /**
+     * Get the chunks of a single source image.
+     * @param name The name of the source image.
+     * @return The list of chunks in the order they were added, or null if the source image is not in the atlas.
+     */
+    public ArrayList<Chunk> getChunks( String name )
+    {
+        //Index the chunks by source image name the first time a source image is looked up
+        if( chunkIndex == null )
+        {
+            chunkIndex = new HashMap<>();
+            for( Chunk chunk : chunks )
+            {
+                if( !chunkIndex.containsKey( chunk.name ) )
+                {
+                    chunkIndex.put( chunk.name, new ArrayList<>() );
+                }
+                chunkIndex.get( chunk.name ).add( chunk );
+            }
+        }
+
+        return chunkIndex.get( name );
+    }
+
+    /**
+     * Determine whether every chunk is also identifiable from its header in the fixed sprite grid,
+     * in which case the sprite sheet can be parsed without the atlas.
+     * @return True if the sprite sheet follows the sprite grid and has a unique header for every chunk.
+     */
+    public boolean hasGridHeaders()
+    {
+        return gridHeaders;
+    }
+
+    /**
+     * Get the sprite size the source images were split with.
+     * @return The width and height of each sprite in pixels.
+     */
+    public int getSpriteSize()
+    {
+        return spriteSize;
+    }
+
+    /**
+     * Get the atlas file belonging to the given sprite sheet file.
+     * @param spriteSheetFile The sprite sheet file.
+     * @return The atlas file, which has the same name as the sprite sheet with the atlas extension.
+     */
+    public static File getAtlasFile( File spriteSheetFile )
+    {
+        String name = spriteSheetFile.getName();
+        int extensionIndex = name.lastIndexOf( '.' );
+        String baseName = ( extensionIndex < 0 ) ? name : name.substring( 0, extensionIndex );
+        return new File( spriteSheetFile.getParentFile(), baseName + ATLAS_EXTENSION );
+    }
+
+    /**
+     * Write the atlas to the given file.
+     * @param atlasFile The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void write( File atlasFile ) throws IOException
+    {
+        try( DataOutputStream output = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( atlasFile ) ) ) )
+        {
+            write( output );
+        }
+    }
+
+    /**
+     * Write the atlas to a stream, such as the region table embedded in another file.
+     * @param output The stream to write to, which is left open.
+     * @throws IOException If the atlas could not be written.
+     */
+    public void write( DataOutputStream output ) throws IOException
+    {
+        output.writeInt( ATLAS_MAGIC );
+        output.writeInt( ATLAS_VERSION );
+        output.writeInt( spriteSize );
+        output.writeInt( gridHeaders ? FLAG_GRID_HEADERS : 0 );
+
+        //Write a table of the source images, so each name is only stored once
+        LinkedHashMap<String, Integer> nameTable = new LinkedHashMap<>();
+        ArrayList<Chunk> nameTableChunks = new ArrayList<>();
+        for( Chunk chunk : chunks )
+        {
+            if( !nameTable.containsKey( chunk.name ) )
+            {
+                nameTable.put( chunk.name, nameTable.size() );
+                nameTableChunks.add( chunk );
+            }
+        }
+
+        output.writeInt( nameTableChunks.size() );
+        for( Chunk chunk : nameTableChunks )
+        {
+            output.writeUTF( chunk.name );
+            output.writeInt( chunk.srcImageWidth );
+            output.writeInt( chunk.srcImageHeight );
+        }
+
+        //Write the placement of each chunk, referring to its source image by index
+        output.writeInt( chunks.size() );
+        for( Chunk chunk : chunks )
+        {
+            output.writeInt( nameTable.get( chunk.name ) );
+            output.writeInt( chunk.number );
+            output.writeInt( chunk.x );
+            output.writeInt( chunk.y );
+            output.writeInt( chunk.width );
+            output.writeInt( chunk.height );
+            output.writeInt( chunk.offsetX );
+            output.writeInt( chunk.offsetY );
+        }
+    }
+
+    /**
+     * Read an atlas from the given file.
+     * @param atlasFile The file to read.
+     * @return The atlas read from the file.
+     * @throws IOException If the file could not be read or is not an atlas.
+     */
+    public static SpriteSheetAtlas read( File atlasFile ) throws IOException
+    {
+        try( DataInputStream input = new DataInputStream( new BufferedInputStream( new FileInputStream( atlasFile ) ) ) )
+        {
+            return read( input, atlasFile.getPath() );
+        }
+    }
+
+    /**
+     * Read an atlas from a stream, such as the region table embedded in another file.
+     * @param input The stream to read from, which is left open.
+     * @param description The source of the stream, used in error messages.
+     * @return The atlas read from the stream.
+     * @throws IOException If the stream could not be read or does not hold an atlas.
+     */
+    public static SpriteSheetAtlas read( DataInputStream input, String description ) throws IOException
+    {
+        if( input.readInt() != ATLAS_MAGIC )
+        {
+            throw new IOException( "Not an atlas file: " + description );
+        }
+
+        int version = input.readInt();
+        if( ( version < 1 ) || ( version > ATLAS_VERSION ) )
+        {
+            throw new IOException( "Unsupported atlas version " + version + ": " + description );
+        }
+
+        //Version 1 atlases were only written for packed sprite sheets and have no flags
+        int spriteSize = input.readInt();
+        int flags      = ( version >= 2 ) ? input.readInt() : 0;
+        SpriteSheetAtlas atlas = new SpriteSheetAtlas( spriteSize, ( flags & FLAG_GRID_HEADERS ) != 0 );
+
+        //Read the table of source images
+        int nameCount = input.readInt();
+        String[] names = new String[ nameCount ];
+        int[] srcImageWidths  = new int[ nameCount ];
+        int[] srcImageHeights = new int[ nameCount ];
+        for( int index = 0; index < nameCount; index++ )
+        {
+            names[ index ]           = input.readUTF();
+            srcImageWidths[ index ]  = input.readInt();
+            srcImageHeights[ index ] = input.readInt();
+        }
+
+        //Read the placement of each chunk
+        int chunkCount = input.readInt();
+        for( int index = 0; index < chunkCount; index++ )
+        {
+            int nameIndex = input.readInt();
+            if( ( nameIndex < 0 ) || ( nameIndex >= nameCount ) )
+            {
+                throw new IOException( "Invalid atlas name index " + nameIndex + ": " + description );
+            }
+
+            //Version 2 and older atlases have no trimmed chunks
+            int number  = input.readInt();
+            int x       = input.readInt();
+            int y       = input.readInt();
+            int width   = input.readInt();
+            int height  = input.readInt();
+            int offsetX = ( version >= 3 ) ? input.readInt() : 0;
+            int offsetY = ( version >= 3 ) ? input.readInt() : 0;
+            atlas.addChunk( new Chunk( names[ nameIndex ], number, srcImageWidths[ nameIndex ], srcImageHeights[ nameIndex ], x, y, width, height, offsetX, offsetY ) );
+        }
+
+        return atlas;
+    }
+}
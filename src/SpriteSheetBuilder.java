@@ -1,123 +1,1479 @@
-import com.sun.org.apache.xpath.internal.functions.FuncFalse;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Logan Karstetter
+ * Date: 2020
+ */
+public class SpriteSheetBuilder
+{
+    /** The width and height of the parsed sprites in pixels */
+    private int spriteSize;
+    /** The height of the sprite header in pixels */
+    private byte spriteHeaderSize;
+    /** The color populating empty, excess space in the sprite sheet */
+    private Color controlColor;
+    /** The number of threads used to load and split source images */
+    private int parallelism;
+    /** Whether the sprite sheet is composed and written one row of chunks at a time */
+    private boolean streamingOutput;
+    /** Whether chunks are trimmed and packed tightly instead of placed in a grid of sprite sized cells */
+    private boolean packedLayout;
+    /** Whether fully transparent chunks are left out and the transparent borders of packed chunks are trimmed */
+    private boolean trimChunks;
+    /** Whether chunks with identical pixels are only stored once */
+    private boolean deduplicateChunks;
+    /** The compression level and row filter sprite sheets are encoded with */
+    private PngEncoderSettings pngEncoderSettings;
+    /** The maximum width and height of a sprite sheet page in pixels, or 0 for no limit */
+    private int maxPageSize;
+    /** Whether the chunks of unchanged source images are reused from the build cache of the previous build */
+    private boolean incrementalBuild;
+    /** Whether sprite sheets with at most 256 colors are written as 8-bit indexed color */
+    private boolean paletteOutput;
+    /** Whether sprite headers are written as text, readable by older versions of the tool, instead of binary */
+    private boolean legacyHeaders;
+    /** Whether a packed raw RGBA sprite sheet is written next to each .png sprite sheet, ready to be mapped and uploaded */
+    private boolean rgbaOutput;
+    /** Whether a mapped sprite sheet holding each source image whole is written next to each .png sprite sheet */
+    private boolean mappedOutput;
+    /** Whether the sprites of mapped sprite sheets are deflate compressed */
+    private boolean mappedCompression;
+    /** The pool shared with other builds that source images are loaded and pages written on, or null to create a pool per build */
+    private ForkJoinPool workerPool;
+    /** The in-memory cache of decoded source images shared with other builds, or null to decode every loaded source image */
+    private SourceImageCache sourceImageCache;
+    /** The content hash, file size, and modification time of each sprite sheet file written, keyed by absolute path */
+    private ConcurrentHashMap<String, long[]> writtenSpriteSheets;
+    /** The metrics recording the time, bytes, and chunks of each build stage */
+    private BuildMetrics metrics;
+    /** The scanner finding the source images of each build */
+    private SourceImageScanner sourceScanner;
+    /** The map used to store loaded images, where the keys are the image names */
+    private LinkedHashMap<String, BufferedImage> imageMap;
+    /** The first error that left the build in progress incomplete, or null if none occurred */
+    private AtomicReference<String> failure;
+
+    /**
+     * The SpriteSheetBuilder class is used to build sprite sheets.
+     * @param spriteSize The width and height of each sprite in pixels.
+     * @param spriteHeaderSize The height of the sprite header in pixels.
+     * @param controlColor The color used to denote excess, empty, ignorable space in the sprite sheet.
+     */
+    public SpriteSheetBuilder(int spriteSize, byte spriteHeaderSize, Color controlColor )
+    {
+        this( spriteSize, spriteHeaderSize, controlColor, Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * The SpriteSheetBuilder class is used to build sprite sheets.
+     * @param spriteSize The width and height of each sprite in pixels.
+     * @param spriteHeaderSize The height of the sprite header in pixels.
+     * @param controlColor The color used to denote excess, empty, ignorable space in the sprite sheet.
+     * @param parallelism The positive, non-zero number of threads used to load and split source images.
+     */
+    public SpriteSheetBuilder( int spriteSize, byte spriteHeaderSize, Color controlColor, int parallelism )
+    {
+        //Store the sprite input arguments
+        this.spriteSize       = spriteSize;
+        this.spriteHeaderSize = spriteHeaderSize;
+        this.controlColor     = controlColor;
+        this.parallelism      = Math.max( 1, parallelism );
+        this.pngEncoderSettings = PngEncoderSettings.DEFAULT;
+
+        //Initialize the image map
+        imageMap = new LinkedHashMap<>();
+        writtenSpriteSheets = new ConcurrentHashMap<>();
+        metrics = BuildMetrics.DISABLED;
+        sourceScanner = new SourceImageScanner();
+        failure       = new AtomicReference<>();
+    }
+
+    /**
+     * Build a sprite sheet from the images found in the given source directory.
+     * Each image exceeding the size of a single sprite will be split into many
+     * sprite-sized chunks. The result will be output in the given destination
+     * directory as a .png file.
+     * Errors are reported as they occur, the first error leaving the build incomplete is kept as its failure.
+     * @param sourceDirectory The path to the directory containing images relative to src.
+     * @param destinationDirectory The path to the output directory relative to src.
+     * @return True if the sprite sheet was built, false if the build failed.
+     */
+    public boolean buildSpriteSheet( String sourceDirectory, String destinationDirectory )
+    {
+        failure.set( null );
+        buildSpriteSheetFiles( sourceDirectory, destinationDirectory );
+        return ( failure.get() == null );
+    }
+
+    /**
+     * Get the first error that left the last build incomplete.
+     * @return The message describing the error, or null if the last build succeeded.
+     */
+    public String getFailure()
+    {
+        return failure.get();
+    }
+
+    /**
+     * Report an error that leaves the build incomplete, keeping it as the failure of the build if it is the first.
+     * May be called from the threads loading images and writing pages.
+     * @param message The message describing the error.
+     */
+    private void reportFailure( String message )
+    {
+        System.out.println( message );
+        failure.compareAndSet( null, message );
+    }
+
+    /**
+     * Load the source images and write the sprite sheet files of a build, reporting the errors leaving it incomplete.
+     * @param sourceDirectory The path to the directory containing images relative to src.
+     * @param destinationDirectory The path to the output directory relative to src.
+     */
+    private void buildSpriteSheetFiles( String sourceDirectory, String destinationDirectory )
+    {
+        //Load the build cache written by the previous build if requested
+        File cacheFile = new File( destinationDirectory + "/spritesheet_" + spriteSize + SpriteBuildCache.CACHE_EXTENSION );
+        SpriteBuildCache buildCache = incrementalBuild ? SpriteBuildCache.load( cacheFile, spriteSize, spriteHeaderSize, controlColor ) : null;
+
+        //Load the images into the imageMap
+        loadSourceImages( sourceDirectory, destinationDirectory, buildCache );
+
+        //Save the chunks of every loaded image for the next build
+        if( buildCache != null )
+        {
+            System.out.println( "Reused " + buildCache.getHits() + " of " + ( buildCache.getHits() + buildCache.getMisses() ) + " images from the build cache." );
+            try
+            {
+                buildCache.write( cacheFile );
+            }
+            catch( IOException exception )
+            {
+                System.out.println( "Error writing file: " + cacheFile.getName() );
+                exception.printStackTrace();
+            }
+        }
+
+        //If no images were loaded, return early
+        if( imageMap.size() == 0 )
+        {
+            reportFailure( "No supported image files found in: " + sourceDirectory );
+            return;
+        }
+
+        //Determine the unique chunks, identical chunks are only stored once if deduplication is requested
+        ArrayList<String> imageChunkNames = new ArrayList<>();
+        ArrayList<BufferedImage> imageChunks = new ArrayList<>();
+        for( String imageChunkName : imageMap.keySet() )
+        {
+            //Skip chunks whose header could not be encrypted
+            if( imageMap.get( imageChunkName ) != null )
+            {
+                imageChunkNames.add( imageChunkName );
+            }
+        }
+        ArrayList<String> emptyChunkNames = skipTransparentChunks( imageChunkNames, imageMap );
+        int[] uniqueChunkIndices = findUniqueChunks( imageChunkNames, imageChunks );
+
+        //Name each unique chunk after the first chunk it holds, its header can only hold a single name
+        ArrayList<String> uniqueChunkNames = new ArrayList<>();
+        for( int index = 0; index < imageChunkNames.size(); index++ )
+        {
+            if( uniqueChunkIndices[ index ] == uniqueChunkNames.size() )
+            {
+                uniqueChunkNames.add( imageChunkNames.get( index ) );
+            }
+        }
+
+        //Write the unique chunks packed as raw RGBA pixels, independent of the layout of the .png sprite sheet
+        File spriteSheetFile = new File( destinationDirectory + "/spritesheet_" + spriteSize + ".png" );
+        if( rgbaOutput )
+        {
+            writeRgbaSpriteSheet( imageChunkNames, imageChunks, uniqueChunkIndices, emptyChunkNames, RgbaSpriteSheet.getRgbaFile( spriteSheetFile ) );
+        }
+
+        //Write each source image whole to a mapped sprite sheet, which a runtime can load without decoding
+        if( mappedOutput )
+        {
+            writeMappedSpriteSheet( MappedSpriteSheet.getMappedFile( spriteSheetFile ) );
+        }
+
+        //Pack the chunks tightly and record their placement in an atlas if requested
+        if( packedLayout )
+        {
+            deleteStaleSpriteSheets( spriteSheetFile, 1 );
+            writePackedSpriteSheet( imageChunkNames, imageChunks, uniqueChunkIndices, emptyChunkNames, destinationDirectory );
+            return;
+        }
+
+        //Determine how many image chunks fit on a single page, pages are unbounded unless a maximum page size is set
+        int pageColumns = ( maxPageSize > 0 ) ? ( maxPageSize / spriteSize ) : Integer.MAX_VALUE;
+        int pageRows    = ( maxPageSize > 0 ) ? ( maxPageSize / ( spriteSize + spriteHeaderSize ) ) : Integer.MAX_VALUE;
+        if( ( pageColumns == 0 ) || ( pageRows == 0 ) )
+        {
+            reportFailure( "Error maximum page size " + maxPageSize + " is smaller than a single sprite." );
+            return;
+        }
+
+        long pageCapacity = ( long )pageColumns * pageRows;
+        int  pageCount    = ( int )( ( imageChunks.size() + pageCapacity - 1 ) / pageCapacity );
+        deleteStaleSpriteSheets( spriteSheetFile, pageCount );
+
+        //Split the image chunks over several pages if they don't fit on one
+        if( pageCount > 1 )
+        {
+            writeSpriteSheetPages( imageChunkNames, imageChunks, uniqueChunkNames, uniqueChunkIndices, emptyChunkNames, pageColumns, pageRows, pageCount, spriteSheetFile );
+            return;
+        }
+
+        //Determine the dimensions of the sprite sheet in image chunks
+        int[] dimensions   = gridDimensions( imageChunks.size(), pageColumns, pageRows );
+        int widthInChunks  = dimensions[ 0 ];
+        int heightInChunks = dimensions[ 1 ];
+
+        //Record the grid cell of every chunk in an atlas, used as an index to extract single source images. If chunks
+        //were deduplicated the atlas is also required to parse the sprite sheet, since a header can only hold a single name
+        writeGridAtlas( imageChunkNames, uniqueChunkIndices, emptyChunkNames, 0, imageChunks.size(), widthInChunks, SpriteSheetAtlas.getAtlasFile( spriteSheetFile ) );
+        writeSpriteSheet( imageChunks, uniqueChunkNames, emptyChunkNames, widthInChunks, heightInChunks, spriteSheetFile );
+    }
+
+    /**
+     * Compose a sprite sheet in memory from the given images, without reading or writing any files. The images
+     * are split into chunks and placed in a single grid, the packed layout, deduplication, and pages are not applied
+     * since those sprite sheets can't be parsed without an atlas file. The sprite size, header size, and name table
+     * are attached to the sprite sheet as image properties, keyed like the text chunks of a written sprite sheet, so
+     * the sprite sheet can be parsed as is, or encoded with encodeSpriteSheet. Only reads the builder settings, so it
+     * is safe to call from multiple threads as long as the settings aren't changed meanwhile.
+     * @param images The source images keyed by name, names may be any text without line breaks.
+     * @return The composed TYPE_INT_ARGB sprite sheet, or null if no image could be added.
+     */
+    public BufferedImage composeSpriteSheet( Map<String, BufferedImage> images )
+    {
+        //Split every image into chunks, leaving out fully transparent chunks if requested
+        LinkedHashMap<String, BufferedImage> chunkMap = splitImages( images );
+        ArrayList<String> imageChunkNames = new ArrayList<>( chunkMap.keySet() );
+        ArrayList<String> emptyChunkNames = skipTransparentChunks( imageChunkNames, chunkMap );
+        ArrayList<BufferedImage> imageChunks = new ArrayList<>();
+        for( String imageChunkName : imageChunkNames )
+        {
+            imageChunks.add( chunkMap.get( imageChunkName ) );
+        }
+
+        if( imageChunks.isEmpty() )
+        {
+            System.out.println( "No images could be added to the sprite sheet." );
+            return null;
+        }
+
+        //Verify the sprite sheet fits in a single image
+        int[] dimensions = gridDimensions( imageChunks.size(), Integer.MAX_VALUE, Integer.MAX_VALUE );
+        if( ( ( long )dimensions[ 0 ] * spriteSize ) * ( ( long )dimensions[ 1 ] * ( spriteSize + spriteHeaderSize ) ) > Integer.MAX_VALUE )
+        {
+            System.out.println( "Error sprite sheet of " + imageChunks.size() + " chunks is too large to compose in memory." );
+            return null;
+        }
+
+        //Encode the chunk headers and compose the sprite sheet, attaching the text a written sprite sheet would hold
+        String[] nameTable = encodeChunkHeaders( imageChunks, imageChunkNames );
+        BufferedImage spriteSheet = composeSpriteSheetGrid( imageChunks, dimensions[ 0 ], dimensions[ 1 ] );
+        return new BufferedImage( spriteSheet.getColorModel(), spriteSheet.getRaster(), false, new Hashtable<>( createSpriteSheetText( nameTable, emptyChunkNames ) ) );
+    }
+
+    /**
+     * Encode an image as a .png file in memory with the builder's .png encoder settings and palette output. The sprite
+     * size, header size, and name table properties of a sprite sheet composed in memory are written as its text chunks,
+     * so the encoded sprite sheet can be parsed like a written one. Safe to call from multiple threads.
+     * @param image The sprite sheet, or any other image such as a parsed sprite.
+     * @return A heap buffer holding the .png file, positioned at its start.
+     * @throws IOException If the image could not be encoded.
+     */
+    public ByteBuffer encodeSpriteSheet( BufferedImage image ) throws IOException
+    {
+        //Carry over the sprite sheet properties
+        LinkedHashMap<String, String> spriteSheetText = new LinkedHashMap<>();
+        for( String keyword : new String[]{ SpriteHeader.SPRITE_SIZE_KEYWORD, SpriteHeader.HEADER_SIZE_KEYWORD, SpriteHeader.NAME_TABLE_KEYWORD, SpriteHeader.EMPTY_CHUNKS_KEYWORD } )
+        {
+            Object value = image.getProperty( keyword );
+            if( value instanceof String )
+            {
+                spriteSheetText.put( keyword, ( String )value );
+            }
+        }
+
+        //Palettes are collected from TYPE_INT_ARGB pixels
+        ColorPalette palette = ( image.getType() == BufferedImage.TYPE_INT_ARGB ) ? collectPalette( image, "memory" ) : null;
+
+        long writeStartNanos = metrics.start();
+        ByteBuffer encoded = SpriteUtil.encodePng( image, pngEncoderSettings, palette, spriteSheetText );
+        metrics.end( BuildMetrics.Stage.WRITE_SPRITE_SHEET, writeStartNanos );
+        metrics.addBytesWritten( BuildMetrics.Stage.WRITE_SPRITE_SHEET, encoded.remaining() );
+        return encoded;
+    }
+
+    /**
+     * Compose a packed sprite sheet of raw RGBA8 pixels from the given images, off the Java heap. The chunks are
+     * trimmed and packed like the packed layout, without headers, and their placement is recorded in the region table
+     * of the sprite sheet. The pixels are written straight into a direct buffer, or a file mapped into memory, so
+     * the sprite sheet is never held on the heap as a whole and can be uploaded to a texture without converting it.
+     * Only reads the builder settings, so it is safe to call from multiple threads as long as the settings aren't changed meanwhile.
+     * @param images The source images keyed by name, names may be any text without line breaks.
+     * @param rgbaFile The .rgba file to write the sprite sheet to, or null to compose it in a direct buffer.
+     * @return The composed sprite sheet, or null if no image could be added.
+     * @throws IOException If the file could not be written or the sprite sheet doesn't fit in a single buffer.
+     */
+    public RgbaSpriteSheet composeRgbaSpriteSheet( Map<String, BufferedImage> images, File rgbaFile ) throws IOException
+    {
+        //Split every image into chunks, every chunk is unique
+        LinkedHashMap<String, BufferedImage> chunkMap = splitImages( images );
+        ArrayList<String> imageChunkNames = new ArrayList<>( chunkMap.keySet() );
+        ArrayList<String> emptyChunkNames = skipTransparentChunks( imageChunkNames, chunkMap );
+        ArrayList<BufferedImage> imageChunks = new ArrayList<>();
+        for( String imageChunkName : imageChunkNames )
+        {
+            imageChunks.add( chunkMap.get( imageChunkName ) );
+        }
+
+        if( imageChunks.isEmpty() )
+        {
+            System.out.println( "No images could be added to the sprite sheet." );
+            return null;
+        }
+
+        int[] uniqueChunkIndices = new int[ imageChunks.size() ];
+        for( int index = 0; index < uniqueChunkIndices.length; index++ )
+        {
+            uniqueChunkIndices[ index ] = index;
+        }
+        return composeRgbaChunks( imageChunkNames, imageChunks, uniqueChunkIndices, emptyChunkNames, rgbaFile );
+    }
+
+    /**
+     * Split every image into chunks, leaving out the chunks whose header can't be encoded. Safe to call from multiple threads.
+     * @param images The source images keyed by name.
+     * @return The chunks of every image in split order, where the keys are the image chunk names.
+     */
+    private LinkedHashMap<String, BufferedImage> splitImages( Map<String, BufferedImage> images )
+    {
+        LinkedHashMap<String, BufferedImage> chunkMap = new LinkedHashMap<>();
+        for( Map.Entry<String, BufferedImage> image : images.entrySet() )
+        {
+            long splitStartNanos = metrics.start();
+            LinkedHashMap<String, BufferedImage> splitChunks = splitImage( image.getValue(), image.getKey() );
+            metrics.end( BuildMetrics.Stage.SPLIT_IMAGE, splitStartNanos );
+            metrics.addChunks( BuildMetrics.Stage.SPLIT_IMAGE, splitChunks.size() );
+
+            for( Map.Entry<String, BufferedImage> imageChunk : splitChunks.entrySet() )
+            {
+                if( imageChunk.getValue() != null )
+                {
+                    chunkMap.put( imageChunk.getKey(), imageChunk.getValue() );
+                }
+            }
+        }
+        return chunkMap;
+    }
+
+    /**
+     * Leave the fully transparent chunks out of the sprite sheet if trimming is requested. Their names are recorded
+     * in the sprite sheet metadata instead, so the parser still recreates the blank area of their source image.
+     * A single chunk is always kept, so a sprite sheet of fully transparent images isn't empty.
+     * @param imageChunkNames The names of the chunks to place in the sprite sheet, the skipped chunks are removed.
+     * @param chunkMap The chunks keyed by name.
+     * @return The names of the skipped chunks, in split order.
+     */
+    private ArrayList<String> skipTransparentChunks( List<String> imageChunkNames, Map<String, BufferedImage> chunkMap )
+    {
+        ArrayList<String> emptyChunkNames = new ArrayList<>();
+        if( !trimChunks )
+        {
+            return emptyChunkNames;
+        }
+
+        Iterator<String> iterator = imageChunkNames.iterator();
+        while( iterator.hasNext() )
+        {
+            String imageChunkName = iterator.next();
+            if( SpriteUtil.opaqueBounds( chunkMap.get( imageChunkName ), 0, spriteHeaderSize, spriteSize, spriteSize ) == null )
+            {
+                emptyChunkNames.add( imageChunkName );
+                iterator.remove();
+            }
+        }
+
+        if( imageChunkNames.isEmpty() && !emptyChunkNames.isEmpty() )
+        {
+            imageChunkNames.add( emptyChunkNames.remove( 0 ) );
+        }
+        if( !emptyChunkNames.isEmpty() )
+        {
+            System.out.println( "Skipped " + emptyChunkNames.size() + " fully transparent chunks." );
+        }
+        return emptyChunkNames;
+    }
+
+    /**
+     * Write the unique chunks of a build as a packed raw RGBA sprite sheet file, reporting any error.
+     * @param imageChunkNames The names of every chunk in the image map.
+     * @param imageChunks The unique chunks to place in the sprite sheet.
+     * @param uniqueChunkIndices The index of the unique chunk holding the pixels of each named chunk.
+     * @param emptyChunkNames The names of the fully transparent chunks left out of the sprite sheet.
+     * @param rgbaFile The .rgba file to write.
+     */
+    private void writeRgbaSpriteSheet( ArrayList<String> imageChunkNames, ArrayList<BufferedImage> imageChunks, int[] uniqueChunkIndices, List<String> emptyChunkNames, File rgbaFile )
+    {
+        try
+        {
+            composeRgbaChunks( imageChunkNames, imageChunks, uniqueChunkIndices, emptyChunkNames, rgbaFile );
+            metrics.addBytesWritten( BuildMetrics.Stage.WRITE_SPRITE_SHEET, rgbaFile.length() );
+        }
+        catch( IOException exception )
+        {
+            reportFailure( "Error writing file: " + rgbaFile.getName() );
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Reassemble each source image from its chunks in the image map, one at a time, and write them to a mapped
+     * sprite sheet file. Fully transparent chunks are included, since each source image is stored whole.
+     * @param mappedFile The .sprites file to write.
+     */
+    private void writeMappedSpriteSheet( File mappedFile )
+    {
+        long writeStartNanos = metrics.start();
+        try( MappedSpriteSheet.Writer writer = new MappedSpriteSheet.Writer( mappedFile, spriteSize, mappedCompression ) )
+        {
+            BufferedImage sourceImage = null;
+            String sourceName = null;
+            for( Map.Entry<String, BufferedImage> imageChunk : imageMap.entrySet() )
+            {
+                //Skip chunks whose header could not be encrypted
+                if( imageChunk.getValue() == null )
+                {
+                    continue;
+                }
+
+                //Start the next source image once the chunks of the previous one are copied
+                SpriteSheetAtlas.Chunk chunk = chunkBounds( imageChunk.getKey() );
+                if( !chunk.name.equals( sourceName ) )
+                {
+                    if( sourceImage != null )
+                    {
+                        writer.addSprite( sourceName, sourceImage );
+                    }
+                    sourceName  = chunk.name;
+                    sourceImage = new BufferedImage( chunk.srcImageWidth, chunk.srcImageHeight, BufferedImage.TYPE_INT_ARGB );
+                }
+
+                int srcImageColumns = ( int )Math.ceil( ( double )chunk.srcImageWidth / spriteSize );
+                int spriteX = ( chunk.number % srcImageColumns ) * spriteSize;
+                int spriteY = ( chunk.number / srcImageColumns ) * spriteSize;
+                SpriteUtil.copyPixels( imageChunk.getValue(), 0, spriteHeaderSize, chunk.width, chunk.height, sourceImage, spriteX, spriteY );
+            }
+            if( sourceImage != null )
+            {
+                writer.addSprite( sourceName, sourceImage );
+            }
+        }
+        catch( IOException exception )
+        {
+            reportFailure( "Error writing file: " + mappedFile.getName() );
+            exception.printStackTrace();
+            return;
+        }
+        metrics.end( BuildMetrics.Stage.WRITE_SPRITE_SHEET, writeStartNanos );
+        metrics.addBytesWritten( BuildMetrics.Stage.WRITE_SPRITE_SHEET, mappedFile.length() );
+    }
+
+    /**
+     * Pack the trimmed unique chunks and copy their image pixels, skipping the header, into a raw RGBA sprite sheet.
+     * Excess space is left fully transparent, so the sprite sheet can be sampled as a texture without masking.
+     * @param imageChunkNames The names of every chunk.
+     * @param imageChunks The unique chunks to place in the sprite sheet.
+     * @param uniqueChunkIndices The index of the unique chunk holding the pixels of each named chunk.
+     * @param emptyChunkNames The names of the fully transparent chunks left out of the sprite sheet.
+     * @param rgbaFile The .rgba file to write the sprite sheet to, or null to compose it in a direct buffer.
+     * @return The composed sprite sheet.
+     * @throws IOException If the file could not be written or the sprite sheet doesn't fit in a single buffer.
+     */
+    private RgbaSpriteSheet composeRgbaChunks( List<String> imageChunkNames, List<BufferedImage> imageChunks, int[] uniqueChunkIndices, List<String> emptyChunkNames, File rgbaFile ) throws IOException
+    {
+        SpriteSheetAtlas.Chunk[] placedChunks = new SpriteSheetAtlas.Chunk[ imageChunks.size() ];
+        SkylinePacker packer = packChunks( imageChunkNames, imageChunks, uniqueChunkIndices, placedChunks );
+        SpriteSheetAtlas atlas = placedAtlas( imageChunkNames, uniqueChunkIndices, placedChunks, emptyChunkNames );
+
+        long compositeStartNanos = metrics.start();
+        RgbaSpriteSheet spriteSheet = RgbaSpriteSheet.allocate( packer.getBinWidth(), packer.getBinHeight(), atlas, rgbaFile );
+        int[] row = new int[ spriteSize ];
+        for( int index = 0; index < placedChunks.length; index++ )
+        {
+            SpriteSheetAtlas.Chunk chunk = placedChunks[ index ];
+            BufferedImage imageChunk = imageChunks.get( index );
+            spriteSheet.putArgb( SpriteUtil.getPixels( imageChunk ), SpriteUtil.getPixelIndex( imageChunk, chunk.offsetX, spriteHeaderSize + chunk.offsetY ), SpriteUtil.getScanlineStride( imageChunk ), chunk.width, chunk.height, chunk.x, chunk.y, row );
+        }
+        metrics.end( BuildMetrics.Stage.COMPOSITE, compositeStartNanos );
+        metrics.addChunks( BuildMetrics.Stage.COMPOSITE, placedChunks.length );
+        return spriteSheet;
+    }
+
+    /**
+     * Compose and write a sprite sheet of image chunks placed in a grid, left to right and top to bottom.
+     * If this builder already wrote the same chunks to the sprite sheet file and the file is untouched
+     * since, the file is left as is, so a rebuild only rewrites the pages containing changed chunks.
+     * @param imageChunks The image chunks in sprite sheet order.
+     * @param imageChunkNames The names of the image chunks in sprite sheet order, used to encode their headers.
+     * @param emptyChunkNames The names of the fully transparent chunks left out, recorded in the sprite sheet metadata.
+     * @param widthInChunks The width of the sprite sheet in chunks.
+     * @param heightInChunks The height of the sprite sheet in chunks.
+     * @param spriteSheetFile The sprite sheet file to write.
+     */
+    private void writeSpriteSheet( List<BufferedImage> imageChunks, List<String> imageChunkNames, List<String> emptyChunkNames, int widthInChunks, int heightInChunks, File spriteSheetFile )
+    {
+        //Encode the chunk headers, binary headers refer to a name table stored in a text chunk of the sprite sheet
+        String[] nameTable = encodeChunkHeaders( imageChunks, imageChunkNames );
+        Map<String, String> spriteSheetText = createSpriteSheetText( nameTable, emptyChunkNames );
+
+        //Skip rewriting the sprite sheet if its contents are unchanged since it was last written
+        long   spriteSheetHash = ( ( ( hashSpriteSheet( imageChunks, widthInChunks, heightInChunks ) * 31 ) + Arrays.hashCode( nameTable ) ) * 31 ) + emptyChunkNames.hashCode();
+        long[] written         = writtenSpriteSheets.remove( spriteSheetFile.getAbsolutePath() );
+        if( ( written != null ) && ( written[ 0 ] == spriteSheetHash ) && ( written[ 1 ] == spriteSheetFile.length() ) && ( written[ 2 ] == spriteSheetFile.lastModified() ) )
+        {
+            System.out.println( "Unchanged: " + spriteSheetFile.getName() );
+            writtenSpriteSheets.put( spriteSheetFile.getAbsolutePath(), written );
+            return;
+        }
+
+        //Stream the sprite sheet one row of chunks at a time if requested, or if it is too large to hold in memory
+        long sheetArea = ( ( long )widthInChunks * spriteSize ) * ( ( long )heightInChunks * ( spriteSize + spriteHeaderSize ) );
+        if( streamingOutput || ( sheetArea > Integer.MAX_VALUE ) )
+        {
+            if( writeSpriteSheetBands( imageChunks, widthInChunks, heightInChunks, spriteSheetFile, spriteSheetText ) )
+            {
+                recordSpriteSheet( spriteSheetFile, spriteSheetHash );
+            }
+            return;
+        }
+
+        //Compose the sprite sheet image
+        BufferedImage spriteSheet = composeSpriteSheetGrid( imageChunks, widthInChunks, heightInChunks );
+
+        try
+        {
+            //Write the sprite sheet to a .png file, don't use jpeg because it has lossy compression
+            long writeStartNanos = metrics.start();
+            SpriteUtil.writePng( spriteSheet, spriteSheetFile, pngEncoderSettings, collectPalette( spriteSheet, spriteSheetFile.getName() ), spriteSheetText );
+            metrics.end( BuildMetrics.Stage.WRITE_SPRITE_SHEET, writeStartNanos );
+            metrics.addBytesWritten( BuildMetrics.Stage.WRITE_SPRITE_SHEET, spriteSheetFile.length() );
+            metrics.addChunks( BuildMetrics.Stage.WRITE_SPRITE_SHEET, imageChunks.size() );
+            recordSpriteSheet( spriteSheetFile, spriteSheetHash );
+        }
+        catch( IOException exception )
+        {
+            reportFailure( "Error writing file: " + spriteSheetFile.getName() );
+            exception.printStackTrace();
+        }
+        catch( IllegalArgumentException exception )
+        {
+            reportFailure( "Unable to write to: " + spriteSheetFile.getPath() );
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Compose a sprite sheet image of image chunks placed in a grid, left to right and top to bottom,
+     * with the empty space filled with the control color.
+     * @param imageChunks The image chunks in sprite sheet order.
+     * @param widthInChunks The width of the sprite sheet in chunks.
+     * @param heightInChunks The height of the sprite sheet in chunks.
+     * @return The composed TYPE_INT_ARGB sprite sheet.
+     */
+    private BufferedImage composeSpriteSheetGrid( List<BufferedImage> imageChunks, int widthInChunks, int heightInChunks )
+    {
+        //Create the sprite sheet image, get the graphics object
+        long compositeStartNanos  = metrics.start();
+        BufferedImage spriteSheet = new BufferedImage( ( widthInChunks * spriteSize ), ( heightInChunks * ( spriteSize + spriteHeaderSize ) ), BufferedImage.TYPE_INT_ARGB );
+        Graphics spriteSheetGFX   = spriteSheet.getGraphics();
+
+        //Fill in the background with the control color
+        spriteSheetGFX.setColor( controlColor );
+        spriteSheetGFX.fillRect(0, 0, spriteSheet.getWidth(), spriteSheet.getHeight() );
+
+        //Add each image chunk to the sprite sheet
+        Iterator<BufferedImage> iterator = imageChunks.iterator();
+        for( int row = 0; ( row < heightInChunks ) && iterator.hasNext(); row++ )
+        {
+            for( int column = 0; ( column < widthInChunks ) && iterator.hasNext(); column++ )
+            {
+                spriteSheetGFX.drawImage( iterator.next(), ( column * spriteSize ), ( row * ( spriteSize + spriteHeaderSize ) ), null );
+            }
+        }
+        spriteSheetGFX.dispose();
+        metrics.end( BuildMetrics.Stage.COMPOSITE, compositeStartNanos );
+        metrics.addChunks( BuildMetrics.Stage.COMPOSITE, imageChunks.size() );
+        return spriteSheet;
+    }
+
+    /**
+     * Hash the contents of a grid sprite sheet: the pixels of its chunks, their layout, and the output settings.
+     * @param imageChunks The image chunks in sprite sheet order.
+     * @param widthInChunks The width of the sprite sheet in chunks.
+     * @param heightInChunks The height of the sprite sheet in chunks.
+     * @return The hash of the sprite sheet.
+     */
+    private long hashSpriteSheet( List<BufferedImage> imageChunks, int widthInChunks, int heightInChunks )
+    {
+        long hash = ( ( ( long )widthInChunks << 32 ) | heightInChunks ) ^ ( ( long )pngEncoderSettings.toString().hashCode() << 1 ) ^ ( paletteOutput ? 1 : 0 );
+        for( BufferedImage imageChunk : imageChunks )
+        {
+            hash = ( hash * 0x9E3779B185EBCA87L ) + SpriteUtil.hashPixels( imageChunk, 0, 0, imageChunk.getWidth(), imageChunk.getHeight() );
+        }
+        return hash;
+    }
+
+    /**
+     * Record the contents of a sprite sheet file that was just written, along with the file size
+     * and modification time used to determine whether the file was changed afterwards.
+     * @param spriteSheetFile The sprite sheet file.
+     * @param spriteSheetHash The hash of the sprite sheet contents.
+     */
+    private void recordSpriteSheet( File spriteSheetFile, long spriteSheetHash )
+    {
+        writtenSpriteSheets.put( spriteSheetFile.getAbsolutePath(), new long[]{ spriteSheetHash, spriteSheetFile.length(), spriteSheetFile.lastModified() } );
+    }
+
+    /**
+     * Determine the dimensions of a grid of image chunks. The grid is as close to square as possible
+     * in chunks, but never exceeds the given maximum number of columns and rows.
+     * @param chunkCount The number of image chunks in the grid, at most maxColumns * maxRows.
+     * @param maxColumns The maximum width of the grid in chunks.
+     * @param maxRows The maximum height of the grid in chunks.
+     * @return The width and height of the grid in chunks.
+     */
+    private static int[] gridDimensions( int chunkCount, int maxColumns, int maxRows )
+    {
+        int widthInChunks  = 0;
+        int heightInChunks = 0;
+
+        //If the square root is an integer, create a square sprite sheet
+        double squareRootResult = Math.sqrt( chunkCount );
+        if( Math.floor( squareRootResult ) == squareRootResult )
+        {
+            widthInChunks  = ( int )squareRootResult;
+            heightInChunks = ( int )squareRootResult;
+        }
+        else
+        {
+            widthInChunks  = ( int )Math.floor( squareRootResult );
+            heightInChunks = ( int )Math.ceil( ( double )chunkCount / widthInChunks );
+        }
+
+        //Widen the grid if it is too tall, but no wider than the maximum
+        if( heightInChunks > maxRows )
+        {
+            widthInChunks  = Math.min( maxColumns, ( int )Math.ceil( ( double )chunkCount / maxRows ) );
+            heightInChunks = ( int )Math.ceil( ( double )chunkCount / widthInChunks );
+        }
+
+        return new int[]{ widthInChunks, heightInChunks };
+    }
+
+    /**
+     * Split the unique image chunks over several pages, each no larger than the maximum page size, and
+     * compose and write the pages in parallel. Each page is written with its own atlas, recording the
+     * chunks whose pixels are held by that page.
+     * @param imageChunkNames The names of every chunk in the image map.
+     * @param imageChunks The unique chunks to place in the sprite sheet pages.
+     * @param uniqueChunkNames The name of each unique chunk, used to encode its header.
+     * @param uniqueChunkIndices The index of the unique chunk holding the pixels of each named chunk.
+     * @param emptyChunkNames The names of the fully transparent chunks left out, recorded by the first page.
+     * @param pageColumns The maximum width of a page in chunks.
+     * @param pageRows The maximum height of a page in chunks.
+     * @param pageCount The number of pages to write.
+     * @param spriteSheetFile The sprite sheet file the pages replace, used to name the pages.
+     */
+    private void writeSpriteSheetPages( ArrayList<String> imageChunkNames, ArrayList<BufferedImage> imageChunks, ArrayList<String> uniqueChunkNames, int[] uniqueChunkIndices, List<String> emptyChunkNames,
+                                        int pageColumns, int pageRows, int pageCount, File spriteSheetFile )
+    {
+        System.out.println( "Splitting " + imageChunks.size() + " chunks over " + pageCount + " pages." );
+
+        //Compose and write each page on the worker pool, every page but the last is full
+        ForkJoinPool pool = ( workerPool != null ) ? workerPool : new ForkJoinPool( Math.min( parallelism, pageCount ) );
+        ArrayList<Future<?>> tasks = new ArrayList<>();
+        int pageCapacity = pageColumns * pageRows;
+        for( int page = 0; page < pageCount; page++ )
+        {
+            final int   firstChunk = page * pageCapacity;
+            final int   chunkCount = Math.min( pageCapacity, imageChunks.size() - firstChunk );
+            final int[] dimensions = gridDimensions( chunkCount, pageColumns, pageRows );
+            final File  pageFile   = SpriteUtil.getSpriteSheetPageFile( spriteSheetFile, page );
+            final List<String> pageEmptyChunkNames = ( page == 0 ) ? emptyChunkNames : new ArrayList<>();
+
+            writeGridAtlas( imageChunkNames, uniqueChunkIndices, pageEmptyChunkNames, firstChunk, chunkCount, dimensions[ 0 ], SpriteSheetAtlas.getAtlasFile( pageFile ) );
+            tasks.add( pool.submit( () -> writeSpriteSheet( imageChunks.subList( firstChunk, firstChunk + chunkCount ), uniqueChunkNames.subList( firstChunk, firstChunk + chunkCount ), pageEmptyChunkNames, dimensions[ 0 ], dimensions[ 1 ], pageFile ) ) );
+        }
+
+        //Wait for every page to finish writing
+        for( Future<?> task : tasks )
+        {
+            try
+            {
+                task.get();
+            }
+            catch( InterruptedException exception )
+            {
+                Thread.currentThread().interrupt();
+                reportFailure( "Interrupted while writing pages of: " + spriteSheetFile.getName() );
+                break;
+            }
+            catch( ExecutionException exception )
+            {
+                reportFailure( "Error writing a page of: " + spriteSheetFile.getName() );
+                exception.getCause().printStackTrace();
+            }
+        }
+        if( pool != workerPool )
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Delete the sprite sheet files left over from a previous build with a different number of pages,
+     * so a sprite sheet is never parsed together with stale pages.
+     * @param spriteSheetFile The sprite sheet file, the pages are named after it.
+     * @param pageCount The number of pages being written, 1 if the sprite sheet is written as a single file.
+     */
+    private void deleteStaleSpriteSheets( File spriteSheetFile, int pageCount )
+    {
+        ArrayList<File> staleFiles = new ArrayList<>();
+        if( pageCount > 1 )
+        {
+            staleFiles.add( spriteSheetFile );
+        }
+
+        //Pages are numbered from zero, a single file sprite sheet has no pages
+        ArrayList<File> pageFiles = SpriteUtil.findSpriteSheetPages( spriteSheetFile );
+        for( int page = ( pageCount > 1 ) ? pageCount : 0; page < pageFiles.size(); page++ )
+        {
+            staleFiles.add( pageFiles.get( page ) );
+        }
+
+        for( File staleFile : staleFiles )
+        {
+            File staleAtlasFile = SpriteSheetAtlas.getAtlasFile( staleFile );
+            if( ( staleFile.isFile() && !staleFile.delete() ) || ( staleAtlasFile.isFile() && !staleAtlasFile.delete() ) )
+            {
+                System.out.println( "Unable to delete stale sprite sheet: " + staleFile.getPath() );
+            }
+        }
+    }
+
+    /**
+     * Set whether sprite sheets are composed and encoded one row of chunks at a time instead of
+     * as a single in-memory image. Sheets too large to fit in a single image are always streamed.
+     * @param streamingOutput True to stream the sprite sheet output, false otherwise.
+     */
+    public void setStreamingOutput( boolean streamingOutput )
+    {
+        this.streamingOutput = streamingOutput;
+    }
+
+    /**
+     * Set the compression level and row filter sprite sheets are encoded with, trading file size against
+     * build speed. The default settings write sprite sheets exactly as before, with ImageIO.
+     * @param pngEncoderSettings The .png encoder settings.
+     */
+    public void setPngEncoderSettings( PngEncoderSettings pngEncoderSettings )
+    {
+        this.pngEncoderSettings = ( pngEncoderSettings == null ) ? PngEncoderSettings.DEFAULT : pngEncoderSettings;
+    }
+
+    /**
+     * Set the maximum width and height of a sprite sheet in pixels, such as a GPU texture size limit. If the
+     * chunks don't fit on a single sprite sheet of that size, they are spread over as many pages as needed,
+     * written as spritesheet_SIZE_PAGE.png with their own atlas files. Pages are composed and written in
+     * parallel. The limit applies to the sprite grid, packed sprite sheets are always written as a single file.
+     * @param maxPageSize The maximum page width and height in pixels, or 0 for no limit.
+     */
+    public void setMaxPageSize( int maxPageSize )
+    {
+        this.maxPageSize = Math.max( 0, maxPageSize );
+    }
+
+    /**
+     * Set whether chunks are trimmed to their image pixels and packed tightly into the sprite sheet instead
+     * of being placed in a grid of sprite sized cells. Packed sprite sheets have no header rows, the placement
+     * of each chunk is recorded in an atlas file written next to the sprite sheet. Packed sprite sheets are
+     * always composed in memory.
+     * @param packedLayout True to pack the sprite sheet, false to use the sprite grid.
+     */
+    public void setPackedLayout( boolean packedLayout )
+    {
+        this.packedLayout = packedLayout;
+    }
+
+    /**
+     * Trim each chunk down to the pixels of its source image, pack the trimmed chunks with a skyline
+     * packer, and write the sprite sheet along with an atlas recording where each chunk was placed.
+     * @param imageChunkNames The names of every chunk in the image map.
+     * @param imageChunks The unique chunks to place in the sprite sheet.
+     * @param uniqueChunkIndices The index of the unique chunk holding the pixels of each named chunk.
+     * @param emptyChunkNames The names of the fully transparent chunks left out, recorded in the atlas without an area.
+     * @param destinationDirectory The path to the output directory relative to src.
+     */
+    private void writePackedSpriteSheet( ArrayList<String> imageChunkNames, ArrayList<BufferedImage> imageChunks, int[] uniqueChunkIndices, List<String> emptyChunkNames, String destinationDirectory )
+    {
+        //Pack the trimmed chunks
+        SpriteSheetAtlas.Chunk[] placedChunks = new SpriteSheetAtlas.Chunk[ imageChunks.size() ];
+        SkylinePacker packer = packChunks( imageChunkNames, imageChunks, uniqueChunkIndices, placedChunks );
+
+        //Verify the sprite sheet fits in a single image
+        if( ( long )packer.getBinWidth() * packer.getBinHeight() > Integer.MAX_VALUE )
+        {
+            reportFailure( "Error packed sprite sheet dimensions too large: " + packer.getBinWidth() + "x" + packer.getBinHeight() );
+            return;
+        }
+
+        //Create the sprite sheet image, fill in the background with the control color
+        long compositeStartNanos  = metrics.start();
+        BufferedImage spriteSheet = new BufferedImage( packer.getBinWidth(), packer.getBinHeight(), BufferedImage.TYPE_INT_ARGB );
+        Arrays.fill( SpriteUtil.getPixels( spriteSheet ), controlColor.getRGB() );
+
+        //Copy the image pixels of each unique chunk into the sprite sheet, skipping the header
+        for( int index = 0; index < placedChunks.length; index++ )
+        {
+            SpriteSheetAtlas.Chunk chunk = placedChunks[ index ];
+            SpriteUtil.copyPixels( imageChunks.get( index ), chunk.offsetX, spriteHeaderSize + chunk.offsetY, chunk.width, chunk.height, spriteSheet, chunk.x, chunk.y );
+        }
+        metrics.end( BuildMetrics.Stage.COMPOSITE, compositeStartNanos );
+        metrics.addChunks( BuildMetrics.Stage.COMPOSITE, placedChunks.length );
+
+        //Record the placement of every chunk, chunks sharing a unique chunk share its position
+        SpriteSheetAtlas atlas = placedAtlas( imageChunkNames, uniqueChunkIndices, placedChunks, emptyChunkNames );
+
+        File spriteSheetFile = new File( destinationDirectory + "/spritesheet_" + spriteSize + ".png" );
+        try
+        {
+            //Write the sprite sheet to a .png file, don't use jpeg because it has lossy compression
+            long writeStartNanos = metrics.start();
+            SpriteUtil.writePng( spriteSheet, spriteSheetFile, pngEncoderSettings, collectPalette( spriteSheet, spriteSheetFile.getName() ), createSpriteSheetText( null, null ) );
+            metrics.end( BuildMetrics.Stage.WRITE_SPRITE_SHEET, writeStartNanos );
+            metrics.addBytesWritten( BuildMetrics.Stage.WRITE_SPRITE_SHEET, spriteSheetFile.length() );
+            metrics.addChunks( BuildMetrics.Stage.WRITE_SPRITE_SHEET, placedChunks.length );
+            atlas.write( SpriteSheetAtlas.getAtlasFile( spriteSheetFile ) );
+        }
+        catch( IOException exception )
+        {
+            reportFailure( "Error writing file: spritesheet_" + spriteSize + ".png" );
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Trim each unique chunk down to the pixels of its source image, and its transparent borders if trimming is
+     * requested, then pack the trimmed chunks with a skyline packer, tallest first, aiming for a roughly square sprite sheet.
+     * @param imageChunkNames The names of every chunk in the image map.
+     * @param imageChunks The unique chunks to place in the sprite sheet.
+     * @param uniqueChunkIndices The index of the unique chunk holding the pixels of each named chunk.
+     * @param placedChunks The array receiving the placement of each unique chunk.
+     * @return The packer, holding the dimensions of the packed sprite sheet.
+     */
+    private SkylinePacker packChunks( List<String> imageChunkNames, List<BufferedImage> imageChunks, int[] uniqueChunkIndices, SpriteSheetAtlas.Chunk[] placedChunks )
+    {
+        //Determine the size of each unique chunk, large enough for every chunk sharing it
+        ArrayList<SpriteSheetAtlas.Chunk> chunks = new ArrayList<>();
+        for( int index = 0; index < placedChunks.length; index++ )
+        {
+            chunks.add( null );
+        }
+
+        for( int index = 0; index < imageChunkNames.size(); index++ )
+        {
+            SpriteSheetAtlas.Chunk chunk  = chunkBounds( imageChunkNames.get( index ) );
+            SpriteSheetAtlas.Chunk unique = chunks.get( uniqueChunkIndices[ index ] );
+            if( ( unique == null ) || ( chunk.width > unique.width ) || ( chunk.height > unique.height ) )
+            {
+                int width  = ( unique == null ) ? chunk.width  : Math.max( chunk.width,  unique.width  );
+                int height = ( unique == null ) ? chunk.height : Math.max( chunk.height, unique.height );
+                chunks.set( uniqueChunkIndices[ index ], new SpriteSheetAtlas.Chunk( chunk.name, chunk.number, chunk.srcImageWidth, chunk.srcImageHeight, 0, 0, width, height ) );
+            }
+        }
+
+        //Trim the transparent borders of each unique chunk, the pixels beyond the source image are always transparent
+        if( trimChunks )
+        {
+            for( int index = 0; index < chunks.size(); index++ )
+            {
+                SpriteSheetAtlas.Chunk chunk = chunks.get( index );
+                Rectangle bounds = SpriteUtil.opaqueBounds( imageChunks.get( index ), 0, spriteHeaderSize, chunk.width, chunk.height );
+                if( bounds != null )
+                {
+                    chunks.set( index, new SpriteSheetAtlas.Chunk( chunk.name, chunk.number, chunk.srcImageWidth, chunk.srcImageHeight, 0, 0, bounds.width, bounds.height, bounds.x, bounds.y ) );
+                }
+            }
+        }
+
+        long totalArea = 0;
+        int  maxWidth  = 0;
+        for( SpriteSheetAtlas.Chunk chunk : chunks )
+        {
+            totalArea += ( long )chunk.width * chunk.height;
+            maxWidth   = Math.max( maxWidth, chunk.width );
+        }
+
+        //Pack the tallest chunks first, aiming for a roughly square sprite sheet
+        Integer[] packOrder = new Integer[ chunks.size() ];
+        for( int index = 0; index < packOrder.length; index++ )
+        {
+            packOrder[ index ] = index;
+        }
+        Arrays.sort( packOrder, ( first, second ) -> ( chunks.get( first ).height != chunks.get( second ).height ) ? ( chunks.get( second ).height - chunks.get( first ).height ) : ( chunks.get( second ).width - chunks.get( first ).width ) );
+
+        SkylinePacker packer = new SkylinePacker( Math.max( maxWidth, ( int )Math.ceil( Math.sqrt( totalArea ) ) ) );
+        for( int index : packOrder )
+        {
+            SpriteSheetAtlas.Chunk chunk = chunks.get( index );
+            Point position = packer.insert( chunk.width, chunk.height );
+            placedChunks[ index ] = new SpriteSheetAtlas.Chunk( chunk.name, chunk.number, chunk.srcImageWidth, chunk.srcImageHeight, position.x, position.y, chunk.width, chunk.height, chunk.offsetX, chunk.offsetY );
+        }
+        return packer;
+    }
+
+    /**
+     * Record the placement of every chunk of a packed sprite sheet, chunks sharing a unique chunk share its position
+     * and trimmed bounds, since their pixels are identical.
+     * @param imageChunkNames The names of every chunk in the image map.
+     * @param uniqueChunkIndices The index of the unique chunk holding the pixels of each named chunk.
+     * @param placedChunks The placement of each unique chunk.
+     * @param emptyChunkNames The names of the fully transparent chunks left out, recorded without an area.
+     * @return The atlas of the packed sprite sheet.
+     */
+    private SpriteSheetAtlas placedAtlas( List<String> imageChunkNames, int[] uniqueChunkIndices, SpriteSheetAtlas.Chunk[] placedChunks, List<String> emptyChunkNames )
+    {
+        SpriteSheetAtlas atlas = new SpriteSheetAtlas( spriteSize, false );
+        for( int index = 0; index < imageChunkNames.size(); index++ )
+        {
+            SpriteSheetAtlas.Chunk chunk  = chunkBounds( imageChunkNames.get( index ) );
+            SpriteSheetAtlas.Chunk placed = placedChunks[ uniqueChunkIndices[ index ] ];
+            atlas.addChunk( new SpriteSheetAtlas.Chunk( chunk.name, chunk.number, chunk.srcImageWidth, chunk.srcImageHeight, placed.x, placed.y,
+                                                        Math.min( chunk.width - placed.offsetX, placed.width ), Math.min( chunk.height - placed.offsetY, placed.height ), placed.offsetX, placed.offsetY ) );
+        }
+        addEmptyChunks( atlas, emptyChunkNames );
+        return atlas;
+    }
+
+    /**
+     * Record the fully transparent chunks left out of a sprite sheet in its atlas, without an area, so the
+     * parser still recreates the blank area of their source image.
+     * @param atlas The atlas of the sprite sheet.
+     * @param emptyChunkNames The names of the fully transparent chunks left out of the sprite sheet.
+     */
+    private void addEmptyChunks( SpriteSheetAtlas atlas, List<String> emptyChunkNames )
+    {
+        for( String emptyChunkName : emptyChunkNames )
+        {
+            SpriteSheetAtlas.Chunk chunk = chunkBounds( emptyChunkName );
+            atlas.addChunk( new SpriteSheetAtlas.Chunk( chunk.name, chunk.number, chunk.srcImageWidth, chunk.srcImageHeight, 0, 0, 0, 0 ) );
+        }
+    }
+
+    /**
+     * Set whether chunks are trimmed. Fully transparent chunks are left out of the sprite sheet and listed in its
+     * metadata and atlas instead, so the parser still recreates their blank area, and the chunks of packed sprite
+     * sheets are trimmed down to their pixels that aren't fully transparent, recording the trimmed bounds in the atlas.
+     * @param trimChunks True to trim chunks, false to keep every chunk whole.
+     */
+    public void setTrimChunks( boolean trimChunks )
+    {
+        this.trimChunks = trimChunks;
+    }
+
+    /**
+     * Set whether a packed raw RGBA sprite sheet is written next to each .png sprite sheet, named like it with the
+     * .rgba extension. The file holds the RGBA8 pixels followed by a region table, and is mapped into memory by
+     * RgbaSpriteSheet.map, so a runtime can upload it without decoding a .png file.
+     * @param rgbaOutput True to write a raw RGBA sprite sheet, false otherwise.
+     */
+    public void setRgbaOutput( boolean rgbaOutput )
+    {
+        this.rgbaOutput = rgbaOutput;
+    }
+
+    /**
+     * Set whether a mapped sprite sheet is written next to each .png sprite sheet, named like it with the .sprites
+     * extension. It stores each source image whole as RGBA8 pixels with an index of names and offsets, so a runtime
+     * can map it with MappedSpriteSheet.map and read single sprites without decoding the sprite sheet.
+     * @param mappedOutput True to write a mapped sprite sheet, false otherwise.
+     */
+    public void setMappedOutput( boolean mappedOutput )
+    {
+        this.mappedOutput = mappedOutput;
+    }
+
+    /**
+     * Set whether the sprites of mapped sprite sheets are deflate compressed, making the file smaller
+     * at the cost of decompressing each sprite when it is read instead of handing out the mapped pixels.
+     * @param mappedCompression True to compress the sprites, false to store them as is.
+     */
+    public void setMappedCompression( boolean mappedCompression )
+    {
+        this.mappedCompression = mappedCompression;
+    }
+
+    /**
+     * Set whether builds are incremental. An incremental build stores the chunks of every source image in a
+     * cache file next to the sprite sheet, and the next build only loads and splits the source images that are
+     * new or have changed since, reusing the cached chunks of the rest.
+     * @param incrementalBuild True to reuse the chunks of unchanged source images, false to always load every source image.
+     */
+    public void setIncrementalBuild( boolean incrementalBuild )
+    {
+        this.incrementalBuild = incrementalBuild;
+    }
+
+    /**
+     * Set whether sprite sheets are written as 8-bit indexed color when they contain at most 256 distinct colors,
+     * as pixel art usually does, a quarter of the pixel data of 8-bit RGBA. Every color, including the header
+     * pixels and the control color, is stored exactly. Sprite sheets with more colors are written in full color.
+     * @param paletteOutput True to write indexed color sprite sheets when possible, false to always write full color.
+     */
+    public void setPaletteOutput( boolean paletteOutput )
+    {
+        this.paletteOutput = paletteOutput;
+    }
+
+    /**
+     * Collect the colors of a composed sprite sheet into a palette if palette output is enabled.
+     * The colors are taken from the composed pixels rather than the chunks, since translucent
+     * chunk pixels are blended with the control color when drawn into the grid.
+     * @param spriteSheet The composed TYPE_INT_ARGB sprite sheet.
+     * @param spriteSheetName The name of the sprite sheet to be written, used in messages.
+     * @return The palette of the sprite sheet, or null if it is written in full color.
+     */
+    private ColorPalette collectPalette( BufferedImage spriteSheet, String spriteSheetName )
+    {
+        if( !paletteOutput )
+        {
+            return null;
+        }
+
+        ColorPalette palette = new ColorPalette();
+        palette.addColor( controlColor.getRGB() );
+        if( !palette.addColors( SpriteUtil.getPixels( spriteSheet ), SpriteUtil.getPixelIndex( spriteSheet, 0, 0 ), SpriteUtil.getScanlineStride( spriteSheet ),
+                                spriteSheet.getWidth(), spriteSheet.getHeight() ) )
+        {
+            System.out.println( "Sprite sheet has more than " + ColorPalette.MAX_COLORS + " colors, writing full color: " + spriteSheetName );
+            return null;
+        }
+        return palette;
+    }
+
+    /**
+     * Set the pool source images are loaded and sprite sheet pages are written on, so builds running side
+     * by side in a long-running process share one set of threads. The builder never shuts the pool down.
+     * @param workerPool The shared pool, or null to create a pool of parallelism threads for each build.
+     */
+    public void setWorkerPool( ForkJoinPool workerPool )
+    {
+        this.workerPool = workerPool;
+    }
+
+    /**
+     * Set whether source images are loaded from the entire source directory tree instead of the source
+     * directory alone. Sprites of images in subdirectories are named by their relative path, such as
+     * characters/hero. The output directory is never scanned unless it is the source directory.
+     * @param recursiveScan True to scan subdirectories, false otherwise.
+     */
+    public void setRecursiveScan( boolean recursiveScan )
+    {
+        sourceScanner.setRecursive( recursiveScan );
+    }
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import java.net.MalformedURLException;
-import java.text.CharacterIterator;
-import java.text.StringCharacterIterator;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+    /**
+     * Set the globs a source image path relative to the source directory must match one of to be loaded,
+     * such as **&#47;*.png or characters/**.
+     * @param includeGlobs The globs to include, or null or empty to load every supported image.
+     */
+    public void setIncludeGlobs( List<String> includeGlobs )
+    {
+        sourceScanner.setIncludeGlobs( includeGlobs );
+    }
 
-/**
- * @author Logan Karstetter
- * Date: 2020
- */
-public class SpriteSheetBuilder
-{
-    /** The width and height of the parsed sprites in pixels */
-    private int spriteSize;
-    /** The height of the sprite header in pixels */
-    private byte spriteHeaderSize;
-    /** The color populating empty, excess space in the sprite sheet */
-    private Color controlColor;
-    /** The map used to store loaded images, where the keys are the image names */
-    private LinkedHashMap<String, BufferedImage> imageMap;
+    /**
+     * Set the globs excluding source image paths relative to the source directory from being loaded.
+     * Directories matching an exclude glob are skipped along with everything they contain.
+     * @param excludeGlobs The globs to exclude, or null or empty to exclude nothing.
+     */
+    public void setExcludeGlobs( List<String> excludeGlobs )
+    {
+        sourceScanner.setExcludeGlobs( excludeGlobs );
+    }
 
     /**
-     * The SpriteSheetBuilder class is used to build sprite sheets.
-     * @param spriteSize The width and height of each sprite in pixels.
-     * @param spriteHeaderSize The height of the sprite header in pixels.
-     * @param controlColor The color used to denote excess, empty, ignorable space in the sprite sheet.
+     * Set the metrics recording the time, file bytes, and chunk counts of each build stage, such as decoding
+     * and splitting source images, encoding headers, composing, and writing the sprite sheet.
+     * @param metrics The metrics to record into, or null to record nothing.
      */
-    public SpriteSheetBuilder(int spriteSize, byte spriteHeaderSize, Color controlColor )
+    public void setMetrics( BuildMetrics metrics )
     {
-        //Store the sprite input arguments
-        this.spriteSize       = spriteSize;
-        this.spriteHeaderSize = spriteHeaderSize;
-        this.controlColor     = controlColor;
+        this.metrics = ( metrics == null ) ? BuildMetrics.DISABLED : metrics;
+    }
 
-        //Initialize the image map
-        imageMap = new LinkedHashMap<>();
+    /**
+     * Set the in-memory cache of decoded source images, so repeated builds in a long-running process only decode
+     * the source images that are new or have changed. Unlike an incremental build, nothing is written to disk.
+     * @param sourceImageCache The cache to reuse decoded images from and store them in, or null to always decode source images.
+     */
+    public void setSourceImageCache( SourceImageCache sourceImageCache )
+    {
+        this.sourceImageCache = sourceImageCache;
     }
 
     /**
-     * Build a sprite sheet from the images found in the given source directory.
-     * Each image exceeding the size of a single sprite will be split into many
-     * sprite-sized chunks. The result will be output in the given destination
-     * directory as a .png file.
-     * @param sourceDirectory The path to the directory containing images relative to src.
-     * @param destinationDirectory The path to the output directory relative to src.
+     * Set whether chunks with identical pixels are stored in the sprite sheet only once. Since a header can only
+     * hold a single name, the placement of every chunk is recorded in an atlas file next to the sprite sheet.
+     * @param deduplicateChunks True to deduplicate chunks, false otherwise.
      */
-    public void buildSpriteSheet( String sourceDirectory, String destinationDirectory )
+    public void setDeduplicateChunks( boolean deduplicateChunks )
     {
-        //Load the images into the imageMap
-        loadSourceImages( sourceDirectory );
+        this.deduplicateChunks = deduplicateChunks;
+    }
 
-        //If no images were loaded, return early
-        if( imageMap.size() == 0 )
+    /**
+     * Determine the unique chunks of the image map. If deduplication is disabled every chunk is unique,
+     * otherwise chunks are hashed by their image pixels and identical chunks are only kept once.
+     * @param imageChunkNames The names of every chunk in the image map.
+     * @param imageChunks The list receiving the unique chunks, in the order they are first seen.
+     * @return The index of the unique chunk holding the pixels of each named chunk.
+     */
+    private int[] findUniqueChunks( ArrayList<String> imageChunkNames, ArrayList<BufferedImage> imageChunks )
+    {
+        int[] uniqueChunkIndices = new int[ imageChunkNames.size() ];
+
+        //The indices of the unique chunks, keyed by the hash of their image pixels
+        HashMap<Long, ArrayList<Integer>> hashedChunks = new HashMap<>();
+
+        for( int index = 0; index < imageChunkNames.size(); index++ )
         {
-            System.out.println( "No supported image files found in: " + sourceDirectory );
-            return;
-        }
+            BufferedImage imageChunk = imageMap.get( imageChunkNames.get( index ) );
+            uniqueChunkIndices[ index ] = -1;
 
-        //Create an array list of the images
-        ArrayList<BufferedImage> imageChunks = new ArrayList<>( imageMap.values() );
+            if( deduplicateChunks )
+            {
+                //Look for an identical chunk among the chunks with the same hash, skipping the header
+                long hash = SpriteUtil.hashPixels( imageChunk, 0, spriteHeaderSize, spriteSize, spriteSize );
+                ArrayList<Integer> candidates = hashedChunks.get( hash );
+                if( candidates == null )
+                {
+                    candidates = new ArrayList<>();
+                    hashedChunks.put( hash, candidates );
+                }
 
-        //Determine the dimensions of the sprite sheet in image chunks
-        int widthInChunks  = 0;
-        int heightInChunks = 0;
+                for( int candidate : candidates )
+                {
+                    if( SpriteUtil.pixelsEqual( imageChunk, imageChunks.get( candidate ), 0, spriteHeaderSize, spriteSize, spriteSize ) )
+                    {
+                        uniqueChunkIndices[ index ] = candidate;
+                        break;
+                    }
+                }
 
-        //If the square root is an integer, create a square sprite sheet
-        double squareRootResult = Math.sqrt( imageMap.keySet().size() );
-        if( Math.floor( squareRootResult ) == squareRootResult )
-        {
-            widthInChunks  = ( int )squareRootResult;
-            heightInChunks = ( int )squareRootResult;
+                if( uniqueChunkIndices[ index ] == -1 )
+                {
+                    candidates.add( imageChunks.size() );
+                }
+            }
+
+            //Keep the chunk if no identical chunk was found
+            if( uniqueChunkIndices[ index ] == -1 )
+            {
+                uniqueChunkIndices[ index ] = imageChunks.size();
+                imageChunks.add( imageChunk );
+            }
         }
-        else
+
+        if( deduplicateChunks )
         {
-            widthInChunks  = ( int )Math.floor( squareRootResult );
-            heightInChunks = ( int )Math.ceil( ( double )imageChunks.size() / widthInChunks );
+            System.out.println( "Deduplicated " + imageChunkNames.size() + " chunks into " + imageChunks.size() + " unique chunks." );
         }
 
-        //Create the sprite sheet image, get the graphics object
-        BufferedImage spriteSheet = new BufferedImage( ( widthInChunks * spriteSize ), ( heightInChunks * ( spriteSize + spriteHeaderSize ) ), BufferedImage.TYPE_INT_ARGB );
-        Graphics spriteSheetGFX   = spriteSheet.getGraphics();
+        return uniqueChunkIndices;
+    }
 
-        //Fill in the background with the control color
-        spriteSheetGFX.setColor( controlColor );
-        spriteSheetGFX.fillRect(0, 0, spriteSheet.getWidth(), spriteSheet.getHeight() );
+    /**
+     * Determine the source image info and the size of the image pixels of a chunk from its name.
+     * @param imageChunkName The chunk name, formatted as follows: NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT.
+     * @return The chunk info, positioned at ( 0, 0 ).
+     */
+    private SpriteSheetAtlas.Chunk chunkBounds( String imageChunkName )
+    {
+        String[] chunkInfo  = SpriteUtil.splitImageChunkName( imageChunkName );
+        int srcImageWidth   = Integer.parseInt( chunkInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_WIDTH.ordinal()  ] );
+        int srcImageHeight  = Integer.parseInt( chunkInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_HEIGHT.ordinal() ] );
+        int number          = Integer.parseInt( chunkInfo[ SpriteUtil.SpriteInfo.NUMBER.ordinal()           ] );
 
-        //Add each image chunk to the sprite sheet
-        Iterator<BufferedImage> iterator = imageChunks.iterator();
-        for( int row = 0; ( row < heightInChunks ) && iterator.hasNext(); row++ )
+        //Edge chunks only contain the remaining pixels of the source image
+        int srcImageColumns = ( srcImageWidth / spriteSize ) + ( ( srcImageWidth % spriteSize ) == 0 ? 0 : 1 );
+        int width  = Math.min( spriteSize, srcImageWidth  - ( ( number % srcImageColumns ) * spriteSize ) );
+        int height = Math.min( spriteSize, srcImageHeight - ( ( number / srcImageColumns ) * spriteSize ) );
+
+        return new SpriteSheetAtlas.Chunk( chunkInfo[ SpriteUtil.SpriteInfo.NAME.ordinal() ], number, srcImageWidth, srcImageHeight, 0, 0, width, height );
+    }
+
+    /**
+     * Write an atlas recording the grid cell holding the image pixels of every chunk placed in a sprite sheet.
+     * @param imageChunkNames The names of every chunk in the image map.
+     * @param uniqueChunkIndices The index of the unique chunk, and therefore the grid cell, holding the pixels of each named chunk.
+     * @param emptyChunkNames The names of the fully transparent chunks left out, recorded without an area.
+     * @param firstChunk The index of the first unique chunk placed in the sprite sheet.
+     * @param chunkCount The number of unique chunks placed in the sprite sheet.
+     * @param widthInChunks The width of the sprite sheet in chunks.
+     * @param atlasFile The atlas file to write.
+     */
+    private void writeGridAtlas( ArrayList<String> imageChunkNames, int[] uniqueChunkIndices, List<String> emptyChunkNames, int firstChunk, int chunkCount, int widthInChunks, File atlasFile )
+    {
+        SpriteSheetAtlas atlas = new SpriteSheetAtlas( spriteSize, !deduplicateChunks );
+        for( int index = 0; index < imageChunkNames.size(); index++ )
         {
-            for( int column = 0; ( column < widthInChunks ) && iterator.hasNext(); column++ )
+            //Skip chunks whose pixels are held by another page
+            int cell = uniqueChunkIndices[ index ] - firstChunk;
+            if( ( cell < 0 ) || ( cell >= chunkCount ) )
             {
-                spriteSheetGFX.drawImage( iterator.next(), ( column * spriteSize ), ( row * ( spriteSize + spriteHeaderSize ) ), null );
+                continue;
             }
-        }
 
+            SpriteSheetAtlas.Chunk chunk = chunkBounds( imageChunkNames.get( index ) );
+            int column = cell % widthInChunks;
+            int row    = cell / widthInChunks;
+            atlas.addChunk( new SpriteSheetAtlas.Chunk( chunk.name, chunk.number, chunk.srcImageWidth, chunk.srcImageHeight,
+                                                        ( column * spriteSize ), ( row * ( spriteSize + spriteHeaderSize ) ) + spriteHeaderSize, chunk.width, chunk.height ) );
+        }
+        addEmptyChunks( atlas, emptyChunkNames );
 
         try
         {
-            //Write the sprite sheet to a .png file, don't use jpeg because it has lossy compression
-            ImageIO.write( spriteSheet, "png", new File( destinationDirectory + "/spritesheet_" + spriteSize + ".png" ) );
+            atlas.write( atlasFile );
         }
         catch( IOException exception )
         {
-            System.out.println( "Error writing file: spritesheet_" + spriteSize + ".png" );
+            reportFailure( "Error writing file: " + atlasFile.getName() );
             exception.printStackTrace();
         }
-        catch( IllegalArgumentException exception )
+    }
+
+    /**
+     * Compose and write the sprite sheet one row of chunks at a time, so only a single
+     * band of widthInChunks * spriteSize pixels is held in memory alongside the chunks.
+     * @param imageChunks The image chunks in sprite sheet order.
+     * @param widthInChunks The width of the sprite sheet in chunks.
+     * @param heightInChunks The height of the sprite sheet in chunks.
+     * @param spriteSheetFile The sprite sheet file to write.
+     * @param spriteSheetText The text chunks to write ahead of the pixels, keyed by keyword, or null for none.
+     * @return True if the sprite sheet was written, false otherwise.
+     */
+    private boolean writeSpriteSheetBands( List<BufferedImage> imageChunks, int widthInChunks, int heightInChunks, File spriteSheetFile, Map<String, String> spriteSheetText )
+    {
+        //Verify the sprite sheet dimensions fit in a .png file
+        long sheetWidth  = ( long )widthInChunks  * spriteSize;
+        long sheetHeight = ( long )heightInChunks * ( spriteSize + spriteHeaderSize );
+        if( ( sheetWidth > Integer.MAX_VALUE ) || ( sheetHeight > Integer.MAX_VALUE ) )
+        {
+            reportFailure( "Error sprite sheet dimensions too large: " + sheetWidth + "x" + sheetHeight );
+            return false;
+        }
+
+        //Create a band image holding a single row of chunks, get the graphics object
+        BufferedImage band = new BufferedImage( ( int )sheetWidth, ( spriteSize + spriteHeaderSize ), BufferedImage.TYPE_INT_ARGB );
+        Graphics bandGFX   = band.getGraphics();
+        int[] bandPixels   = ( ( DataBufferInt )band.getRaster().getDataBuffer() ).getData();
+
+        //The palette must precede the image data, compose every band once up front to collect the colors
+        ColorPalette palette = null;
+        if( paletteOutput )
+        {
+            palette = new ColorPalette();
+            palette.addColor( controlColor.getRGB() );
+            for( int row = 0; row < heightInChunks; row++ )
+            {
+                composeBand( bandGFX, band, imageChunks, row, widthInChunks );
+                if( !palette.addColors( bandPixels, 0, band.getWidth(), band.getWidth(), band.getHeight() ) )
+                {
+                    System.out.println( "Sprite sheet has more than " + ColorPalette.MAX_COLORS + " colors, writing full color: " + spriteSheetFile.getName() );
+                    palette = null;
+                    break;
+                }
+            }
+        }
+
+        //The streamed write includes composing its bands, which are also measured on their own
+        long writeStartNanos = metrics.start();
+        try( PngBandWriter writer = new PngBandWriter( new BufferedOutputStream( new FileOutputStream( spriteSheetFile ) ), ( int )sheetWidth, ( int )sheetHeight, pngEncoderSettings, palette ) )
+        {
+            if( spriteSheetText != null )
+            {
+                for( Map.Entry<String, String> entry : spriteSheetText.entrySet() )
+                {
+                    writer.writeText( entry.getKey(), entry.getValue() );
+                }
+            }
+
+            //Add each row of image chunks to the band, writing the band after each row
+            for( int row = 0; row < heightInChunks; row++ )
+            {
+                composeBand( bandGFX, band, imageChunks, row, widthInChunks );
+                writer.writeRows( bandPixels, 0, band.getWidth(), band.getHeight() );
+            }
+        }
+        catch( IOException exception )
         {
-            System.out.println( "Unable to write to: " + destinationDirectory + "/spritesheet_" + spriteSize + ".png" );
+            reportFailure( "Error writing file: " + spriteSheetFile.getName() );
             exception.printStackTrace();
+            return false;
+        }
+        finally
+        {
+            bandGFX.dispose();
+        }
+        metrics.end( BuildMetrics.Stage.WRITE_SPRITE_SHEET, writeStartNanos );
+        metrics.addBytesWritten( BuildMetrics.Stage.WRITE_SPRITE_SHEET, spriteSheetFile.length() );
+        metrics.addChunks( BuildMetrics.Stage.WRITE_SPRITE_SHEET, imageChunks.size() );
+        return true;
+    }
+
+    /**
+     * Compose a single row of chunks of the sprite sheet into a band image.
+     * @param bandGFX The graphics object of the band image.
+     * @param band The band image, a single row of chunks in size.
+     * @param imageChunks The image chunks in sprite sheet order.
+     * @param row The row of chunks to compose.
+     * @param widthInChunks The width of the sprite sheet in chunks.
+     */
+    private void composeBand( Graphics bandGFX, BufferedImage band, List<BufferedImage> imageChunks, int row, int widthInChunks )
+    {
+        //Fill in the background with the control color
+        long compositeStartNanos = metrics.start();
+        bandGFX.setColor( controlColor );
+        bandGFX.fillRect( 0, 0, band.getWidth(), band.getHeight() );
+
+        int column = 0;
+        for( int index = row * widthInChunks; ( column < widthInChunks ) && ( index < imageChunks.size() ); column++, index++ )
+        {
+            bandGFX.drawImage( imageChunks.get( index ), ( column * spriteSize ), 0, null );
+        }
+        metrics.end( BuildMetrics.Stage.COMPOSITE, compositeStartNanos );
+        metrics.addChunks( BuildMetrics.Stage.COMPOSITE, column );
+    }
+
+    /**
+     * Set whether sprite headers are written as text, NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT stored as
+     * three Latin-1 characters per pixel, so older versions of the tool can parse the sprite sheet. By default
+     * headers are binary, referring to a name table stored in the sprite sheet, which holds names of any length.
+     * @param legacyHeaders True to write text headers, false to write binary headers.
+     */
+    public void setLegacyHeaders( boolean legacyHeaders )
+    {
+        this.legacyHeaders = legacyHeaders;
+    }
+
+    /**
+     * Create the text chunks written ahead of the pixels of a sprite sheet or page. The sprite size and sprite header
+     * size are always recorded, so the parser can discover them from the first bytes of the file without decoding it.
+     * @param nameTable The name table of the binary headers, or null if the sprite sheet has none.
+     * @param emptyChunkNames The names of the fully transparent chunks left out of the sprite sheet, or null if none were.
+     * @return The text of each text chunk keyed by keyword.
+     */
+    private Map<String, String> createSpriteSheetText( String[] nameTable, List<String> emptyChunkNames )
+    {
+        LinkedHashMap<String, String> spriteSheetText = new LinkedHashMap<>();
+        spriteSheetText.put( SpriteHeader.SPRITE_SIZE_KEYWORD, Integer.toString( spriteSize ) );
+        spriteSheetText.put( SpriteHeader.HEADER_SIZE_KEYWORD, Integer.toString( spriteHeaderSize ) );
+        if( nameTable != null )
+        {
+            spriteSheetText.put( SpriteHeader.NAME_TABLE_KEYWORD, SpriteHeader.encodeNameTable( nameTable ) );
+        }
+        if( ( emptyChunkNames != null ) && !emptyChunkNames.isEmpty() )
+        {
+            spriteSheetText.put( SpriteHeader.EMPTY_CHUNKS_KEYWORD, SpriteHeader.encodeNameTable( emptyChunkNames.toArray( new String[ 0 ] ) ) );
+        }
+        return spriteSheetText;
+    }
+
+    /**
+     * Encode the header row of each chunk of a sprite sheet or page. Binary headers refer to the source image
+     * names by their index in a name table, ordered by first appearance, so the table only depends on the chunks
+     * of the sprite sheet. A chunk whose header can't be encoded is left out by filling its header with the control color.
+     * @param imageChunks The image chunks in sprite sheet order, their headers are overwritten.
+     * @param imageChunkNames The names of the image chunks, formatted as NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT.
+     * @return The name table of the binary headers, or null if text headers were written.
+     */
+    private String[] encodeChunkHeaders( List<BufferedImage> imageChunks, List<String> imageChunkNames )
+    {
+        LinkedHashMap<String, Integer> nameIds = new LinkedHashMap<>();
+        for( int index = 0; index < imageChunks.size(); index++ )
+        {
+            BufferedImage imageChunk = imageChunks.get( index );
+            String imageChunkName    = imageChunkNames.get( index );
+            int[] pixels             = SpriteUtil.getPixels( imageChunk );
+            int   headerIndex        = SpriteUtil.getPixelIndex( imageChunk, 0, 0 );
+
+            long headerStartNanos = metrics.start();
+            boolean encoded;
+            if( legacyHeaders )
+            {
+                //Encrypt the header again, chunks reused from the build cache may have been built with binary headers
+                encoded = ( encryptImageNameHeader( imageChunk, imageChunkName ) != null );
+            }
+            else
+            {
+                String[] chunkInfo = SpriteUtil.splitImageChunkName( imageChunkName );
+                Integer nameId = nameIds.get( chunkInfo[ SpriteUtil.SpriteInfo.NAME.ordinal() ] );
+                if( nameId == null )
+                {
+                    nameId = nameIds.size();
+                    nameIds.put( chunkInfo[ SpriteUtil.SpriteInfo.NAME.ordinal() ], nameId );
+                }
+
+                encoded = SpriteHeader.encode( pixels, headerIndex, spriteSize, nameId,
+                                               Integer.parseInt( chunkInfo[ SpriteUtil.SpriteInfo.NUMBER.ordinal()           ] ),
+                                               Integer.parseInt( chunkInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_WIDTH.ordinal()  ] ),
+                                               Integer.parseInt( chunkInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_HEIGHT.ordinal() ] ), controlColor.getRGB() );
+                if( !encoded )
+                {
+                    System.out.println( "Error encoding: " + imageChunkName + ", sprite size limitation, requires up to " + SpriteHeader.MAX_HEADER_BYTES + " bytes of header." );
+                }
+            }
+            metrics.end( BuildMetrics.Stage.ENCODE_HEADER, headerStartNanos );
+
+            //Leave the chunk out, the parser skips chunks with a control color header as filler
+            if( !encoded )
+            {
+                Arrays.fill( pixels, headerIndex, headerIndex + spriteSize, controlColor.getRGB() );
+            }
         }
+        return legacyHeaders ? null : nameIds.keySet().toArray( new String[ 0 ] );
     }
 
     /**
@@ -139,27 +1495,28 @@ public class SpriteSheetBuilder
             return null;
         }
 
-        //Get the image's graphics for drawing
-        Graphics imageGraphics = image.getGraphics();
-        imageGraphics.setColor( controlColor );
-        imageGraphics.fillRect(pixelsRequired, 0, spriteSize - pixelsRequired, 1 );
+        //Get the pixels of the header row
+        int[] pixels      = SpriteUtil.getPixels( image );
+        int   headerIndex = SpriteUtil.getPixelIndex( image, 0, 0 );
 
-        //Create a character iterator for the image name, step the iterator back once
-        CharacterIterator iterator = new StringCharacterIterator( imageName );
+        //Fill the unused header pixels with the control color
+        Arrays.fill( pixels, headerIndex + pixelsRequired, headerIndex + spriteSize, controlColor.getRGB() );
 
-        //Draw pixels to the header with their RGBA values set to the bytes
-        for( int x = 0; x < pixelsRequired; x++ )
+        //Write opaque pixels to the header with their RGB values set to the characters
+        for( int x = 0, charIndex = 0; x < pixelsRequired; x++ )
         {
-            int red   = ( iterator.current() != CharacterIterator.DONE ) ? ( int )iterator.current() : 0;
-            int green = ( iterator.next()    != CharacterIterator.DONE ) ? ( int )iterator.current() : 0;
-            int blue  = ( iterator.next()    != CharacterIterator.DONE ) ? ( int )iterator.current() : 0;
+            int red   = ( charIndex < imageName.length() ) ? imageName.charAt( charIndex++ ) : 0;
+            int green = ( charIndex < imageName.length() ) ? imageName.charAt( charIndex++ ) : 0;
+            int blue  = ( charIndex < imageName.length() ) ? imageName.charAt( charIndex++ ) : 0;
 
-            //Create the new color with the byte values and draw a pixel
-            imageGraphics.setColor( new Color( red, green, blue ) );
-            imageGraphics.fillRect(x, 0, 1, 1 );
+            //Verify each character fits in a single color channel
+            if( ( red | green | blue ) > 0xff )
+            {
+                System.out.println( "Error encrypting: " + imageName + ", only Latin-1 characters are supported." );
+                return null;
+            }
 
-            //Move the iterator index forward for the red color next cycle
-            iterator.next();
+            pixels[ headerIndex + x ] = 0xff000000 | ( red << 16 ) | ( green << 8 ) | blue;
         }
 
         return image;
@@ -228,72 +1585,194 @@ public class SpriteSheetBuilder
 
     /**
      * Loads images from the given directory and if necessary, splits them into sprite sized chunks,
-     * before storing them in the image map used to build sprite sheets.
+     * before storing them in the image map used to build sprite sheets. Images are loaded and split
+     * in parallel as soon as the scan finds them, but the chunks are added to the image map in directory
+     * listing order so the resulting sprite sheet is identical to one built on a single thread. If two
+     * images would have the same sprite name, only the first is added. Any images loaded by a previous
+     * build are discarded.
      * @param directory The image directory with respect to the class path.
+     * @param destinationDirectory The output directory, which is not scanned for images unless it is the image directory.
+     * @param buildCache The cache to reuse unchanged chunks from and store new chunks in, or null to load every image.
      */
-    private void loadSourceImages( String directory )
+    private void loadSourceImages( String directory, String destinationDirectory, SpriteBuildCache buildCache )
     {
         //Inform the user the sprite sheeting is being built
         System.out.println( "Building from directory: " + directory );
+        imageMap.clear();
+        long loadStartNanos = metrics.start();
 
-        //Get a set of image files from the directory
-        File[] imageFiles = null;
-        try
+        //The chunks of each loaded image, keyed by the source image
+        ConcurrentHashMap<SourceImageScanner.SourceFile, LinkedHashMap<String, BufferedImage>> chunkRegistry = new ConcurrentHashMap<>();
+
+        //Scan the directory, loading and splitting each image on the worker pool as soon as it is found
+        ForkJoinPool pool = ( workerPool != null ) ? workerPool : new ForkJoinPool( parallelism );
+        ConcurrentLinkedQueue<Future<?>> tasks = new ConcurrentLinkedQueue<>();
+        List<SourceImageScanner.SourceFile> sourceFiles = sourceScanner.scan( new File( directory ), new File( destinationDirectory ), pool,
+                                                                              sourceFile -> tasks.add( pool.submit( () -> loadSourceImage( sourceFile, buildCache, chunkRegistry ) ) ) );
+
+        //Print an error if the directory could not be listed
+        if( sourceFiles == null )
         {
-            imageFiles = new File( directory ).listFiles();
+            reportFailure( "No image files found at: " + directory );
+            if( pool != workerPool )
+            {
+                pool.shutdownNow();
+            }
+            return;
         }
-        catch( NullPointerException exception )
+        if( sourceScanner.getReusedDirectories() > 0 )
         {
-            System.out.println( "Error image directory does not exist: " + directory );
-            exception.printStackTrace();
+            System.out.println( "Listed " + sourceScanner.getListedDirectories() + " directories, reused the listing of " + sourceScanner.getReusedDirectories() + " unchanged directories." );
         }
 
-        //Print an error if no files are found
-        if( imageFiles == null )
+        //Wait for every image to finish loading
+        for( Future<?> task : tasks )
         {
-            System.out.println( "No image files found at: " + directory );
+            try
+            {
+                task.get();
+            }
+            catch( InterruptedException exception )
+            {
+                Thread.currentThread().interrupt();
+                reportFailure( "Interrupted while loading images from: " + directory );
+                break;
+            }
+            catch( ExecutionException exception )
+            {
+                reportFailure( "Error loading image from: " + directory );
+                exception.getCause().printStackTrace();
+            }
         }
-        else
+        if( pool != workerPool )
         {
-            //Load each image from the directory
-            for( File image : imageFiles)
+            pool.shutdownNow();
+        }
+
+        //Add the chunks to the imageMap in directory listing order
+        HashMap<String, File> spriteNameFiles = new HashMap<>();
+        for( SourceImageScanner.SourceFile sourceFile : sourceFiles )
+        {
+            LinkedHashMap<String, BufferedImage> imageChunks = chunkRegistry.get( sourceFile );
+            if( imageChunks == null )
+            {
+                continue;
+            }
+
+            //Skip images whose sprite name is taken, such as images with the same name but another extension
+            File clashingFile = spriteNameFiles.putIfAbsent( sourceFile.spriteName, sourceFile.file );
+            if( clashingFile != null )
             {
+                System.out.println( "Error sprite name " + sourceFile.spriteName + " of " + sourceFile.file.getPath() + " clashes with " + clashingFile.getPath() + ", skipping it." );
+                continue;
+            }
 
-                //Verify the image is a supported format
-                if( SpriteUtil.isImageFileSupported( image ) )
+            for( String imageChunkName : imageChunks.keySet() )
+            {
+                //Add the image to the imageMap assuming it is not already present
+                if( !imageMap.containsKey( imageChunkName ) )
                 {
-                    System.out.println( "Loading image: " + image.getName() );
-                    try
-                    {
-                        BufferedImage loadedImage = SpriteUtil.loadImage( image.toURI().toURL() );
+                    imageMap.put( imageChunkName, imageChunks.get( imageChunkName ) );
+                }
+                else
+                {
+                    //Inform the user of an error
+                    System.out.println( "Error imageMap already contains: " + imageChunkName );
+                }
+            }
+        }
+        metrics.end( BuildMetrics.Stage.LOAD_SOURCE_IMAGES, loadStartNanos );
+        metrics.addChunks( BuildMetrics.Stage.LOAD_SOURCE_IMAGES, imageMap.size() );
+    }
+
+    /**
+     * Loads a single image file and splits it into sprite sized chunks, storing the chunks
+     * in the chunk registry under the source image. If the build cache holds the chunks of
+     * the unchanged image they are used instead. Safe to call from multiple threads.
+     * @param sourceFile The source image to load.
+     * @param buildCache The cache to reuse unchanged chunks from and store new chunks in, or null to always load the image.
+     * @param chunkRegistry The registry receiving the chunks of each loaded image.
+     */
+    private void loadSourceImage( SourceImageScanner.SourceFile sourceFile, SpriteBuildCache buildCache, ConcurrentHashMap<SourceImageScanner.SourceFile, LinkedHashMap<String, BufferedImage>> chunkRegistry )
+    {
+        //Skip loading and splitting the image if it hasn't changed since the last build, and was built under the same sprite name
+        File image = sourceFile.file;
+        LinkedHashMap<String, BufferedImage> cachedChunks = ( buildCache != null ) ? buildCache.getChunks( image ) : null;
+        if( ( cachedChunks != null ) && !cachedChunks.isEmpty() && cachedChunks.keySet().iterator().next().startsWith( sourceFile.spriteName + "." ) )
+        {
+            System.out.println( "Cached image: " + image.getName() );
+            chunkRegistry.put( sourceFile, cachedChunks );
+            return;
+        }
 
-                        if( loadedImage != null )
-                        {
-                            //Strip the extension from the image name
-                            String imageName = image.getName().substring( 0, image.getName().indexOf( '.' ) );
+        //Take the file info before reading the image, so the caches never store a newer identity with older pixels
+        long imageSize         = image.length();
+        long imageLastModified = image.lastModified();
 
-                            //Slice the image into sprite-sized chunks, and add the chunks to the imageMap
-                            splitImage( loadedImage, imageName );
-                        }
-                    }
-                    catch ( MalformedURLException exception )
-                    {
-                        System.out.println( "Error malformed URL for image: " + image.getName() );
-                        exception.printStackTrace();
-                    }
+        //Reuse the decoded image if it is still in memory from an earlier build
+        BufferedImage decodedImage = ( sourceImageCache != null ) ? sourceImageCache.get( image, imageSize, imageLastModified ) : null;
+        System.out.println( ( ( decodedImage != null ) ? "Reusing decoded image: " : "Loading image: " ) + image.getName() );
+        try
+        {
+            //Read the bytes to decode, or to hash for the build cache, a reused image only matches them if the file didn't change meanwhile
+            byte[] imageBytes = null;
+            if( ( decodedImage == null ) || ( buildCache != null ) )
+            {
+                imageBytes = Files.readAllBytes( image.toPath() );
+                if( ( image.length() != imageSize ) || ( image.lastModified() != imageLastModified ) )
+                {
+                    decodedImage = null;
+                }
+            }
+
+            BufferedImage loadedImage = decodedImage;
+            if( loadedImage == null )
+            {
+                long decodeStartNanos = metrics.start();
+                loadedImage = SpriteUtil.loadImage( new ByteArrayInputStream( imageBytes ), image.getPath() );
+                metrics.end( BuildMetrics.Stage.DECODE_SOURCE_IMAGE, decodeStartNanos );
+                metrics.addBytesRead( BuildMetrics.Stage.DECODE_SOURCE_IMAGE, imageBytes.length );
+            }
+            if( ( sourceImageCache != null ) && ( decodedImage == null ) && ( loadedImage != null ) )
+            {
+                sourceImageCache.put( image, loadedImage, imageSize, imageLastModified );
+            }
+
+            if( loadedImage != null )
+            {
+                //Slice the image into sprite-sized chunks named after the image path without the extension, and register the chunks
+                long splitStartNanos = metrics.start();
+                LinkedHashMap<String, BufferedImage> imageChunks = splitImage( loadedImage, sourceFile.spriteName );
+                metrics.end( BuildMetrics.Stage.SPLIT_IMAGE, splitStartNanos );
+                metrics.addChunks( BuildMetrics.Stage.SPLIT_IMAGE, imageChunks.size() );
+                chunkRegistry.put( sourceFile, imageChunks );
+
+                //Store the chunks under the file info taken before reading, and the hash of the bytes they were decoded from
+                if( buildCache != null )
+                {
+                    buildCache.putChunks( image, imageSize, imageLastModified, SpriteBuildCache.hashContents( imageBytes ), imageChunks );
                 }
             }
         }
+        catch( IOException exception )
+        {
+            reportFailure( "Error loading file: " + image.getPath() );
+            exception.printStackTrace();
+        }
     }
 
     /**
      * Split the image into a series of sprite-sized image chunks. Each chunk is encrypted with the name
-     * of the image plus NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT.
+     * of the image plus NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT. Safe to call from multiple threads.
      * @param image The image to split into chunks.
      * @param imageName The name of the image to split.
+     * @return The image chunks in split order, where the keys are the image chunk names.
      */
-    private void splitImage( BufferedImage image, String imageName )
+    private LinkedHashMap<String, BufferedImage> splitImage( BufferedImage image, String imageName )
     {
+        //Store the chunks in the order they are cut
+        LinkedHashMap<String, BufferedImage> imageChunks = new LinkedHashMap<>();
+
         //Determine how many sprite chunks are required for the source image, use mod to correct rounding in integer division
         int totalRows    = ( image.getHeight() / spriteSize ) + ( ( image.getHeight() % spriteSize ) == 0 ? 0 : 1 );
         int totalColumns = ( image.getWidth()  / spriteSize ) + ( ( image.getWidth()  % spriteSize ) == 0 ? 0 : 1 );
@@ -326,27 +1805,31 @@ public class SpriteSheetBuilder
                 destinationX2 = ( ( sourceX2 == image.getWidth()  ) && ( sourceX2 % spriteSize != 0 ) ) ? ( sourceX2 % spriteSize ) : spriteSize;
                 destinationY2 = ( ( sourceY2 == image.getHeight() ) && ( sourceY2 % spriteSize != 0 ) ) ? ( sourceY2 % spriteSize ) : spriteSize;
 
-                //Draw a chunk of the original image as a new image, leave the header empty
-                imageChunk.getGraphics().drawImage( image, 0, spriteHeaderSize, destinationX2, destinationY2 + spriteHeaderSize, sourceX1, sourceY1, sourceX2, sourceY2, null );
+                //Copy a chunk of the original image into the new image, leave the header empty
+                SpriteUtil.copyPixels( image, sourceX1, sourceY1, destinationX2, destinationY2, imageChunk, 0, spriteHeaderSize );
 
-                //Encrypt the name of the image into a header row of pixels, add .NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT
+                //Name the chunk NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT, its header is encoded when the sprite sheet is written,
+                //but text headers are encrypted up front as well, so names that don't fit are left out of the sprite sheet
                 String imageChunkName = ( imageName + "." + index + "." + image.getWidth() + "." + image.getHeight() );
-                imageChunk = encryptImageNameHeader( imageChunk, imageChunkName );
-
-                //Add the image to the imageMap assuming it is not already present
-                if( !imageMap.containsKey( imageName ) )
+                if( legacyHeaders )
                 {
-                    imageMap.put( imageChunkName, imageChunk );
+                    imageChunk = encryptImageNameHeader( imageChunk, imageChunkName );
                 }
-                else
+                else if( imageName.indexOf( '\n' ) >= 0 )
                 {
-                    //Inform the user of an error
-                    System.out.println( "Error imageMap already contains: " + imageChunkName );
+                    //The name table holds a name per line
+                    System.out.println( "Error encoding: " + imageChunkName + ", names can't contain line breaks." );
+                    imageChunk = null;
                 }
 
+                //Add the chunk to the split result
+                imageChunks.put( imageChunkName, imageChunk );
+
                 //Increment the index
                 index++;
             }
         }
+
+        return imageChunks;
     }
 }
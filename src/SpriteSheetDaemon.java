@@ -0,0 +1,790 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SpriteSheetDaemon
+{
+    /** The pool jobs run on, shared by every job for loading source images and writing pages */
+    private ForkJoinPool workerPool;
+    /** The decoded source images kept in memory across jobs */
+    private SourceImageCache sourceImageCache;
+    /** The number of threads each job encodes parsed images with */
+    private int parallelism;
+    /** The locks serializing jobs writing the same files, keyed by the absolute path of the sprite sheet a build writes or the destination directory of a parse */
+    private ConcurrentHashMap<String, Object> destinationLocks;
+    /** The number of jobs completed and failed since the daemon started */
+    private AtomicInteger jobsCompleted;
+    private AtomicInteger jobsFailed;
+    /** Whether the daemon is still accepting jobs */
+    private volatile boolean running;
+    /** The socket connections are accepted on, or null if requests are read from a single stream */
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * The SpriteSheetDaemon class keeps a warm JVM running that builds and parses sprite sheets on request,
+     * so repeated builds skip JVM startup, ImageIO initialization, and JIT warm up, and reuse the source
+     * images decoded by earlier builds. Requests are read one per line as flat JSON objects, from a stream
+     * such as stdin or from local socket connections, and run concurrently on a shared pool. A response
+     * is written as a single line JSON object when each job completes, in completion order.
+     * <p>
+     * Requests: {"id": "1", "command": "build", "spriteSize": 30, "source": "src/Images", "destination": "src/Sprites"}
+     * <br>{"command": "parse", "sheet": "src/Sprites/spritesheet_30.png", "destination": "src/Sprites"}
+     * <br>{"command": "stats"} and {"command": "shutdown"}
+     * <p>
+     * Build requests accept the optional options packed, deduplicate, incremental, streaming, palette, maxPageSize,
+     * compression, filter, recursive, and include and exclude globs separated by semicolons. Parse requests accept streaming, and
+     * spriteSize, which is only required by sprite sheets built by older versions of the tool. Both accept metrics, adding the per-stage metrics
+     * report of the job to its response, and jfr, also emitting a JFR event per stage. Responses echo the id, with
+     * the status ok or error. runBatch runs a whole manifest of requests in one pass.
+     * @param parallelism The positive, non-zero number of threads jobs run on.
+     * @param maxCachedPixels The maximum total number of pixels of the decoded source images kept in memory.
+     */
+    public SpriteSheetDaemon( int parallelism, long maxCachedPixels )
+    {
+        this.parallelism      = Math.max( 1, parallelism );
+        this.workerPool       = new ForkJoinPool( this.parallelism );
+        this.sourceImageCache = new SourceImageCache( maxCachedPixels );
+        this.destinationLocks = new ConcurrentHashMap<>();
+        this.jobsCompleted    = new AtomicInteger();
+        this.jobsFailed       = new AtomicInteger();
+        this.running          = true;
+    }
+
+    /**
+     * Read requests from a stream until it ends or a shutdown request is read, running each job on the
+     * shared pool and writing its response to the output. Returns once every job read from the stream is done.
+     * @param input The stream to read requests from.
+     * @param output The stream to write responses to.
+     */
+    public void serve( InputStream input, PrintStream output )
+    {
+        //Track the jobs of this stream, so the stream isn't closed before their responses are written
+        Phaser pendingJobs = new Phaser( 1 );
+        try
+        {
+            BufferedReader reader = new BufferedReader( new InputStreamReader( input, StandardCharsets.UTF_8 ) );
+            String line;
+            while( running && ( ( line = reader.readLine() ) != null ) )
+            {
+                if( !line.trim().isEmpty() )
+                {
+                    handleRequest( line, output, pendingJobs );
+                }
+            }
+        }
+        catch( IOException exception )
+        {
+            System.out.println( "Error reading daemon requests." );
+            exception.printStackTrace();
+        }
+
+        pendingJobs.arriveAndAwaitAdvance();
+    }
+
+    /**
+     * Accept connections on a local port until a shutdown request is read, serving the requests
+     * of each connection on its own thread. Returns once every job is done.
+     * @param port The port to listen on, bound to the loopback address only.
+     * @throws IOException If the port could not be bound.
+     */
+    public void listen( int port ) throws IOException
+    {
+        serverSocket = new ServerSocket( port, 50, InetAddress.getLoopbackAddress() );
+        System.out.println( "Daemon listening on " + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort() );
+
+        while( running )
+        {
+            try
+            {
+                Socket connection = serverSocket.accept();
+                Thread connectionThread = new Thread( () -> serveConnection( connection ), "daemon-connection-" + connection.getPort() );
+                connectionThread.setDaemon( true );
+                connectionThread.start();
+            }
+            catch( IOException exception )
+            {
+                //The server socket is closed by a shutdown request
+                if( running )
+                {
+                    System.out.println( "Error accepting daemon connection." );
+                    exception.printStackTrace();
+                }
+            }
+        }
+
+        close();
+    }
+
+    /**
+     * Stop accepting jobs, wait for the running jobs to finish, and stop the shared pool.
+     */
+    public void close()
+    {
+        shutdown();
+        workerPool.shutdown();
+        try
+        {
+            workerPool.awaitTermination( Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+        }
+        catch( InterruptedException exception )
+        {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println( "Daemon stopped after " + jobsCompleted.get() + " jobs, " + jobsFailed.get() + " failed." );
+    }
+
+    /**
+     * Run every build and parse request of a manifest file in one pass, writing a response per job and a final
+     * batch response reporting the aggregate throughput. The manifest holds one request per line, in the same
+     * format as daemon requests, blank lines and lines starting with # are skipped. Requests without an id are
+     * given their line number. The builds of each source directory share its decoded images: the first build
+     * decodes them into the image cache, then the builds of the other sprite sizes run side by side, each slicing
+     * the cached images. Builds of different source directories run concurrently. Builds writing the same sprite
+     * sheet, with the same sprite size and destination, still run one at a time, each holding a pool thread while
+     * it waits. Parses run once every build is done, so they may read the sheets built by the same manifest.
+     * @param manifest The manifest file.
+     * @param output The stream to write responses to.
+     * @return The number of jobs that failed, including malformed requests.
+     * @throws IOException If the manifest could not be read.
+     */
+    public int runBatch( File manifest, PrintStream output ) throws IOException
+    {
+        long startNanos   = System.nanoTime();
+        int  failedBefore = jobsFailed.get();
+        int  doneBefore   = jobsCompleted.get() + failedBefore;
+        long hitsBefore   = sourceImageCache.getHits();
+        long missesBefore = sourceImageCache.getMisses();
+
+        //Read every request up front, grouping the builds by source directory
+        LinkedHashMap<String, List<Map<String, String>>> buildsBySource = new LinkedHashMap<>();
+        List<Map<String, String>> parses = new ArrayList<>();
+        try( BufferedReader reader = Files.newBufferedReader( manifest.toPath(), StandardCharsets.UTF_8 ) )
+        {
+            String line;
+            int lineNumber = 0;
+            while( ( line = reader.readLine() ) != null )
+            {
+                lineNumber++;
+                line = line.trim();
+                if( line.isEmpty() || line.startsWith( "#" ) )
+                {
+                    continue;
+                }
+
+                Map<String, String> request;
+                try
+                {
+                    request = parseRequest( line );
+                }
+                catch( IllegalArgumentException exception )
+                {
+                    jobsFailed.incrementAndGet();
+                    writeResponse( output, Integer.toString( lineNumber ), null, "error", 0, exception.getMessage() );
+                    continue;
+                }
+
+                request.putIfAbsent( "id", Integer.toString( lineNumber ) );
+                String command = request.getOrDefault( "command", "" );
+                if( command.equals( "build" ) )
+                {
+                    String source = request.getOrDefault( "source", "" );
+                    buildsBySource.computeIfAbsent( new File( source ).getAbsolutePath(), key -> new ArrayList<>() ).add( request );
+                }
+                else if( command.equals( "parse" ) )
+                {
+                    parses.add( request );
+                }
+                else
+                {
+                    jobsFailed.incrementAndGet();
+                    writeResponse( output, request.get( "id" ), command, "error", 0, "Unsupported batch command: " + command );
+                }
+            }
+        }
+
+        //Run the first build of each source directory alone, so its images are decoded once, then the rest side by side
+        BuildMetrics batchMetrics = new BuildMetrics( true, false );
+        Phaser pendingJobs = new Phaser( 1 );
+        for( List<Map<String, String>> builds : buildsBySource.values() )
+        {
+            submitJob( () ->
+            {
+                runJob( builds.get( 0 ), output, batchMetrics );
+                for( Map<String, String> build : builds.subList( 1, builds.size() ) )
+                {
+                    submitJob( () -> runJob( build, output, batchMetrics ), pendingJobs );
+                }
+            }, pendingJobs );
+        }
+        pendingJobs.arriveAndAwaitAdvance();
+
+        for( Map<String, String> parse : parses )
+        {
+            submitJob( () -> runJob( parse, output, batchMetrics ), pendingJobs );
+        }
+        pendingJobs.arriveAndAwaitAdvance();
+
+        //Report the aggregate throughput of the batch
+        long   elapsedNanos = System.nanoTime() - startNanos;
+        double seconds      = Math.max( elapsedNanos / 1e9, 1e-9 );
+        int    failed       = jobsFailed.get() - failedBefore;
+        int    jobs         = jobsCompleted.get() + jobsFailed.get() - doneBefore;
+        long   slicedImages = batchMetrics.getCalls( BuildMetrics.Stage.SPLIT_IMAGE );
+        long   chunks       = batchMetrics.getChunks( BuildMetrics.Stage.SPLIT_IMAGE ) + batchMetrics.getChunks( BuildMetrics.Stage.ADD_SPRITE );
+        double megabytesRead    = ( batchMetrics.getBytesRead( BuildMetrics.Stage.DECODE_SOURCE_IMAGE ) + batchMetrics.getBytesRead( BuildMetrics.Stage.LOAD_SPRITE_SHEET ) ) / 1e6;
+        double megabytesWritten = ( batchMetrics.getBytesWritten( BuildMetrics.Stage.WRITE_SPRITE_SHEET ) + batchMetrics.getBytesWritten( BuildMetrics.Stage.WRITE_SPRITE ) ) / 1e6;
+        String message = String.format( Locale.ROOT, "%d jobs in %.2f s, %d failed. %d source images sliced from %d decodes (%.1f images/s), %d sprites (%.1f sprites/s), "
+                                        + "%.2f MB read and %.2f MB written (%.2f MB/s), %d cache hits, %d misses",
+                                        jobs, seconds, failed, slicedImages, batchMetrics.getCalls( BuildMetrics.Stage.DECODE_SOURCE_IMAGE ), slicedImages / seconds,
+                                        chunks, chunks / seconds, megabytesRead, megabytesWritten, ( megabytesRead + megabytesWritten ) / seconds,
+                                        sourceImageCache.getHits() - hitsBefore, sourceImageCache.getMisses() - missesBefore );
+        writeResponse( output, null, "batch", ( failed == 0 ) ? "ok" : "error", elapsedNanos, message, batchMetrics.toJson() );
+        return failed;
+    }
+
+    /**
+     * Serve the requests of a single socket connection, closing it once every job is done.
+     * @param connection The connection to serve.
+     */
+    private void serveConnection( Socket connection )
+    {
+        try( Socket socket = connection )
+        {
+            PrintStream output = new PrintStream( socket.getOutputStream(), true, "UTF-8" );
+            serve( socket.getInputStream(), output );
+        }
+        catch( IOException exception )
+        {
+            System.out.println( "Error serving daemon connection." );
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Stop accepting requests, unblocking the accept loop if listening on a socket.
+     */
+    private void shutdown()
+    {
+        running = false;
+        ServerSocket socket = serverSocket;
+        if( socket != null )
+        {
+            try
+            {
+                socket.close();
+            }
+            catch( IOException exception )
+            {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Handle a single request line. Build and parse jobs are submitted to the shared pool,
+     * stats and shutdown requests are answered immediately.
+     * @param line The request, a flat JSON object.
+     * @param output The stream to write the response to.
+     * @param pendingJobs The jobs of the stream the request was read from.
+     */
+    private void handleRequest( String line, PrintStream output, Phaser pendingJobs )
+    {
+        Map<String, String> request;
+        try
+        {
+            request = parseRequest( line );
+        }
+        catch( IllegalArgumentException exception )
+        {
+            writeResponse( output, null, null, "error", 0, exception.getMessage() );
+            return;
+        }
+
+        String id      = request.get( "id" );
+        String command = request.getOrDefault( "command", "" );
+        switch( command )
+        {
+            case "build": //Intentional fallthrough
+            case "parse":
+                try
+                {
+                    submitJob( () -> runJob( request, output, null ), pendingJobs );
+                }
+                catch( RejectedExecutionException exception )
+                {
+                    //The daemon shut down while the request was being read
+                    writeResponse( output, id, command, "error", 0, "The daemon is shutting down." );
+                }
+                break;
+
+            case "stats":
+                writeResponse( output, id, command, "ok", 0, String.format( Locale.ROOT, "%d jobs completed, %d failed, %d active threads, %d cached images of %d pixels, %d cache hits, %d misses",
+                               jobsCompleted.get(), jobsFailed.get(), workerPool.getActiveThreadCount(), sourceImageCache.size(), sourceImageCache.getCachedPixels(),
+                               sourceImageCache.getHits(), sourceImageCache.getMisses() ) );
+                break;
+
+            case "shutdown":
+                writeResponse( output, id, command, "ok", 0, "Shutting down after the running jobs." );
+                shutdown();
+                break;
+
+            default:
+                writeResponse( output, id, command, "error", 0, "Unknown command: " + command );
+                break;
+        }
+    }
+
+    /**
+     * Run a job on the shared pool, tracking it until it is done.
+     * @param job The job to run.
+     * @param pendingJobs The jobs to track the job with.
+     * @throws RejectedExecutionException If the pool has shut down, the job is not tracked.
+     */
+    private void submitJob( Runnable job, Phaser pendingJobs )
+    {
+        pendingJobs.register();
+        try
+        {
+            workerPool.execute( () ->
+            {
+                try
+                {
+                    job.run();
+                }
+                finally
+                {
+                    pendingJobs.arriveAndDeregister();
+                }
+            } );
+        }
+        catch( RejectedExecutionException exception )
+        {
+            pendingJobs.arriveAndDeregister();
+            throw exception;
+        }
+    }
+
+    /**
+     * Run a build or parse job with a manager sharing the daemon's pool and image cache, and write its response.
+     * Builds writing the same sprite sheet, and parses writing to the same destination directory, run one at a time. Runs on the shared pool.
+     * @param request The fields of the request.
+     * @param output The stream to write the response to.
+     * @param batchMetrics The metrics of the batch the job is part of, recording the job unless it requests
+     *                     its own metrics, which are added to the batch once it is done. Null if not part of a batch.
+     */
+    private void runJob( Map<String, String> request, PrintStream output, BuildMetrics batchMetrics )
+    {
+        String id        = request.get( "id" );
+        String command   = request.get( "command" );
+        long   startNanos = System.nanoTime();
+        try
+        {
+            //Validate the request and configure a manager for it
+            String destination = request.get( "destination" );
+            int spriteSize = requireSpriteSize( request, command );
+            SpriteSheetManager manager = new SpriteSheetManager( spriteSize, parallelism );
+            manager.setWorkerPool( workerPool );
+            manager.setSourceImageCache( sourceImageCache );
+
+            //Record the metrics of the job if requested, the peak heap usage covers every job running alongside it
+            boolean jfrEvents   = Boolean.parseBoolean( request.get( "jfr" ) );
+            BuildMetrics metrics = ( Boolean.parseBoolean( request.get( "metrics" ) ) || jfrEvents ) ? new BuildMetrics( true, jfrEvents ) : null;
+            manager.setMetrics( ( metrics == null ) ? batchMetrics : metrics );
+
+            String input;
+            if( command.equals( "build" ) )
+            {
+                input = require( request, "source" );
+                require( request, "destination" );
+                if( !new File( input ).isDirectory() )
+                {
+                    throw new IllegalArgumentException( "Source directory does not exist: " + input );
+                }
+
+                manager.setPackedLayout(      Boolean.parseBoolean( request.get( "packed" ) ) );
+                manager.setDeduplicateChunks( Boolean.parseBoolean( request.get( "deduplicate" ) ) );
+                manager.setIncrementalBuild(  Boolean.parseBoolean( request.get( "incremental" ) ) );
+                manager.setStreamingOutput(   Boolean.parseBoolean( request.get( "streaming" ) ) );
+                manager.setPaletteOutput(     Boolean.parseBoolean( request.get( "palette" ) ) );
+                manager.setLegacyHeaders(     Boolean.parseBoolean( request.get( "legacyHeaders" ) ) );
+                manager.setRgbaOutput(        Boolean.parseBoolean( request.get( "rgba" ) ) );
+                manager.setMappedOutput(      Boolean.parseBoolean( request.get( "mapped" ) ) );
+                manager.setMappedCompression( Boolean.parseBoolean( request.get( "mappedCompression" ) ) );
+                manager.setTrimChunks(        Boolean.parseBoolean( request.get( "trim" ) ) );
+                manager.setRecursiveScan(     Boolean.parseBoolean( request.get( "recursive" ) ) );
+                manager.setIncludeGlobs( request.containsKey( "include" ) ? Arrays.asList( request.get( "include" ).split( ";" ) ) : null );
+                manager.setExcludeGlobs( request.containsKey( "exclude" ) ? Arrays.asList( request.get( "exclude" ).split( ";" ) ) : null );
+                manager.setMaxPageSize( request.containsKey( "maxPageSize" ) ? requireInt( request, "maxPageSize" ) : 0 );
+                if( request.containsKey( "compression" ) || request.containsKey( "filter" ) )
+                {
+                    int level = request.containsKey( "compression" ) ? requireInt( request, "compression" ) : PngEncoderSettings.DEFAULT_COMPRESSION;
+                    String filter = request.getOrDefault( "filter", PngEncoderSettings.FilterStrategy.ADAPTIVE.name() );
+                    manager.setPngEncoderSettings( new PngEncoderSettings( level, PngEncoderSettings.FilterStrategy.valueOf( filter.toUpperCase( Locale.ROOT ) ) ) );
+                }
+            }
+            else
+            {
+                input = require( request, "sheet" );
+                manager.setStreamingInput( Boolean.parseBoolean( request.get( "streaming" ) ) );
+            }
+
+            //Serialize jobs writing the same files, run the rest side by side. Builds only write the files of their own sprite
+            //size, parses write files named after the parsed images, which may be in any sprite sheet parsed to the same directory
+            String lockPath = ( destination == null ) ? null : command.equals( "build" ) ? new File( destination, "spritesheet_" + spriteSize ).getAbsolutePath() : new File( destination ).getAbsolutePath();
+            Object destinationLock = ( lockPath == null ) ? new Object() : destinationLocks.computeIfAbsent( lockPath, key -> new Object() );
+            synchronized( destinationLock )
+            {
+                if( command.equals( "build" ) && !manager.buildSpriteSheet( input, destination ) )
+                {
+                    throw new IllegalStateException( manager.getBuildFailure() );
+                }
+                if( command.equals( "parse" ) && !manager.parseSpriteSheet( input, destination ) )
+                {
+                    throw new IllegalStateException( manager.getParseFailure() );
+                }
+            }
+
+            if( ( batchMetrics != null ) && ( metrics != null ) )
+            {
+                batchMetrics.merge( metrics );
+            }
+            jobsCompleted.incrementAndGet();
+            writeResponse( output, id, command, "ok", System.nanoTime() - startNanos, null, ( metrics == null ) ? null : metrics.toJson() );
+        }
+        catch( RuntimeException exception )
+        {
+            jobsFailed.incrementAndGet();
+            writeResponse( output, id, command, "error", System.nanoTime() - startNanos, String.valueOf( exception.getMessage() ) );
+        }
+    }
+
+    /**
+     * Get a required field of a request.
+     * @param request The fields of the request.
+     * @param field The name of the field.
+     * @return The value of the field.
+     */
+    private static String require( Map<String, String> request, String field )
+    {
+        String value = request.get( field );
+        if( value == null )
+        {
+            throw new IllegalArgumentException( "Missing field: " + field );
+        }
+        return value;
+    }
+
+    /**
+     * Get the sprite size of a request. Parse requests without a sprite size use the sprite size
+     * recorded in the sprite sheet, reading only its metadata.
+     * @param request The fields of the request.
+     * @param command The command of the request.
+     * @return The sprite size.
+     */
+    private static int requireSpriteSize( Map<String, String> request, String command )
+    {
+        if( command.equals( "parse" ) && !request.containsKey( "spriteSize" ) )
+        {
+            int spriteSize = SpriteSheetParser.detectSpriteSize( require( request, "sheet" ) );
+            if( spriteSize <= 0 )
+            {
+                throw new IllegalArgumentException( "Missing field: spriteSize, the sprite sheet doesn't record its sprite size." );
+            }
+            return spriteSize;
+        }
+        return requireInt( request, "spriteSize" );
+    }
+
+    /**
+     * Get a required integer field of a request.
+     * @param request The fields of the request.
+     * @param field The name of the field.
+     * @return The value of the field.
+     */
+    private static int requireInt( Map<String, String> request, String field )
+    {
+        String value = require( request, field );
+        try
+        {
+            return Integer.parseInt( value );
+        }
+        catch( NumberFormatException exception )
+        {
+            throw new IllegalArgumentException( "Invalid non-numeric " + field + ": " + value );
+        }
+    }
+
+    /**
+     * Write a single line response.
+     * @param output The stream to write the response to.
+     * @param id The id of the request, or null if it had none.
+     * @param command The command of the request, or null if it could not be read.
+     * @param status The status of the request, ok or error.
+     * @param elapsedNanos The time the job took in nanoseconds.
+     * @param message A message describing the result, or null for none.
+     */
+    private static void writeResponse( PrintStream output, String id, String command, String status, long elapsedNanos, String message )
+    {
+        writeResponse( output, id, command, status, elapsedNanos, message, null );
+    }
+
+    /**
+     * Write a single line response.
+     * @param output The stream to write the response to.
+     * @param id The id of the request, or null if it had none.
+     * @param command The command of the request, or null if it could not be read.
+     * @param status The status of the request, ok or error.
+     * @param elapsedNanos The time the job took in nanoseconds.
+     * @param message A message describing the result, or null for none.
+     * @param metrics The JSON metrics report of the job, written as is, or null for none.
+     */
+    private static void writeResponse( PrintStream output, String id, String command, String status, long elapsedNanos, String message, String metrics )
+    {
+        StringBuilder response = new StringBuilder( "{" );
+        if( id != null )
+        {
+            response.append( "\"id\": " ).append( quote( id ) ).append( ", " );
+        }
+        if( command != null )
+        {
+            response.append( "\"command\": " ).append( quote( command ) ).append( ", " );
+        }
+        response.append( "\"status\": " ).append( quote( status ) );
+        response.append( String.format( Locale.ROOT, ", \"millis\": %.1f", elapsedNanos / 1e6 ) );
+        if( message != null )
+        {
+            response.append( ", \"message\": " ).append( quote( message ) );
+        }
+        if( metrics != null )
+        {
+            response.append( ", \"metrics\": " ).append( metrics );
+        }
+        response.append( "}" );
+
+        synchronized( output )
+        {
+            output.println( response );
+            output.flush();
+        }
+    }
+
+    /**
+     * Parse a request, a flat JSON object whose values are strings, numbers, booleans, or null.
+     * Every value is returned as a string, null values are left out.
+     * @param line The request line.
+     * @return The fields of the request in order.
+     * @throws IllegalArgumentException If the line is not a flat JSON object.
+     */
+    static Map<String, String> parseRequest( String line )
+    {
+        LinkedHashMap<String, String> fields = new LinkedHashMap<>();
+        int[] position = { 0 };
+
+        expect( line, position, '{' );
+        if( peek( line, position ) == '}' )
+        {
+            position[ 0 ]++;
+        }
+        else
+        {
+            while( true )
+            {
+                String field = readString( line, position );
+                expect( line, position, ':' );
+                String value = readValue( line, position );
+                if( value != null )
+                {
+                    fields.put( field, value );
+                }
+
+                char next = peek( line, position );
+                position[ 0 ]++;
+                if( next == '}' )
+                {
+                    break;
+                }
+                if( next != ',' )
+                {
+                    throw new IllegalArgumentException( "Malformed request, expected , or } at " + ( position[ 0 ] - 1 ) );
+                }
+            }
+        }
+
+        if( peek( line, position ) != 0 )
+        {
+            throw new IllegalArgumentException( "Malformed request, unexpected text after the request at " + position[ 0 ] );
+        }
+        return fields;
+    }
+
+    /**
+     * Skip whitespace and return the next character of a request without consuming it.
+     * @param line The request line.
+     * @param position The current position in the line, updated past the whitespace.
+     * @return The next character, or 0 at the end of the line.
+     */
+    private static char peek( String line, int[] position )
+    {
+        while( ( position[ 0 ] < line.length() ) && Character.isWhitespace( line.charAt( position[ 0 ] ) ) )
+        {
+            position[ 0 ]++;
+        }
+        return ( position[ 0 ] < line.length() ) ? line.charAt( position[ 0 ] ) : 0;
+    }
+
+    /**
+     * Consume the next character of a request, which must be the expected character.
+     * @param line The request line.
+     * @param position The current position in the line.
+     * @param expected The expected character.
+     */
+    private static void expect( String line, int[] position, char expected )
+    {
+        if( peek( line, position ) != expected )
+        {
+            throw new IllegalArgumentException( "Malformed request, expected " + expected + " at " + position[ 0 ] );
+        }
+        position[ 0 ]++;
+    }
+
+    /**
+     * Read a JSON string of a request, decoding its escape sequences.
+     * @param line The request line.
+     * @param position The current position in the line.
+     * @return The decoded string.
+     */
+    private static String readString( String line, int[] position )
+    {
+        expect( line, position, '"' );
+        StringBuilder value = new StringBuilder();
+        while( position[ 0 ] < line.length() )
+        {
+            char character = line.charAt( position[ 0 ]++ );
+            if( character == '"' )
+            {
+                return value.toString();
+            }
+            if( character != '\\' )
+            {
+                value.append( character );
+                continue;
+            }
+
+            if( position[ 0 ] >= line.length() )
+            {
+                break;
+            }
+            char escaped = line.charAt( position[ 0 ]++ );
+            switch( escaped )
+            {
+                case 'b': value.append( '\b' ); break;
+                case 'f': value.append( '\f' ); break;
+                case 'n': value.append( '\n' ); break;
+                case 'r': value.append( '\r' ); break;
+                case 't': value.append( '\t' ); break;
+                case 'u':
+                    if( position[ 0 ] + 4 > line.length() )
+                    {
+                        throw new IllegalArgumentException( "Malformed request, truncated escape at " + position[ 0 ] );
+                    }
+                    try
+                    {
+                        value.append( ( char )Integer.parseInt( line.substring( position[ 0 ], position[ 0 ] + 4 ), 16 ) );
+                    }
+                    catch( NumberFormatException exception )
+                    {
+                        throw new IllegalArgumentException( "Malformed request, invalid escape at " + position[ 0 ] );
+                    }
+                    position[ 0 ] += 4;
+                    break;
+                default:  value.append( escaped ); break;
+            }
+        }
+        throw new IllegalArgumentException( "Malformed request, unterminated string." );
+    }
+
+    /**
+     * Read a JSON value of a request: a string, number, boolean, or null.
+     * @param line The request line.
+     * @param position The current position in the line.
+     * @return The value as a string, or null for a null value.
+     */
+    private static String readValue( String line, int[] position )
+    {
+        if( peek( line, position ) == '"' )
+        {
+            return readString( line, position );
+        }
+
+        //Numbers, booleans, and null run until the next delimiter
+        int start = position[ 0 ];
+        while( ( position[ 0 ] < line.length() ) && ( ",}".indexOf( line.charAt( position[ 0 ] ) ) < 0 ) && !Character.isWhitespace( line.charAt( position[ 0 ] ) ) )
+        {
+            position[ 0 ]++;
+        }
+
+        String value = line.substring( start, position[ 0 ] );
+        if( value.isEmpty() || ( !value.equals( "true" ) && !value.equals( "false" ) && !value.equals( "null" ) && !value.matches( "-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?" ) ) )
+        {
+            throw new IllegalArgumentException( "Malformed request, unsupported value at " + start + ": " + value );
+        }
+        return value.equals( "null" ) ? null : value;
+    }
+
+    /**
+     * Quote a string as a JSON string, escaping quotes, backslashes, and control characters.
+     * @param value The string to quote.
+     * @return The quoted string.
+     */
+    private static String quote( String value )
+    {
+        StringBuilder quoted = new StringBuilder( "\"" );
+        for( int i = 0; i < value.length(); i++ )
+        {
+            char character = value.charAt( i );
+            switch( character )
+            {
+                case '"':  quoted.append( "\\\"" ); break;
+                case '\\': quoted.append( "\\\\" ); break;
+                case '\n': quoted.append( "\\n"  ); break;
+                case '\r': quoted.append( "\\r"  ); break;
+                case '\t': quoted.append( "\\t"  ); break;
+                default:
+                    if( character < 0x20 )
+                    {
+                        quoted.append( String.format( "\\u%04x", ( int )character ) );
+                    }
+                    else
+                    {
+                        quoted.append( character );
+                    }
+                    break;
+            }
+        }
+        return quoted.append( '"' ).toString();
+    }
+}
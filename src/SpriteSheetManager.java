@@ -1,4 +1,13 @@
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author Logan Karstetter
@@ -25,6 +34,18 @@ public class SpriteSheetManager
      * @param spriteSize The desired positive, non-zero sprite width and height.
      */
     public SpriteSheetManager( int spriteSize )
+    {
+        this( spriteSize, Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * The SpriteSheetManager class is used to build and parse sprite sheets with
+     * respect to a provided sprite size variable used to determine the width and
+     * height of each sprite.
+     * @param spriteSize The desired positive, non-zero sprite width and height.
+     * @param parallelism The positive, non-zero number of threads used to load source images and encode parsed images.
+     */
+    public SpriteSheetManager( int spriteSize, int parallelism )
     {
         //Validate and store the sprite size
         if( spriteSize <= 0 )
@@ -34,8 +55,8 @@ public class SpriteSheetManager
         int filteredSpriteSize = ( spriteSize <= 0 ) ? DEFAULT_SPRITE_SIZE : spriteSize;
 
         //Initialize the sprite sheet builder and parser
-        builder = new SpriteSheetBuilder( filteredSpriteSize, SPRITE_HEADER, CTRL_COLOR );
-        parser  = new SpriteSheetParser(  filteredSpriteSize, SPRITE_HEADER, CTRL_COLOR );
+        builder = new SpriteSheetBuilder( filteredSpriteSize, SPRITE_HEADER, CTRL_COLOR, parallelism );
+        parser  = new SpriteSheetParser(  filteredSpriteSize, SPRITE_HEADER, CTRL_COLOR, parallelism );
     }
 
     /**
@@ -43,10 +64,272 @@ public class SpriteSheetManager
      * and output the result in the given destination directory.
      * @param sourceDirectory The path to the directory containing images.
      * @param destinationDirectory The path to the output directory.
+     * @return True if the sprite sheet was built, false if the build failed, see getBuildFailure.
+     */
+    public boolean buildSpriteSheet( String sourceDirectory, String destinationDirectory )
+    {
+        return builder.buildSpriteSheet( sourceDirectory, destinationDirectory );
+    }
+
+    /**
+     * Get the first error that left the last sprite sheet built from a directory incomplete.
+     * @return The message describing the error, or null if the last build succeeded.
+     */
+    public String getBuildFailure()
+    {
+        return builder.getFailure();
+    }
+
+    /**
+     * Build a sprite sheet in memory from the given images, without touching the disk. The sprites are placed
+     * in a single grid, the packed layout, deduplication, and page options only apply to sprite sheets built from
+     * directories. Safe to call from multiple threads, as long as the settings aren't changed meanwhile.
+     * @param images The source images keyed by name.
+     * @return The sprite sheet, which can be parsed as is or encoded with encodePng, or null if no image could be added.
+     */
+    public BufferedImage buildSpriteSheet( Map<String, BufferedImage> images )
+    {
+        return builder.composeSpriteSheet( images );
+    }
+
+    /**
+     * Build a sprite sheet in memory from encoded images, such as uploaded .png files, without touching the disk.
+     * See buildSpriteSheet( Map ), images that can't be decoded are left out. Safe to call from multiple threads.
+     * @param imageInputs The streams holding the encoded source images keyed by name, which are left open.
+     * @return The sprite sheet, or null if no image could be added.
+     * @throws IOException If an image stream could not be read.
+     */
+    public BufferedImage buildSpriteSheetFromStreams( Map<String, InputStream> imageInputs ) throws IOException
+    {
+        LinkedHashMap<String, BufferedImage> images = new LinkedHashMap<>();
+        for( Map.Entry<String, InputStream> imageInput : imageInputs.entrySet() )
+        {
+            BufferedImage image = SpriteUtil.loadImage( imageInput.getValue(), imageInput.getKey() );
+            if( image != null )
+            {
+                images.put( imageInput.getKey(), image );
+            }
+        }
+        return builder.composeSpriteSheet( images );
+    }
+
+    /**
+     * Encode a sprite sheet built in memory, or a parsed sprite, as a .png file in memory with the .png encoder
+     * settings and palette output of this manager. Encoded sprite sheets keep the metadata needed to parse them.
+     * Safe to call from multiple threads.
+     * @param image The sprite sheet or sprite to encode.
+     * @return A heap buffer holding the .png file, positioned at its start.
+     * @throws IOException If the image could not be encoded.
+     */
+    public ByteBuffer encodePng( BufferedImage image ) throws IOException
+    {
+        return builder.encodeSpriteSheet( image );
+    }
+
+    /**
+     * Build a packed sprite sheet of raw RGBA8 pixels from the given images, held off the Java heap in a direct
+     * buffer, or written to a .rgba file mapped into memory. The pixels can be uploaded to a texture as is, and the
+     * region table records where each sprite was placed. Safe to call from multiple threads.
+     * @param images The source images keyed by name.
+     * @param rgbaFile The .rgba file to write, or null to keep the sprite sheet in a direct buffer only.
+     * @return The sprite sheet, or null if no image could be added.
+     * @throws IOException If the file could not be written or the sprite sheet doesn't fit in a single buffer.
      */
-    public void buildSpriteSheet( String sourceDirectory, String destinationDirectory )
+    public RgbaSpriteSheet buildRgbaSpriteSheet( Map<String, BufferedImage> images, File rgbaFile ) throws IOException
     {
-        builder.buildSpriteSheet( sourceDirectory, destinationDirectory );
+        return builder.composeRgbaSpriteSheet( images, rgbaFile );
+    }
+
+    /**
+     * Set whether built sprite sheets are composed and written one row of sprites at a time,
+     * reducing peak memory for large sprite sheets.
+     * @param streamingOutput True to stream the sprite sheet output, false otherwise.
+     */
+    public void setStreamingOutput( boolean streamingOutput )
+    {
+        builder.setStreamingOutput( streamingOutput );
+    }
+
+    /**
+     * Set the compression level and row filter used to encode built sprite sheets and parsed sprites,
+     * trading file size against speed, such as PngEncoderSettings.STORED for fast local iterations.
+     * @param pngEncoderSettings The .png encoder settings, PngEncoderSettings.DEFAULT matches previous output.
+     */
+    public void setPngEncoderSettings( PngEncoderSettings pngEncoderSettings )
+    {
+        builder.setPngEncoderSettings( pngEncoderSettings );
+        parser.setPngEncoderSettings( pngEncoderSettings );
+    }
+
+    /**
+     * Set the maximum width and height of built sprite sheets, such as a GPU texture size limit. Sprites
+     * that don't fit on a single sprite sheet are spread over pages named spritesheet_SIZE_PAGE.png.
+     * @param maxPageSize The maximum page width and height in pixels, or 0 for no limit.
+     */
+    public void setMaxPageSize( int maxPageSize )
+    {
+        builder.setMaxPageSize( maxPageSize );
+    }
+
+    /**
+     * Set whether built sprite sheets trim each sprite to its image pixels and pack the sprites tightly,
+     * recording their placement in an atlas file next to the sprite sheet, instead of using a sprite grid.
+     * @param packedLayout True to pack the sprite sheet, false to use the sprite grid.
+     */
+    public void setPackedLayout( boolean packedLayout )
+    {
+        builder.setPackedLayout( packedLayout );
+    }
+
+    /**
+     * Set whether built sprite sheets with at most 256 distinct colors, as pixel art usually has, are written
+     * as 8-bit indexed color instead of full color. Every color is kept exact, so parsing is unaffected. Only
+     * the built files and the encoding are smaller, the parser still decodes indexed sheets to full color.
+     * @param paletteOutput True to write indexed color sprite sheets when possible, false otherwise.
+     */
+    public void setPaletteOutput( boolean paletteOutput )
+    {
+        builder.setPaletteOutput( paletteOutput );
+    }
+
+    /**
+     * Set whether sprite headers are written as text, so older versions of the tool can parse the sprite sheet,
+     * instead of binary headers referring to a name table stored in the sprite sheet. Both are always parsed.
+     * @param legacyHeaders True to write text headers, false to write binary headers.
+     */
+    public void setLegacyHeaders( boolean legacyHeaders )
+    {
+        builder.setLegacyHeaders( legacyHeaders );
+    }
+
+    /**
+     * Set whether a packed raw RGBA sprite sheet is written next to each built sprite sheet as a .rgba file, which
+     * can be mapped into memory with RgbaSpriteSheet.map and uploaded without decoding, or parsed like a .png sprite sheet.
+     * @param rgbaOutput True to write a raw RGBA sprite sheet, false otherwise.
+     */
+    public void setRgbaOutput( boolean rgbaOutput )
+    {
+        builder.setRgbaOutput( rgbaOutput );
+    }
+
+    /**
+     * Set whether a mapped sprite sheet is written next to each built sprite sheet as a .sprites file, storing each
+     * image whole with an index of names and offsets. MappedSpriteSheet.map opens it without decoding anything and
+     * hands out views of single sprites, the parser parses it like a .png sprite sheet.
+     * @param mappedOutput True to write a mapped sprite sheet, false otherwise.
+     */
+    public void setMappedOutput( boolean mappedOutput )
+    {
+        builder.setMappedOutput( mappedOutput );
+    }
+
+    /**
+     * Set whether the sprites of mapped sprite sheets are deflate compressed, making the file smaller, but
+     * decompressing each sprite when it is read instead of handing out views of the mapped file.
+     * @param mappedCompression True to compress the sprites, false otherwise.
+     */
+    public void setMappedCompression( boolean mappedCompression )
+    {
+        builder.setMappedCompression( mappedCompression );
+    }
+
+    /**
+     * Set whether built sprite sheets leave out fully transparent sprites, listing them in the sprite sheet metadata so
+     * the parser still recreates their blank area, and whether packed sprite sheets trim the transparent borders of each sprite.
+     * @param trimChunks True to trim sprites, false otherwise.
+     */
+    public void setTrimChunks( boolean trimChunks )
+    {
+        builder.setTrimChunks( trimChunks );
+    }
+
+    /**
+     * Set whether sprites with identical pixels are stored in built sprite sheets only once,
+     * recording the placement of every sprite in an atlas file next to the sprite sheet.
+     * @param deduplicateChunks True to deduplicate sprites, false otherwise.
+     */
+    public void setDeduplicateChunks( boolean deduplicateChunks )
+    {
+        builder.setDeduplicateChunks( deduplicateChunks );
+    }
+
+    /**
+     * Set whether builds are incremental, reusing the cached sprites of source images
+     * that haven't changed since the previous build into the same destination directory.
+     * @param incrementalBuild True to only load new or changed source images, false otherwise.
+     */
+    public void setIncrementalBuild( boolean incrementalBuild )
+    {
+        builder.setIncrementalBuild( incrementalBuild );
+    }
+
+    /**
+     * Set whether builds load source images from the entire source directory tree, naming the sprites of
+     * images in subdirectories by their relative path, such as characters/hero.
+     * @param recursiveScan True to scan subdirectories, false to only scan the source directory.
+     */
+    public void setRecursiveScan( boolean recursiveScan )
+    {
+        builder.setRecursiveScan( recursiveScan );
+    }
+
+    /**
+     * Set the globs a source image path relative to the source directory must match one of to be built.
+     * @param includeGlobs The globs to include, such as **&#47;*.png, or null to build every supported image.
+     */
+    public void setIncludeGlobs( List<String> includeGlobs )
+    {
+        builder.setIncludeGlobs( includeGlobs );
+    }
+
+    /**
+     * Set the globs excluding source images and directories relative to the source directory from builds.
+     * @param excludeGlobs The globs to exclude, such as backup or **&#47;*_old.png, or null to exclude nothing.
+     */
+    public void setExcludeGlobs( List<String> excludeGlobs )
+    {
+        builder.setExcludeGlobs( excludeGlobs );
+    }
+
+    /**
+     * Set the pool builds load source images and write pages on, so managers in a long-running
+     * process share one set of threads. The pool is never shut down by the manager.
+     * @param workerPool The shared pool, or null to create a pool for each build.
+     */
+    public void setWorkerPool( ForkJoinPool workerPool )
+    {
+        builder.setWorkerPool( workerPool );
+    }
+
+    /**
+     * Set the in-memory cache of decoded source images shared across builds, so a long-running
+     * process only decodes the source images that are new or have changed.
+     * @param sourceImageCache The shared cache, or null to decode every source image.
+     */
+    public void setSourceImageCache( SourceImageCache sourceImageCache )
+    {
+        builder.setSourceImageCache( sourceImageCache );
+    }
+
+    /**
+     * Set the metrics recording the time, file bytes, and chunk counts of each build and parse stage,
+     * along with the peak heap usage, which can be reported as JSON once the build or parse is done.
+     * @param metrics The metrics to record into, or null to record nothing.
+     */
+    public void setMetrics( BuildMetrics metrics )
+    {
+        builder.setMetrics( metrics );
+        parser.setMetrics( metrics );
+    }
+
+    /**
+     * Set whether sprite sheets are parsed one row of sprites at a time, outputting each source image
+     * as soon as it is complete, reducing peak memory for large sprite sheets.
+     * @param streamingInput True to stream the sprite sheet input, false otherwise.
+     */
+    public void setStreamingInput( boolean streamingInput )
+    {
+        parser.setStreamingInput( streamingInput );
     }
 
     /**
@@ -54,9 +337,66 @@ public class SpriteSheetManager
      * output the sprite images to the given destination directory.
      * @param spriteSheetPath The path to the sprite sheet to parse.
      * @param destinationDirectory The path to the output directory or null if output is not desired.
+     * @return True if every sprite was parsed and written, false if the parse failed, see getParseFailure.
+     */
+    public boolean parseSpriteSheet( String spriteSheetPath, String destinationDirectory )
+    {
+        return parser.parseSpriteSheet( spriteSheetPath, destinationDirectory );
+    }
+
+    /**
+     * Get the first error that left the last sprite sheet parsed from a file incomplete.
+     * @return The message describing the error, or null if the last parse succeeded.
+     */
+    public String getParseFailure()
+    {
+        return parser.getFailure();
+    }
+
+    /**
+     * Parse a sprite sheet held in memory, such as one returned by buildSpriteSheet( Map ), into its source
+     * images without touching the disk. Safe to call from multiple threads, as long as the settings aren't changed meanwhile.
+     * @param spriteSheet The sprite sheet to parse.
+     * @return The source images keyed by name.
+     */
+    public LinkedHashMap<String, BufferedImage> parseSpriteSheet( BufferedImage spriteSheet )
+    {
+        return parser.parseSpriteSheet( spriteSheet );
+    }
+
+    /**
+     * Parse an encoded sprite sheet, such as a .png file held in memory, into its source images without touching
+     * the disk. The stream is read to its end but left open. Safe to call from multiple threads.
+     * @param spriteSheetInput The stream holding the encoded sprite sheet.
+     * @return The source images keyed by name.
+     * @throws IOException If the stream could not be read or the sprite sheet could not be decoded.
+     */
+    public LinkedHashMap<String, BufferedImage> parseSpriteSheet( InputStream spriteSheetInput ) throws IOException
+    {
+        return parser.parseSpriteSheet( spriteSheetInput );
+    }
+
+    /**
+     * Parse a set of sprite sheet pages into individual sprite images, reassembling images spread
+     * over several pages, and optionally output the sprite images to the given destination directory.
+     * @param spriteSheetPaths The paths to the sprite sheet pages to parse.
+     * @param destinationDirectory The path to the output directory or null if output is not desired.
+     * @return True if every sprite was parsed and written, false if the parse failed, see getParseFailure.
+     */
+    public boolean parseSpriteSheetPages( List<String> spriteSheetPaths, String destinationDirectory )
+    {
+        return parser.parseSpriteSheetPages( spriteSheetPaths, destinationDirectory );
+    }
+
+    /**
+     * Extract a single source image from a sprite sheet built by this tool, decoding only the
+     * area of the sprite sheet that contains it. Requires the atlas file written next to the sprite sheet.
+     * @param spriteSheetPath The path to the sprite sheet.
+     * @param spriteName The name of the source image, without a file extension.
+     * @return The extracted source image, or null if it could not be extracted.
      */
-    public void parseSpriteSheet( String spriteSheetPath, String destinationDirectory )
+    public BufferedImage extractSprite( String spriteSheetPath, String spriteName )
     {
-        parser.parseSpriteSheet( spriteSheetPath, destinationDirectory );
+        return parser.extractSprite( spriteSheetPath, spriteName );
     }
 }
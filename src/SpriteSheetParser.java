@@ -1,10 +1,25 @@
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Logan Karstetter
@@ -12,14 +27,44 @@ import java.util.LinkedHashMap;
  */
 public class SpriteSheetParser
 {
-    /** The width and height of the parsed sprites in pixels */
+    /** The width and height of the parsed sprites in pixels, as recorded in the sprite sheet page being parsed */
     private int spriteSize;
-    /** The height of the sprite header in pixels */
+    /** The height of the sprite header in pixels, as recorded in the sprite sheet page being parsed */
     private byte spriteHeaderSize;
+    /** The sprite size and sprite header size of sprite sheets that don't record their own, built by older versions of the tool */
+    private int defaultSpriteSize;
+    private byte defaultSpriteHeaderSize;
     /** The color populating empty, excess space in the sprite sheet */
     private Color controlColor;
+    /** Whether the sprite sheet is read one row of sprites at a time */
+    private boolean streamingInput;
+    /** The number of threads encoding parsed sprites as .png files */
+    private int encoderThreads;
+    /** The compression level and row filter parsed sprites are encoded with */
+    private PngEncoderSettings pngEncoderSettings;
+    /** The writer encoding parsed sprites while a sprite sheet is being parsed, or null */
+    private AsyncImageWriter imageWriter;
+    /** The metrics recording the time, bytes, and chunks of each parse stage */
+    private BuildMetrics metrics;
     /** The map used to store parsed sprites, where the keys are the sprite names */
     private LinkedHashMap<String, BufferedImage> spriteMap;
+    /** The map used to store the number of sprites each parsed sprite is still missing, where the keys are the sprite names */
+    private HashMap<String, Integer> remainingSpriteMap;
+    /** The map used to cache loaded atlases, where the keys are the atlas file paths */
+    private HashMap<String, SpriteSheetAtlas> atlasMap;
+    /** The map used to store the file size and modification time of each cached atlas when it was read, where the keys are the atlas file paths */
+    private HashMap<String, long[]> atlasModifiedMap;
+    /** The first error that left the parse in progress incomplete, or null if none occurred */
+    private String failure;
+    /** The name table of the sprite sheet page being parsed, referred to by binary headers, or null if it has none */
+    private String[] nameTable;
+    /** The decoder of binary headers, reused for every sprite */
+    private SpriteHeader headerDecoder;
+    /** The source image name, sprite number, and source image dimensions of the last decoded sprite header */
+    private String headerName;
+    private int headerNumber;
+    private int headerWidth;
+    private int headerHeight;
 
     /**
      * The SpriteSheetParser class is used to parse existing sprite sheets into individual sprites.
@@ -28,30 +73,236 @@ public class SpriteSheetParser
      * @param controlColor The color used to denote excess, empty, ignorable space in the sprite sheet.
      */
     public SpriteSheetParser(int spriteSize, byte spriteHeaderSize, Color controlColor )
+    {
+        this( spriteSize, spriteHeaderSize, controlColor, Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * The SpriteSheetParser class is used to parse existing sprite sheets into individual sprites.
+     * Sprite sheets record the sprite size and header size they were built with, which take precedence
+     * over the given sizes, the given sizes are used to parse sprite sheets built by older versions of the tool.
+     * @param spriteSize The width and height of each sprite, in pixels, to be parsed.
+     * @param spriteHeaderSize The height of the sprite header in pixels.
+     * @param controlColor The color used to denote excess, empty, ignorable space in the sprite sheet.
+     * @param encoderThreads The positive, non-zero number of threads encoding parsed sprites as .png files.
+     */
+    public SpriteSheetParser( int spriteSize, byte spriteHeaderSize, Color controlColor, int encoderThreads )
     {
         //Store the sprite input arguments
         this.spriteSize       = spriteSize;
         this.spriteHeaderSize = spriteHeaderSize;
+        this.defaultSpriteSize       = spriteSize;
+        this.defaultSpriteHeaderSize = spriteHeaderSize;
         this.controlColor     = controlColor;
+        this.encoderThreads   = Math.max( 1, encoderThreads );
+        this.pngEncoderSettings = PngEncoderSettings.DEFAULT;
+        this.metrics            = BuildMetrics.DISABLED;
+
+        //Initialize the sprite maps
+        spriteMap          = new LinkedHashMap<>();
+        remainingSpriteMap = new HashMap<>();
+        atlasMap           = new HashMap<>();
+        atlasModifiedMap   = new HashMap<>();
+        headerDecoder      = new SpriteHeader();
+    }
+
+    /**
+     * Create a parser with the same sizes, control color, and settings as the given parser, but none of its state.
+     * @param parser The parser to copy the configuration of.
+     */
+    private SpriteSheetParser( SpriteSheetParser parser )
+    {
+        this( parser.defaultSpriteSize, parser.defaultSpriteHeaderSize, parser.controlColor, parser.encoderThreads );
+        this.streamingInput     = parser.streamingInput;
+        this.pngEncoderSettings = parser.pngEncoderSettings;
+        this.metrics            = parser.metrics;
+    }
 
-        //Initialize the sprite map
-        spriteMap = new LinkedHashMap<>();
+    /**
+     * Set whether sprite sheets are read and parsed one row of sprites at a time instead of being loaded
+     * into memory in their entirety. When streaming, each source image is output as soon as it is complete.
+     * @param streamingInput True to stream the sprite sheet input, false otherwise.
+     */
+    public void setStreamingInput( boolean streamingInput )
+    {
+        this.streamingInput = streamingInput;
+    }
+
+    /**
+     * Set the compression level and row filter parsed sprites are encoded with, trading file size
+     * against parse speed. The default settings write sprites exactly as before, with ImageIO.
+     * @param pngEncoderSettings The .png encoder settings.
+     */
+    public void setPngEncoderSettings( PngEncoderSettings pngEncoderSettings )
+    {
+        this.pngEncoderSettings = ( pngEncoderSettings == null ) ? PngEncoderSettings.DEFAULT : pngEncoderSettings;
+    }
+
+    /**
+     * Set the metrics recording the time, file bytes, and sprite counts of each parse stage, such as
+     * loading the sprite sheet, decoding headers, adding sprites, and writing the parsed images.
+     * @param metrics The metrics to record into, or null to record nothing.
+     */
+    public void setMetrics( BuildMetrics metrics )
+    {
+        this.metrics = ( metrics == null ) ? BuildMetrics.DISABLED : metrics;
     }
 
     /**
      * Parses the given sprite sheet into individual sprite images. If a destination
      * directory is provided, the sprites are output into the given folder as .png files.
+     * A sprite sheet written as several pages is parsed by the name it would have had as
+     * a single file, such as spritesheet_32.png for the pages spritesheet_32_0.png onward.
      * @param spriteSheetPath The path to the sprite sheet relative to relative to src.
      * @param destinationDirectory The output directory relative to src, or null if output is not desired.
+     * @return True if every sprite was parsed and written, false if the parse failed.
+     */
+    public boolean parseSpriteSheet( String spriteSheetPath, String destinationDirectory )
+    {
+        //Parse the pages of the sprite sheet if it was written as several pages
+        File spriteSheetFile = new File( spriteSheetPath );
+        ArrayList<String> spriteSheetPaths = new ArrayList<>();
+        if( !spriteSheetFile.exists() )
+        {
+            for( File pageFile : SpriteUtil.findSpriteSheetPages( spriteSheetFile ) )
+            {
+                spriteSheetPaths.add( pageFile.getPath() );
+            }
+        }
+        if( spriteSheetPaths.isEmpty() )
+        {
+            spriteSheetPaths.add( spriteSheetPath );
+        }
+
+        return parseSpriteSheetPages( spriteSheetPaths, destinationDirectory );
+    }
+
+    /**
+     * Parses a set of sprite sheet pages into individual sprite images, reassembling source images
+     * whose sprites are spread over several pages. If a destination directory is provided, the
+     * sprites are output into the given folder as .png files once every page has been parsed,
+     * or when streaming, as soon as each source image is complete. Errors are reported as they occur,
+     * the first error leaving the parse incomplete is kept as its failure.
+     * @param spriteSheetPaths The paths to the sprite sheet pages relative to src.
+     * @param destinationDirectory The output directory relative to src, or null if output is not desired.
+     * @return True if every sprite was parsed and written, false if the parse failed.
+     */
+    public boolean parseSpriteSheetPages( List<String> spriteSheetPaths, String destinationDirectory )
+    {
+        failure = null;
+
+        //Start from empty sprite maps, so a reused parser doesn't write the sprites of the previous sprite sheet again
+        spriteMap.clear();
+        remainingSpriteMap.clear();
+
+        //Encode the parsed sprites on the encoder threads, allowing two images per thread to wait in the queue
+        imageWriter = ( destinationDirectory != null ) ? new AsyncImageWriter( encoderThreads, encoderThreads * 2, pngEncoderSettings, metrics ) : null;
+        try
+        {
+            for( String spriteSheetPath : spriteSheetPaths )
+            {
+                parseSpriteSheetPage( spriteSheetPath, destinationDirectory );
+            }
+
+            //If the destination directory is not null, output the remaining sprite map images as .png files
+            if( streamingInput )
+            {
+                writeIncompleteSprites( destinationDirectory );
+            }
+            else
+            {
+                writeSpriteMap( String.join( ", ", spriteSheetPaths ), destinationDirectory );
+            }
+        }
+        finally
+        {
+            //Wait for every sprite to be written
+            if( imageWriter != null )
+            {
+                try
+                {
+                    imageWriter.close();
+                }
+                catch( IOException exception )
+                {
+                    reportFailure( "Error writing sprites to: " + destinationDirectory );
+                    exception.printStackTrace();
+                }
+                imageWriter = null;
+            }
+        }
+        return ( failure == null );
+    }
+
+    /**
+     * Get the first error that left the last parse incomplete.
+     * @return The message describing the error, or null if the last parse succeeded.
+     */
+    public String getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * Report an error that leaves the parse incomplete, keeping it as the failure of the parse if it is the first.
+     * @param message The message describing the error.
+     */
+    private void reportFailure( String message )
+    {
+        System.out.println( message );
+        if( failure == null )
+        {
+            failure = message;
+        }
+    }
+
+    /**
+     * Parses a single sprite sheet page into the sprite map. When streaming, source images
+     * are output to the destination directory as soon as they are complete.
+     * @param spriteSheetPath The path to the sprite sheet page relative to src.
+     * @param destinationDirectory The output directory relative to src, or null if output is not desired.
      */
-    public void parseSpriteSheet( String spriteSheetPath, String destinationDirectory )
+    private void parseSpriteSheetPage( String spriteSheetPath, String destinationDirectory )
     {
         //Create a sprite sheet file and verify the image format is supported
         File spriteSheetFile = new File( spriteSheetPath );
 
+        //Raw RGBA sprite sheets are mapped rather than decoded
+        if( spriteSheetFile.getName().toLowerCase().endsWith( RgbaSpriteSheet.RGBA_EXTENSION ) )
+        {
+            parseRgbaSpriteSheet( spriteSheetFile );
+            return;
+        }
+
+        //Mapped sprite sheets store each source image whole
+        if( spriteSheetFile.getName().toLowerCase().endsWith( MappedSpriteSheet.MAPPED_EXTENSION ) )
+        {
+            parseMappedSpriteSheet( spriteSheetFile );
+            return;
+        }
+
         if( !SpriteUtil.isImageFileSupported( spriteSheetFile ) )
         {
-            System.out.println( "Unable to load: " + spriteSheetPath + ". Files must be one of the following formats: .png, .jpg, or .jpeg." );
+            reportFailure( "Unable to load: " + spriteSheetPath + ". Files must be one of the following formats: .png, .jpg, or .jpeg." );
+            return;
+        }
+
+        //Parse the sprite sheet using its atlas if its headers can't identify every sprite, such as packed sprite sheets
+        SpriteSheetAtlas atlas = loadAtlas( spriteSheetFile );
+        if( ( atlas != null ) && !atlas.hasGridHeaders() )
+        {
+            parseSpriteSheetAtlas( spriteSheetFile, atlas );
+            return;
+        }
+
+        //Read the sprite size, header size, and the name table referred to by binary headers from the sprite sheet
+        //metadata, sprite sheets built by older versions of the tool have none and are parsed with the default sizes
+        applySpriteSheetText( loadSpriteSheetText( spriteSheetFile ) );
+
+        //Parse the sprite sheet one row of sprites at a time if requested
+        if( streamingInput )
+        {
+            parseSpriteSheetBands( spriteSheetFile, destinationDirectory );
             return;
         }
 
@@ -60,22 +311,97 @@ public class SpriteSheetParser
 
         //Load the sprite sheet from the given path
         BufferedImage spriteSheet = null;
+        long loadStartNanos = metrics.start();
         try
         {
             spriteSheet = SpriteUtil.loadImage( spriteSheetFile.toURI().toURL() );
+            metrics.end( BuildMetrics.Stage.LOAD_SPRITE_SHEET, loadStartNanos );
+            metrics.addBytesRead( BuildMetrics.Stage.LOAD_SPRITE_SHEET, spriteSheetFile.length() );
         }
         catch( MalformedURLException exception )
         {
-            System.out.println( "Error malformed URL for: " + spriteSheetPath );
+            reportFailure( "Error malformed URL for: " + spriteSheetPath );
             exception.printStackTrace();
         }
 
         //Verify the sprite sheet is not null
         if( spriteSheet == null )
         {
+            reportFailure( "Unable to load: " + spriteSheetFile.getPath() );
             return;
         }
 
+        addSprites( spriteSheet );
+    }
+
+    /**
+     * Parse a sprite sheet held in memory, such as one composed by SpriteSheetBuilder.composeSpriteSheet,
+     * into its source images without reading or writing any files. The sprite size, header size, and name
+     * table are read from the image properties, falling back to the sizes of this parser. Sprite sheets that
+     * require an atlas to be parsed, such as packed sprite sheets, aren't supported. The sprite sheet is parsed
+     * by a copy of this parser, so it is safe to call from multiple threads as long as the settings aren't changed meanwhile.
+     * @param spriteSheet The sprite sheet image.
+     * @return The source images keyed by name, in the order their first sprite appears in the sprite sheet.
+     */
+    public LinkedHashMap<String, BufferedImage> parseSpriteSheet( BufferedImage spriteSheet )
+    {
+        HashMap<String, String> spriteSheetText = new HashMap<>();
+        for( String keyword : new String[]{ SpriteHeader.SPRITE_SIZE_KEYWORD, SpriteHeader.HEADER_SIZE_KEYWORD, SpriteHeader.NAME_TABLE_KEYWORD, SpriteHeader.EMPTY_CHUNKS_KEYWORD } )
+        {
+            Object value = spriteSheet.getProperty( keyword );
+            if( value instanceof String )
+            {
+                spriteSheetText.put( keyword, ( String )value );
+            }
+        }
+
+        SpriteSheetParser parser = new SpriteSheetParser( this );
+        parser.applySpriteSheetText( spriteSheetText );
+        parser.addSprites( spriteSheet );
+        return parser.spriteMap;
+    }
+
+    /**
+     * Parse an encoded sprite sheet read from a stream, such as a .png file held in memory, into its source images
+     * without reading or writing any files. See parseSpriteSheet( BufferedImage ), the sprite size, header size,
+     * and name table are read from the text chunks of the sprite sheet. Safe to call from multiple threads.
+     * @param spriteSheetInput The stream holding the encoded sprite sheet, which is read to its end but left open.
+     * @return The source images keyed by name, in the order their first sprite appears in the sprite sheet.
+     * @throws IOException If the stream could not be read or the sprite sheet could not be decoded.
+     */
+    public LinkedHashMap<String, BufferedImage> parseSpriteSheet( InputStream spriteSheetInput ) throws IOException
+    {
+        //Hold the encoded sprite sheet in memory, its text chunks are read before the pixels are decoded
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        byte[] buffer = new byte[ 8192 ];
+        int read;
+        while( ( read = spriteSheetInput.read( buffer ) ) > 0 )
+        {
+            encoded.write( buffer, 0, read );
+        }
+        byte[] spriteSheetBytes = encoded.toByteArray();
+
+        long loadStartNanos = metrics.start();
+        BufferedImage spriteSheet = SpriteUtil.loadImage( new ByteArrayInputStream( spriteSheetBytes ), "memory" );
+        metrics.end( BuildMetrics.Stage.LOAD_SPRITE_SHEET, loadStartNanos );
+        metrics.addBytesRead( BuildMetrics.Stage.LOAD_SPRITE_SHEET, spriteSheetBytes.length );
+        if( spriteSheet == null )
+        {
+            throw new IOException( "Unsupported sprite sheet image format." );
+        }
+
+        SpriteSheetParser parser = new SpriteSheetParser( this );
+        parser.applySpriteSheetText( SpriteUtil.readPngText( new ByteArrayInputStream( spriteSheetBytes ) ) );
+        parser.addSprites( spriteSheet );
+        return parser.spriteMap;
+    }
+
+    /**
+     * Cut every sprite out of a loaded sprite sheet and add it to the sprite map.
+     * @param spriteSheet The sprite sheet image.
+     */
+    private void addSprites( BufferedImage spriteSheet )
+    {
         //Determine how many sprites wide and high the sprite sheet is
         int numColumns = ( spriteSheet.getWidth()  / ( spriteSize ) );
         int numRows    = ( spriteSheet.getHeight() / ( spriteSize + spriteHeaderSize ) );
@@ -100,143 +426,916 @@ public class SpriteSheetParser
                 sourceY1 = ( row      * ( spriteSize + spriteHeaderSize ) );
                 sourceY2 = ( sourceY1 + ( spriteSize + spriteHeaderSize ) );
 
-                //Copy the sprite out of the sprite sheet, extract the sprite name
-                sprite.getGraphics().drawImage( spriteSheet, 0, 0, sprite.getWidth(), sprite.getHeight(), sourceX1, sourceY1, sourceX2, sourceY2, null );
-                String spriteName = decryptImageNameHeader( sprite );
+                //Copy the sprite out of the sprite sheet and add it to the sprite map
+                SpriteUtil.copyPixels( spriteSheet, sourceX1, sourceY1, ( sourceX2 - sourceX1 ), ( sourceY2 - sourceY1 ), sprite, 0, 0 );
+                long addStartNanos = metrics.start();
+                addSprite( sprite );
+                metrics.end( BuildMetrics.Stage.ADD_SPRITE, addStartNanos );
+                metrics.addChunks( BuildMetrics.Stage.ADD_SPRITE, 1 );
+            }
+        }
+    }
 
-                //If the sprite name doesn't exist, the copied area is control color filler, which should be ignored
-                if( spriteName.isEmpty() )
-                {
-                    continue;
-                }
+    /**
+     * Parses a sprite sheet whose atlas file records the area of the sprite sheet each chunk was
+     * placed in, such as packed sprite sheets. Chunks are copied straight into their source images.
+     * @param spriteSheetFile The sprite sheet file to parse.
+     * @param atlas The atlas describing the sprite sheet.
+     */
+    private void parseSpriteSheetAtlas( File spriteSheetFile, SpriteSheetAtlas atlas )
+    {
+        //Inform the user the sprite sheeting is being parsed
+        System.out.println( "Parsing: " + spriteSheetFile.getPath() + " with atlas" );
 
-                //Trim away any possible control color filler surrounding the sprite
-                sprite = trimSpriteImage( sprite );
+        //Load the sprite sheet
+        BufferedImage spriteSheet = null;
+        long loadStartNanos = metrics.start();
+        try
+        {
+            spriteSheet = SpriteUtil.loadImage( spriteSheetFile.toURI().toURL() );
+            metrics.end( BuildMetrics.Stage.LOAD_SPRITE_SHEET, loadStartNanos );
+            metrics.addBytesRead( BuildMetrics.Stage.LOAD_SPRITE_SHEET, spriteSheetFile.length() );
+        }
+        catch( MalformedURLException exception )
+        {
+            reportFailure( "Error malformed URL for: " + spriteSheetFile.getPath() );
+            exception.printStackTrace();
+        }
 
-                //If the sprite is null, but the previous name check succeeded, the sprite is malformed
-                if( sprite == null )
-                {
-                    System.out.println( "Error parsing malformed sprite: " + spriteName );
-                    continue;
-                }
+        //Verify the sprite sheet is not null
+        if( spriteSheet == null )
+        {
+            reportFailure( "Unable to load: " + spriteSheetFile.getPath() );
+            return;
+        }
 
-                //Extract the literal sprite name, number, and dimensions of the original image from the sprite name variable
-                //The sprite name must be formatted as follows: NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT
-                String[] spriteInfo = spriteName.split( "\\." );
-                if( spriteInfo.length != SpriteUtil.SpriteInfo.NUM_SPRITE_INFO.ordinal() )
-                {
-                    System.out.println( "Error parsing mis-formatted sprite name: " + spriteName );
-                    continue;
-                }
+        //Copy each chunk into its source image, the atlas sprite size is used in case it differs from the parser's
+        int atlasSpriteSize = atlas.getSpriteSize();
+        for( SpriteSheetAtlas.Chunk chunk : atlas.getChunks() )
+        {
+            //If the sprite is not already in the sprite map, add it with a new blank image
+            if( !spriteMap.containsKey( chunk.name ) )
+            {
+                spriteMap.put( chunk.name, new BufferedImage( chunk.srcImageWidth, chunk.srcImageHeight, BufferedImage.TYPE_INT_ARGB ) );
+            }
 
-                try
-                {
-                    //Get the name of the sprite source image
-                    String srcSpriteName = spriteInfo[ SpriteUtil.SpriteInfo.NAME.ordinal() ];
+            //Determine the column and row, with respect to sprite size, to copy the chunk into the image
+            int srcImageColumns = ( int )Math.ceil( ( double )chunk.srcImageWidth / atlasSpriteSize );
+            int spriteColumn    = chunk.number % srcImageColumns;
+            int spriteRow       = chunk.number / srcImageColumns;
 
-                    //Convert the numeric components of the sprite name into integer values
-                    int srcSpriteNumber  = Integer.parseInt( spriteInfo[ SpriteUtil.SpriteInfo.NUMBER.ordinal()           ].trim() );
-                    int srcImageWidth    = Integer.parseInt( spriteInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_WIDTH.ordinal()  ].trim() );
-                    int srcImageHeight   = Integer.parseInt( spriteInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_HEIGHT.ordinal() ].trim() );
+            //Chunks trimmed of their transparent borders are offset within their area, fully transparent chunks have no pixels
+            SpriteUtil.copyPixels( spriteSheet, chunk.x, chunk.y, chunk.width, chunk.height, spriteMap.get( chunk.name ), ( spriteColumn * atlasSpriteSize ) + chunk.offsetX, ( spriteRow * atlasSpriteSize ) + chunk.offsetY );
+        }
+    }
 
-                    //If the sprite is not already in the sprite map, add it with a new blank image
-                    if( !spriteMap.containsKey( srcSpriteName ) )
-                    {
-                        spriteMap.put( srcSpriteName, new BufferedImage( srcImageWidth, srcImageHeight, BufferedImage.TYPE_INT_ARGB ) );
-                    }
+    /**
+     * Parse a raw RGBA sprite sheet by mapping it into memory and reassembling each source image from its region table.
+     * @param rgbaFile The .rgba sprite sheet file to parse.
+     */
+    private void parseRgbaSpriteSheet( File rgbaFile )
+    {
+        //Inform the user the sprite sheeting is being parsed
+        System.out.println( "Parsing: " + rgbaFile.getPath() );
+
+        RgbaSpriteSheet spriteSheet;
+        long loadStartNanos = metrics.start();
+        try
+        {
+            spriteSheet = RgbaSpriteSheet.map( rgbaFile );
+            metrics.end( BuildMetrics.Stage.LOAD_SPRITE_SHEET, loadStartNanos );
+            metrics.addBytesRead( BuildMetrics.Stage.LOAD_SPRITE_SHEET, rgbaFile.length() );
+        }
+        catch( IOException exception )
+        {
+            reportFailure( "Error reading file: " + rgbaFile.getPath() );
+            exception.printStackTrace();
+            return;
+        }
 
-                    //Retrieve the sprite image under construction
-                    BufferedImage spriteImage = spriteMap.get( srcSpriteName );
+        LinkedHashSet<String> spriteNames = new LinkedHashSet<>();
+        for( SpriteSheetAtlas.Chunk chunk : spriteSheet.getAtlas().getChunks() )
+        {
+            spriteNames.add( chunk.name );
+        }
+        for( String spriteName : spriteNames )
+        {
+            spriteMap.put( spriteName, spriteSheet.readSprite( spriteName ) );
+        }
+    }
 
-                    //Determine the column and row, with respect to sprite size, to draw the sprite into the image
-                    int spriteColumn = srcSpriteNumber % ( int )Math.ceil( ( double )srcImageWidth / spriteSize );
-                    int spriteRow    = srcSpriteNumber / ( int )Math.ceil( ( double )srcImageWidth / spriteSize );
+    /**
+     * Parse a mapped sprite sheet by mapping it into memory and copying each source image out of it.
+     * @param mappedFile The .sprites sprite sheet file to parse.
+     */
+    private void parseMappedSpriteSheet( File mappedFile )
+    {
+        //Inform the user the sprite sheeting is being parsed
+        System.out.println( "Parsing: " + mappedFile.getPath() );
 
-                    //Draw the sprite into the image
-                    spriteImage.getGraphics().drawImage( sprite, ( spriteColumn * spriteSize ), ( spriteRow * spriteSize ), ( ( spriteColumn * spriteSize ) + sprite.getWidth() ), ( ( spriteRow * spriteSize ) + sprite.getHeight() ), 0, 0, sprite.getWidth(), sprite.getHeight(), null );
-                }
-                catch ( NumberFormatException exception )
-                {
-                    System.out.println( "Error converting sprite info: " + spriteName );
-                    exception.printStackTrace();
-                    continue;
-                }
+        long loadStartNanos = metrics.start();
+        try
+        {
+            MappedSpriteSheet spriteSheet = MappedSpriteSheet.map( mappedFile );
+            for( String spriteName : spriteSheet.getSpriteNames() )
+            {
+                spriteMap.put( spriteName, spriteSheet.getSprite( spriteName ).toImage() );
             }
+            metrics.end( BuildMetrics.Stage.LOAD_SPRITE_SHEET, loadStartNanos );
+            metrics.addBytesRead( BuildMetrics.Stage.LOAD_SPRITE_SHEET, mappedFile.length() );
         }
+        catch( IOException exception )
+        {
+            reportFailure( "Error reading file: " + mappedFile.getPath() );
+            exception.printStackTrace();
+        }
+    }
 
-        //If the destination directory is not null, output the sprite map images as .png files
-        if( destinationDirectory != null )
+    /**
+     * Extract a single source image from a sprite sheet, using the sprite sheet's atlas to decode
+     * only the area of the sprite sheet containing the source image's sprites. A sprite sheet written
+     * as several pages is referred to by the name it would have had as a single file.
+     * @param spriteSheetPath The path to the sprite sheet relative to src.
+     * @param spriteName The name of the source image to extract.
+     * @return The extracted source image, or null if it could not be extracted.
+     */
+    public BufferedImage extractSprite( String spriteSheetPath, String spriteName )
+    {
+        //Search every page of the sprite sheet if it was written as several pages
+        File spriteSheetFile = new File( spriteSheetPath );
+        ArrayList<File> spriteSheetFiles = spriteSheetFile.exists() ? new ArrayList<>() : SpriteUtil.findSpriteSheetPages( spriteSheetFile );
+        if( spriteSheetFiles.isEmpty() )
         {
-            //Inform the user the sprite sheeting is being parsed
-            System.out.println( "Output to directory: " + destinationDirectory );
+            spriteSheetFiles.add( spriteSheetFile );
+        }
 
-            //Inform the user if no sprites were parsed
-            if( spriteMap.keySet().isEmpty() )
+        //Copy the sprites of the source image out of each page holding any of them
+        BufferedImage spriteImage = null;
+        for( File pageFile : spriteSheetFiles )
+        {
+            //Locate the sprites of the source image in the atlas
+            SpriteSheetAtlas atlas = loadAtlas( pageFile );
+            if( atlas == null )
             {
-                System.out.println( "No images could extracted from: " + spriteSheetPath );
+                System.out.println( "Unable to extract: " + spriteName + ", no atlas found for: " + pageFile.getPath() );
+                return null;
             }
 
-            for ( String spriteName : spriteMap.keySet() )
+            ArrayList<SpriteSheetAtlas.Chunk> chunks = atlas.getChunks( spriteName );
+            if( chunks == null )
             {
-                try
-                {
-                    //Write the sprite sheet to a .png file, don't use jpeg because it has lossy compression
-                    ImageIO.write( spriteMap.get( spriteName ), "png", new File( destinationDirectory + "/" + spriteName + ".png" ) );
-                }
-                catch( IOException exception )
-                {
-                    System.out.println( "Error writing file: " + spriteName + ".png" );
-                    exception.printStackTrace();
-                }
-                catch( IllegalArgumentException exception )
-                {
-                    System.out.println( "Unable to write to: " + destinationDirectory + "/" + spriteName + ".png" );
-                    exception.printStackTrace();
-                }
+                continue;
+            }
+
+            if( spriteImage == null )
+            {
+                spriteImage = new BufferedImage( chunks.get( 0 ).srcImageWidth, chunks.get( 0 ).srcImageHeight, BufferedImage.TYPE_INT_ARGB );
+            }
+            if( !extractChunks( pageFile, atlas, chunks, spriteImage ) )
+            {
+                return null;
             }
         }
+
+        if( spriteImage == null )
+        {
+            System.out.println( "Unable to extract: " + spriteName + ", not found in: " + spriteSheetPath );
+        }
+        return spriteImage;
     }
 
     /**
-     * Extract the red, green, and blue color values from the header pixels
-     * and convert them to characters to determine the sprite name.
-     * @param sprite The sprite image to extract from.
-     * @return The name of the sprite.
+     * Decode the area of a sprite sheet containing the given chunks and copy each chunk into its source image.
+     * @param spriteSheetFile The sprite sheet file holding the chunks.
+     * @param atlas The atlas describing the sprite sheet.
+     * @param chunks The chunks of a single source image held by the sprite sheet.
+     * @param spriteImage The source image receiving the chunks.
+     * @return True if the chunks were copied, false if the sprite sheet could not be read.
      */
-    private String decryptImageNameHeader( BufferedImage sprite )
+    private boolean extractChunks( File spriteSheetFile, SpriteSheetAtlas atlas, ArrayList<SpriteSheetAtlas.Chunk> chunks, BufferedImage spriteImage )
     {
-        //Create a StringBuilder to assemble the sprite name
-        StringBuilder imageName = new StringBuilder();
+        //Determine the area of the sprite sheet containing every sprite of the source image
+        Rectangle region = null;
+        for( SpriteSheetAtlas.Chunk chunk : chunks )
+        {
+            //Fully transparent chunks were left out of the sprite sheet
+            if( ( chunk.width == 0 ) || ( chunk.height == 0 ) )
+            {
+                continue;
+            }
+            Rectangle chunkArea = new Rectangle( chunk.x, chunk.y, chunk.width, chunk.height );
+            region = ( region == null ) ? chunkArea : region.union( chunkArea );
+        }
 
-        //Iterate until a pixel with the control color is found, or the max sprite width is reached
-        for( int x = 0; ( x < spriteSize ) && ( controlColor.getRGB() != sprite.getRGB(x, 0 ) ); x++ )
+        //The source image is blank if every chunk was left out
+        if( region == null )
         {
-            Color pixelRGB = new Color( sprite.getRGB(x, 0 ) );
-            imageName.append( ( char )pixelRGB.getRed()   );
-            imageName.append( ( char )pixelRGB.getGreen() );
-            imageName.append( ( char )pixelRGB.getBlue()  );
+            return true;
         }
 
-        return imageName.toString();
+        //Decode only that area of the sprite sheet
+        BufferedImage regionImage;
+        try( ImageInputStream imageInput = ImageIO.createImageInputStream( spriteSheetFile ) )
+        {
+            Iterator<ImageReader> imageReaders = ( imageInput == null ) ? null : ImageIO.getImageReaders( imageInput );
+            if( ( imageReaders == null ) || !imageReaders.hasNext() )
+            {
+                System.out.println( "Unable to find an image reader for: " + spriteSheetFile.getPath() );
+                return false;
+            }
+
+            ImageReader imageReader = imageReaders.next();
+            try
+            {
+                imageReader.setInput( imageInput, true, true );
+                ImageReadParam readParam = imageReader.getDefaultReadParam();
+                readParam.setSourceRegion( region );
+                regionImage = imageReader.read( 0, readParam );
+            }
+            finally
+            {
+                imageReader.dispose();
+            }
+        }
+        catch( IOException exception )
+        {
+            System.out.println( "Error reading file: " + spriteSheetFile.getPath() );
+            exception.printStackTrace();
+            return false;
+        }
+
+        //Copy each sprite into the source image
+        int srcImageColumns = ( int )Math.ceil( ( double )spriteImage.getWidth() / atlas.getSpriteSize() );
+        for( SpriteSheetAtlas.Chunk chunk : chunks )
+        {
+            int spriteColumn = chunk.number % srcImageColumns;
+            int spriteRow    = chunk.number / srcImageColumns;
+            SpriteUtil.copyPixels( regionImage, ( chunk.x - region.x ), ( chunk.y - region.y ), chunk.width, chunk.height, spriteImage, ( spriteColumn * atlas.getSpriteSize() ) + chunk.offsetX, ( spriteRow * atlas.getSpriteSize() ) + chunk.offsetY );
+        }
+
+        return true;
     }
 
     /**
-     * Strip away the header and any excess space denoted by the presence of the control color
-     * from the sprite image. It should be assumed that the header is still present.
+     * Load the atlas belonging to the given sprite sheet, atlases are cached until their file size or modification time changes.
+     * @param spriteSheetFile The sprite sheet file.
+     * @return The atlas of the sprite sheet, or null if the sprite sheet has no readable atlas.
+     */
+    private SpriteSheetAtlas loadAtlas( File spriteSheetFile )
+    {
+        File atlasFile = SpriteSheetAtlas.getAtlasFile( spriteSheetFile );
+        if( !atlasFile.isFile() )
+        {
+            return null;
+        }
+
+        //Return the cached atlas if the file hasn't been modified since it was read, the size catches rewrites
+        //within the modification time granularity of the file system
+        String atlasPath = atlasFile.getAbsolutePath();
+        long[] readInfo  = atlasModifiedMap.get( atlasPath );
+        if( ( readInfo != null ) && ( readInfo[ 0 ] == atlasFile.length() ) && ( readInfo[ 1 ] == atlasFile.lastModified() ) )
+        {
+            return atlasMap.get( atlasPath );
+        }
+
+        try
+        {
+            long[] fileInfo = { atlasFile.length(), atlasFile.lastModified() };
+            SpriteSheetAtlas atlas = SpriteSheetAtlas.read( atlasFile );
+            atlasMap.put( atlasPath, atlas );
+            atlasModifiedMap.put( atlasPath, fileInfo );
+            return atlas;
+        }
+        catch( IOException exception )
+        {
+            reportFailure( "Error reading atlas: " + atlasFile.getPath() );
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Output every image in the sprite map to the destination directory as .png files.
+     * @param spriteSheetPath The path to the parsed sprite sheet.
+     * @param destinationDirectory The output directory relative to src, or null if output is not desired.
+     */
+    private void writeSpriteMap( String spriteSheetPath, String destinationDirectory )
+    {
+        if( destinationDirectory != null )
+        {
+            //Inform the user the sprite sheeting is being parsed
+            System.out.println( "Output to directory: " + destinationDirectory );
+
+            //Inform the user if no sprites were parsed
+            if( spriteMap.keySet().isEmpty() )
+            {
+                reportFailure( "No images could extracted from: " + spriteSheetPath );
+            }
+
+            for ( String spriteName : spriteMap.keySet() )
+            {
+                writeSprite( spriteName, spriteMap.get( spriteName ), destinationDirectory );
+            }
+        }
+    }
+
+    /**
+     * Parses the given sprite sheet one row of sprites at a time, without loading the entire sprite sheet
+     * into memory. Each source image is output as soon as all of its sprites have been parsed, which may
+     * be on a later page. If a destination directory is not provided, the source images are kept in the
+     * sprite map instead.
+     * @param spriteSheetFile The sprite sheet file to parse.
+     * @param destinationDirectory The output directory relative to src, or null if output is not desired.
+     */
+    private void parseSpriteSheetBands( File spriteSheetFile, String destinationDirectory )
+    {
+        //Inform the user the sprite sheeting is being parsed
+        System.out.println( "Parsing: " + spriteSheetFile.getPath() );
+        if( destinationDirectory != null )
+        {
+            System.out.println( "Output to directory: " + destinationDirectory );
+        }
+
+        //Prefer the streaming .png decoder, fall back to reading source regions with an ImageReader
+        try( PngBandReader pngReader = openPngBandReader( spriteSheetFile );
+             ImageInputStream imageInput = ( pngReader == null ) ? ImageIO.createImageInputStream( spriteSheetFile ) : null )
+        {
+            ImageReader imageReader = null;
+            int sheetWidth;
+            int sheetHeight;
+            if( pngReader != null )
+            {
+                sheetWidth  = pngReader.getWidth();
+                sheetHeight = pngReader.getHeight();
+            }
+            else
+            {
+                Iterator<ImageReader> imageReaders = ( imageInput == null ) ? null : ImageIO.getImageReaders( imageInput );
+                if( ( imageReaders == null ) || !imageReaders.hasNext() )
+                {
+                    reportFailure( "Unable to find an image reader for: " + spriteSheetFile.getPath() );
+                    return;
+                }
+
+                imageReader = imageReaders.next();
+                imageReader.setInput( imageInput, true, true );
+                sheetWidth  = imageReader.getWidth( 0 );
+                sheetHeight = imageReader.getHeight( 0 );
+            }
+
+            //Determine how many sprites wide and high the sprite sheet is
+            int numColumns = ( sheetWidth  / ( spriteSize ) );
+            int numRows    = ( sheetHeight / ( spriteSize + spriteHeaderSize ) );
+
+            //Create a band image holding a single row of sprites
+            BufferedImage band = new BufferedImage( sheetWidth, spriteSize + spriteHeaderSize, BufferedImage.TYPE_INT_ARGB );
+            int[] bandPixels   = ( ( DataBufferInt )band.getRaster().getDataBuffer() ).getData();
+            ImageReadParam readParam = ( imageReader == null ) ? null : imageReader.getDefaultReadParam();
+
+            for( int row = 0; row < numRows; row++ )
+            {
+                //Read the next band of rows from the sprite sheet
+                long loadStartNanos = metrics.start();
+                if( pngReader != null )
+                {
+                    pngReader.readRows( bandPixels, 0, sheetWidth, band.getHeight() );
+                }
+                else
+                {
+                    readParam.setSourceRegion( new Rectangle( 0, row * band.getHeight(), sheetWidth, band.getHeight() ) );
+                    BufferedImage region = imageReader.read( 0, readParam );
+                    region.getRGB( 0, 0, sheetWidth, band.getHeight(), bandPixels, 0, sheetWidth );
+                }
+                metrics.end( BuildMetrics.Stage.LOAD_SPRITE_SHEET, loadStartNanos );
+
+                for( int column = 0; column < numColumns; column++ )
+                {
+                    //Add the sprite to the sprite map
+                    long addStartNanos   = metrics.start();
+                    String srcSpriteName = addSprite( band.getSubimage( column * spriteSize, 0, spriteSize, band.getHeight() ) );
+                    metrics.end( BuildMetrics.Stage.ADD_SPRITE, addStartNanos );
+                    metrics.addChunks( BuildMetrics.Stage.ADD_SPRITE, 1 );
+
+                    //Output the source image as soon as it is complete
+                    if( ( destinationDirectory != null ) && ( srcSpriteName != null ) && ( remainingSpriteMap.get( srcSpriteName ) == 0 ) )
+                    {
+                        writeSprite( srcSpriteName, spriteMap.remove( srcSpriteName ), destinationDirectory );
+                        remainingSpriteMap.remove( srcSpriteName );
+                    }
+                }
+            }
+
+            if( imageReader != null )
+            {
+                imageReader.dispose();
+            }
+            metrics.addBytesRead( BuildMetrics.Stage.LOAD_SPRITE_SHEET, spriteSheetFile.length() );
+        }
+        catch( IOException exception )
+        {
+            reportFailure( "Error reading file: " + spriteSheetFile.getPath() );
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Output the source images still in the sprite map after streaming every sprite sheet page,
+     * which are either missing sprites or were parsed with an atlas.
+     * @param destinationDirectory The output directory relative to src, or null if output is not desired.
+     */
+    private void writeIncompleteSprites( String destinationDirectory )
+    {
+        if( destinationDirectory != null )
+        {
+            for( String spriteName : spriteMap.keySet() )
+            {
+                Integer remainingSprites = remainingSpriteMap.get( spriteName );
+                if( ( remainingSprites != null ) && ( remainingSprites > 0 ) )
+                {
+                    reportFailure( "Error missing " + remainingSprites + " sprites for: " + spriteName );
+                }
+                writeSprite( spriteName, spriteMap.get( spriteName ), destinationDirectory );
+            }
+            spriteMap.clear();
+            remainingSpriteMap.clear();
+        }
+    }
+
+    /**
+     * Open a streaming .png decoder for the given sprite sheet if its format is supported.
+     * @param spriteSheetFile The sprite sheet file to open.
+     * @return A streaming .png decoder, or null if the sprite sheet must be read with an ImageReader.
+     */
+    private PngBandReader openPngBandReader( File spriteSheetFile )
+    {
+        if( !spriteSheetFile.getName().toLowerCase().endsWith( ".png" ) )
+        {
+            return null;
+        }
+
+        InputStream input = null;
+        try
+        {
+            input = new BufferedInputStream( new FileInputStream( spriteSheetFile ) );
+            return new PngBandReader( input );
+        }
+        catch( IOException exception )
+        {
+            //Unsupported .png format, close the file and fall back to an ImageReader
+            try
+            {
+                if( input != null )
+                {
+                    input.close();
+                }
+            }
+            catch( IOException closeException )
+            {
+                closeException.printStackTrace();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Decode the header of a single sprite cut from the sprite sheet and draw the sprite into its
+     * source image in the sprite map, creating the source image if it does not already exist.
+     * @param sprite The sprite image to add, including the header.
+     * @return The name of the source image the sprite was added to, or null if the sprite is filler or malformed.
+     */
+    private String addSprite( BufferedImage sprite )
+    {
+        long headerStartNanos = metrics.start();
+        boolean decoded       = decodeSpriteHeader( sprite );
+        metrics.end( BuildMetrics.Stage.DECODE_HEADER, headerStartNanos );
+
+        //If the header wasn't decoded, the copied area is control color filler, which should be ignored, or malformed
+        if( !decoded )
+        {
+            return null;
+        }
+
+        //Trim away any possible control color filler surrounding the sprite
+        sprite = trimSpriteImage( sprite );
+
+        //If the sprite is null, but the header was decoded, the sprite is malformed
+        if( sprite == null )
+        {
+            System.out.println( "Error parsing malformed sprite: " + headerName + "." + headerNumber );
+            return null;
+        }
+
+        //Get the name of the sprite source image
+        String srcSpriteName = headerName;
+
+        //Determine the number of sprites wide and high the source image is
+        int srcImageColumns = ( int )Math.ceil( ( double )headerWidth  / spriteSize );
+        int srcImageRows    = ( int )Math.ceil( ( double )headerHeight / spriteSize );
+
+        //If the sprite is not already in the sprite map, add it with a new blank image
+        if( !spriteMap.containsKey( srcSpriteName ) )
+        {
+            spriteMap.put( srcSpriteName, new BufferedImage( headerWidth, headerHeight, BufferedImage.TYPE_INT_ARGB ) );
+            remainingSpriteMap.put( srcSpriteName, srcImageColumns * srcImageRows );
+        }
+
+        //Retrieve the sprite image under construction
+        BufferedImage spriteImage = spriteMap.get( srcSpriteName );
+
+        //Determine the column and row, with respect to sprite size, to draw the sprite into the image
+        int spriteColumn = headerNumber % srcImageColumns;
+        int spriteRow    = headerNumber / srcImageColumns;
+
+        //Copy the sprite into the image, clipping anything beyond the source image bounds
+        int spriteX = spriteColumn * spriteSize;
+        int spriteY = spriteRow    * spriteSize;
+        SpriteUtil.copyPixels( sprite, 0, 0, Math.min( sprite.getWidth(), headerWidth - spriteX ), Math.min( sprite.getHeight(), headerHeight - spriteY ), spriteImage, spriteX, spriteY );
+        remainingSpriteMap.put( srcSpriteName, remainingSpriteMap.get( srcSpriteName ) - 1 );
+
+        return srcSpriteName;
+    }
+
+    /**
+     * Decode the header of a single sprite into the header fields. Filler is detected by a control color
+     * first header pixel, binary headers by their marker, and any other header is decrypted as text.
+     * @param sprite The sprite image to decode, including the header.
+     * @return True if the header was decoded, false if the sprite is filler or its header is malformed.
+     */
+    private boolean decodeSpriteHeader( BufferedImage sprite )
+    {
+        //Get the pixels of the header row
+        int[] pixels      = SpriteUtil.getPixels( sprite );
+        int   headerIndex = SpriteUtil.getPixelIndex( sprite, 0, 0 );
+
+        //Control color filler has no header
+        if( pixels[ headerIndex ] == controlColor.getRGB() )
+        {
+            return false;
+        }
+
+        if( SpriteHeader.isBinaryHeader( pixels[ headerIndex ] ) )
+        {
+            //Decode the binary header without allocating, then look up the source image name in the name table
+            if( !headerDecoder.decode( pixels, headerIndex, spriteSize ) )
+            {
+                System.out.println( "Error parsing corrupt sprite header, the checksum or version doesn't match." );
+                return false;
+            }
+            if( ( nameTable == null ) || ( headerDecoder.getNameId() >= nameTable.length ) )
+            {
+                System.out.println( "Error parsing sprite header, name " + headerDecoder.getNameId() + " is missing from the sprite sheet name table." );
+                return false;
+            }
+
+            headerName   = nameTable[ headerDecoder.getNameId() ];
+            headerNumber = headerDecoder.getNumber();
+            headerWidth  = headerDecoder.getSrcImageWidth();
+            headerHeight = headerDecoder.getSrcImageHeight();
+            return true;
+        }
+
+        //Extract the literal sprite name, number, and dimensions of the original image from the text header
+        //The sprite name must be formatted as follows: NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT
+        String   spriteName = decryptImageNameHeader( sprite );
+        String[] spriteInfo = spriteName.split( "\\." );
+        if( spriteInfo.length != SpriteUtil.SpriteInfo.NUM_SPRITE_INFO.ordinal() )
+        {
+            System.out.println( "Error parsing mis-formatted sprite name: " + spriteName );
+            return false;
+        }
+
+        try
+        {
+            //Convert the numeric components of the sprite name into integer values
+            headerName   = spriteInfo[ SpriteUtil.SpriteInfo.NAME.ordinal() ];
+            headerNumber = Integer.parseInt( spriteInfo[ SpriteUtil.SpriteInfo.NUMBER.ordinal()           ].trim() );
+            headerWidth  = Integer.parseInt( spriteInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_WIDTH.ordinal()  ].trim() );
+            headerHeight = Integer.parseInt( spriteInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_HEIGHT.ordinal() ].trim() );
+            return true;
+        }
+        catch ( NumberFormatException exception )
+        {
+            System.out.println( "Error converting sprite info: " + spriteName );
+            exception.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Detect the sprite size a sprite sheet was built with, reading only the metadata at the start of the
+     * file, or the atlas next to it, without decoding the sprite sheet. A sprite sheet written as several
+     * pages is referred to by the name it would have had as a single file.
+     * @param spriteSheetPath The path to the sprite sheet relative to src.
+     * @return The sprite size in pixels, or -1 if the sprite sheet doesn't record it, such as when built by an older version of the tool.
+     */
+    public static int detectSpriteSize( String spriteSheetPath )
+    {
+        //Read the first page of the sprite sheet if it was written as several pages
+        File spriteSheetFile = new File( spriteSheetPath );
+        if( !spriteSheetFile.exists() )
+        {
+            ArrayList<File> pageFiles = SpriteUtil.findSpriteSheetPages( spriteSheetFile );
+            if( !pageFiles.isEmpty() )
+            {
+                spriteSheetFile = pageFiles.get( 0 );
+            }
+        }
+
+        //Raw RGBA sprite sheets record the sprite size in their region table
+        if( spriteSheetFile.getName().toLowerCase().endsWith( RgbaSpriteSheet.RGBA_EXTENSION ) && spriteSheetFile.isFile() )
+        {
+            try
+            {
+                return RgbaSpriteSheet.map( spriteSheetFile ).getAtlas().getSpriteSize();
+            }
+            catch( IOException exception )
+            {
+                System.out.println( "Error reading file: " + spriteSheetFile.getPath() );
+                exception.printStackTrace();
+                return -1;
+            }
+        }
+
+        //Mapped sprite sheets record the sprite size in their header
+        if( spriteSheetFile.getName().toLowerCase().endsWith( MappedSpriteSheet.MAPPED_EXTENSION ) && spriteSheetFile.isFile() )
+        {
+            try
+            {
+                return MappedSpriteSheet.map( spriteSheetFile ).getSpriteSize();
+            }
+            catch( IOException exception )
+            {
+                System.out.println( "Error reading file: " + spriteSheetFile.getPath() );
+                exception.printStackTrace();
+                return -1;
+            }
+        }
+
+        int spriteSize = parseSize( loadSpriteSheetText( spriteSheetFile ).get( SpriteHeader.SPRITE_SIZE_KEYWORD ), -1 );
+        if( spriteSize > 0 )
+        {
+            return spriteSize;
+        }
+
+        //Atlases record the sprite size of every sprite sheet built with one
+        File atlasFile = SpriteSheetAtlas.getAtlasFile( spriteSheetFile );
+        if( atlasFile.isFile() )
+        {
+            try
+            {
+                return SpriteSheetAtlas.read( atlasFile ).getSpriteSize();
+            }
+            catch( IOException exception )
+            {
+                System.out.println( "Error reading atlas: " + atlasFile.getPath() );
+                exception.printStackTrace();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Load the metadata of a sprite sheet page stored in its text chunks, such as its sprite size, header size,
+     * and the name table of binary headers. Only the chunks ahead of the image data are read.
+     * @param spriteSheetFile The sprite sheet page file.
+     * @return The text of each text chunk keyed by keyword, empty if the sprite sheet has none.
+     */
+    private static HashMap<String, String> loadSpriteSheetText( File spriteSheetFile )
+    {
+        //Missing sprite sheets are reported when they are loaded
+        if( !spriteSheetFile.isFile() || !spriteSheetFile.getName().toLowerCase().endsWith( ".png" ) )
+        {
+            return new HashMap<>();
+        }
+
+        try
+        {
+            return SpriteUtil.readPngText( spriteSheetFile );
+        }
+        catch( IOException exception )
+        {
+            System.out.println( "Error reading the metadata of: " + spriteSheetFile.getPath() );
+            exception.printStackTrace();
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Use the sprite size, header size, and name table recorded in the metadata of a sprite sheet page
+     * to parse it, sprite sheets built by older versions of the tool have none and are parsed with the default sizes.
+     * @param spriteSheetText The text of each text chunk of the sprite sheet keyed by keyword.
+     */
+    private void applySpriteSheetText( Map<String, String> spriteSheetText )
+    {
+        spriteSize       = parseSize( spriteSheetText.get( SpriteHeader.SPRITE_SIZE_KEYWORD ), defaultSpriteSize );
+        spriteHeaderSize = ( byte )parseSize( spriteSheetText.get( SpriteHeader.HEADER_SIZE_KEYWORD ), defaultSpriteHeaderSize );
+        nameTable        = SpriteHeader.decodeNameTable( spriteSheetText.get( SpriteHeader.NAME_TABLE_KEYWORD ) );
+
+        //Account for the fully transparent chunks left out of the sprite sheet, their area of the source image stays blank
+        String[] emptyChunkNames = SpriteHeader.decodeNameTable( spriteSheetText.get( SpriteHeader.EMPTY_CHUNKS_KEYWORD ) );
+        if( emptyChunkNames != null )
+        {
+            for( String emptyChunkName : emptyChunkNames )
+            {
+                addEmptyChunk( emptyChunkName );
+            }
+        }
+    }
+
+    /**
+     * Add a fully transparent chunk left out of the sprite sheet to the sprite map, creating its blank source
+     * image if it is the first chunk of the source image, and counting it as parsed.
+     * @param emptyChunkName The chunk name, formatted as follows: NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT.
+     */
+    private void addEmptyChunk( String emptyChunkName )
+    {
+        String[] chunkInfo     = SpriteUtil.splitImageChunkName( emptyChunkName );
+        String   srcSpriteName = chunkInfo[ SpriteUtil.SpriteInfo.NAME.ordinal() ];
+        int      srcImageWidth;
+        int      srcImageHeight;
+        try
+        {
+            srcImageWidth  = Integer.parseInt( chunkInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_WIDTH.ordinal()  ] );
+            srcImageHeight = Integer.parseInt( chunkInfo[ SpriteUtil.SpriteInfo.SRC_IMAGE_HEIGHT.ordinal() ] );
+        }
+        catch( NumberFormatException exception )
+        {
+            System.out.println( "Error parsing malformed empty chunk: " + emptyChunkName );
+            return;
+        }
+
+        //If the sprite is not already in the sprite map, add it with a new blank image
+        if( !spriteMap.containsKey( srcSpriteName ) )
+        {
+            int srcImageColumns = ( int )Math.ceil( ( double )srcImageWidth  / spriteSize );
+            int srcImageRows    = ( int )Math.ceil( ( double )srcImageHeight / spriteSize );
+            spriteMap.put( srcSpriteName, new BufferedImage( srcImageWidth, srcImageHeight, BufferedImage.TYPE_INT_ARGB ) );
+            remainingSpriteMap.put( srcSpriteName, srcImageColumns * srcImageRows );
+        }
+        remainingSpriteMap.put( srcSpriteName, remainingSpriteMap.get( srcSpriteName ) - 1 );
+    }
+
+    /**
+     * Convert a size recorded in the sprite sheet metadata into an integer value.
+     * @param size The recorded size, or null if the sprite sheet doesn't record it.
+     * @param defaultSize The size to use if the size isn't recorded or isn't a positive number.
+     * @return The size.
+     */
+    private static int parseSize( String size, int defaultSize )
+    {
+        if( size == null )
+        {
+            return defaultSize;
+        }
+
+        try
+        {
+            int parsedSize = Integer.parseInt( size.trim() );
+            return ( parsedSize > 0 ) ? parsedSize : defaultSize;
+        }
+        catch( NumberFormatException exception )
+        {
+            System.out.println( "Error converting recorded sprite sheet size: " + size );
+            return defaultSize;
+        }
+    }
+
+    /**
+     * Write a single parsed source image to the destination directory as a .png file. While a sprite sheet
+     * is being parsed the image is queued on the image writer, blocking while its queue is full.
+     * @param spriteName The name of the source image.
+     * @param spriteImage The source image to write.
+     * @param destinationDirectory The output directory relative to src.
+     */
+    private void writeSprite( String spriteName, BufferedImage spriteImage, String destinationDirectory )
+    {
+        //Sprite names are read from the sprite sheet, refuse names that would be written outside the destination directory
+        File spriteFile = resolveSpriteFile( spriteName, destinationDirectory );
+        if( spriteFile == null )
+        {
+            reportFailure( "Error sprite name leaves the destination directory, skipping it: " + spriteName );
+            return;
+        }
+
+        //Sprites of images from subdirectories are named by their relative path, create the subdirectory
+        if( spriteName.indexOf( '/' ) >= 0 )
+        {
+            spriteFile.getParentFile().mkdirs();
+        }
+
+        if( imageWriter != null )
+        {
+            try
+            {
+                imageWriter.write( spriteImage, spriteFile );
+            }
+            catch( InterruptedException exception )
+            {
+                Thread.currentThread().interrupt();
+                reportFailure( "Interrupted while writing: " + spriteName + ".png" );
+            }
+            return;
+        }
+
+        try
+        {
+            //Write the sprite sheet to a .png file, don't use jpeg because it has lossy compression
+            long writeStartNanos = metrics.start();
+            SpriteUtil.writePng( spriteImage, spriteFile, pngEncoderSettings );
+            metrics.end( BuildMetrics.Stage.WRITE_SPRITE, writeStartNanos );
+            metrics.addBytesWritten( BuildMetrics.Stage.WRITE_SPRITE, spriteFile.length() );
+        }
+        catch( IOException exception )
+        {
+            reportFailure( "Error writing file: " + spriteName + ".png" );
+            exception.printStackTrace();
+        }
+        catch( IllegalArgumentException exception )
+        {
+            reportFailure( "Unable to write to: " + destinationDirectory + "/" + spriteName + ".png" );
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Resolve the file a parsed source image is written to, named by its path relative to the destination directory.
+     * @param spriteName The name of the source image.
+     * @param destinationDirectory The output directory relative to src.
+     * @return The .png file of the source image, or null if the name is an absolute path or leaves the destination directory.
+     */
+    private static File resolveSpriteFile( String spriteName, String destinationDirectory )
+    {
+        if( spriteName.isEmpty() || spriteName.startsWith( "/" ) || spriteName.startsWith( "\\" ) || new File( spriteName ).isAbsolute() )
+        {
+            return null;
+        }
+
+        try
+        {
+            File destination = new File( destinationDirectory ).getCanonicalFile();
+            File spriteFile  = new File( destination, spriteName + ".png" ).getCanonicalFile();
+            String destinationPrefix = destination.getPath().endsWith( File.separator ) ? destination.getPath() : ( destination.getPath() + File.separator );
+            return spriteFile.getPath().startsWith( destinationPrefix ) ? spriteFile : null;
+        }
+        catch( IOException exception )
+        {
+            System.out.println( "Unable to resolve: " + destinationDirectory + "/" + spriteName + ".png" );
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Extract the red, green, and blue color values from the header pixels
+     * and convert them to characters to determine the sprite name.
+     * @param sprite The sprite image to extract from.
+     * @return The name of the sprite.
+     */
+    private String decryptImageNameHeader( BufferedImage sprite )
+    {
+        //Create a StringBuilder to assemble the sprite name
+        StringBuilder imageName = new StringBuilder( spriteSize * 3 );
+
+        //Get the pixels of the header row
+        int[] pixels      = SpriteUtil.getPixels( sprite );
+        int   headerIndex = SpriteUtil.getPixelIndex( sprite, 0, 0 );
+        int   controlRGB  = controlColor.getRGB();
+
+        //Iterate until a pixel with the control color is found, or the max sprite width is reached
+        for( int x = 0; ( x < spriteSize ) && ( controlRGB != pixels[ headerIndex + x ] ); x++ )
+        {
+            int pixelRGB = pixels[ headerIndex + x ];
+            imageName.append( ( char )( ( pixelRGB >> 16 ) & 0xff ) );
+            imageName.append( ( char )( ( pixelRGB >> 8  ) & 0xff ) );
+            imageName.append( ( char )(   pixelRGB         & 0xff ) );
+        }
+
+        return imageName.toString();
+    }
+
+    /**
+     * Strip away the header and any excess space denoted by the presence of the control color
+     * from the sprite image. It should be assumed that the header is still present.
      * @param sprite The sprite image to be trimmed.
      * @return A sub-image of the original sprite, returns null if the image is all control color.
      */
     private BufferedImage trimSpriteImage( BufferedImage sprite )
     {
+        //Get the pixels of the sprite
+        int[] pixels     = SpriteUtil.getPixels( sprite );
+        int   stride     = SpriteUtil.getScanlineStride( sprite );
+        int   firstIndex = SpriteUtil.getPixelIndex( sprite, 0, spriteHeaderSize );
+        int   controlRGB = controlColor.getRGB();
+
         //Trim any excess space denoted by the presence of the CTRL_COLOR
         int newWidth  = 0;
         int newHeight = spriteHeaderSize;
 
-        while( ( newWidth < spriteSize ) && ( sprite.getRGB( newWidth, spriteHeaderSize ) != controlColor.getRGB() ) )
+        while( ( newWidth < spriteSize ) && ( pixels[ firstIndex + newWidth ] != controlRGB ) )
         {
             newWidth++;
         }
-        while( ( newHeight < ( spriteSize + spriteHeaderSize ) ) && ( sprite.getRGB( 0, newHeight ) != controlColor.getRGB() ) )
+        while( ( newHeight < ( spriteSize + spriteHeaderSize ) ) && ( pixels[ firstIndex + ( ( newHeight - spriteHeaderSize ) * stride ) ] != controlRGB ) )
         {
             newHeight++;
         }
@@ -0,0 +1,258 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SpriteSheetWatcher
+{
+    /** The default time to wait for further changes before rebuilding in milliseconds */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    /** The manager used to rebuild the sprite sheet */
+    private SpriteSheetManager manager;
+    /** The path to the directory containing the source images */
+    private String sourceDirectory;
+    /** The path to the output directory */
+    private String destinationDirectory;
+    /** The time to wait for further changes before rebuilding in milliseconds */
+    private long debounceMillis;
+    /** Whether the sprite sheet is written into the source directory */
+    private boolean writesIntoSource;
+    /** Whether the subdirectories of the source directory are watched, matching a recursive scan of the source images */
+    private boolean recursive;
+    /** The absolute, normalized paths of the source and destination directories */
+    private Path sourcePath;
+    private Path destinationPath;
+    /** The watched directories keyed by their watch key */
+    private HashMap<WatchKey, Path> watchedDirectories;
+    /** The number of rebuilds completed so far */
+    private int rebuilds;
+
+    /**
+     * The SpriteSheetWatcher class is used to rebuild a sprite sheet whenever the images in its source
+     * directory change. Bursts of changes, such as an editor saving several files, are collected into
+     * a single rebuild once no further change arrives for the debounce time. Rebuilds are incremental,
+     * so only the changed source images are loaded and split. When the manager has a maximum page size, only
+     * the sprite sheet pages containing changed sprites are rewritten. The time from the first change to the
+     * updated sprite sheet is logged, or the failure if a rebuild fails.
+     * @param manager The manager used to rebuild the sprite sheet, incremental builds are enabled on it.
+     * @param sourceDirectory The path to the directory containing images.
+     * @param destinationDirectory The path to the output directory.
+     * @param debounceMillis The time to wait for further changes before rebuilding in milliseconds.
+     */
+    public SpriteSheetWatcher( SpriteSheetManager manager, String sourceDirectory, String destinationDirectory, long debounceMillis )
+    {
+        this( manager, sourceDirectory, destinationDirectory, debounceMillis, false );
+    }
+
+    /**
+     * The SpriteSheetWatcher class is used to rebuild a sprite sheet whenever the images in its source
+     * directory change. If the manager scans the source directory recursively, every subdirectory is watched
+     * as well, including the subdirectories created while watching, except the destination directory.
+     * @param manager The manager used to rebuild the sprite sheet, incremental builds are enabled on it.
+     * @param sourceDirectory The path to the directory containing images.
+     * @param destinationDirectory The path to the output directory.
+     * @param debounceMillis The time to wait for further changes before rebuilding in milliseconds.
+     * @param recursive True to watch the subdirectories of the source directory, false to only watch the source directory.
+     */
+    public SpriteSheetWatcher( SpriteSheetManager manager, String sourceDirectory, String destinationDirectory, long debounceMillis, boolean recursive )
+    {
+        this.manager              = manager;
+        this.sourceDirectory      = sourceDirectory;
+        this.destinationDirectory = destinationDirectory;
+        this.debounceMillis       = Math.max( 0, debounceMillis );
+        this.recursive            = recursive;
+        this.sourcePath           = new File( sourceDirectory ).getAbsoluteFile().toPath().normalize();
+        this.destinationPath      = new File( destinationDirectory ).getAbsoluteFile().toPath().normalize();
+        this.writesIntoSource     = sourcePath.equals( destinationPath );
+        this.watchedDirectories   = new HashMap<>();
+        this.manager.setIncrementalBuild( true );
+        this.manager.setRecursiveScan( recursive );
+    }
+
+    /**
+     * Build the sprite sheet, then watch the source directory and rebuild the sprite sheet after
+     * every burst of changes. Runs until the thread is interrupted or the directory can't be watched.
+     * @throws IOException If the source directory could not be watched.
+     */
+    public void watch() throws IOException
+    {
+        try( WatchService watchService = FileSystems.getDefault().newWatchService() )
+        {
+            //Register before the first build, so changes made during the build aren't missed
+            WatchKey watchKey = sourcePath.register( watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE );
+            watchedDirectories.put( watchKey, sourcePath );
+            if( recursive )
+            {
+                registerSubdirectories( sourcePath, watchService );
+            }
+            rebuild( new LinkedHashSet<>(), System.nanoTime() );
+            System.out.println( "Watching for changes in: " + sourceDirectory );
+
+            while( watchKey.isValid() )
+            {
+                //Wait for the first change of a burst
+                WatchKey key = watchService.take();
+                long firstChangeNanos = System.nanoTime();
+                LinkedHashSet<String> changedFiles = new LinkedHashSet<>();
+                collectChanges( key, changedFiles, watchService );
+
+                //Collect further changes until the directory is quiet for the debounce time
+                while( ( key = watchService.poll( debounceMillis, TimeUnit.MILLISECONDS ) ) != null )
+                {
+                    collectChanges( key, changedFiles, watchService );
+                }
+
+                //Only rebuild if a source image changed
+                if( !changedFiles.isEmpty() )
+                {
+                    rebuild( changedFiles, firstChangeNanos );
+                }
+            }
+            System.out.println( "Source directory can no longer be watched: " + sourceDirectory );
+        }
+        catch( InterruptedException | ClosedWatchServiceException exception )
+        {
+            Thread.currentThread().interrupt();
+            System.out.println( "Stopped watching: " + sourceDirectory );
+        }
+    }
+
+    /**
+     * Register every subdirectory of a directory with the watch service, skipping the destination directory.
+     * @param directory The directory whose subdirectories are registered.
+     * @param watchService The watch service to register with.
+     * @throws IOException If a subdirectory could not be registered.
+     */
+    private void registerSubdirectories( Path directory, WatchService watchService ) throws IOException
+    {
+        Files.walkFileTree( directory, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory( Path subdirectory, BasicFileAttributes attributes ) throws IOException
+            {
+                if( subdirectory.equals( directory ) )
+                {
+                    return FileVisitResult.CONTINUE;
+                }
+                if( subdirectory.equals( destinationPath ) )
+                {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                WatchKey key = subdirectory.register( watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE );
+                watchedDirectories.put( key, subdirectory );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    /**
+     * Collect the names of the changed source images from the events of a watch key and reset the key.
+     * Changes to files that aren't supported images, such as editor temp files, are ignored. When watching
+     * recursively, created subdirectories are registered, and created or deleted subdirectories count as changes.
+     * @param key The signalled watch key.
+     * @param changedFiles The set receiving the paths of the changed source images, relative to the source directory.
+     * @param watchService The watch service to register created subdirectories with.
+     */
+    private void collectChanges( WatchKey key, LinkedHashSet<String> changedFiles, WatchService watchService )
+    {
+        Path directory = watchedDirectories.get( key );
+        for( WatchEvent<?> event : key.pollEvents() )
+        {
+            //Too many events were dropped to know which files changed, rebuild everything
+            if( ( event.kind() == StandardWatchEventKinds.OVERFLOW ) || ( directory == null ) )
+            {
+                changedFiles.add( "*" );
+                continue;
+            }
+
+            //Ignore the sprite sheet itself if it is written into the source directory
+            Path   changedPath  = directory.resolve( event.context().toString() );
+            String relativePath = sourcePath.relativize( changedPath ).toString().replace( File.separatorChar, '/' );
+            if( SpriteUtil.isImageFileSupported( changedPath.toFile() ) && !( writesIntoSource && directory.equals( sourcePath ) && relativePath.startsWith( "spritesheet_" ) ) )
+            {
+                changedFiles.add( relativePath );
+                continue;
+            }
+
+            //Watch the subdirectories created while watching, the images they already hold are picked up by the rebuild
+            if( recursive && !changedPath.equals( destinationPath ) )
+            {
+                if( ( event.kind() == StandardWatchEventKinds.ENTRY_CREATE ) && Files.isDirectory( changedPath ) )
+                {
+                    try
+                    {
+                        WatchKey createdKey = changedPath.register( watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE );
+                        watchedDirectories.put( createdKey, changedPath );
+                        registerSubdirectories( changedPath, watchService );
+                        changedFiles.add( relativePath + "/" );
+                    }
+                    catch( IOException exception )
+                    {
+                        System.out.println( "Unable to watch directory: " + changedPath );
+                        exception.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        //Stop tracking subdirectories that were deleted or can no longer be watched, the images they held are gone
+        if( !key.reset() )
+        {
+            watchedDirectories.remove( key );
+            if( ( directory != null ) && !directory.equals( sourcePath ) )
+            {
+                changedFiles.add( sourcePath.relativize( directory ).toString().replace( File.separatorChar, '/' ) + "/" );
+            }
+        }
+    }
+
+    /**
+     * Rebuild the sprite sheet and log how long it took since the first change was seen.
+     * @param changedFiles The names of the changed source images, empty for the first build.
+     * @param firstChangeNanos The time the first change was seen in nanoseconds.
+     */
+    private void rebuild( LinkedHashSet<String> changedFiles, long firstChangeNanos )
+    {
+        if( !changedFiles.isEmpty() )
+        {
+            System.out.println( "Changed: " + String.join( ", ", changedFiles ) );
+        }
+
+        long buildStartNanos = System.nanoTime();
+        boolean built = manager.buildSpriteSheet( sourceDirectory, destinationDirectory );
+        long endNanos = System.nanoTime();
+        rebuilds++;
+
+        if( !built )
+        {
+            System.out.println( ( changedFiles.isEmpty() ? "Build failed: " : "Rebuild " + ( rebuilds - 1 ) + " failed: " ) + manager.getBuildFailure() );
+        }
+        else if( changedFiles.isEmpty() )
+        {
+            System.out.printf( "Built sprite sheet in %.1f ms.%n", ( endNanos - buildStartNanos ) / 1e6 );
+        }
+        else
+        {
+            System.out.printf( "Rebuild %d: sprite sheet updated %.1f ms after the first change, %.1f ms waiting for changes to settle, %.1f ms building.%n",
+                               rebuilds - 1, ( endNanos - firstChangeNanos ) / 1e6, ( buildStartNanos - firstChangeNanos ) / 1e6, ( endNanos - buildStartNanos ) / 1e6 );
+        }
+    }
+}
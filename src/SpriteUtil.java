@@ -1,11 +1,44 @@
-import sun.security.x509.PolicyInformation;
-
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.InflaterInputStream;
 
 /**
  * @author Logan Karstetter
@@ -15,6 +48,10 @@ public class SpriteUtil
 {
     /** The list of supported image formats */
     private static final String[] supportedImageFormats = { ".png", ".jpg", ".jpeg" };
+    /** The eight byte signature that begins every .png file */
+    private static final byte[] PNG_SIGNATURE = { ( byte )0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+    /** The name of the native ImageIO .png metadata format */
+    private static final String PNG_METADATA_FORMAT = "javax_imageio_png_1.0";
 
     /**
      * An enumeration to structure the naming of sprites embedded in a sprite sheet.
@@ -62,40 +99,684 @@ public class SpriteUtil
     }
 
     /**
-     * Loads a single image from the given path, preserving any transparency.
+     * Get the file of a single page of a sprite sheet split into multiple pages. Pages are named
+     * after the single sprite sheet they replace, followed by an underscore and the page number.
+     * @param spriteSheetFile The sprite sheet file, such as spritesheet_32.png.
+     * @param page The zero based page number.
+     * @return The page file, such as spritesheet_32_0.png.
+     */
+    public static File getSpriteSheetPageFile( File spriteSheetFile, int page )
+    {
+        String name = spriteSheetFile.getName();
+        int extensionIndex = name.lastIndexOf( '.' );
+        String baseName  = ( extensionIndex < 0 ) ? name : name.substring( 0, extensionIndex );
+        String extension = ( extensionIndex < 0 ) ? "" : name.substring( extensionIndex );
+        return new File( spriteSheetFile.getParentFile(), baseName + "_" + page + extension );
+    }
+
+    /**
+     * Find the existing pages of a sprite sheet split into multiple pages.
+     * @param spriteSheetFile The sprite sheet file the pages replace, such as spritesheet_32.png.
+     * @return The page files in page order, empty if the sprite sheet has no pages.
+     */
+    public static ArrayList<File> findSpriteSheetPages( File spriteSheetFile )
+    {
+        ArrayList<File> pageFiles = new ArrayList<>();
+        for( File pageFile = getSpriteSheetPageFile( spriteSheetFile, 0 ); pageFile.isFile(); pageFile = getSpriteSheetPageFile( spriteSheetFile, pageFiles.size() ) )
+        {
+            pageFiles.add( pageFile );
+        }
+        return pageFiles;
+    }
+
+    /**
+     * Loads a single image from the given path, preserving any transparency. The decoded image is converted
+     * once into the TYPE_INT_ARGB layout used by the SpriteSheetBuilder and SpriteSheetParser. The screen
+     * device is never accessed, so images can be loaded on headless machines.
      * @param imageURL The URL to the image to load, including the file extension, relative to the classpath.
-     * @return A loaded BufferedImage, or null if the image could not be found.
+     * @return A loaded TYPE_INT_ARGB BufferedImage, or null if the image could not be found or decoded.
      */
     public static BufferedImage loadImage( URL imageURL )
     {
+        try( InputStream input = imageURL.openStream() )
+        {
+            return loadImage( input, imageURL.toString() );
+        }
+        catch( FileNotFoundException exception )
+        {
+            System.out.println( "Unable to find file: " + imageURL.toString() );
+            exception.printStackTrace();
+        }
+        catch( IOException exception )
+        {
+            System.out.println( "Error loading file: " + imageURL.toString() );
+            exception.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Loads a single image from a stream, such as an image held in memory, see loadImage( URL ).
+     * @param input The stream holding the encoded image, which is left open.
+     * @param description The source of the stream, used in error messages.
+     * @return A loaded TYPE_INT_ARGB BufferedImage, or null if the image format isn't supported.
+     * @throws IOException If the image could not be read or decoded.
+     */
+    public static BufferedImage loadImage( InputStream input, String description ) throws IOException
+    {
+        //Read from an in-memory cached stream, avoiding the temporary file ImageIO would otherwise create
+        try( ImageInputStream imageInput = new MemoryCacheImageInputStream( new BufferedInputStream( input ) ) )
+        {
+            //Find a decoder for the image
+            Iterator<ImageReader> readers = ImageIO.getImageReaders( imageInput );
+            if( !readers.hasNext() )
+            {
+                System.out.println( "Unsupported image format: " + description );
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try
+            {
+                reader.setInput( imageInput, true, true );
+                return toIntArgb( reader.read( 0 ) );
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Write an image to a .png file. With the default settings the image is written by ImageIO,
+     * otherwise it is encoded as 8-bit RGBA with the given compression level and row filter.
+     * @param image The image to write.
+     * @param file The .png file to write.
+     * @param settings The compression level and row filter to encode with.
+     * @throws IOException If the file could not be written.
+     */
+    public static void writePng( BufferedImage image, File file, PngEncoderSettings settings ) throws IOException
+    {
+        writePng( image, file, settings, null );
+    }
+
+    /**
+     * Write an image to a .png file. Given a palette the image is encoded as 8-bit palette indices, otherwise
+     * with the default settings the image is written by ImageIO, or else it is encoded as 8-bit RGBA.
+     * @param image The image to write.
+     * @param file The .png file to write.
+     * @param settings The compression level and row filter to encode with.
+     * @param palette The palette containing every color of the image, or null to write the image in full color.
+     * @throws IOException If the file could not be written.
+     */
+    public static void writePng( BufferedImage image, File file, PngEncoderSettings settings, ColorPalette palette ) throws IOException
+    {
+        writePng( image, file, settings, palette, null );
+    }
+
+    /**
+     * Write an image to a .png file along with text chunks, such as the name table of a sprite sheet. Given a
+     * palette the image is encoded as 8-bit palette indices, otherwise with the default settings the image is
+     * written by ImageIO, or else it is encoded as 8-bit RGBA. The text is written before the image data.
+     * @param image The image to write.
+     * @param file The .png file to write.
+     * @param settings The compression level and row filter to encode with.
+     * @param palette The palette containing every color of the image, or null to write the image in full color.
+     * @param text The text of each text chunk keyed by keyword, or null to write no text.
+     * @throws IOException If the file could not be written.
+     */
+    public static void writePng( BufferedImage image, File file, PngEncoderSettings settings, ColorPalette palette, Map<String, String> text ) throws IOException
+    {
+        try( OutputStream output = new BufferedOutputStream( new FileOutputStream( file ) ) )
+        {
+            writePng( image, output, file.getPath(), settings, palette, text );
+        }
+    }
+
+    /**
+     * Encode an image as a .png file in memory, such as a sprite sheet served without touching the disk.
+     * @param image The image to encode.
+     * @param settings The compression level and row filter to encode with.
+     * @param palette The palette containing every color of the image, or null to encode the image in full color.
+     * @param text The text of each text chunk keyed by keyword, or null to write no text.
+     * @return A heap buffer holding the .png file, positioned at its start.
+     * @throws IOException If the image could not be encoded.
+     */
+    public static ByteBuffer encodePng( BufferedImage image, PngEncoderSettings settings, ColorPalette palette, Map<String, String> text ) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writePng( image, output, "memory", settings, palette, text );
+        return ByteBuffer.wrap( output.toByteArray() );
+    }
+
+    /**
+     * Write an image as a .png file to a stream, see writePng( BufferedImage, File, PngEncoderSettings, ColorPalette, Map ).
+     * @param image The image to write.
+     * @param output The stream to write to, which may be closed once the image is written.
+     * @param description The destination of the stream, used in error messages.
+     * @param settings The compression level and row filter to encode with.
+     * @param palette The palette containing every color of the image, or null to write the image in full color.
+     * @param text The text of each text chunk keyed by keyword, or null to write no text.
+     * @throws IOException If the image could not be written.
+     */
+    private static void writePng( BufferedImage image, OutputStream output, String description, PngEncoderSettings settings, ColorPalette palette, Map<String, String> text ) throws IOException
+    {
+        if( settings.isDefault() && ( palette == null ) )
+        {
+            if( ( text == null ) || text.isEmpty() )
+            {
+                if( !ImageIO.write( image, "png", output ) )
+                {
+                    throw new IOException( "No .png writer found for: " + description );
+                }
+                return;
+            }
+
+            writePngWithImageIO( image, output, description, text );
+            return;
+        }
+
+        //Encode the pixels in place if possible, otherwise convert them first
+        int[] argb   = ( image.getType() == BufferedImage.TYPE_INT_ARGB ) ? getPixels( image ) : image.getRGB( 0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth() );
+        int   offset = ( image.getType() == BufferedImage.TYPE_INT_ARGB ) ? getPixelIndex( image, 0, 0 ) : 0;
+        int   stride = ( image.getType() == BufferedImage.TYPE_INT_ARGB ) ? getScanlineStride( image ) : image.getWidth();
+        try( PngBandWriter writer = new PngBandWriter( output, image.getWidth(), image.getHeight(), settings, palette ) )
+        {
+            if( text != null )
+            {
+                for( Map.Entry<String, String> entry : text.entrySet() )
+                {
+                    writer.writeText( entry.getKey(), entry.getValue() );
+                }
+            }
+            writer.writeRows( argb, offset, stride, image.getHeight() );
+        }
+    }
+
+    /**
+     * Write an image as a .png file with ImageIO, adding compressed iTXt text chunks to its default metadata.
+     * @param image The image to write.
+     * @param output The stream to write to, which is left open.
+     * @param description The destination of the stream, used in error messages.
+     * @param text The text of each text chunk keyed by keyword.
+     * @throws IOException If the image could not be written.
+     */
+    private static void writePngWithImageIO( BufferedImage image, OutputStream output, String description, Map<String, String> text ) throws IOException
+    {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName( "png" );
+        if( !writers.hasNext() )
+        {
+            throw new IOException( "No .png writer found for: " + description );
+        }
+
+        ImageWriter writer = writers.next();
+        try
+        {
+            //Merge the text chunks into the metadata ImageIO would write by default
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            IIOMetadata metadata = writer.getDefaultImageMetadata( ImageTypeSpecifier.createFromRenderedImage( image ), writeParam );
+            IIOMetadataNode textNode = new IIOMetadataNode( "iTXt" );
+            for( Map.Entry<String, String> entry : text.entrySet() )
+            {
+                IIOMetadataNode textEntry = new IIOMetadataNode( "iTXtEntry" );
+                textEntry.setAttribute( "keyword",           entry.getKey() );
+                textEntry.setAttribute( "compressionFlag",   "TRUE" );
+                textEntry.setAttribute( "compressionMethod", "0" );
+                textEntry.setAttribute( "languageTag",       "" );
+                textEntry.setAttribute( "translatedKeyword", "" );
+                textEntry.setAttribute( "text",              entry.getValue() );
+                textNode.appendChild( textEntry );
+            }
+            IIOMetadataNode root = new IIOMetadataNode( PNG_METADATA_FORMAT );
+            root.appendChild( textNode );
+            metadata.mergeTree( PNG_METADATA_FORMAT, root );
+
+            try( ImageOutputStream imageOutput = ImageIO.createImageOutputStream( output ) )
+            {
+                if( imageOutput == null )
+                {
+                    throw new IOException( "Unable to write to: " + description );
+                }
+                writer.setOutput( imageOutput );
+                writer.write( null, new IIOImage( image, null, metadata ), writeParam );
+            }
+        }
+        finally
+        {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Read the text chunks of a .png file that precede its image data, such as the name table of a sprite
+     * sheet, without decoding the image. Supports tEXt, zTXt, and iTXt chunks, chunks failing their CRC are ignored.
+     * @param file The .png file to read.
+     * @return The text of each text chunk keyed by keyword, empty if the file has none or isn't a .png file.
+     * @throws IOException If the file could not be read.
+     */
+    public static HashMap<String, String> readPngText( File file ) throws IOException
+    {
+        try( InputStream input = new BufferedInputStream( new FileInputStream( file ) ) )
+        {
+            return readPngText( input );
+        }
+    }
+
+    /**
+     * Read the text chunks of a .png file that precede its image data, see readPngText( File ).
+     * @param pngInput The stream positioned at the start of the .png file, which is left open.
+     * @return The text of each text chunk keyed by keyword, empty if the stream has none or doesn't hold a .png file.
+     * @throws IOException If the stream could not be read.
+     */
+    public static HashMap<String, String> readPngText( InputStream pngInput ) throws IOException
+    {
+        HashMap<String, String> text = new HashMap<>();
+        DataInputStream input = new DataInputStream( pngInput );
         try
         {
-            //Read in the image
-            BufferedImage readImage = ImageIO.read( imageURL );
+            //Verify the .png signature
+            byte[] signature = new byte[ PNG_SIGNATURE.length ];
+            if( ( input.read( signature ) != signature.length ) || !Arrays.equals( signature, PNG_SIGNATURE ) )
+            {
+                return text;
+            }
 
-            //Create a copy of the image to ensure it becomes a managed image
-            int transparency = readImage.getColorModel().getTransparency();
-            BufferedImage copyImage = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration().createCompatibleImage( readImage.getWidth(), readImage.getHeight(), transparency );
+            while( true )
+            {
+                int    length = input.readInt();
+                byte[] type   = new byte[ 4 ];
+                input.readFully( type );
+                String chunkType = new String( type, StandardCharsets.ISO_8859_1 );
 
-            //Create a graphics context to re-draw the image
-            Graphics g2d = copyImage.createGraphics();
-            g2d.drawImage( readImage, 0, 0, null );
-            g2d.dispose();
+                //Text read by this tool is always written before the image data
+                if( chunkType.equals( "IDAT" ) || chunkType.equals( "IEND" ) || ( length < 0 ) )
+                {
+                    return text;
+                }
+                if( !chunkType.equals( "tEXt" ) && !chunkType.equals( "zTXt" ) && !chunkType.equals( "iTXt" ) )
+                {
+                    //Skip the chunk data and CRC
+                    long remaining = length + 4L;
+                    while( remaining > 0 )
+                    {
+                        int skipped = input.skipBytes( ( int )Math.min( remaining, Integer.MAX_VALUE ) );
+                        if( skipped <= 0 )
+                        {
+                            throw new EOFException();
+                        }
+                        remaining -= skipped;
+                    }
+                    continue;
+                }
 
-            //Return the read image
-            return readImage;
+                byte[] data = new byte[ length ];
+                input.readFully( data );
+                CRC32 crc = new CRC32();
+                crc.update( type );
+                crc.update( data );
+                if( ( int )crc.getValue() == input.readInt() )
+                {
+                    readTextChunk( chunkType, data, text );
+                }
+            }
         }
-        catch( IOException exception )
+        catch( EOFException exception )
         {
-            System.out.println( "Error loading file: " + imageURL.toString() );
-            exception.printStackTrace();
+            //A truncated file holds no further text
+            return new HashMap<>();
         }
-        catch( IllegalArgumentException exception )
+    }
+
+    /**
+     * Read a single tEXt, zTXt, or iTXt chunk.
+     * @param chunkType The type of the chunk.
+     * @param data The data of the chunk.
+     * @param text The map receiving the text keyed by keyword.
+     * @throws IOException If compressed text could not be inflated.
+     */
+    private static void readTextChunk( String chunkType, byte[] data, HashMap<String, String> text ) throws IOException
+    {
+        //Every text chunk begins with a null terminated keyword
+        int keywordEnd = indexOf( data, 0, ( byte )0 );
+        if( keywordEnd < 0 )
         {
-            System.out.println( "Unable to find file: " + imageURL.toString() );
-            exception.printStackTrace();
+            return;
         }
+        String keyword = new String( data, 0, keywordEnd, StandardCharsets.ISO_8859_1 );
 
-        return null;
+        if( chunkType.equals( "tEXt" ) )
+        {
+            text.put( keyword, new String( data, keywordEnd + 1, data.length - keywordEnd - 1, StandardCharsets.ISO_8859_1 ) );
+        }
+        else if( chunkType.equals( "zTXt" ) )
+        {
+            text.put( keyword, new String( inflate( data, keywordEnd + 2 ), StandardCharsets.ISO_8859_1 ) );
+        }
+        else
+        {
+            //Skip the compression flag and method, the language tag, and the translated keyword
+            int languageEnd = indexOf( data, keywordEnd + 3, ( byte )0 );
+            int textStart   = ( languageEnd < 0 ) ? -1 : indexOf( data, languageEnd + 1, ( byte )0 ) + 1;
+            if( textStart <= 0 )
+            {
+                return;
+            }
+
+            boolean compressed = data[ keywordEnd + 1 ] != 0;
+            byte[] textBytes   = compressed ? inflate( data, textStart ) : Arrays.copyOfRange( data, textStart, data.length );
+            text.put( keyword, new String( textBytes, StandardCharsets.UTF_8 ) );
+        }
+    }
+
+    /**
+     * Find the first occurrence of a byte in an array.
+     * @param data The array to search.
+     * @param start The index to start searching at.
+     * @param value The byte to find.
+     * @return The index of the byte, or -1 if it wasn't found.
+     */
+    private static int indexOf( byte[] data, int start, byte value )
+    {
+        for( int index = start; index < data.length; index++ )
+        {
+            if( data[ index ] == value )
+            {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Inflate the zlib compressed bytes at the end of an array.
+     * @param data The array holding the compressed bytes.
+     * @param start The index of the first compressed byte.
+     * @return The inflated bytes.
+     * @throws IOException If the bytes could not be inflated.
+     */
+    private static byte[] inflate( byte[] data, int start ) throws IOException
+    {
+        if( start > data.length )
+        {
+            throw new IOException( "Truncated compressed .png text." );
+        }
+
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+        try( InflaterInputStream inflater = new InflaterInputStream( new ByteArrayInputStream( data, start, data.length - start ) ) )
+        {
+            byte[] buffer = new byte[ 4096 ];
+            int read;
+            while( ( read = inflater.read( buffer ) ) > 0 )
+            {
+                inflated.write( buffer, 0, read );
+            }
+        }
+        return inflated.toByteArray();
+    }
+
+    /**
+     * Convert a decoded image into a TYPE_INT_ARGB image. The interleaved and 8-bit indexed byte layouts produced by
+     * the .png and .jpg decoders are converted directly from their backing arrays, other layouts through getRGB.
+     * @param image The decoded image.
+     * @return The image itself if it is already TYPE_INT_ARGB, otherwise a converted copy.
+     */
+    private static BufferedImage toIntArgb( BufferedImage image )
+    {
+        if( image.getType() == BufferedImage.TYPE_INT_ARGB )
+        {
+            return image;
+        }
+
+        BufferedImage argbImage = new BufferedImage( image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB );
+        int[] argb = getPixels( argbImage );
+
+        //Byte images straight from a decoder have tightly packed rows, read their bytes directly
+        boolean packedBytes = ( image.getRaster().getDataBuffer() instanceof DataBufferByte ) && ( image.getRaster().getParent() == null );
+        if( packedBytes && ( image.getType() == BufferedImage.TYPE_4BYTE_ABGR ) )
+        {
+            byte[] abgr = ( ( DataBufferByte )image.getRaster().getDataBuffer() ).getData();
+            for( int pixel = 0, byteIndex = 0; pixel < argb.length; pixel++, byteIndex += 4 )
+            {
+                argb[ pixel ] = ( ( abgr[ byteIndex     ] & 0xff ) << 24 )
+                              | ( ( abgr[ byteIndex + 3 ] & 0xff ) << 16 )
+                              | ( ( abgr[ byteIndex + 2 ] & 0xff ) << 8  )
+                              |   ( abgr[ byteIndex + 1 ] & 0xff );
+            }
+        }
+        else if( packedBytes && ( image.getType() == BufferedImage.TYPE_3BYTE_BGR ) )
+        {
+            byte[] bgr = ( ( DataBufferByte )image.getRaster().getDataBuffer() ).getData();
+            for( int pixel = 0, byteIndex = 0; pixel < argb.length; pixel++, byteIndex += 3 )
+            {
+                argb[ pixel ] = 0xff000000
+                              | ( ( bgr[ byteIndex + 2 ] & 0xff ) << 16 )
+                              | ( ( bgr[ byteIndex + 1 ] & 0xff ) << 8  )
+                              |   ( bgr[ byteIndex     ] & 0xff );
+            }
+        }
+        else if( packedBytes && ( image.getType() == BufferedImage.TYPE_BYTE_INDEXED ) && ( image.getColorModel().getPixelSize() == 8 ) )
+        {
+            //Look up each index in the palette, indices past the end of a short palette are transparent
+            int[] colors = new int[ 256 ];
+            ( ( IndexColorModel )image.getColorModel() ).getRGBs( colors );
+            byte[] indices = ( ( DataBufferByte )image.getRaster().getDataBuffer() ).getData();
+            for( int pixel = 0; pixel < argb.length; pixel++ )
+            {
+                argb[ pixel ] = colors[ indices[ pixel ] & 0xff ];
+            }
+        }
+        else
+        {
+            copyPixels( image, 0, 0, image.getWidth(), image.getHeight(), argbImage, 0, 0 );
+        }
+
+        return argbImage;
+    }
+
+    /**
+     * Get the packed ARGB pixel array backing the given image. The image must be of type
+     * TYPE_INT_ARGB, sub-images share the pixel array of their parent image.
+     * @param image The TYPE_INT_ARGB image to get the pixels of.
+     * @return The pixel array backing the image, use getPixelIndex to locate a pixel within it.
+     */
+    public static int[] getPixels( BufferedImage image )
+    {
+        return ( ( DataBufferInt )image.getRaster().getDataBuffer() ).getData();
+    }
+
+    /**
+     * Get the index of a pixel in the pixel array backing the given TYPE_INT_ARGB image.
+     * @param image The TYPE_INT_ARGB image containing the pixel.
+     * @param x The x coordinate of the pixel.
+     * @param y The y coordinate of the pixel.
+     * @return The index of the pixel in the array returned by getPixels.
+     */
+    public static int getPixelIndex( BufferedImage image, int x, int y )
+    {
+        WritableRaster raster = image.getRaster();
+        return raster.getDataBuffer().getOffset()
+             + ( ( y - raster.getSampleModelTranslateY() ) * getScanlineStride( image ) )
+             + ( x - raster.getSampleModelTranslateX() );
+    }
+
+    /**
+     * Get the distance between the start of two rows in the pixel array backing the given TYPE_INT_ARGB image.
+     * @param image The TYPE_INT_ARGB image.
+     * @return The scanline stride of the image in pixels.
+     */
+    public static int getScanlineStride( BufferedImage image )
+    {
+        return ( ( SinglePixelPackedSampleModel )image.getRaster().getSampleModel() ).getScanlineStride();
+    }
+
+    /**
+     * Copy a rectangle of pixels from one image into a TYPE_INT_ARGB image, replacing the destination pixels.
+     * Rows are copied in bulk when the source is also TYPE_INT_ARGB, otherwise the source pixels are converted.
+     * @param source The image to copy pixels from.
+     * @param sourceX The x coordinate of the upper left source pixel.
+     * @param sourceY The y coordinate of the upper left source pixel.
+     * @param width The width of the rectangle in pixels.
+     * @param height The height of the rectangle in pixels.
+     * @param destination The TYPE_INT_ARGB image to copy pixels into.
+     * @param destinationX The x coordinate of the upper left destination pixel.
+     * @param destinationY The y coordinate of the upper left destination pixel.
+     */
+    public static void copyPixels( BufferedImage source, int sourceX, int sourceY, int width, int height,
+                                   BufferedImage destination, int destinationX, int destinationY )
+    {
+        //Nothing to copy
+        if( ( width <= 0 ) || ( height <= 0 ) )
+        {
+            return;
+        }
+
+        int[] destinationPixels = getPixels( destination );
+        int   destinationIndex  = getPixelIndex( destination, destinationX, destinationY );
+        int   destinationStride = getScanlineStride( destination );
+
+        //Convert the source pixels directly into the destination array if the types differ
+        if( source.getType() != BufferedImage.TYPE_INT_ARGB )
+        {
+            source.getRGB( sourceX, sourceY, width, height, destinationPixels, destinationIndex, destinationStride );
+            return;
+        }
+
+        int[] sourcePixels = getPixels( source );
+        int   sourceIndex  = getPixelIndex( source, sourceX, sourceY );
+        int   sourceStride = getScanlineStride( source );
+
+        //Copy each row in bulk
+        for( int row = 0; row < height; row++ )
+        {
+            System.arraycopy( sourcePixels, sourceIndex, destinationPixels, destinationIndex, width );
+            sourceIndex      += sourceStride;
+            destinationIndex += destinationStride;
+        }
+    }
+
+    /**
+     * Hash a rectangle of pixels of a TYPE_INT_ARGB image with a 64-bit multiply-rotate hash,
+     * in the style of xxHash64, suitable for finding identical areas of pixels.
+     * @param image The TYPE_INT_ARGB image to hash.
+     * @param x The x coordinate of the upper left pixel.
+     * @param y The y coordinate of the upper left pixel.
+     * @param width The width of the rectangle in pixels.
+     * @param height The height of the rectangle in pixels.
+     * @return The hash of the pixels.
+     */
+    public static long hashPixels( BufferedImage image, int x, int y, int width, int height )
+    {
+        final long prime1 = 0x9E3779B185EBCA87L;
+        final long prime2 = 0xC2B2AE3D27D4EB4FL;
+
+        int[] pixels = getPixels( image );
+        int   stride = getScanlineStride( image );
+        int   index  = getPixelIndex( image, x, y );
+
+        long hash = prime2 ^ ( ( ( long )width << 32 ) | height );
+        for( int row = 0; row < height; row++, index += stride )
+        {
+            for( int column = 0; column < width; column++ )
+            {
+                hash = Long.rotateLeft( hash ^ ( pixels[ index + column ] * prime1 ), 31 ) * prime2;
+            }
+        }
+
+        //Mix the final bits so every pixel affects every bit of the hash
+        hash ^= hash >>> 33;
+        hash *= prime1;
+        hash ^= hash >>> 29;
+        return hash;
+    }
+
+    /**
+     * Determine if the same rectangle of pixels in two TYPE_INT_ARGB images is identical.
+     * @param first The first TYPE_INT_ARGB image.
+     * @param second The second TYPE_INT_ARGB image.
+     * @param x The x coordinate of the upper left pixel.
+     * @param y The y coordinate of the upper left pixel.
+     * @param width The width of the rectangle in pixels.
+     * @param height The height of the rectangle in pixels.
+     * @return True if every pixel in the rectangle is equal, false otherwise.
+     */
+    public static boolean pixelsEqual( BufferedImage first, BufferedImage second, int x, int y, int width, int height )
+    {
+        int[] firstPixels  = getPixels( first );
+        int[] secondPixels = getPixels( second );
+        int   firstStride  = getScanlineStride( first );
+        int   secondStride = getScanlineStride( second );
+        int   firstIndex   = getPixelIndex( first,  x, y );
+        int   secondIndex  = getPixelIndex( second, x, y );
+
+        for( int row = 0; row < height; row++, firstIndex += firstStride, secondIndex += secondStride )
+        {
+            for( int column = 0; column < width; column++ )
+            {
+                if( firstPixels[ firstIndex + column ] != secondPixels[ secondIndex + column ] )
+                {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Find the smallest rectangle containing every pixel of a TYPE_INT_ARGB image area that isn't fully transparent.
+     * @param image The TYPE_INT_ARGB image to search.
+     * @param x The x coordinate of the upper left pixel of the area.
+     * @param y The y coordinate of the upper left pixel of the area.
+     * @param width The width of the area in pixels.
+     * @param height The height of the area in pixels.
+     * @return The bounds relative to the area, or null if every pixel of the area is fully transparent.
+     */
+    public static Rectangle opaqueBounds( BufferedImage image, int x, int y, int width, int height )
+    {
+        int[] pixels = getPixels( image );
+        int   stride = getScanlineStride( image );
+        int   index  = getPixelIndex( image, x, y );
+
+        int minX = width;
+        int minY = height;
+        int maxX = -1;
+        int maxY = -1;
+        for( int row = 0; row < height; row++, index += stride )
+        {
+            for( int column = 0; column < width; column++ )
+            {
+                if( ( pixels[ index + column ] >>> 24 ) != 0 )
+                {
+                    minX = Math.min( minX, column );
+                    maxX = Math.max( maxX, column );
+                    minY = Math.min( minY, row );
+                    maxY = row;
+                }
+            }
+        }
+
+        return ( maxY < 0 ) ? null : new Rectangle( minX, minY, ( maxX - minX ) + 1, ( maxY - minY ) + 1 );
+    }
+
+    /**
+     * Split a chunk name into its source image info. The numeric fields are taken from the end of the
+     * name, so source image names containing dots, such as images built in memory, are kept whole.
+     * @param imageChunkName The chunk name, formatted as follows: NAME.NUMBER.SRC_IMAGE_WIDTH.SRC_IMAGE_HEIGHT.
+     * @return The chunk info, indexed by SpriteInfo.
+     */
+    public static String[] splitImageChunkName( String imageChunkName )
+    {
+        String[] chunkInfo = new String[ SpriteInfo.NUM_SPRITE_INFO.ordinal() ];
+        int end = imageChunkName.length();
+        for( int field = chunkInfo.length - 1; field > 0; field-- )
+        {
+            int separator = imageChunkName.lastIndexOf( '.', end - 1 );
+            chunkInfo[ field ] = imageChunkName.substring( separator + 1, end );
+            end = separator;
+        }
+        chunkInfo[ SpriteInfo.NAME.ordinal() ] = imageChunkName.substring( 0, end );
+        return chunkInfo;
     }
 }
@@ -0,0 +1,156 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class MappedSpriteSheetTest
+{
+    /** A temporary folder for the .sprites files written by each test */
+    @TempDir
+    File temporaryFolder;
+
+    /**
+     * Verify uncompressed sprites are mapped back whole, in the order they were written, as zero-copy RGBA8 views.
+     * @throws IOException If the file could not be written or mapped.
+     */
+    @Test
+    public void uncompressedRoundTrip() throws IOException
+    {
+        BufferedImage noise = createNoise( 13, 7 );
+        BufferedImage flat  = createFlat( 32, 32 );
+        MappedSpriteSheet sheet = writeAndMap( "uncompressed", false, noise, flat );
+
+        assertEquals( 30, sheet.getSpriteSize() );
+        assertEquals( Arrays.asList( "characters/noise", "flat" ), Arrays.asList( sheet.getSpriteNames().toArray() ) );
+        assertFalse( sheet.getSprite( "characters/noise" ).isCompressed() );
+        assertFalse( sheet.getSprite( "flat" ).isCompressed() );
+        assertNull( sheet.getSprite( "missing" ) );
+
+        assertArrayEquals( getArgb( noise ), getArgb( sheet.getSprite( "characters/noise" ).toImage() ) );
+        assertArrayEquals( getArgb( flat ),  getArgb( sheet.getSprite( "flat" ).toImage() ) );
+
+        //The pixels are RGBA8 in the mapped file
+        ByteBuffer pixels = sheet.getSprite( "characters/noise" ).getPixels();
+        int argb = noise.getRGB( 0, 0 );
+        assertEquals( 13 * 7 * RgbaSpriteSheet.BYTES_PER_PIXEL, pixels.remaining() );
+        assertEquals( ( argb >> 16 ) & 0xff, pixels.get( 0 ) & 0xff );
+        assertEquals(   argb >>> 24,         pixels.get( 3 ) & 0xff );
+    }
+
+    /**
+     * Verify compressible sprites are stored deflated and inflated back whole, while incompressible
+     * sprites are kept uncompressed.
+     * @throws IOException If the file could not be written or mapped.
+     */
+    @Test
+    public void compressedRoundTrip() throws IOException
+    {
+        BufferedImage noise = createNoise( 13, 7 );
+        BufferedImage flat  = createFlat( 32, 32 );
+        MappedSpriteSheet sheet = writeAndMap( "compressed", true, noise, flat );
+
+        assertFalse( sheet.getSprite( "characters/noise" ).isCompressed() );
+        assertTrue(  sheet.getSprite( "flat" ).isCompressed() );
+        assertArrayEquals( getArgb( noise ), getArgb( sheet.getSprite( "characters/noise" ).toImage() ) );
+        assertArrayEquals( getArgb( flat ),  getArgb( sheet.getSprite( "flat" ).toImage() ) );
+    }
+
+    /**
+     * Verify a file that isn't a mapped sprite sheet is refused.
+     * @throws IOException If the file could not be written.
+     */
+    @Test
+    public void mapRefusesOtherFiles() throws IOException
+    {
+        File notMapped = new File( temporaryFolder, "notMapped" + MappedSpriteSheet.MAPPED_EXTENSION );
+        Files.write( notMapped.toPath(), new byte[ 64 ] );
+
+        assertThrows( IOException.class, () -> MappedSpriteSheet.map( notMapped ) );
+    }
+
+    /**
+     * Write a noise sprite and a flat sprite to a mapped sprite sheet built with sprite size 30, then map it.
+     * @param name The base name of the file.
+     * @param compress True to deflate the sprites.
+     * @param noise The sprite named characters/noise.
+     * @param flat The sprite named flat.
+     * @return The mapped sprite sheet.
+     * @throws IOException If the file could not be written or mapped.
+     */
+    private MappedSpriteSheet writeAndMap( String name, boolean compress, BufferedImage noise, BufferedImage flat ) throws IOException
+    {
+        File mappedFile = new File( temporaryFolder, name + MappedSpriteSheet.MAPPED_EXTENSION );
+        try( MappedSpriteSheet.Writer writer = new MappedSpriteSheet.Writer( mappedFile, 30, compress ) )
+        {
+            writer.addSprite( "characters/noise", noise );
+            writer.addSprite( "flat", flat );
+        }
+        return MappedSpriteSheet.map( mappedFile );
+    }
+
+    /**
+     * Create an image of random pixels, which doesn't compress.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @return The TYPE_INT_ARGB image.
+     */
+    private static BufferedImage createNoise( int width, int height )
+    {
+        Random random = new Random( 23 );
+        BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+        for( int y = 0; y < height; y++ )
+        {
+            for( int x = 0; x < width; x++ )
+            {
+                image.setRGB( x, y, random.nextInt() );
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Create an image of two solid halves, which compresses well.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @return The TYPE_INT_ARGB image.
+     */
+    private static BufferedImage createFlat( int width, int height )
+    {
+        BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+        for( int y = 0; y < height; y++ )
+        {
+            for( int x = 0; x < width; x++ )
+            {
+                image.setRGB( x, y, ( y < height / 2 ) ? 0xff3080c0 : 0x80ff0000 );
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Get every pixel of an image as ARGB.
+     * @param image The image.
+     * @return The ARGB pixels, row by row.
+     */
+    private static int[] getArgb( BufferedImage image )
+    {
+        return image.getRGB( 0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth() );
+    }
+}
@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class RgbaSpriteSheetTest
+{
+    /** A temporary folder for the .rgba files written by each test */
+    @TempDir
+    File temporaryFolder;
+
+    /**
+     * Verify a sprite written into a mapped .rgba file is reassembled from the mapped file, including a trimmed chunk.
+     * @throws IOException If the file could not be written or mapped.
+     */
+    @Test
+    public void mappedFileRoundTrip() throws IOException
+    {
+        BufferedImage sprite = createSprite();
+        File rgbaFile = new File( temporaryFolder, "spritesheet_10" + RgbaSpriteSheet.RGBA_EXTENSION );
+        writeSprite( RgbaSpriteSheet.allocate( 12, 22, createAtlas(), rgbaFile ), sprite );
+
+        RgbaSpriteSheet mappedSheet = RgbaSpriteSheet.map( rgbaFile );
+        assertEquals( 12, mappedSheet.getWidth() );
+        assertEquals( 22, mappedSheet.getHeight() );
+        assertEquals( 2, mappedSheet.getAtlas().getChunks().size() );
+        assertArrayEquals( getArgb( sprite ), getArgb( mappedSheet.readSprite( "hero" ) ) );
+        assertNull( mappedSheet.readSprite( "missing" ) );
+
+        //Pixels are stored as RGBA8, the first chunk starts at ( 1, 1 )
+        ByteBuffer pixels = mappedSheet.getPixels();
+        int argb = sprite.getRGB( 0, 0 );
+        int base = ( ( 1 * 12 ) + 1 ) * RgbaSpriteSheet.BYTES_PER_PIXEL;
+        assertEquals( ( argb >> 16 ) & 0xff, pixels.get( base     ) & 0xff );
+        assertEquals( ( argb >> 8  ) & 0xff, pixels.get( base + 1 ) & 0xff );
+        assertEquals(   argb         & 0xff, pixels.get( base + 2 ) & 0xff );
+        assertEquals(   argb >>> 24,         pixels.get( base + 3 ) & 0xff );
+    }
+
+    /**
+     * Verify a sprite written into a direct buffer is reassembled from the same buffer.
+     * @throws IOException If the buffer could not be allocated.
+     */
+    @Test
+    public void directBufferRoundTrip() throws IOException
+    {
+        BufferedImage sprite = createSprite();
+        RgbaSpriteSheet sheet = RgbaSpriteSheet.allocate( 12, 22, createAtlas(), null );
+        writeSprite( sheet, sprite );
+
+        assertEquals( 12 * 22 * RgbaSpriteSheet.BYTES_PER_PIXEL, sheet.getPixels().remaining() );
+        assertArrayEquals( getArgb( sprite ), getArgb( sheet.readSprite( "hero" ) ) );
+    }
+
+    /**
+     * Verify a file that isn't a raw RGBA sprite sheet is refused.
+     * @throws IOException If the file could not be written.
+     */
+    @Test
+    public void mapRefusesOtherFiles() throws IOException
+    {
+        File notRgba = new File( temporaryFolder, "notRgba" + RgbaSpriteSheet.RGBA_EXTENSION );
+        Files.write( notRgba.toPath(), new byte[ RgbaSpriteSheet.HEADER_BYTES ] );
+
+        assertThrows( IOException.class, () -> RgbaSpriteSheet.map( notRgba ) );
+    }
+
+    /**
+     * Create a 20x10 sprite of random pixels, split into two 10x10 chunks, whose second chunk is
+     * transparent apart from a 6x5 area at ( 2, 3 ) within the chunk.
+     * @return The TYPE_INT_ARGB sprite.
+     */
+    private static BufferedImage createSprite()
+    {
+        Random random = new Random( 22 );
+        BufferedImage sprite = new BufferedImage( 20, 10, BufferedImage.TYPE_INT_ARGB );
+        for( int y = 0; y < 10; y++ )
+        {
+            for( int x = 0; x < 20; x++ )
+            {
+                boolean opaque = ( x < 10 ) || ( ( x >= 12 ) && ( x < 18 ) && ( y >= 3 ) && ( y < 8 ) );
+                sprite.setRGB( x, y, opaque ? random.nextInt() : 0 );
+            }
+        }
+        return sprite;
+    }
+
+    /**
+     * Create the atlas placing the chunks of the sprite in a 12x22 sheet, the first whole at ( 1, 1 ) and the
+     * second trimmed to its opaque area at ( 1, 11 ).
+     * @return The atlas.
+     */
+    private static SpriteSheetAtlas createAtlas()
+    {
+        SpriteSheetAtlas atlas = new SpriteSheetAtlas( 10, false );
+        atlas.addChunk( new SpriteSheetAtlas.Chunk( "hero", 0, 20, 10, 1,  1, 10, 10 ) );
+        atlas.addChunk( new SpriteSheetAtlas.Chunk( "hero", 1, 20, 10, 1, 11,  6,  5, 2, 3 ) );
+        return atlas;
+    }
+
+    /**
+     * Copy the chunks of the sprite into the sprite sheet where the atlas placed them.
+     * @param sheet The sprite sheet.
+     * @param sprite The sprite.
+     */
+    private static void writeSprite( RgbaSpriteSheet sheet, BufferedImage sprite )
+    {
+        int[] pixels = SpriteUtil.getPixels( sprite );
+        int   stride = SpriteUtil.getScanlineStride( sprite );
+        int[] row    = new int[ 10 ];
+        for( SpriteSheetAtlas.Chunk chunk : sheet.getAtlas().getChunks() )
+        {
+            int sourceIndex = SpriteUtil.getPixelIndex( sprite, ( chunk.number * 10 ) + chunk.offsetX, chunk.offsetY );
+            sheet.putArgb( pixels, sourceIndex, stride, chunk.width, chunk.height, chunk.x, chunk.y, row );
+        }
+    }
+
+    /**
+     * Get every pixel of an image as ARGB.
+     * @param image The image, which must not be null.
+     * @return The ARGB pixels, row by row.
+     */
+    private static int[] getArgb( BufferedImage image )
+    {
+        assertNotNull( image );
+        return image.getRGB( 0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth() );
+    }
+}
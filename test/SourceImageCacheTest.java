@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SourceImageCacheTest
+{
+    /** A temporary folder for the image files of each test */
+    @TempDir
+    File temporaryFolder;
+
+    /**
+     * Verify an image decoded before its file was saved again is not handed out for the new file.
+     * @throws IOException If the file could not be written.
+     */
+    @Test
+    public void imageOfAnEditedFileIsNotReused() throws IOException
+    {
+        File imageFile = new File( temporaryFolder, "hero.png" );
+        Files.write( imageFile.toPath(), new byte[]{ 1, 2, 3 } );
+        long size         = imageFile.length();
+        long lastModified = imageFile.lastModified();
+
+        //The file is saved again while it is being decoded
+        Files.write( imageFile.toPath(), new byte[]{ 4, 5, 6 } );
+        assertTrue( imageFile.setLastModified( lastModified + 2000 ) );
+
+        SourceImageCache cache = new SourceImageCache( SourceImageCache.DEFAULT_MAX_PIXELS );
+        cache.put( imageFile, new BufferedImage( 4, 4, BufferedImage.TYPE_INT_ARGB ), size, lastModified );
+        assertNull( cache.get( imageFile, imageFile.length(), imageFile.lastModified() ) );
+        assertEquals( 0, cache.size() );
+    }
+
+    /**
+     * Verify an unchanged image is reused, and the least recently used images are evicted once the cache is full.
+     */
+    @Test
+    public void unchangedImagesAreReusedUntilEvicted()
+    {
+        File first  = new File( temporaryFolder, "first.png" );
+        File second = new File( temporaryFolder, "second.png" );
+        BufferedImage firstImage  = new BufferedImage( 4, 4, BufferedImage.TYPE_INT_ARGB );
+        BufferedImage secondImage = new BufferedImage( 4, 2, BufferedImage.TYPE_INT_ARGB );
+
+        SourceImageCache cache = new SourceImageCache( 20 );
+        cache.put( first, firstImage, 10, 1000 );
+        assertSame( firstImage, cache.get( first, 10, 1000 ) );
+
+        cache.put( second, secondImage, 10, 1000 );
+        assertNull( cache.get( first, 10, 1000 ) );
+        assertSame( secondImage, cache.get( second, 10, 1000 ) );
+        assertEquals( 8, cache.getCachedPixels() );
+    }
+}
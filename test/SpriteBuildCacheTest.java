@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SpriteBuildCacheTest
+{
+    /** The sprite settings the cache is written and loaded with */
+    private static final int   SPRITE_SIZE   = 4;
+    private static final byte  HEADER_SIZE   = 1;
+    private static final Color CONTROL_COLOR = new Color( 239, 11, 244 );
+
+    /** A temporary folder for the source file and cache file of each test */
+    @TempDir
+    File temporaryFolder;
+
+    /**
+     * Verify chunks stored under the file info taken before the file was edited are not reused after the edit,
+     * even though the edit happened before the chunks were added.
+     * @throws IOException If a file could not be written.
+     */
+    @Test
+    public void chunksOfAnEditedFileAreNotReused() throws IOException
+    {
+        File image = new File( temporaryFolder, "hero.png" );
+        byte[] original = "original contents".getBytes( "UTF-8" );
+        Files.write( image.toPath(), original );
+        long size         = image.length();
+        long lastModified = image.lastModified();
+        long contentHash  = SpriteBuildCache.hashContents( original );
+
+        //The file is saved again, with the same size, while its old pixels are being split
+        Files.write( image.toPath(), "modified contents".getBytes( "UTF-8" ) );
+        assertTrue( image.setLastModified( lastModified + 2000 ) );
+
+        SpriteBuildCache cache = writeAndLoad( image, size, lastModified, contentHash );
+        assertNull( cache.getChunks( image ) );
+        assertEquals( 0, cache.getHits() );
+    }
+
+    /**
+     * Verify chunks are reused when the file was only touched, by falling back to the content hash.
+     * @throws IOException If a file could not be written.
+     */
+    @Test
+    public void chunksOfATouchedFileAreReused() throws IOException
+    {
+        File image = new File( temporaryFolder, "hero.png" );
+        byte[] contents = "unchanged contents".getBytes( "UTF-8" );
+        Files.write( image.toPath(), contents );
+        long lastModified = image.lastModified();
+
+        SpriteBuildCache cache = writeAndLoad( image, image.length(), lastModified, SpriteBuildCache.hashContents( contents ) );
+        assertTrue( image.setLastModified( lastModified + 2000 ) );
+
+        LinkedHashMap<String, BufferedImage> chunks = cache.getChunks( image );
+        assertNotNull( chunks );
+        assertEquals( 1, cache.getHits() );
+        assertArrayEquals( SpriteUtil.getPixels( createChunk() ), SpriteUtil.getPixels( chunks.get( "hero.0.4.4" ) ) );
+    }
+
+    /**
+     * Add a single chunk of the image to a new cache under the given file info, write the cache, and load it back.
+     * @param image The source image file.
+     * @param size The size of the file taken before it was read.
+     * @param lastModified The last modified time of the file taken before it was read.
+     * @param contentHash The hash of the bytes the chunk was decoded from.
+     * @return The loaded cache.
+     * @throws IOException If the cache could not be written.
+     */
+    private SpriteBuildCache writeAndLoad( File image, long size, long lastModified, long contentHash ) throws IOException
+    {
+        LinkedHashMap<String, BufferedImage> chunks = new LinkedHashMap<>();
+        chunks.put( "hero.0.4.4", createChunk() );
+
+        SpriteBuildCache cache = new SpriteBuildCache( SPRITE_SIZE, HEADER_SIZE, CONTROL_COLOR );
+        cache.putChunks( image, size, lastModified, contentHash, chunks );
+        File cacheFile = new File( temporaryFolder, "spritesheet_4" + SpriteBuildCache.CACHE_EXTENSION );
+        cache.write( cacheFile );
+        return SpriteBuildCache.load( cacheFile, SPRITE_SIZE, HEADER_SIZE, CONTROL_COLOR );
+    }
+
+    /**
+     * Create a chunk with its header row.
+     * @return The TYPE_INT_ARGB chunk.
+     */
+    private static BufferedImage createChunk()
+    {
+        BufferedImage chunk = new BufferedImage( SPRITE_SIZE, SPRITE_SIZE + HEADER_SIZE, BufferedImage.TYPE_INT_ARGB );
+        int[] pixels = SpriteUtil.getPixels( chunk );
+        for( int i = 0; i < pixels.length; i++ )
+        {
+            pixels[ i ] = 0xff000000 | ( i * 0x0a0b0c );
+        }
+        return chunk;
+    }
+}
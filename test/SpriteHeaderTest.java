@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SpriteHeaderTest
+{
+    /** The control color the unused header pixels are filled with */
+    private static final int FILL_RGB = 0xffef0bf4;
+
+    /**
+     * Verify a header decodes to the fields it was encoded with, for small and multi-byte varint values.
+     */
+    @Test
+    public void encodeThenDecodeKeepsEveryField()
+    {
+        int[][] headers = { { 0, 0, 1, 1 }, { 5, 12, 40, 20 }, { 300, 70000, 16384, 2 }, { Integer.MAX_VALUE, 1, 65535, 65535 } };
+        SpriteHeader header = new SpriteHeader();
+        for( int[] fields : headers )
+        {
+            int[] pixels = new int[ 40 ];
+            assertTrue( SpriteHeader.encode( pixels, 4, 30, fields[ 0 ], fields[ 1 ], fields[ 2 ], fields[ 3 ], FILL_RGB ) );
+            assertTrue( SpriteHeader.isBinaryHeader( pixels[ 4 ] ) );
+
+            assertTrue( header.decode( pixels, 4, 30 ) );
+            assertEquals( fields[ 0 ], header.getNameId() );
+            assertEquals( fields[ 1 ], header.getNumber() );
+            assertEquals( fields[ 2 ], header.getSrcImageWidth() );
+            assertEquals( fields[ 3 ], header.getSrcImageHeight() );
+
+            //The unused header pixels hold the fill color, the pixels around the header are untouched
+            assertEquals( FILL_RGB, pixels[ 4 + 29 ] );
+            assertEquals( 0, pixels[ 3 ] );
+            assertEquals( 0, pixels[ 4 + 30 ] );
+        }
+    }
+
+    /**
+     * Verify a header that doesn't fit in the header row is refused.
+     */
+    @Test
+    public void encodeRefusesHeadersLongerThanTheRow()
+    {
+        //Eight bytes at three bytes per pixel need three pixels
+        assertFalse( SpriteHeader.encode( new int[ 2 ], 0, 2, 1, 1, 10, 10, FILL_RGB ) );
+        assertTrue(  SpriteHeader.encode( new int[ 3 ], 0, 3, 1, 1, 10, 10, FILL_RGB ) );
+    }
+
+    /**
+     * Verify a corrupt header fails its checksum, and text headers aren't mistaken for binary headers.
+     */
+    @Test
+    public void decodeRefusesCorruptAndTextHeaders()
+    {
+        int[] pixels = new int[ 10 ];
+        assertTrue( SpriteHeader.encode( pixels, 0, 10, 7, 3, 30, 30, FILL_RGB ) );
+        pixels[ 1 ] ^= 0x000100;
+        assertFalse( new SpriteHeader().decode( pixels, 0, 10 ) );
+
+        //Text headers begin with an opaque name character
+        int textPixel = 0xff000000 | ( 'h' << 16 ) | ( 'e' << 8 ) | 'r';
+        assertFalse( SpriteHeader.isBinaryHeader( textPixel ) );
+        assertFalse( new SpriteHeader().decode( new int[]{ textPixel, textPixel, textPixel }, 0, 3 ) );
+    }
+
+    /**
+     * Verify a name table decodes to the names it was encoded with, in order, including empty names.
+     */
+    @Test
+    public void nameTableRoundTrip()
+    {
+        String[] names = { "hero", "characters/npc", "", "tiles/grass 2" };
+        assertArrayEquals( names, SpriteHeader.decodeNameTable( SpriteHeader.encodeNameTable( names ) ) );
+        assertNull( SpriteHeader.decodeNameTable( null ) );
+    }
+}
@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SpriteSheetAtlasTest
+{
+    /** A temporary folder for the atlas files written by each test */
+    @TempDir
+    File temporaryFolder;
+
+    /**
+     * Verify an atlas written to a file reads back with the same settings and chunks, including trimmed offsets.
+     * @throws IOException If the atlas could not be written or read.
+     */
+    @Test
+    public void writeThenReadKeepsEveryChunk() throws IOException
+    {
+        SpriteSheetAtlas atlas = new SpriteSheetAtlas( 16, false );
+        atlas.addChunk( new SpriteSheetAtlas.Chunk( "hero",           0, 40, 20,  0, 0, 16, 16 ) );
+        atlas.addChunk( new SpriteSheetAtlas.Chunk( "hero",           1, 40, 20, 16, 0, 10, 12, 3, 4 ) );
+        atlas.addChunk( new SpriteSheetAtlas.Chunk( "characters/npc", 0,  8,  8,  0, 0,  0,  0 ) );
+
+        File atlasFile = new File( temporaryFolder, "spritesheet_16" + SpriteSheetAtlas.ATLAS_EXTENSION );
+        atlas.write( atlasFile );
+        SpriteSheetAtlas readAtlas = SpriteSheetAtlas.read( atlasFile );
+
+        assertEquals( 16, readAtlas.getSpriteSize() );
+        assertFalse( readAtlas.hasGridHeaders() );
+        assertEquals( 3, readAtlas.getChunks().size() );
+        for( int i = 0; i < atlas.getChunks().size(); i++ )
+        {
+            assertChunkEquals( atlas.getChunks().get( i ), readAtlas.getChunks().get( i ) );
+        }
+
+        //Chunks are looked up by the name of their source image
+        ArrayList<SpriteSheetAtlas.Chunk> heroChunks = readAtlas.getChunks( "hero" );
+        assertEquals( 2, heroChunks.size() );
+        assertEquals( 3, heroChunks.get( 1 ).offsetX );
+        assertEquals( 4, heroChunks.get( 1 ).offsetY );
+        assertEquals( 1, readAtlas.getChunks( "characters/npc" ).size() );
+        assertNull( readAtlas.getChunks( "missing" ) );
+    }
+
+    /**
+     * Verify the grid headers flag survives a round trip through a stream.
+     * @throws IOException If the atlas could not be written or read.
+     */
+    @Test
+    public void streamRoundTripKeepsGridHeaders() throws IOException
+    {
+        SpriteSheetAtlas atlas = new SpriteSheetAtlas( 30, true );
+        atlas.addChunk( new SpriteSheetAtlas.Chunk( "tile", 0, 30, 30, 0, 0, 30, 30 ) );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try( DataOutputStream output = new DataOutputStream( bytes ) )
+        {
+            atlas.write( output );
+        }
+        SpriteSheetAtlas readAtlas = SpriteSheetAtlas.read( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ), "memory" );
+
+        assertTrue( readAtlas.hasGridHeaders() );
+        assertEquals( 30, readAtlas.getSpriteSize() );
+        assertChunkEquals( atlas.getChunks().get( 0 ), readAtlas.getChunks().get( 0 ) );
+    }
+
+    /**
+     * Verify a file that isn't an atlas is refused rather than read as garbage.
+     * @throws IOException If the file could not be written.
+     */
+    @Test
+    public void readRefusesOtherFiles() throws IOException
+    {
+        File notAnAtlas = new File( temporaryFolder, "notAnAtlas" + SpriteSheetAtlas.ATLAS_EXTENSION );
+        Files.write( notAnAtlas.toPath(), new byte[]{ 1, 2, 3, 4, 5, 6, 7, 8 } );
+
+        assertThrows( IOException.class, () -> SpriteSheetAtlas.read( notAnAtlas ) );
+    }
+
+    /**
+     * Assert two chunks describe the same area of the same source image.
+     * @param expected The chunk that was written.
+     * @param actual The chunk that was read.
+     */
+    private static void assertChunkEquals( SpriteSheetAtlas.Chunk expected, SpriteSheetAtlas.Chunk actual )
+    {
+        assertEquals( expected.name,           actual.name );
+        assertEquals( expected.number,         actual.number );
+        assertEquals( expected.srcImageWidth,  actual.srcImageWidth );
+        assertEquals( expected.srcImageHeight, actual.srcImageHeight );
+        assertEquals( expected.x,              actual.x );
+        assertEquals( expected.y,              actual.y );
+        assertEquals( expected.width,          actual.width );
+        assertEquals( expected.height,         actual.height );
+        assertEquals( expected.offsetX,        actual.offsetX );
+        assertEquals( expected.offsetY,        actual.offsetY );
+    }
+}
@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class SpriteSheetDaemonTest
+{
+    /** A temporary folder for the manifest, source images, and sprite sheets of each test */
+    @TempDir
+    File temporaryFolder;
+
+    /**
+     * Verify requests are parsed into their fields in order, with strings unescaped and null values left out.
+     */
+    @Test
+    public void parseRequestReadsEveryValueType()
+    {
+        Map<String, String> request = SpriteSheetDaemon.parseRequest( " { \"id\": \"a\\\"b\\\\c\\u0041\", \"spriteSize\": 30, \"packed\": true, \"ratio\": -1.5e3, \"include\": null } " );
+
+        assertEquals( Arrays.asList( "id", "spriteSize", "packed", "ratio" ), Arrays.asList( request.keySet().toArray() ) );
+        assertEquals( "a\"b\\cA", request.get( "id" ) );
+        assertEquals( "30",       request.get( "spriteSize" ) );
+        assertEquals( "true",     request.get( "packed" ) );
+        assertEquals( "-1.5e3",   request.get( "ratio" ) );
+        assertTrue( SpriteSheetDaemon.parseRequest( "{}" ).isEmpty() );
+    }
+
+    /**
+     * Verify malformed requests are refused.
+     */
+    @Test
+    public void parseRequestRefusesMalformedRequests()
+    {
+        String[] malformed = { "", "[]", "{\"id\": \"1\"", "{\"id\": 1 \"command\": \"build\"}", "{\"id\": \"unterminated}",
+                               "{\"id\": yes}", "{\"id\": \"1\"} trailing", "{\"id\": \"\\u00g1\"}", "{id: \"1\"}" };
+        for( String line : malformed )
+        {
+            assertThrows( IllegalArgumentException.class, () -> SpriteSheetDaemon.parseRequest( line ), line );
+        }
+    }
+
+    /**
+     * Verify a batch skips blank and comment lines, names requests by line number, reports malformed
+     * and unsupported requests as failures, and runs the parses after the builds they read.
+     * @throws IOException If the manifest or a source image could not be written.
+     */
+    @Test
+    public void runBatchRunsEveryRequestOfTheManifest() throws IOException
+    {
+        File source      = new File( temporaryFolder, "source" );
+        File destination = new File( temporaryFolder, "sheets" );
+        File parsed      = new File( temporaryFolder, "parsed" );
+        assertTrue( source.mkdir() && destination.mkdir() && parsed.mkdir() );
+        BufferedImage image = new BufferedImage( 20, 10, BufferedImage.TYPE_INT_ARGB );
+        for( int x = 0; x < 20; x++ )
+        {
+            for( int y = 0; y < 10; y++ )
+            {
+                image.setRGB( x, y, 0xff000000 | ( x * 12 << 16 ) | ( y * 25 ) );
+            }
+        }
+        ImageIO.write( image, "png", new File( source, "hero.png" ) );
+
+        List<String> manifestLines = Arrays.asList(
+            "# Builds two sprite sizes of the same source, then parses one of them",
+            "{\"command\": \"parse\", \"sheet\": " + quote( new File( destination, "spritesheet_10.png" ) ) + ", \"destination\": " + quote( parsed ) + "}",
+            "",
+            "{\"id\": \"small\", \"command\": \"build\", \"spriteSize\": 10, \"source\": " + quote( source ) + ", \"destination\": " + quote( destination ) + "}",
+            "{\"id\": \"large\", \"command\": \"build\", \"spriteSize\": 15, \"source\": " + quote( source ) + ", \"destination\": " + quote( destination ) + "}",
+            "{\"command\": \"build\"",
+            "{\"command\": \"stats\"}" );
+        File manifest = new File( temporaryFolder, "manifest.jsonl" );
+        Files.write( manifest.toPath(), manifestLines, StandardCharsets.UTF_8 );
+
+        ByteArrayOutputStream responseBytes = new ByteArrayOutputStream();
+        SpriteSheetDaemon daemon = new SpriteSheetDaemon( 2, 1 << 20 );
+        int failed = daemon.runBatch( manifest, new PrintStream( responseBytes, true, "UTF-8" ) );
+        List<String> responses = Arrays.asList( new String( responseBytes.toByteArray(), StandardCharsets.UTF_8 ).trim().split( "\n" ) );
+
+        //The malformed request on line 6 and the unsupported command on line 7 fail, the rest succeed
+        assertEquals( 2, failed, String.join( "\n", responses ) );
+        assertEquals( 6, responses.size() );
+        assertTrue( findResponse( responses, "\"id\": \"6\"" ).contains( "\"status\": \"error\"" ) );
+        assertTrue( findResponse( responses, "\"id\": \"7\"" ).contains( "\"status\": \"error\"" ) );
+        assertTrue( findResponse( responses, "\"id\": \"small\"" ).contains( "\"status\": \"ok\"" ) );
+        assertTrue( findResponse( responses, "\"id\": \"large\"" ).contains( "\"status\": \"ok\"" ) );
+        assertTrue( findResponse( responses, "\"id\": \"2\"" ).contains( "\"status\": \"ok\"" ) );
+        assertTrue( responses.get( responses.size() - 1 ).startsWith( "{\"command\": \"batch\", \"status\": \"error\"" ) );
+
+        assertTrue( new File( destination, "spritesheet_10.png" ).isFile() );
+        assertTrue( new File( destination, "spritesheet_15.png" ).isFile() );
+        assertTrue( new File( parsed, "hero.png" ).isFile() );
+    }
+
+    /**
+     * Find the single response holding the given text.
+     * @param responses The response lines.
+     * @param text The text to look for, such as the id field.
+     * @return The response.
+     */
+    private static String findResponse( List<String> responses, String text )
+    {
+        String found = null;
+        for( String response : responses )
+        {
+            if( response.contains( text ) )
+            {
+                assertNull( found, "More than one response holds " + text );
+                found = response;
+            }
+        }
+        assertNotNull( found, "No response holds " + text );
+        return found;
+    }
+
+    /**
+     * Quote the path of a file as a JSON string.
+     * @param file The file.
+     * @return The quoted path.
+     */
+    private static String quote( File file )
+    {
+        return "\"" + file.getAbsolutePath().replace( "\\", "\\\\" ).replace( "\"", "\\\"" ) + "\"";
+    }
+}
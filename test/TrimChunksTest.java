@@ -0,0 +1,171 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author agent
+ * Date: 2026
+ */
+public class TrimChunksTest
+{
+    /** The sprite size the sprite sheets are built with */
+    private static final int SPRITE_SIZE = 10;
+
+    /** A temporary folder for the source images, sprite sheets, and parsed images of each test */
+    @TempDir
+    File temporaryFolder;
+
+    /**
+     * Verify a packed sprite sheet built with trimming leaves out the transparent chunks and borders,
+     * and the parser recreates every source image exactly.
+     * @throws IOException If an image could not be written or read.
+     */
+    @Test
+    public void packedLayoutRoundTrip() throws IOException
+    {
+        BufferedImage sparse = createSparseImage();
+        BufferedImage solid  = createOpaqueImage( 10, 10, 2 );
+        File parsed = buildAndParse( true, sparse, solid );
+
+        assertImageEquals( sparse, new File( parsed, "sparse.png" ) );
+        assertImageEquals( solid,  new File( parsed, "solid.png" ) );
+    }
+
+    /**
+     * Verify a grid sprite sheet built with trimming leaves out the fully transparent chunks, and the
+     * parser recreates them.
+     * @throws IOException If an image could not be written or read.
+     */
+    @Test
+    public void gridLayoutRoundTrip() throws IOException
+    {
+        //Grid headers can't identify partly transparent chunks, so every chunk is either opaque or fully transparent
+        BufferedImage holes = createOpaqueImage( 30, 20, 3 );
+        clear( holes, 10, 0, 10, 10 );
+        clear( holes,  0, 10, 10, 10 );
+        BufferedImage solid = createOpaqueImage( 10, 10, 4 );
+        File parsed = buildAndParse( false, holes, solid );
+
+        assertImageEquals( holes, new File( parsed, "sparse.png" ) );
+        assertImageEquals( solid, new File( parsed, "solid.png" ) );
+    }
+
+    /**
+     * Build a trimmed sprite sheet of two source images named sparse and solid, then parse it.
+     * @param packedLayout True to build a packed sprite sheet, false to build a grid sprite sheet.
+     * @param sparse The source image holding transparent chunks.
+     * @param solid An opaque source image.
+     * @return The directory holding the parsed images.
+     * @throws IOException If a source image could not be written.
+     */
+    private File buildAndParse( boolean packedLayout, BufferedImage sparse, BufferedImage solid ) throws IOException
+    {
+        File source      = new File( temporaryFolder, "source" );
+        File destination = new File( temporaryFolder, "sheets" );
+        File parsed      = new File( temporaryFolder, "parsed" );
+        assertTrue( source.mkdir() && destination.mkdir() && parsed.mkdir() );
+        ImageIO.write( sparse, "png", new File( source, "sparse.png" ) );
+        ImageIO.write( solid,  "png", new File( source, "solid.png" ) );
+
+        SpriteSheetManager manager = new SpriteSheetManager( SPRITE_SIZE );
+        manager.setPackedLayout( packedLayout );
+        manager.setTrimChunks( true );
+        assertTrue( manager.buildSpriteSheet( source.getPath(), destination.getPath() ), manager.getBuildFailure() );
+
+        //Every fully transparent chunk is left out, so the sheet holds fewer pixels than the untrimmed chunks
+        BufferedImage spriteSheet = ImageIO.read( new File( destination, "spritesheet_" + SPRITE_SIZE + ".png" ) );
+        assertNotNull( spriteSheet );
+        assertTrue( spriteSheet.getWidth() * spriteSheet.getHeight() < 8 * SPRITE_SIZE * SPRITE_SIZE );
+
+        assertTrue( manager.parseSpriteSheet( new File( destination, "spritesheet_" + SPRITE_SIZE + ".png" ).getPath(), parsed.getPath() ), manager.getParseFailure() );
+        return parsed;
+    }
+
+    /**
+     * Create a 30x20 image whose six chunks are, in order: opaque, fully transparent, transparent apart from
+     * a 3x4 opaque area, transparent apart from translucent pixels along one edge, fully transparent, and opaque.
+     * @return The TYPE_INT_ARGB image.
+     */
+    private static BufferedImage createSparseImage()
+    {
+        BufferedImage image = createOpaqueImage( 30, 20, 1 );
+        clear( image, 10,  0, 10, 10 );
+        clear( image, 20,  0, 10, 10 );
+        clear( image,  0, 10, 10, 10 );
+        clear( image, 10, 10, 10, 10 );
+
+        Random random = new Random( 24 );
+        for( int y = 2; y < 6; y++ )
+        {
+            for( int x = 24; x < 27; x++ )
+            {
+                image.setRGB( x, y, 0xff000000 | random.nextInt() );
+            }
+        }
+        for( int y = 10; y < 20; y++ )
+        {
+            image.setRGB( 9, y, ( random.nextInt() & 0x40ffffff ) | 0x10000000 );
+        }
+        return image;
+    }
+
+    /**
+     * Create an image of random opaque pixels.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param seed The seed of the random pixels.
+     * @return The TYPE_INT_ARGB image.
+     */
+    private static BufferedImage createOpaqueImage( int width, int height, long seed )
+    {
+        Random random = new Random( seed );
+        BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+        for( int y = 0; y < height; y++ )
+        {
+            for( int x = 0; x < width; x++ )
+            {
+                image.setRGB( x, y, 0xff000000 | random.nextInt() );
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Make an area of an image fully transparent.
+     * @param image The image.
+     * @param x The x coordinate of the area.
+     * @param y The y coordinate of the area.
+     * @param width The width of the area.
+     * @param height The height of the area.
+     */
+    private static void clear( BufferedImage image, int x, int y, int width, int height )
+    {
+        image.setRGB( x, y, width, height, new int[ width * height ], 0, width );
+    }
+
+    /**
+     * Assert a parsed image file holds exactly the pixels of the source image.
+     * @param expected The source image.
+     * @param parsedFile The parsed image file.
+     * @throws IOException If the parsed image could not be read.
+     */
+    private static void assertImageEquals( BufferedImage expected, File parsedFile ) throws IOException
+    {
+        BufferedImage actual = ImageIO.read( parsedFile );
+        assertNotNull( actual, parsedFile.getName() );
+        assertEquals( expected.getWidth(),  actual.getWidth() );
+        assertEquals( expected.getHeight(), actual.getHeight() );
+        assertArrayEquals( expected.getRGB( 0, 0, expected.getWidth(), expected.getHeight(), null, 0, expected.getWidth() ),
+                           actual.getRGB( 0, 0, actual.getWidth(), actual.getHeight(), null, 0, actual.getWidth() ) );
+    }
+}